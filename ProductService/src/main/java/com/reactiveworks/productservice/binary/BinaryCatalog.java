@@ -0,0 +1,315 @@
+package com.reactiveworks.productservice.binary;
+
+import static com.reactiveworks.productservice.binary.BinaryCatalogFormat.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+import com.reactiveworks.productservice.model.Product;
+
+/**
+ * Memory mapped view of a binary catalog file written by
+ * {@link BinaryCatalogWriter}.
+ *
+ * Opening the catalog maps its sections and decodes only the dictionaries;
+ * the columns are read in place when a product is asked for. The view is
+ * immutable and safe to share between threads.
+ */
+public final class BinaryCatalog {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("BinaryCatalog.class");
+	private static final char CITY_SEPARATOR = '/';
+
+	private final Path file;
+	private final int productCount;
+	private final String[] cities;
+	private final String[] categories;
+	private final String[] citySetNames;
+	private final IntBuffer citySetOffsets;
+	private final IntBuffer citySetData;
+	private final IntBuffer prices;
+	private final IntBuffer categoryIds;
+	private final IntBuffer citySetIds;
+	private final IntBuffer idOffsets;
+	private final IntBuffer nameOffsets;
+	private final ByteBuffer stringHeap;
+
+	private BinaryCatalog(Path file, FileChannel channel) throws IOException, InvalidDBRecordFormatException {
+		this.file = file;
+		if (channel.size() < HEADER_SIZE) {
+			throw new InvalidDBRecordFormatException(file + " is not a binary catalog");
+		}
+		ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(BYTE_ORDER);
+		if (header.getInt(0) != MAGIC) {
+			throw new InvalidDBRecordFormatException(file + " is not a binary catalog");
+		}
+		int version = header.getInt(Integer.BYTES);
+		if (version != VERSION) {
+			throw new InvalidDBRecordFormatException(
+					"version " + version + " of " + file + " is not supported, expected " + VERSION);
+		}
+		productCount = header.getInt(2 * Integer.BYTES);
+		int cityCount = header.getInt(3 * Integer.BYTES);
+		int categoryCount = header.getInt(4 * Integer.BYTES);
+		int citySetCount = header.getInt(5 * Integer.BYTES);
+
+		cities = readDictionary(mapSection(channel, header, SECTION_CITY_DICTIONARY), cityCount);
+		categories = readDictionary(mapSection(channel, header, SECTION_CATEGORY_DICTIONARY), categoryCount);
+		citySetOffsets = mapSection(channel, header, SECTION_CITY_SET_OFFSETS).asIntBuffer();
+		citySetData = mapSection(channel, header, SECTION_CITY_SET_DATA).asIntBuffer();
+		prices = mapSection(channel, header, SECTION_PRICE).asIntBuffer();
+		categoryIds = mapSection(channel, header, SECTION_CATEGORY).asIntBuffer();
+		citySetIds = mapSection(channel, header, SECTION_CITY_SET).asIntBuffer();
+		idOffsets = mapSection(channel, header, SECTION_ID_OFFSETS).asIntBuffer();
+		nameOffsets = mapSection(channel, header, SECTION_NAME_OFFSETS).asIntBuffer();
+		stringHeap = mapSection(channel, header, SECTION_STRING_HEAP);
+		if (prices.limit() != productCount || citySetOffsets.limit() != citySetCount + 1
+				|| idOffsets.limit() != productCount + 1) {
+			throw new InvalidDBRecordFormatException("sections of " + file + " do not match its header");
+		}
+
+		citySetNames = new String[citySetCount];
+		StringBuilder name = new StringBuilder();
+		for (int citySet = 0; citySet < citySetCount; citySet++) {
+			name.setLength(0);
+			for (int i = citySetOffsets.get(citySet); i < citySetOffsets.get(citySet + 1); i++) {
+				if (name.length() > 0) {
+					name.append(CITY_SEPARATOR);
+				}
+				name.append(cities[citySetData.get(i)]);
+			}
+			citySetNames[citySet] = name.toString();
+		}
+	}
+
+	/**
+	 * Maps the binary catalog file.
+	 * 
+	 * @param file path of the binary catalog file.
+	 * @return the catalog view.
+	 * @throws IOException                    when unable to read the file.
+	 * @throws InvalidDBRecordFormatException when the file is not a binary
+	 *                                        catalog of a supported version.
+	 */
+	public static BinaryCatalog open(Path file) throws IOException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of open() started");
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			BinaryCatalog catalog = new BinaryCatalog(file, channel);
+			LOGGER_OBJ.debug("execution of open() completed");
+			return catalog;
+		}
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	public int size() {
+		return productCount;
+	}
+
+	public String getProductId(int ordinal) {
+		return readHeapString(idOffsets, ordinal);
+	}
+
+	public String getProductName(int ordinal) {
+		return readHeapString(nameOffsets, ordinal);
+	}
+
+	public int getPrice(int ordinal) {
+		return prices.get(ordinal);
+	}
+
+	/**
+	 * Gives the dictionary id of the category of the product.
+	 * 
+	 * @param ordinal ordinal of the product.
+	 * @return the category id, -1 when the product has no category.
+	 */
+	public int getCategoryId(int ordinal) {
+		return categoryIds.get(ordinal);
+	}
+
+	public String getProductCategory(int ordinal) {
+		int category = categoryIds.get(ordinal);
+		return category == NO_CATEGORY ? null : categories[category];
+	}
+
+	/**
+	 * Gives the '/' separated cities of the product. Products with the same
+	 * cities share one String instance.
+	 * 
+	 * @param ordinal ordinal of the product.
+	 * @return the available cities of the product.
+	 */
+	public String getAvailableCity(int ordinal) {
+		return citySetNames[citySetIds.get(ordinal)];
+	}
+
+	/**
+	 * Gives the dictionary ids of the cities of the product.
+	 * 
+	 * @param ordinal ordinal of the product.
+	 * @return the city ids.
+	 */
+	public int[] getCityIds(int ordinal) {
+		int citySet = citySetIds.get(ordinal);
+		int start = citySetOffsets.get(citySet);
+		int[] cityIds = new int[citySetOffsets.get(citySet + 1) - start];
+		for (int i = 0; i < cityIds.length; i++) {
+			cityIds[i] = citySetData.get(start + i);
+		}
+		return cityIds;
+	}
+
+	/**
+	 * Gives the id of the set of cities of the product, see
+	 * {@link #getCitySet(int)}.
+	 * 
+	 * @param ordinal ordinal of the product.
+	 * @return the city set id.
+	 */
+	public int getCitySetId(int ordinal) {
+		return citySetIds.get(ordinal);
+	}
+
+	public int getCitySetCount() {
+		return citySetNames.length;
+	}
+
+	/**
+	 * Gives the '/' separated cities of the given set of cities.
+	 * 
+	 * @param citySetId id of the set of cities.
+	 * @return the cities of the set.
+	 */
+	public String getCitySet(int citySetId) {
+		return citySetNames[citySetId];
+	}
+
+	/**
+	 * Gives a read only view of the UTF-8 bytes of the id of the product, from
+	 * its position to its limit, without decoding them.
+	 * 
+	 * @param ordinal ordinal of the product.
+	 * @return the bytes of the product id.
+	 */
+	public ByteBuffer getProductIdBytes(int ordinal) {
+		return heapBytes(idOffsets, ordinal);
+	}
+
+	/**
+	 * Gives a read only view of the UTF-8 bytes of the name of the product, from
+	 * its position to its limit, without decoding them.
+	 * 
+	 * @param ordinal ordinal of the product.
+	 * @return the bytes of the product name.
+	 */
+	public ByteBuffer getProductNameBytes(int ordinal) {
+		return heapBytes(nameOffsets, ordinal);
+	}
+
+	public int getCityCount() {
+		return cities.length;
+	}
+
+	public String getCity(int cityId) {
+		return cities[cityId];
+	}
+
+	public int getCategoryCount() {
+		return categories.length;
+	}
+
+	public String getCategory(int categoryId) {
+		return categories[categoryId];
+	}
+
+	/**
+	 * Creates the product object of the given ordinal.
+	 * 
+	 * @param ordinal ordinal of the product.
+	 * @return a new product object.
+	 */
+	public Product getProduct(int ordinal) {
+		Product product = new Product();
+		product.setProductId(getProductId(ordinal));
+		product.setProductName(getProductName(ordinal));
+		product.setProductCategory(getProductCategory(ordinal));
+		product.setPrice(getPrice(ordinal));
+		product.setAvailableCity(getAvailableCity(ordinal));
+		return product;
+	}
+
+	/**
+	 * Gives a read only list view of the products. A product object is created
+	 * each time an element is read.
+	 * 
+	 * @return the list of products.
+	 */
+	public List<Product> asProductList() {
+		return new ProductList();
+	}
+
+	private String readHeapString(IntBuffer offsets, int ordinal) {
+		ByteBuffer view = heapBytes(offsets, ordinal);
+		byte[] bytes = new byte[view.remaining()];
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private ByteBuffer heapBytes(IntBuffer offsets, int ordinal) {
+		ByteBuffer view = stringHeap.duplicate();
+		view.limit(offsets.get(ordinal + 1));
+		view.position(offsets.get(ordinal));
+		return view;
+	}
+
+	private static ByteBuffer mapSection(FileChannel channel, ByteBuffer header, int section) throws IOException {
+		int entry = SECTION_TABLE_OFFSET + section * 2 * Long.BYTES;
+		long offset = header.getLong(entry);
+		long length = header.getLong(entry + Long.BYTES);
+		return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(BYTE_ORDER);
+	}
+
+	private static String[] readDictionary(ByteBuffer section, int count) {
+		String[] entries = new String[count];
+		for (int i = 0; i < count; i++) {
+			byte[] bytes = new byte[section.getInt()];
+			section.get(bytes);
+			entries[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return entries;
+	}
+
+	/**
+	 * List view over the products of the catalog.
+	 */
+	private final class ProductList extends AbstractList<Product> implements RandomAccess {
+
+		@Override
+		public Product get(int index) {
+			if (index < 0 || index >= productCount) {
+				throw new IndexOutOfBoundsException("index " + index + ", size " + productCount);
+			}
+			return getProduct(index);
+		}
+
+		@Override
+		public int size() {
+			return productCount;
+		}
+	}
+
+}
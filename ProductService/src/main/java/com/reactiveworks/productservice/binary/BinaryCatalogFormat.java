@@ -0,0 +1,56 @@
+package com.reactiveworks.productservice.binary;
+
+import java.nio.ByteOrder;
+
+/**
+ * Layout of the binary catalog file.
+ *
+ * <pre>
+ * header (HEADER_SIZE bytes)
+ *   int  magic, int version, int productCount, int cityCount,
+ *   int  categoryCount, int citySetCount, then one long offset and one long
+ *   length per section, in the order of the SECTION_ constants
+ * city dictionary       cityCount strings
+ * category dictionary   categoryCount strings
+ * city set offsets      int[citySetCount + 1] into the city set data
+ * city set data         int[] city ids of every distinct set of cities
+ * price column          int[productCount]
+ * category column       int[productCount] category id, -1 for none
+ * city set column       int[productCount] city set id
+ * product id offsets    int[productCount + 1] into the string heap
+ * product name offsets  int[productCount + 1] into the string heap
+ * string heap           UTF-8 bytes of the product ids and names
+ * </pre>
+ *
+ * A dictionary string is an int byte length followed by its UTF-8 bytes. All
+ * numbers are little endian and every section starts on an 8 byte boundary.
+ * Each section is limited to 2 GB so that it can be mapped in one buffer.
+ */
+final class BinaryCatalogFormat {
+
+	static final int MAGIC = 0x50434154; // "PCAT"
+	static final int VERSION = 1;
+	static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	static final int SECTION_CITY_DICTIONARY = 0;
+	static final int SECTION_CATEGORY_DICTIONARY = 1;
+	static final int SECTION_CITY_SET_OFFSETS = 2;
+	static final int SECTION_CITY_SET_DATA = 3;
+	static final int SECTION_PRICE = 4;
+	static final int SECTION_CATEGORY = 5;
+	static final int SECTION_CITY_SET = 6;
+	static final int SECTION_ID_OFFSETS = 7;
+	static final int SECTION_NAME_OFFSETS = 8;
+	static final int SECTION_STRING_HEAP = 9;
+	static final int SECTION_COUNT = 10;
+
+	static final int SECTION_TABLE_OFFSET = 6 * Integer.BYTES;
+	static final int HEADER_SIZE = SECTION_TABLE_OFFSET + SECTION_COUNT * 2 * Long.BYTES;
+	static final int ALIGNMENT = 8;
+	static final int NO_CATEGORY = -1;
+
+	private BinaryCatalogFormat() {
+
+	}
+
+}
@@ -0,0 +1,341 @@
+package com.reactiveworks.productservice.binary;
+
+import static com.reactiveworks.productservice.binary.BinaryCatalogFormat.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.dao.IProductDao;
+import com.reactiveworks.productservice.dao.registry.DaoRegistry;
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+import com.reactiveworks.productservice.model.Product;
+
+/**
+ * Compiles a catalog into the binary catalog file read by {@link BinaryCatalog}.
+ *
+ * Run as a tool it reads the products from a configured dao:
+ * <pre>
+ * java ... BinaryCatalogWriter &lt;output file&gt; [source dbtype]
+ * </pre>
+ */
+public class BinaryCatalogWriter {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("BinaryCatalogWriter.class");
+	private static final int OUTPUT_BUFFER_SIZE = 1024 * 1024;
+	private static final char CITY_SEPARATOR = '/';
+
+	private BinaryCatalogWriter() {
+
+	}
+
+	/**
+	 * Writes the products into a binary catalog file. The file is written aside
+	 * and moved into place, so a reader never maps a partly written file.
+	 * 
+	 * @param products products of the catalog.
+	 * @param file     path of the binary catalog file.
+	 * @throws IOException when unable to write the file or a section exceeds
+	 *                     2 GB.
+	 */
+	public static void write(List<Product> products, Path file) throws IOException {
+		LOGGER_OBJ.debug("execution of write() started");
+		int productCount = products.size();
+		Map<String, Integer> cityIds = new HashMap<>();
+		List<String> cityNames = new ArrayList<>();
+		Map<String, Integer> categoryIds = new LinkedHashMap<>();
+		Map<List<Integer>, Integer> citySetIds = new LinkedHashMap<>();
+		int[] categoryColumn = new int[productCount];
+		int[] citySetColumn = new int[productCount];
+		long heapLength = 0;
+
+		for (int ordinal = 0; ordinal < productCount; ordinal++) {
+			Product product = products.get(ordinal);
+			String category = product.getProductCategory();
+			categoryColumn[ordinal] = category == null ? NO_CATEGORY
+					: categoryIds.computeIfAbsent(category, key -> categoryIds.size());
+			List<Integer> citySet = encodeCities(product.getAvailableCity(), cityIds, cityNames);
+			citySetColumn[ordinal] = citySetIds.computeIfAbsent(citySet, key -> citySetIds.size());
+			heapLength += utf8Length(product.getProductId()) + utf8Length(product.getProductName());
+		}
+		if (heapLength > Integer.MAX_VALUE) {
+			throw new IOException("string heap of " + heapLength + " bytes exceeds 2 GB");
+		}
+
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		long[] sectionOffsets = new long[SECTION_COUNT];
+		long[] sectionLengths = new long[SECTION_COUNT];
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			SectionOutput output = new SectionOutput(channel, HEADER_SIZE);
+
+			output.begin(SECTION_CITY_DICTIONARY, sectionOffsets);
+			for (String city : cityNames) {
+				output.putString(city);
+			}
+			output.end(SECTION_CITY_DICTIONARY, sectionOffsets, sectionLengths);
+
+			output.begin(SECTION_CATEGORY_DICTIONARY, sectionOffsets);
+			for (String category : categoryIds.keySet()) {
+				output.putString(category);
+			}
+			output.end(SECTION_CATEGORY_DICTIONARY, sectionOffsets, sectionLengths);
+
+			output.begin(SECTION_CITY_SET_OFFSETS, sectionOffsets);
+			int cityMemberships = 0;
+			output.putInt(0);
+			for (List<Integer> citySet : citySetIds.keySet()) {
+				cityMemberships += citySet.size();
+				output.putInt(cityMemberships);
+			}
+			output.end(SECTION_CITY_SET_OFFSETS, sectionOffsets, sectionLengths);
+
+			output.begin(SECTION_CITY_SET_DATA, sectionOffsets);
+			for (List<Integer> citySet : citySetIds.keySet()) {
+				for (int cityId : citySet) {
+					output.putInt(cityId);
+				}
+			}
+			output.end(SECTION_CITY_SET_DATA, sectionOffsets, sectionLengths);
+
+			output.begin(SECTION_PRICE, sectionOffsets);
+			for (Product product : products) {
+				output.putInt(product.getPrice());
+			}
+			output.end(SECTION_PRICE, sectionOffsets, sectionLengths);
+
+			output.begin(SECTION_CATEGORY, sectionOffsets);
+			output.putInts(categoryColumn);
+			output.end(SECTION_CATEGORY, sectionOffsets, sectionLengths);
+
+			output.begin(SECTION_CITY_SET, sectionOffsets);
+			output.putInts(citySetColumn);
+			output.end(SECTION_CITY_SET, sectionOffsets, sectionLengths);
+
+			output.begin(SECTION_ID_OFFSETS, sectionOffsets);
+			int heapOffset = 0;
+			output.putInt(heapOffset);
+			for (Product product : products) {
+				heapOffset += utf8Length(product.getProductId());
+				output.putInt(heapOffset);
+			}
+			output.end(SECTION_ID_OFFSETS, sectionOffsets, sectionLengths);
+
+			output.begin(SECTION_NAME_OFFSETS, sectionOffsets);
+			output.putInt(heapOffset);
+			for (Product product : products) {
+				heapOffset += utf8Length(product.getProductName());
+				output.putInt(heapOffset);
+			}
+			output.end(SECTION_NAME_OFFSETS, sectionOffsets, sectionLengths);
+
+			output.begin(SECTION_STRING_HEAP, sectionOffsets);
+			for (Product product : products) {
+				output.putBytes(utf8(product.getProductId()));
+			}
+			for (Product product : products) {
+				output.putBytes(utf8(product.getProductName()));
+			}
+			output.end(SECTION_STRING_HEAP, sectionOffsets, sectionLengths);
+			output.flush();
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(BYTE_ORDER);
+			header.putInt(MAGIC).putInt(VERSION).putInt(productCount).putInt(cityNames.size())
+					.putInt(categoryIds.size()).putInt(citySetIds.size());
+			for (int section = 0; section < SECTION_COUNT; section++) {
+				header.putLong(sectionOffsets[section]).putLong(sectionLengths[section]);
+			}
+			header.flip();
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+			channel.force(true);
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		LOGGER_OBJ.info("wrote " + productCount + " products, " + cityNames.size() + " cities, "
+				+ categoryIds.size() + " categories and " + citySetIds.size() + " city sets to " + file);
+		LOGGER_OBJ.debug("execution of write() completed");
+	}
+
+	/**
+	 * Compiles the products of a dao into a binary catalog file.
+	 * 
+	 * @param args the output file and optionally the dbtype of the source dao.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("usage: BinaryCatalogWriter <output file> [source dbtype]");
+			System.exit(1);
+		}
+		try {
+			long start = System.nanoTime();
+			DaoRegistry daoRegistry = DaoRegistry.getInstance();
+			IProductDao productDao = args.length > 1 ? daoRegistry.getProductDao(args[1])
+					: daoRegistry.getProductDao();
+			write(productDao.getProducts(), Paths.get(args[0]));
+			LOGGER_OBJ.info("binary catalog compiled in "
+					+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+		} catch (IOException | DataBaseAccessException | DBOperationFailureException
+				| InvalidDBRecordFormatException exp) {
+			LOGGER_OBJ.error("unable to compile the binary catalog " + exp);
+			System.exit(2);
+		}
+	}
+
+	/**
+	 * Converts the '/' separated cities into dictionary ids, in field order and
+	 * without repetitions.
+	 */
+	private static List<Integer> encodeCities(String availableCity, Map<String, Integer> cityIds,
+			List<String> cityNames) {
+		List<Integer> citySet = new ArrayList<>();
+		if (availableCity == null) {
+			return citySet;
+		}
+		int start = 0;
+		while (start <= availableCity.length()) {
+			int end = availableCity.indexOf(CITY_SEPARATOR, start);
+			if (end < 0) {
+				end = availableCity.length();
+			}
+			String city = availableCity.substring(start, end).trim();
+			if (!city.isEmpty()) {
+				Integer cityId = cityIds.get(city.toLowerCase(Locale.ROOT));
+				if (cityId == null) {
+					cityId = cityNames.size();
+					cityIds.put(city.toLowerCase(Locale.ROOT), cityId);
+					cityNames.add(city);
+				}
+				if (!citySet.contains(cityId)) {
+					citySet.add(cityId);
+				}
+			}
+			start = end + 1;
+		}
+		return citySet;
+	}
+
+	private static byte[] utf8(String text) {
+		return text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Gives the UTF-8 length of the text without encoding it.
+	 */
+	static int utf8Length(String text) {
+		if (text == null) {
+			return 0;
+		}
+		int length = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+					&& Character.isLowSurrogate(text.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Buffered little endian output which tracks the file position of the
+	 * sections.
+	 */
+	private static final class SectionOutput {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE).order(BYTE_ORDER);
+		private long position;
+
+		SectionOutput(FileChannel channel, long start) {
+			this.channel = channel;
+			this.position = start;
+		}
+
+		void begin(int section, long[] sectionOffsets) throws IOException {
+			while (position % ALIGNMENT != 0) {
+				ensure(1);
+				buffer.put((byte) 0);
+				position++;
+			}
+			sectionOffsets[section] = position;
+		}
+
+		void end(int section, long[] sectionOffsets, long[] sectionLengths) throws IOException {
+			long length = position - sectionOffsets[section];
+			if (length > Integer.MAX_VALUE) {
+				throw new IOException("section " + section + " of " + length + " bytes exceeds 2 GB");
+			}
+			sectionLengths[section] = length;
+		}
+
+		void putInt(int value) throws IOException {
+			ensure(Integer.BYTES);
+			buffer.putInt(value);
+			position += Integer.BYTES;
+		}
+
+		void putInts(int[] values) throws IOException {
+			for (int value : values) {
+				putInt(value);
+			}
+		}
+
+		void putBytes(byte[] bytes) throws IOException {
+			int offset = 0;
+			while (offset < bytes.length) {
+				ensure(1);
+				int length = Math.min(buffer.remaining(), bytes.length - offset);
+				buffer.put(bytes, offset, length);
+				offset += length;
+				position += length;
+			}
+		}
+
+		void putString(String text) throws IOException {
+			byte[] bytes = utf8(text);
+			putInt(bytes.length);
+			putBytes(bytes);
+		}
+
+		void flush() throws IOException {
+			buffer.flip();
+			long writePosition = position - buffer.remaining();
+			while (buffer.hasRemaining()) {
+				writePosition += channel.write(buffer, writePosition);
+			}
+			buffer.clear();
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,377 @@
+package com.reactiveworks.productservice.catalog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import org.roaringbitmap.ImmutableBitmapDataProvider;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import com.reactiveworks.productservice.model.PriceOrder;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.ProductPage;
+import com.reactiveworks.productservice.model.ProductPageRequest;
+import com.reactiveworks.productservice.util.ProductKeys;
+
+/**
+ * Queries of a catalog kept as {@link CatalogColumns}, whatever memory the
+ * columns are stored in.
+ *
+ * The products are sorted by price and product id and the position of a
+ * product in that order is its ordinal in every column. Each city and each
+ * category owns a compressed bitmap of its ordinals; since the ordinals follow
+ * the price order, every bitmap lists its products by price and doubles as the
+ * price listing of its city. A Product object is created only for a product a
+ * query returns, each time it is read from the result; the results are lists
+ * over the ordinals of the hits. The city and category queries give the
+ * products in price order. A product is found by its id through the id table
+ * of the columns.
+ */
+abstract class AbstractColumnarCatalog implements IProductCatalog {
+
+	private static final ImmutableBitmapDataProvider NO_ORDINALS = new RoaringBitmap();
+
+	protected final int size;
+	private final String[] categories;
+	private final String[] citySets;
+
+	protected AbstractColumnarCatalog(CatalogColumns columns) {
+		this.size = columns.size;
+		this.categories = columns.categories;
+		this.citySets = columns.citySets;
+	}
+
+	/**
+	 * Gives the price of the product of the given ordinal.
+	 */
+	protected abstract int price(int ordinal);
+
+	/**
+	 * Gives the code of the category of the product of the given ordinal.
+	 */
+	protected abstract int categoryCode(int ordinal);
+
+	/**
+	 * Gives the code of the availableCity field of the product of the given
+	 * ordinal.
+	 */
+	protected abstract int citySetCode(int ordinal);
+
+	/**
+	 * Decodes the given entry of the text column, see {@link CatalogColumns}.
+	 */
+	protected abstract String text(int index);
+
+	/**
+	 * Tells whether the given entry of the text column holds the given UTF-8
+	 * bytes.
+	 */
+	protected abstract boolean textEquals(int index, byte[] value);
+
+	/**
+	 * Gives the number of slots of the id table, see {@link CatalogColumns}.
+	 */
+	protected abstract int idTableLength();
+
+	/**
+	 * Gives the ordinal plus one held by the given slot of the id table, 0 for
+	 * an empty slot.
+	 */
+	protected abstract int idTableEntry(int slot);
+
+	/**
+	 * Gives the bitmap of the ordinals of the given city, or null when the city
+	 * has no product.
+	 */
+	protected abstract ImmutableBitmapDataProvider cityBitmap(String cityKey);
+
+	/**
+	 * Gives the bitmap of the ordinals of the given category available in the
+	 * given city, or null when no product matches.
+	 */
+	protected abstract ImmutableBitmapDataProvider cityCategoryBitmap(String cityKey, String categoryKey);
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gives all the products of the catalog, cheapest first.
+	 *
+	 * @return unmodifiable list of the products.
+	 */
+	@Override
+	public List<Product> getProducts() {
+		return new OrdinalList(null, size);
+	}
+
+	@Override
+	public List<Product> getProducts(String city) {
+		return productsOf(bitmap(city));
+	}
+
+	@Override
+	public List<Product> getProducts(String city, String category) {
+		return productsOf(bitmap(city, category));
+	}
+
+	@Override
+	public ProductPage getProducts(String city, ProductPageRequest request) {
+		return page(bitmap(city), request);
+	}
+
+	@Override
+	public ProductPage getProducts(String city, String category, ProductPageRequest request) {
+		return page(bitmap(city, category), request);
+	}
+
+	@Override
+	public List<Product> getProductsInPriceRange(String city, String category, int minPrice, int maxPrice) {
+		if (minPrice > maxPrice) {
+			return Collections.emptyList();
+		}
+		ImmutableBitmapDataProvider hits = bitmap(city, category);
+		int start = firstPriceNotBelow(minPrice);
+		int end = maxPrice == Integer.MAX_VALUE ? size : firstPriceNotBelow(maxPrice + 1);
+		int count = countBelow(hits, end) - countBelow(hits, start);
+		if (count <= 0) {
+			return Collections.emptyList();
+		}
+		int[] ordinals = new int[count];
+		PeekableIntIterator iterator = hits.getIntIterator();
+		iterator.advanceIfNeeded(start);
+		for (int i = 0; i < count; i++) {
+			ordinals[i] = iterator.next();
+		}
+		return new OrdinalList(ordinals, count);
+	}
+
+	@Override
+	public Product findProduct(String productId) {
+		if (productId == null) {
+			return null;
+		}
+		byte[] key = productId.getBytes(StandardCharsets.UTF_8);
+		int mask = idTableLength() - 1;
+		for (int slot = CatalogColumns.idHash(key, 0, key.length) & mask;; slot = (slot + 1) & mask) {
+			int entry = idTableEntry(slot);
+			if (entry == 0) {
+				return null;
+			}
+			if (textEquals(2 * (entry - 1), key)) {
+				return product(entry - 1);
+			}
+		}
+	}
+
+	/**
+	 * Gives the catalog with the given changes applied. The columns are sorted
+	 * by price, so an added product could land at any ordinal: the changes are
+	 * kept aside of the columns instead, see {@link OverlayProductCatalog}, until
+	 * they grow enough for the columns to be built again.
+	 *
+	 * @param products   products to add; missing ones are left out.
+	 * @param removedIds ids of the products to remove.
+	 * @return the catalog with the changes applied.
+	 */
+	@Override
+	public IProductCatalog merge(List<Product> products, Set<String> removedIds) {
+		return OverlayProductCatalog.merge(this, this::newBuilder, products, removedIds);
+	}
+
+	/**
+	 * Creates a builder of a catalog of the layout of this one.
+	 */
+	protected abstract IProductCatalog.Builder newBuilder();
+
+	/**
+	 * Creates the product of the given ordinal out of the columns.
+	 *
+	 * @param ordinal ordinal of the product.
+	 * @return a new product.
+	 */
+	protected Product product(int ordinal) {
+		Product product = new Product();
+		product.setProductId(text(2 * ordinal));
+		product.setProductName(text(2 * ordinal + 1));
+		product.setProductCategory(category(categoryCode(ordinal)));
+		product.setPrice(price(ordinal));
+		product.setAvailableCity(citySet(citySetCode(ordinal)));
+		return product;
+	}
+
+	protected String category(int code) {
+		return code == CatalogColumns.NO_CODE ? null : categories[code];
+	}
+
+	protected String citySet(int code) {
+		return code == CatalogColumns.NO_CODE ? null : citySets[code];
+	}
+
+	protected int getCategoryCount() {
+		return categories.length;
+	}
+
+	protected int getCitySetCount() {
+		return citySets.length;
+	}
+
+	private ImmutableBitmapDataProvider bitmap(String city) {
+		ImmutableBitmapDataProvider bitmap = city == null ? null : cityBitmap(ProductKeys.normalizeCity(city));
+		return bitmap == null ? NO_ORDINALS : bitmap;
+	}
+
+	private ImmutableBitmapDataProvider bitmap(String city, String category) {
+		if (city == null || category == null) {
+			return NO_ORDINALS;
+		}
+		ImmutableBitmapDataProvider bitmap = cityCategoryBitmap(ProductKeys.normalizeCity(city),
+				ProductKeys.normalizeCategory(category));
+		return bitmap == null ? NO_ORDINALS : bitmap;
+	}
+
+	private List<Product> productsOf(ImmutableBitmapDataProvider ordinals) {
+		if (ordinals.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return new OrdinalList(ordinals.toArray(), ordinals.getCardinality());
+	}
+
+	/**
+	 * Reads the page out of the bitmap of the listing. The page starts at a rank
+	 * of the bitmap for an offset page and at the first ordinal past the given
+	 * product for a keyset page; a descending page walks the bitmap backwards.
+	 */
+	private ProductPage page(ImmutableBitmapDataProvider listing, ProductPageRequest request) {
+		int total = listing.getCardinality();
+		boolean ascending = request.getOrder() == PriceOrder.ASCENDING;
+		int skipped;
+		long ordinal;
+		if (!request.isKeyset()) {
+			skipped = Math.min(total, request.getOffset());
+			ordinal = skipped == total ? -1 : listing.select(ascending ? skipped : total - 1 - skipped);
+		} else if (ascending) {
+			int position = firstAfter(request.getAfterPrice(), request.getAfterProductId());
+			skipped = countBelow(listing, position);
+			ordinal = position == size ? -1 : listing.nextValue(position);
+		} else {
+			int position = firstNotBefore(request.getAfterPrice(), request.getAfterProductId());
+			skipped = total - countBelow(listing, position);
+			ordinal = position == 0 ? -1 : listing.previousValue(position - 1);
+		}
+		int count = Math.min(total - skipped, request.getLimit());
+		Product[] page = new Product[count];
+		for (int i = 0; i < count; i++) {
+			page[i] = product((int) ordinal);
+			if (i + 1 < count) {
+				ordinal = ascending ? listing.nextValue((int) ordinal + 1) : listing.previousValue((int) ordinal - 1);
+			}
+		}
+		return new ProductPage(Collections.unmodifiableList(Arrays.asList(page)), total, skipped + count < total,
+				request);
+	}
+
+	/**
+	 * Gives the number of ordinals of the bitmap below the given position.
+	 */
+	private static int countBelow(ImmutableBitmapDataProvider bitmap, int position) {
+		return position == 0 ? 0 : (int) bitmap.rankLong(position - 1);
+	}
+
+	/**
+	 * Finds the ordinal of the first product which sorts after the given price
+	 * and product id.
+	 */
+	private int firstAfter(int price, String productId) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compare(middle, price, productId) <= 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Finds the ordinal of the first product which does not sort before the given
+	 * price and product id.
+	 */
+	private int firstNotBefore(int price, String productId) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compare(middle, price, productId) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private int firstPriceNotBelow(int price) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (price(middle) < price) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Compares the product of the given ordinal with the given price and product
+	 * id; the id is only decoded on a price tie.
+	 */
+	private int compare(int ordinal, int price, String productId) {
+		int comparison = Integer.compare(price(ordinal), price);
+		if (comparison != 0) {
+			return comparison;
+		}
+		return CatalogColumns.ID_ORDER.compare(text(2 * ordinal), productId);
+	}
+
+	/**
+	 * Unmodifiable list over ordinals of the catalog which creates the product of
+	 * an ordinal when it is read. Without ordinals it lists the whole catalog.
+	 */
+	private final class OrdinalList extends AbstractList<Product> implements RandomAccess {
+
+		private final int[] ordinals;
+		private final int size;
+
+		private OrdinalList(int[] ordinals, int size) {
+			this.ordinals = ordinals;
+			this.size = size;
+		}
+
+		@Override
+		public Product get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("index " + index + " of a list of size " + size);
+			}
+			return product(ordinals == null ? index : ordinals[index]);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+}
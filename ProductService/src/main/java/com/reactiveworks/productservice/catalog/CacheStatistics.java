@@ -0,0 +1,77 @@
+package com.reactiveworks.productservice.catalog;
+
+/**
+ * Point in time statistics of a CatalogQueryCache.
+ */
+public class CacheStatistics {
+
+	private final long hitCount;
+	private final long missCount;
+	private final long evictionCount;
+	private final long invalidationCount;
+	private final int entryCount;
+	private final long weight;
+
+	/**
+	 * Creates the statistics.
+	 * 
+	 * @param hitCount          lookups answered from the cache.
+	 * @param missCount         lookups not answered from the cache.
+	 * @param evictionCount     entries removed to respect the weight bound or
+	 *                          because they expired.
+	 * @param invalidationCount entries removed because the catalog changed.
+	 * @param entryCount        entries currently cached.
+	 * @param weight            current weight of the cached entries.
+	 */
+	public CacheStatistics(long hitCount, long missCount, long evictionCount, long invalidationCount,
+			int entryCount, long weight) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+		this.invalidationCount = invalidationCount;
+		this.entryCount = entryCount;
+		this.weight = weight;
+	}
+
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	public long getMissCount() {
+		return missCount;
+	}
+
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	public long getInvalidationCount() {
+		return invalidationCount;
+	}
+
+	public int getEntryCount() {
+		return entryCount;
+	}
+
+	public long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Gives the share of the lookups answered from the cache.
+	 * 
+	 * @return the hit rate from 0 to 1, 0 before the first lookup.
+	 */
+	public double getHitRate() {
+		long lookups = hitCount + missCount;
+		return lookups == 0 ? 0 : (double) hitCount / lookups;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStatistics [hitCount=" + hitCount + ", missCount=" + missCount + ", evictionCount="
+				+ evictionCount + ", invalidationCount=" + invalidationCount + ", entryCount=" + entryCount
+				+ ", weight=" + weight + "]";
+	}
+
+}
@@ -0,0 +1,260 @@
+package com.reactiveworks.productservice.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.util.ProductKeys;
+
+/**
+ * Compressed bitmap index of the catalog by city and by category.
+ *
+ * Every product gets a dense ordinal in catalog order. Each city and each
+ * category owns a bitmap of the ordinals of its products, so a city and
+ * category query is a bitmap AND followed by materializing only the hits.
+ * Removing a product leaves a hole at its ordinal, which no bitmap holds; the
+ * ordinals are made dense again once the holes are half of them.
+ */
+public class CatalogBitmapIndex {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CatalogBitmapIndex.class");
+
+	private final Product[] products;
+	private final Map<String, RoaringBitmap> cityBitmaps;
+	private final Map<String, RoaringBitmap> categoryBitmaps;
+	private final int holes;
+
+	/**
+	 * Builds the index over the given products.
+	 *
+	 * @param productList products of the catalog.
+	 */
+	public CatalogBitmapIndex(List<Product> productList) {
+		LOGGER_OBJ.debug("execution of CatalogBitmapIndex() started");
+		products = productList == null ? new Product[0] : productList.toArray(new Product[0]);
+		Map<String, RoaringBitmap> cities = new HashMap<>();
+		Map<String, RoaringBitmap> categories = new HashMap<>();
+		for (int ordinal = 0; ordinal < products.length; ordinal++) {
+			Product product = products[ordinal];
+			final int productOrdinal = ordinal;
+			ProductKeys.forEachCity(product.getAvailableCity(),
+					city -> cities.computeIfAbsent(city, key -> new RoaringBitmap()).add(productOrdinal));
+			if (product.getProductCategory() != null) {
+				categories.computeIfAbsent(ProductKeys.normalizeCategory(product.getProductCategory()),
+						key -> new RoaringBitmap()).add(ordinal);
+			}
+		}
+		cities.values().forEach(RoaringBitmap::runOptimize);
+		categories.values().forEach(RoaringBitmap::runOptimize);
+		cityBitmaps = cities;
+		categoryBitmaps = categories;
+		holes = 0;
+		LOGGER_OBJ.debug("execution of CatalogBitmapIndex() completed");
+	}
+
+	private CatalogBitmapIndex(Product[] products, Map<String, RoaringBitmap> cityBitmaps,
+			Map<String, RoaringBitmap> categoryBitmaps, int holes) {
+		this.products = products;
+		this.cityBitmaps = cityBitmaps;
+		this.categoryBitmaps = categoryBitmaps;
+		this.holes = holes;
+	}
+
+	/**
+	 * Gives the index of the products of this index followed by the given ones,
+	 * which take the next ordinals. Only the bitmaps of the cities and categories
+	 * of the given products are copied, the others are shared with this index,
+	 * which is left unchanged.
+	 *
+	 * @param productList products appended to the catalog.
+	 * @return the index over all the products.
+	 */
+	public CatalogBitmapIndex append(List<Product> productList) {
+		return merge(Collections.<Product>emptySet(), productList);
+	}
+
+	/**
+	 * Gives the index of the products of this index but the removed ones,
+	 * followed by the added ones, which take the next ordinals. The ordinals of
+	 * the removed products are found through the bitmaps of their first city and
+	 * category and left as holes. Only the bitmaps of the cities and categories
+	 * of the removed and added products are copied, the others are shared with
+	 * this index, which is left unchanged. Once the holes are half of the
+	 * ordinals the index is built again over the remaining products.
+	 *
+	 * @param removed     products removed from the catalog, compared by identity.
+	 * @param productList products added to the catalog.
+	 * @return the index over the products of the changed catalog.
+	 */
+	public CatalogBitmapIndex merge(Set<Product> removed, List<Product> productList) {
+		LOGGER_OBJ.debug("execution of merge() started");
+		Product[] appended = Arrays.copyOf(products, products.length + productList.size());
+		Map<String, RoaringBitmap> changedCities = new HashMap<>();
+		Map<String, RoaringBitmap> changedCategories = new HashMap<>();
+		int removedCount = 0;
+		for (Product product : removed) {
+			int ordinal = ordinalOf(product);
+			if (ordinal < 0) {
+				continue;
+			}
+			appended[ordinal] = null;
+			removedCount++;
+			ProductKeys.forEachCity(product.getAvailableCity(), city -> changedCities
+					.computeIfAbsent(city, key -> copyOf(cityBitmaps.get(key))).remove(ordinal));
+			if (product.getProductCategory() != null) {
+				changedCategories.computeIfAbsent(ProductKeys.normalizeCategory(product.getProductCategory()),
+						key -> copyOf(categoryBitmaps.get(key))).remove(ordinal);
+			}
+		}
+		for (int ordinal = products.length; ordinal < appended.length; ordinal++) {
+			Product product = productList.get(ordinal - products.length);
+			appended[ordinal] = product;
+			final int productOrdinal = ordinal;
+			ProductKeys.forEachCity(product.getAvailableCity(), city -> changedCities
+					.computeIfAbsent(city, key -> copyOf(cityBitmaps.get(key))).add(productOrdinal));
+			if (product.getProductCategory() != null) {
+				changedCategories.computeIfAbsent(ProductKeys.normalizeCategory(product.getProductCategory()),
+						key -> copyOf(categoryBitmaps.get(key))).add(ordinal);
+			}
+		}
+		int allHoles = holes + removedCount;
+		if (allHoles > 0 && 2 * allHoles >= appended.length) {
+			List<Product> remaining = new ArrayList<>(appended.length - allHoles);
+			for (Product product : appended) {
+				if (product != null) {
+					remaining.add(product);
+				}
+			}
+			LOGGER_OBJ.debug("execution of merge() completed");
+			return new CatalogBitmapIndex(remaining);
+		}
+		Map<String, RoaringBitmap> cities = new HashMap<>(cityBitmaps);
+		putChanged(cities, changedCities);
+		Map<String, RoaringBitmap> categories = new HashMap<>(categoryBitmaps);
+		putChanged(categories, changedCategories);
+		LOGGER_OBJ.debug("execution of merge() completed");
+		return new CatalogBitmapIndex(appended, cities, categories, allHoles);
+	}
+
+	/**
+	 * Finds the ordinal of the product among those of its first city and its
+	 * category.
+	 *
+	 * @return the ordinal, or -1 when no bitmap holds the product.
+	 */
+	private int ordinalOf(Product product) {
+		String[] firstCity = new String[1];
+		ProductKeys.forEachCity(product.getAvailableCity(), city -> {
+			if (firstCity[0] == null) {
+				firstCity[0] = city;
+			}
+		});
+		RoaringBitmap candidates = firstCity[0] == null ? null : cityBitmaps.get(firstCity[0]);
+		if (candidates != null && product.getProductCategory() != null) {
+			RoaringBitmap categoryBitmap = categoryBitmaps
+					.get(ProductKeys.normalizeCategory(product.getProductCategory()));
+			candidates = categoryBitmap == null ? null : RoaringBitmap.and(candidates, categoryBitmap);
+		}
+		if (candidates == null) {
+			return -1;
+		}
+		IntIterator ordinals = candidates.getIntIterator();
+		while (ordinals.hasNext()) {
+			int ordinal = ordinals.next();
+			if (products[ordinal] == product) {
+				return ordinal;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Puts the changed bitmaps into the map, dropping those left empty.
+	 */
+	private static void putChanged(Map<String, RoaringBitmap> bitmaps, Map<String, RoaringBitmap> changed) {
+		changed.forEach((key, bitmap) -> {
+			if (bitmap.isEmpty()) {
+				bitmaps.remove(key);
+			} else {
+				bitmap.runOptimize();
+				bitmaps.put(key, bitmap);
+			}
+		});
+	}
+
+	/**
+	 * Finds the products of the given category which are available in the given
+	 * city.
+	 *
+	 * @param city     name of the city, matched ignoring case.
+	 * @param category category of the product, matched ignoring case.
+	 * @return unmodifiable list of the matching products in catalog order.
+	 */
+	public List<Product> getProducts(String city, String category) {
+		if (city == null || category == null) {
+			return Collections.emptyList();
+		}
+		RoaringBitmap cityBitmap = cityBitmaps.get(ProductKeys.normalizeCity(city));
+		RoaringBitmap categoryBitmap = categoryBitmaps.get(ProductKeys.normalizeCategory(category));
+		if (cityBitmap == null || categoryBitmap == null) {
+			return Collections.emptyList();
+		}
+		RoaringBitmap hits = RoaringBitmap.and(cityBitmap, categoryBitmap);
+		List<Product> matchingProducts = new ArrayList<>(hits.getCardinality());
+		IntIterator ordinals = hits.getIntIterator();
+		while (ordinals.hasNext()) {
+			matchingProducts.add(products[ordinals.next()]);
+		}
+		return Collections.unmodifiableList(matchingProducts);
+	}
+
+	/**
+	 * Gives the number of products of the given category which are available in
+	 * the given city without materializing them.
+	 *
+	 * @param city     name of the city, matched ignoring case.
+	 * @param category category of the product, matched ignoring case.
+	 * @return the number of matching products.
+	 */
+	public int countProducts(String city, String category) {
+		if (city == null || category == null) {
+			return 0;
+		}
+		RoaringBitmap cityBitmap = cityBitmaps.get(ProductKeys.normalizeCity(city));
+		RoaringBitmap categoryBitmap = categoryBitmaps.get(ProductKeys.normalizeCategory(category));
+		if (cityBitmap == null || categoryBitmap == null) {
+			return 0;
+		}
+		return RoaringBitmap.andCardinality(cityBitmap, categoryBitmap);
+	}
+
+	/**
+	 * Gives the bytes held by the bitmaps and by the array of the products.
+	 *
+	 * @return the size of the index in bytes.
+	 */
+	public long getSizeInBytes() {
+		long bytes = 4L * products.length;
+		for (RoaringBitmap bitmap : cityBitmaps.values()) {
+			bytes += bitmap.getLongSizeInBytes();
+		}
+		for (RoaringBitmap bitmap : categoryBitmaps.values()) {
+			bytes += bitmap.getLongSizeInBytes();
+		}
+		return bytes;
+	}
+
+	private static RoaringBitmap copyOf(RoaringBitmap bitmap) {
+		return bitmap == null ? new RoaringBitmap() : bitmap.clone();
+	}
+
+}
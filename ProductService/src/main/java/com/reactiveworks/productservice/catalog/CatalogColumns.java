@@ -0,0 +1,369 @@
+package com.reactiveworks.productservice.catalog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.roaringbitmap.RoaringBitmap;
+
+import com.reactiveworks.productservice.binary.BinaryCatalog;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.util.ProductKeys;
+
+/**
+ * Columns of a catalog sorted by price and product id, with the bitmaps of the
+ * ordinals of every city and category. They are collected on the heap by a
+ * {@link Collector} and are the common input of the columnar layouts, which
+ * keep them as they are or copy them out of the heap.
+ *
+ * The text column holds the id of the product of ordinal n at index 2n and its
+ * name at index 2n + 1, as UTF-8 between the offsets of the index and the next
+ * one. The id table finds the ordinal of a product id: it is an open addressing
+ * hash table over the UTF-8 ids, probed linearly, whose slots hold an ordinal
+ * plus one, or 0 when empty. Its length is a power of two of twice the number
+ * of products or more, which keeps the probes short.
+ */
+final class CatalogColumns {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CatalogColumns.class");
+	static final int NO_CODE = -1;
+	static final Comparator<String> ID_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+	final int size;
+	final int[] prices;
+	final int[] categoryCodes;
+	final int[] citySetCodes;
+	final String[] categories;
+	final String[] citySets;
+	final int[] textOffsets;
+	final byte[] text;
+	final BitSet nullTexts;
+	final int[] idTable;
+	final Map<String, RoaringBitmap> cityBitmaps;
+	final Map<String, RoaringBitmap> categoryBitmaps;
+
+	private CatalogColumns(Collector columns) {
+		LOGGER_OBJ.debug("execution of CatalogColumns() started");
+		size = columns.size;
+		categories = columns.categories.toArray(new String[0]);
+		citySets = columns.citySets.toArray(new String[0]);
+		int[] order = columns.priceOrder();
+		prices = new int[size];
+		categoryCodes = new int[size];
+		citySetCodes = new int[size];
+		textOffsets = new int[2 * size + 1];
+		text = new byte[columns.textLength];
+		nullTexts = new BitSet();
+		int textLength = 0;
+		for (int ordinal = 0; ordinal < size; ordinal++) {
+			int added = order[ordinal];
+			prices[ordinal] = columns.prices[added];
+			categoryCodes[ordinal] = columns.categoryCodes[added];
+			citySetCodes[ordinal] = columns.citySetCodes[added];
+			for (int field = 0; field < 2; field++) {
+				int from = 2 * added + field;
+				int to = 2 * ordinal + field;
+				int length = columns.textOffsets[from + 1] - columns.textOffsets[from];
+				System.arraycopy(columns.text, columns.textOffsets[from], text, textLength, length);
+				textOffsets[to] = textLength;
+				textLength += length;
+				textOffsets[to + 1] = textLength;
+				if (columns.nullTexts.get(from)) {
+					nullTexts.set(to);
+				}
+			}
+		}
+		idTable = buildIdTable();
+		cityBitmaps = buildCityBitmaps(columns.cityKeys, columns.citySetCities);
+		categoryBitmaps = buildCategoryBitmaps();
+		LOGGER_OBJ.debug("execution of CatalogColumns() completed");
+	}
+
+	/**
+	 * Hashes the UTF-8 bytes of a product id for the id table.
+	 *
+	 * @param bytes bytes holding the id.
+	 * @param from  index of the first byte of the id.
+	 * @param to    index past the last byte of the id.
+	 * @return the hash of the id.
+	 */
+	static int idHash(byte[] bytes, int from, int to) {
+		int hash = 1;
+		for (int i = from; i < to; i++) {
+			hash = 31 * hash + bytes[i];
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Puts the ordinal of every product with an id into the id table, in
+	 * ordinal order, so that the first of equal ids is found first.
+	 */
+	private int[] buildIdTable() {
+		// the collector holds fewer than 2^30 products, so a table of 2^30 slots
+		// always has an empty one
+		long length = Long.highestOneBit(Math.max(1L, 2L * size - 1)) << 1;
+		int[] table = new int[(int) Math.min(1 << 30, length)];
+		int mask = table.length - 1;
+		for (int ordinal = 0; ordinal < size; ordinal++) {
+			if (!nullTexts.get(2 * ordinal)) {
+				int slot = idHash(text, textOffsets[2 * ordinal], textOffsets[2 * ordinal + 1]) & mask;
+				while (table[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = ordinal + 1;
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Builds the bitmap of every city from the city sets: the cities of each set
+	 * are known from its bitset, so the availableCity fields are not parsed
+	 * again.
+	 */
+	private Map<String, RoaringBitmap> buildCityBitmaps(List<String> cityKeys, List<BitSet> citySetCities) {
+		RoaringBitmap[] bitmaps = new RoaringBitmap[cityKeys.size()];
+		for (int city = 0; city < bitmaps.length; city++) {
+			bitmaps[city] = new RoaringBitmap();
+		}
+		for (int ordinal = 0; ordinal < size; ordinal++) {
+			if (citySetCodes[ordinal] != NO_CODE) {
+				BitSet cities = citySetCities.get(citySetCodes[ordinal]);
+				for (int city = cities.nextSetBit(0); city >= 0; city = cities.nextSetBit(city + 1)) {
+					bitmaps[city].add(ordinal);
+				}
+			}
+		}
+		Map<String, RoaringBitmap> cityBitmaps = new HashMap<>();
+		for (int city = 0; city < bitmaps.length; city++) {
+			bitmaps[city].runOptimize();
+			cityBitmaps.put(cityKeys.get(city), bitmaps[city]);
+		}
+		return cityBitmaps;
+	}
+
+	private Map<String, RoaringBitmap> buildCategoryBitmaps() {
+		Map<String, RoaringBitmap> bitmaps = new HashMap<>();
+		RoaringBitmap[] bitmapOfCategory = new RoaringBitmap[categories.length];
+		for (int category = 0; category < categories.length; category++) {
+			bitmapOfCategory[category] = bitmaps.computeIfAbsent(
+					ProductKeys.normalizeCategory(categories[category]), key -> new RoaringBitmap());
+		}
+		for (int ordinal = 0; ordinal < size; ordinal++) {
+			if (categoryCodes[ordinal] != NO_CODE) {
+				bitmapOfCategory[categoryCodes[ordinal]].add(ordinal);
+			}
+		}
+		bitmaps.values().forEach(RoaringBitmap::runOptimize);
+		return bitmaps;
+	}
+
+	/**
+	 * Collects the columns in the order the products are added, coding the
+	 * categories and availableCity fields against their dictionaries as it goes.
+	 * A collector is used by one thread and sorts its columns once.
+	 */
+	static final class Collector {
+
+		private int size;
+		private int[] prices = new int[INITIAL_CAPACITY];
+		private int[] categoryCodes = new int[INITIAL_CAPACITY];
+		private int[] citySetCodes = new int[INITIAL_CAPACITY];
+		private int[] textOffsets = new int[2 * INITIAL_CAPACITY + 1];
+		private byte[] text = new byte[16 * INITIAL_CAPACITY];
+		private int textLength;
+		private final BitSet nullTexts = new BitSet();
+		private final List<String> categories = new ArrayList<>();
+		private final Map<String, Integer> categoryDictionary = new HashMap<>();
+		private final List<String> citySets = new ArrayList<>();
+		private final List<BitSet> citySetCities = new ArrayList<>();
+		private final Map<String, Integer> citySetDictionary = new HashMap<>();
+		private final List<String> cityKeys = new ArrayList<>();
+		private final Map<String, Integer> cityCodes = new HashMap<>();
+
+		/**
+		 * Adds the product to the columns; a missing product is left out.
+		 *
+		 * @param product product to add.
+		 */
+		void add(Product product) {
+			if (product == null) {
+				return;
+			}
+			ensureCapacity();
+			prices[size] = product.getPrice();
+			categoryCodes[size] = code(categoryDictionary, categories, product.getProductCategory());
+			citySetCodes[size] = citySetCode(product.getAvailableCity());
+			addText(2 * size, product.getProductId());
+			addText(2 * size + 1, product.getProductName());
+			size++;
+		}
+
+		/**
+		 * Adds all the products of the binary catalog to the columns. Its
+		 * dictionaries are coded once and its ids and names are copied as UTF-8,
+		 * so no product object or string is created per product.
+		 *
+		 * @param catalog binary catalog to add.
+		 */
+		void addAll(BinaryCatalog catalog) {
+			int[] categoryCodeOf = new int[catalog.getCategoryCount()];
+			for (int category = 0; category < categoryCodeOf.length; category++) {
+				categoryCodeOf[category] = code(categoryDictionary, categories, catalog.getCategory(category));
+			}
+			int[] citySetCodeOf = new int[catalog.getCitySetCount()];
+			for (int citySet = 0; citySet < citySetCodeOf.length; citySet++) {
+				citySetCodeOf[citySet] = citySetCode(catalog.getCitySet(citySet));
+			}
+			for (int ordinal = 0; ordinal < catalog.size(); ordinal++) {
+				ensureCapacity();
+				int category = catalog.getCategoryId(ordinal);
+				prices[size] = catalog.getPrice(ordinal);
+				categoryCodes[size] = category < 0 ? NO_CODE : categoryCodeOf[category];
+				citySetCodes[size] = citySetCodeOf[catalog.getCitySetId(ordinal)];
+				addText(2 * size, catalog.getProductIdBytes(ordinal));
+				addText(2 * size + 1, catalog.getProductNameBytes(ordinal));
+				size++;
+			}
+		}
+
+		/**
+		 * Sorts the collected columns by price and product id and indexes them. The
+		 * collector lets go of its own columns, so they can be collected while the
+		 * catalog is in use.
+		 *
+		 * @return the sorted columns.
+		 */
+		CatalogColumns sort() {
+			CatalogColumns columns = new CatalogColumns(this);
+			prices = null;
+			categoryCodes = null;
+			citySetCodes = null;
+			textOffsets = null;
+			text = null;
+			return columns;
+		}
+
+		/**
+		 * Codes the availableCity field and, for a field not seen before, records
+		 * the bitset of its cities.
+		 */
+		private int citySetCode(String availableCity) {
+			int setCount = citySets.size();
+			int code = code(citySetDictionary, citySets, availableCity);
+			if (code == setCount) {
+				BitSet cities = new BitSet();
+				ProductKeys.forEachCity(availableCity, city -> cities.set(cityCodes.computeIfAbsent(city, key -> {
+					cityKeys.add(key);
+					return cityKeys.size() - 1;
+				})));
+				citySetCities.add(cities);
+			}
+			return code;
+		}
+
+		private static int code(Map<String, Integer> dictionary, List<String> values, String value) {
+			if (value == null) {
+				return NO_CODE;
+			}
+			Integer code = dictionary.get(value);
+			if (code == null) {
+				code = values.size();
+				values.add(value);
+				dictionary.put(value, code);
+			}
+			return code;
+		}
+
+		private void addText(int index, String value) {
+			if (value == null) {
+				nullTexts.set(index);
+				textOffsets[index + 1] = textLength;
+				return;
+			}
+			addText(index, ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8)));
+		}
+
+		private void addText(int index, ByteBuffer value) {
+			int length = value.remaining();
+			long required = (long) textLength + length;
+			if (required > text.length) {
+				if (required > MAX_ARRAY_SIZE) {
+					throw new IllegalStateException("ids and names of the catalog exceed " + MAX_ARRAY_SIZE + " bytes");
+				}
+				text = Arrays.copyOf(text, (int) Math.min(MAX_ARRAY_SIZE, Math.max(required, text.length * 2L)));
+			}
+			value.get(text, textLength, length);
+			textLength += length;
+			textOffsets[index + 1] = textLength;
+		}
+
+		private void ensureCapacity() {
+			if (size == prices.length) {
+				int capacity = (int) Math.min(MAX_ARRAY_SIZE / 2, size * 2L);
+				if (capacity == size) {
+					throw new IllegalStateException("catalog is full at " + size + " products");
+				}
+				prices = Arrays.copyOf(prices, capacity);
+				categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+				citySetCodes = Arrays.copyOf(citySetCodes, capacity);
+				textOffsets = Arrays.copyOf(textOffsets, 2 * capacity + 1);
+			}
+		}
+
+		/**
+		 * Sorts the added products by price and product id. The prices are sorted
+		 * as primitive keys and only the runs of equal prices are sorted by id.
+		 */
+		private int[] priceOrder() {
+			long[] keys = new long[size];
+			for (int i = 0; i < size; i++) {
+				keys[i] = ((long) prices[i] << 32) | i;
+			}
+			Arrays.parallelSort(keys);
+			int[] order = new int[size];
+			for (int i = 0; i < size; i++) {
+				order[i] = (int) keys[i];
+			}
+			int runStart = 0;
+			for (int i = 1; i <= size; i++) {
+				if (i == size || prices[order[i]] != prices[order[runStart]]) {
+					if (i - runStart > 1) {
+						sortById(order, runStart, i);
+					}
+					runStart = i;
+				}
+			}
+			return order;
+		}
+
+		private void sortById(int[] order, int from, int to) {
+			Integer[] run = new Integer[to - from];
+			String[] ids = new String[to - from];
+			for (int i = from; i < to; i++) {
+				run[i - from] = i - from;
+				int index = 2 * order[i];
+				ids[i - from] = nullTexts.get(index) ? null
+						: new String(text, textOffsets[index], textOffsets[index + 1] - textOffsets[index],
+								StandardCharsets.UTF_8);
+			}
+			Arrays.sort(run, Comparator.comparing(i -> ids[i], ID_ORDER));
+			int[] sorted = new int[run.length];
+			for (int i = 0; i < run.length; i++) {
+				sorted[i] = order[from + run[i]];
+			}
+			System.arraycopy(sorted, 0, order, from, sorted.length);
+		}
+	}
+
+}
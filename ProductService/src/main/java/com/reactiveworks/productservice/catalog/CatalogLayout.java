@@ -0,0 +1,53 @@
+package com.reactiveworks.productservice.catalog;
+
+import java.util.Locale;
+
+/**
+ * This enum represents the ways a snapshot can lay its products out in memory.
+ */
+public enum CatalogLayout {
+
+	/** The product objects read from the dao, see {@link ObjectProductCatalog}. */
+	OBJECTS {
+		@Override
+		public IProductCatalog.Builder newBuilder() {
+			return ObjectProductCatalog.builder();
+		}
+	},
+
+	/** Dictionary coded columns, see {@link ColumnarProductCatalog}. */
+	COLUMNAR {
+		@Override
+		public IProductCatalog.Builder newBuilder() {
+			return ColumnarProductCatalog.builder();
+		}
+	},
+
+	/** Dictionary coded columns in direct buffers, see {@link OffHeapProductCatalog}. */
+	OFF_HEAP {
+		@Override
+		public IProductCatalog.Builder newBuilder() {
+			return OffHeapProductCatalog.builder();
+		}
+	};
+
+	/**
+	 * Creates a builder of a catalog of this layout.
+	 *
+	 * @return the builder.
+	 */
+	public abstract IProductCatalog.Builder newBuilder();
+
+	/**
+	 * Gives the layout of the given name.
+	 *
+	 * @param name name of the layout, matched ignoring case and with '-' taken for
+	 *             '_'.
+	 * @return the layout.
+	 * @throws IllegalArgumentException when no layout has the name.
+	 */
+	public static CatalogLayout of(String name) {
+		return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.reactiveworks.productservice.catalog;
+
+import java.util.Locale;
+import java.util.function.ToIntFunction;
+
+/**
+ * This class represents how a catalog is split by city into partitions, see
+ * {@link PartitionedProductCatalog}.
+ *
+ * A catalog is either not partitioned, partitioned with one partition per city,
+ * or partitioned into a fixed number of partitions by a hash of the city. The
+ * partitions are named by their keys: the normalized city, or the number of the
+ * partition from 0.
+ */
+public final class CatalogPartitioning {
+
+	private static final int NOT_PARTITIONED = -1;
+	private static final int PER_CITY = 0;
+	private static final CatalogPartitioning NONE = new CatalogPartitioning(NOT_PARTITIONED, null);
+	private static final CatalogPartitioning BY_CITY = new CatalogPartitioning(PER_CITY, null);
+
+	private final int partitionCount;
+	private final ToIntFunction<String> hash;
+
+	private CatalogPartitioning(int partitionCount, ToIntFunction<String> hash) {
+		this.partitionCount = partitionCount;
+		this.hash = hash;
+	}
+
+	/**
+	 * Gives the partitioning which keeps the catalog whole.
+	 *
+	 * @return the partitioning.
+	 */
+	public static CatalogPartitioning none() {
+		return NONE;
+	}
+
+	/**
+	 * Gives the partitioning with one partition per city.
+	 *
+	 * @return the partitioning.
+	 */
+	public static CatalogPartitioning byCity() {
+		return BY_CITY;
+	}
+
+	/**
+	 * Gives the partitioning into the given number of partitions by the hash code
+	 * of the normalized city.
+	 *
+	 * @param partitionCount number of partitions.
+	 * @return the partitioning.
+	 * @throws IllegalArgumentException when the number is not positive.
+	 */
+	public static CatalogPartitioning hashed(int partitionCount) {
+		return hashed(partitionCount, String::hashCode);
+	}
+
+	/**
+	 * Gives the partitioning into the given number of partitions by the given
+	 * hash of the normalized city.
+	 *
+	 * @param partitionCount number of partitions.
+	 * @param hash           hash of the normalized city.
+	 * @return the partitioning.
+	 * @throws IllegalArgumentException when the number is not positive.
+	 */
+	public static CatalogPartitioning hashed(int partitionCount, ToIntFunction<String> hash) {
+		if (partitionCount <= 0) {
+			throw new IllegalArgumentException("number of partitions must be positive, not " + partitionCount);
+		}
+		return new CatalogPartitioning(partitionCount, hash);
+	}
+
+	/**
+	 * Gives the partitioning of the given name: none or 0 for none, city for one
+	 * partition per city, or the number of hashed partitions.
+	 *
+	 * @param name name of the partitioning, matched ignoring case.
+	 * @return the partitioning.
+	 * @throws IllegalArgumentException when the name is none of those.
+	 */
+	public static CatalogPartitioning of(String name) {
+		String value = name.trim().toLowerCase(Locale.ROOT);
+		if (value.isEmpty() || value.equals("none") || value.equals("0")) {
+			return NONE;
+		}
+		if (value.equals("city")) {
+			return BY_CITY;
+		}
+		try {
+			return hashed(Integer.parseInt(value));
+		} catch (NumberFormatException exp) {
+			throw new IllegalArgumentException("unknown catalog partitioning " + name, exp);
+		}
+	}
+
+	public boolean isPartitioned() {
+		return partitionCount != NOT_PARTITIONED;
+	}
+
+	/**
+	 * Gives the key of the partition owning the given city.
+	 *
+	 * @param cityKey normalized name of the city.
+	 * @return the key of the partition.
+	 */
+	public String partitionOf(String cityKey) {
+		if (partitionCount <= PER_CITY) {
+			return cityKey;
+		}
+		int code = hash.applyAsInt(cityKey);
+		// spreads the high bits as HashMap does, the city hash codes differ little
+		return Integer.toString(Math.floorMod(code ^ (code >>> 16), partitionCount));
+	}
+
+	/**
+	 * Creates a builder of a catalog of the given layout split as this
+	 * partitioning says.
+	 *
+	 * @param layout layout of the products of every partition.
+	 * @return the builder.
+	 */
+	public IProductCatalog.Builder newBuilder(CatalogLayout layout) {
+		return isPartitioned() ? PartitionedProductCatalog.builder(layout, this) : layout.newBuilder();
+	}
+
+	@Override
+	public String toString() {
+		if (partitionCount == NOT_PARTITIONED) {
+			return "CatalogPartitioning [none]";
+		}
+		return partitionCount == PER_CITY ? "CatalogPartitioning [city]"
+				: "CatalogPartitioning [hashed, partitions=" + partitionCount + "]";
+	}
+
+}
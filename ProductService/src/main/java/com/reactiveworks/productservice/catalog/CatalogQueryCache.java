@@ -0,0 +1,327 @@
+package com.reactiveworks.productservice.catalog;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.util.ProductKeys;
+
+/**
+ * Bounded cache of the city and of the city and category query results of a
+ * catalog.
+ *
+ * Every entry is tagged with the version of the snapshot it was computed
+ * from, and a lookup only hits an entry of the version it asks for, so a
+ * result of a replaced snapshot is never served. When a write derives the next
+ * snapshot from the current one, {@link #advance(long, long, Collection, Collection)}
+ * drops exactly the entries of the changed cities, and of their changed
+ * categories for the category queries, and carries the others over to the new
+ * version.
+ *
+ * The entries are spread over segments, each one a least recently used map
+ * under its own lock with an equal share of the weight bound. The weight of an
+ * entry is one plus the number of products of its result. Entries can also
+ * expire after a time to live.
+ */
+public class CatalogQueryCache {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CatalogQueryCache.class");
+	private static final int SEGMENTS = 16;
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+	private final long ttlNanos;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder invalidations = new LongAdder();
+
+	/**
+	 * Creates the cache.
+	 *
+	 * @param maxWeight largest total weight of the cached results, 0 or less to
+	 *                  cache nothing.
+	 * @param ttl       time to live of a result, 0 or less to keep results until
+	 *                  they are evicted or invalidated.
+	 * @param unit      unit of the time to live.
+	 */
+	public CatalogQueryCache(long maxWeight, long ttl, TimeUnit unit) {
+		long segmentWeight = maxWeight <= 0 ? 0 : Math.max(1, maxWeight / SEGMENTS);
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(segmentWeight);
+		}
+		ttlNanos = ttl > 0 ? unit.toNanos(ttl) : 0;
+	}
+
+	/**
+	 * Finds the cached products available in the given city.
+	 *
+	 * @param version version of the snapshot the result must come from.
+	 * @param city    name of the city, matched ignoring case.
+	 * @return the cached unmodifiable result, or null when it is not cached.
+	 */
+	public List<Product> get(long version, String city) {
+		return get(version, new QueryKey(city, null));
+	}
+
+	/**
+	 * Finds the cached products of the given category available in the given
+	 * city.
+	 *
+	 * @param version  version of the snapshot the result must come from.
+	 * @param city     name of the city, matched ignoring case.
+	 * @param category category of the product, matched ignoring case.
+	 * @return the cached unmodifiable result, or null when it is not cached.
+	 */
+	public List<Product> get(long version, String city, String category) {
+		return get(version, new QueryKey(city, category));
+	}
+
+	private List<Product> get(long version, QueryKey key) {
+		Segment segment = segmentOf(key);
+		List<Product> products = null;
+		synchronized (segment) {
+			Entry entry = segment.get(key);
+			if (entry != null) {
+				if (entry.version == version && !isExpired(entry)) {
+					products = entry.products;
+				} else if (entry.version < version || isExpired(entry)) {
+					segment.removeEntry(key);
+					if (entry.version < version) {
+						invalidations.increment();
+					} else {
+						evictions.increment();
+					}
+				}
+			}
+		}
+		if (products == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return products;
+	}
+
+	/**
+	 * Caches the result of a city query.
+	 *
+	 * @param version  version of the snapshot the result was computed from.
+	 * @param city     name of the city.
+	 * @param products unmodifiable result of the query.
+	 */
+	public void put(long version, String city, List<Product> products) {
+		put(version, new QueryKey(city, null), products);
+	}
+
+	/**
+	 * Caches the result of a city and category query.
+	 *
+	 * @param version  version of the snapshot the result was computed from.
+	 * @param city     name of the city.
+	 * @param category category of the product.
+	 * @param products unmodifiable result of the query.
+	 */
+	public void put(long version, String city, String category, List<Product> products) {
+		put(version, new QueryKey(city, category), products);
+	}
+
+	private void put(long version, QueryKey key, List<Product> products) {
+		Segment segment = segmentOf(key);
+		long weight = 1L + products.size();
+		if (weight > segment.maxWeight) {
+			return;
+		}
+		synchronized (segment) {
+			Entry previous = segment.get(key);
+			if (previous != null && previous.version > version) {
+				return;
+			}
+			segment.putEntry(key, new Entry(products, version, weight, System.nanoTime()));
+			evictions.add(segment.evictOverweight());
+		}
+	}
+
+	/**
+	 * Moves the cache to the next snapshot after a write changed the given cities
+	 * and categories: the city entries of those cities, their category entries of
+	 * those categories and the entries of any other version are removed, all
+	 * others are kept for the next version.
+	 *
+	 * @param fromVersion version the write was applied to.
+	 * @param toVersion   version of the snapshot with the write.
+	 * @param cities      cities of the changed products, before and after.
+	 * @param categories  categories of the changed products, before and after.
+	 */
+	public void advance(long fromVersion, long toVersion, Collection<String> cities, Collection<String> categories) {
+		LOGGER_OBJ.debug("execution of advance() started");
+		Set<String> cityKeys = new HashSet<>();
+		cities.forEach(city -> cityKeys.add(ProductKeys.normalizeCity(city)));
+		Set<String> categoryKeys = new HashSet<>();
+		categories.forEach(category -> categoryKeys.add(ProductKeys.normalizeCategory(category)));
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				Iterator<Map.Entry<QueryKey, Entry>> entries = segment.entrySet().iterator();
+				while (entries.hasNext()) {
+					Map.Entry<QueryKey, Entry> mapEntry = entries.next();
+					Entry entry = mapEntry.getValue();
+					QueryKey key = mapEntry.getKey();
+					if (entry.version != fromVersion || (cityKeys.contains(key.city)
+							&& (key.category == null || categoryKeys.contains(key.category)))) {
+						entries.remove();
+						segment.weight -= entry.weight;
+						invalidations.increment();
+					} else {
+						entry.version = toVersion;
+					}
+				}
+			}
+		}
+		LOGGER_OBJ.debug("execution of advance() completed");
+	}
+
+	/**
+	 * Removes every cached result.
+	 */
+	public void invalidateAll() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				invalidations.add(segment.size());
+				segment.clear();
+				segment.weight = 0;
+			}
+		}
+	}
+
+	/**
+	 * Gives the statistics of the cache.
+	 *
+	 * @return the current statistics.
+	 */
+	public CacheStatistics getStatistics() {
+		int entryCount = 0;
+		long weight = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				entryCount += segment.size();
+				weight += segment.weight;
+			}
+		}
+		return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), entryCount,
+				weight);
+	}
+
+	private boolean isExpired(Entry entry) {
+		return ttlNanos > 0 && System.nanoTime() - entry.createdNanos > ttlNanos;
+	}
+
+	private Segment segmentOf(QueryKey key) {
+		int hash = key.hashCode();
+		return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * Normalized city and category of a query; the category is null for a city
+	 * query.
+	 */
+	private static final class QueryKey {
+
+		private final String city;
+		private final String category;
+		private final int hash;
+
+		private QueryKey(String city, String category) {
+			this.city = ProductKeys.normalizeCity(city);
+			this.category = category == null ? null : ProductKeys.normalizeCategory(category);
+			this.hash = 31 * this.city.hashCode() + Objects.hashCode(this.category);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof QueryKey)) {
+				return false;
+			}
+			QueryKey key = (QueryKey) other;
+			return hash == key.hash && city.equals(key.city) && Objects.equals(category, key.category);
+		}
+	}
+
+	/**
+	 * Cached result with the version of the snapshot it belongs to.
+	 */
+	private static final class Entry {
+
+		private final List<Product> products;
+		private final long weight;
+		private final long createdNanos;
+		private long version;
+
+		private Entry(List<Product> products, long version, long weight, long createdNanos) {
+			this.products = products;
+			this.version = version;
+			this.weight = weight;
+			this.createdNanos = createdNanos;
+		}
+	}
+
+	/**
+	 * Least recently used map of a share of the entries, guarded by its own
+	 * monitor.
+	 */
+	private static final class Segment extends LinkedHashMap<QueryKey, Entry> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long maxWeight;
+		private long weight;
+
+		private Segment(long maxWeight) {
+			super(16, 0.75f, true);
+			this.maxWeight = maxWeight;
+		}
+
+		private void putEntry(QueryKey key, Entry entry) {
+			Entry previous = put(key, entry);
+			if (previous != null) {
+				weight -= previous.weight;
+			}
+			weight += entry.weight;
+		}
+
+		private void removeEntry(QueryKey key) {
+			Entry removed = remove(key);
+			if (removed != null) {
+				weight -= removed.weight;
+			}
+		}
+
+		/**
+		 * Removes the least recently used entries until the weight fits.
+		 */
+		private int evictOverweight() {
+			int evicted = 0;
+			Iterator<Entry> eldest = values().iterator();
+			while (weight > maxWeight && eldest.hasNext()) {
+				weight -= eldest.next().weight;
+				eldest.remove();
+				evicted++;
+			}
+			return evicted;
+		}
+	}
+
+}
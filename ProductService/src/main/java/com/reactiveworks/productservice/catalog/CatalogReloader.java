@@ -0,0 +1,385 @@
+package com.reactiveworks.productservice.catalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.binary.BinaryCatalog;
+import com.reactiveworks.productservice.dao.ChangeCursor;
+import com.reactiveworks.productservice.dao.IProductDao;
+import com.reactiveworks.productservice.dao.IUserDao;
+import com.reactiveworks.productservice.db.CancellationScope;
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.User;
+
+/**
+ * Loads the catalog from the daos into a new snapshot and publishes it.
+ * The records are streamed from the daos straight into the builder of the
+ * catalog, laid out as the {@link CatalogLayout} of the reloader says and
+ * split into partitions as its {@link CatalogPartitioning} says. A product dao
+ * kept as a binary catalog hands its columns to the builder instead.
+ *
+ * Readers take the current snapshot with {@link #getSnapshot()} and never
+ * block. The next snapshot is built completely aside and then swapped in
+ * atomically, so a half built snapshot is never visible. Reloads run on demand
+ * through {@link #reload()} or periodically once {@link #start(long, TimeUnit)}
+ * is called. Daos which track the changes of their tables, or follow the
+ * records appended to them, are refreshed with only those records through
+ * {@link #refresh()}, on demand or periodically once
+ * {@link #follow(long, TimeUnit)} is called. The reloader keeps its own
+ * cursor in the changes of each dao, given by the last load and moved on only
+ * once the changes read after it are published.
+ */
+public class CatalogReloader implements AutoCloseable {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CatalogReloader.class");
+
+	private final IProductDao productDao;
+	private final IUserDao userDao;
+	private final CatalogLayout layout;
+	private final CatalogPartitioning partitioning;
+	private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>(CatalogSnapshot.empty());
+	private final Object reloadLock = new Object();
+	private ScheduledExecutorService scheduler;
+	private ScheduledFuture<?> scheduledReload;
+	private ChangeCursor productCursor;
+	private ChangeCursor userCursor;
+
+	public CatalogReloader(IProductDao productDao, IUserDao userDao) {
+		this(productDao, userDao, CatalogLayout.OBJECTS);
+	}
+
+	/**
+	 * Creates the reloader which lays the products of its snapshots out as the
+	 * given layout says.
+	 * 
+	 * @param productDao dao of the product database.
+	 * @param userDao    dao of the user database.
+	 * @param layout     layout of the products in memory.
+	 */
+	public CatalogReloader(IProductDao productDao, IUserDao userDao, CatalogLayout layout) {
+		this(productDao, userDao, layout, CatalogPartitioning.none());
+	}
+
+	/**
+	 * Creates the reloader which lays the products of its snapshots out as the
+	 * given layout says, in partitions by city as the given partitioning says.
+	 * 
+	 * @param productDao   dao of the product database.
+	 * @param userDao      dao of the user database.
+	 * @param layout       layout of the products in memory.
+	 * @param partitioning partitioning of the catalog by city.
+	 */
+	public CatalogReloader(IProductDao productDao, IUserDao userDao, CatalogLayout layout,
+			CatalogPartitioning partitioning) {
+		this.productDao = productDao;
+		this.userDao = userDao;
+		this.layout = layout;
+		this.partitioning = partitioning;
+	}
+
+	public CatalogLayout getLayout() {
+		return layout;
+	}
+
+	public CatalogPartitioning getPartitioning() {
+		return partitioning;
+	}
+
+	/**
+	 * Gives the currently published snapshot.
+	 *
+	 * @return the current snapshot, never null.
+	 */
+	public CatalogSnapshot getSnapshot() {
+		return snapshot.get();
+	}
+
+	/**
+	 * Loads the records from the daos, builds the next snapshot and publishes it.
+	 * Concurrent reloads run one after another; readers keep using the previous
+	 * snapshot until the swap. When the cancellation scope bound to the calling
+	 * thread is cancelled, the load stops at the next record and the previous
+	 * snapshot stays published.
+	 *
+	 * @return the newly published snapshot.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on the database fails.
+	 * @throws InvalidDBRecordFormatException when the format of the database
+	 *                                        record is invalid.
+	 * @throws CancellationException          when the cancellation scope of the
+	 *                                        calling thread is cancelled.
+	 */
+	public CatalogSnapshot reload()
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of reload() started");
+		synchronized (reloadLock) {
+			long loadStart = System.nanoTime();
+			CancellationScope scope = CancellationScope.current();
+			IProductCatalog.Builder products = partitioning.newBuilder(layout);
+			BinaryCatalog columns = productDao.getBinaryCatalog();
+			ChangeCursor nextProductCursor = null;
+			if (columns != null) {
+				checkCancelled(scope);
+				products.addAll(columns);
+			} else {
+				nextProductCursor = productDao.streamProducts(product -> {
+					checkCancelled(scope);
+					products.add(product);
+				});
+			}
+			List<User> users = new ArrayList<>();
+			ChangeCursor nextUserCursor = userDao.streamUsers(user -> {
+				checkCancelled(scope);
+				users.add(user);
+			});
+			long loadTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStart);
+			CatalogSnapshot next = build(products, users, snapshot.get().getVersion() + 1, loadTimeMillis);
+			snapshot.set(next);
+			productCursor = nextProductCursor;
+			userCursor = nextUserCursor;
+			LOGGER_OBJ.info("catalog reloaded " + next);
+			LOGGER_OBJ.debug("execution of reload() completed");
+			return next;
+		}
+	}
+
+	/**
+	 * Reads the records changed in the tables of the daos after the cursors of
+	 * the reloader and publishes the snapshot with them merged into the current
+	 * one. A dao gives the records inserted, updated and deleted when it tracks
+	 * the changes of its table, else the records appended when it follows its
+	 * table; a changed record replaces the record of the same id. When a dao can
+	 * do neither, or its table was rewritten, the catalog is reloaded instead.
+	 * The cursors move on only with the published snapshot, so the refresh after
+	 * a failed one reads the same changes again. Refreshes run one after another
+	 * with the reloads.
+	 *
+	 * @return the newly published snapshot, or the current one when nothing
+	 *         changed.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on the database fails.
+	 * @throws InvalidDBRecordFormatException when the format of the database
+	 *                                        record is invalid.
+	 * @throws CancellationException          when the cancellation scope of the
+	 *                                        calling thread is cancelled.
+	 */
+	public CatalogSnapshot refresh()
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of refresh() started");
+		synchronized (reloadLock) {
+			long loadStart = System.nanoTime();
+			CancellationScope scope = CancellationScope.current();
+			List<Product> products = new ArrayList<>();
+			Set<String> removedProductIds = new HashSet<>();
+			List<User> users = new ArrayList<>();
+			Set<String> removedUserIds = new HashSet<>();
+			ChangeCursor nextProductCursor = readProductChanges(scope, products, removedProductIds);
+			ChangeCursor nextUserCursor = nextProductCursor == null ? null
+					: readUserChanges(scope, users, removedUserIds);
+			if (nextUserCursor == null) {
+				LOGGER_OBJ.debug("execution of refresh() completed");
+				return reload();
+			}
+			CatalogSnapshot current = snapshot.get();
+			if (products.isEmpty() && removedProductIds.isEmpty() && users.isEmpty() && removedUserIds.isEmpty()) {
+				productCursor = nextProductCursor;
+				userCursor = nextUserCursor;
+				LOGGER_OBJ.debug("execution of refresh() completed");
+				return current;
+			}
+			long loadTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStart);
+			CatalogSnapshot next = current.merge(products, removedProductIds, users, removedUserIds,
+					current.getVersion() + 1, loadTimeMillis);
+			snapshot.set(next);
+			productCursor = nextProductCursor;
+			userCursor = nextUserCursor;
+			LOGGER_OBJ.info("catalog refreshed with " + products.size() + " products and " + users.size()
+					+ " users, removing " + removedProductIds.size() + " product and " + removedUserIds.size()
+					+ " user ids " + next);
+			LOGGER_OBJ.debug("execution of refresh() completed");
+			return next;
+		}
+	}
+
+	/**
+	 * Reads the products changed after the cursor of the reloader from the
+	 * product dao, the ids of the updated and deleted ones into the removed ids,
+	 * or else the appended products.
+	 *
+	 * @return the cursor following the changes, null when the dao gives neither.
+	 */
+	private ChangeCursor readProductChanges(CancellationScope scope, List<Product> products, Set<String> removedIds)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		if (productCursor == null) {
+			return null;
+		}
+		ChangeCursor next = productDao.streamProductChanges(productCursor, product -> {
+			checkCancelled(scope);
+			products.add(product);
+			removedIds.add(product.getProductId());
+		}, productId -> {
+			checkCancelled(scope);
+			removedIds.add(productId);
+		});
+		return next != null ? next : productDao.streamAppendedProducts(productCursor, product -> {
+			checkCancelled(scope);
+			products.add(product);
+		});
+	}
+
+	/**
+	 * Reads the users changed after the cursor of the reloader from the user
+	 * dao, the ids of the updated and deleted ones into the removed ids, or else
+	 * the appended users.
+	 *
+	 * @return the cursor following the changes, null when the dao gives neither.
+	 */
+	private ChangeCursor readUserChanges(CancellationScope scope, List<User> users, Set<String> removedIds)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		if (userCursor == null) {
+			return null;
+		}
+		ChangeCursor next = userDao.streamUserChanges(userCursor, user -> {
+			checkCancelled(scope);
+			users.add(user);
+			removedIds.add(user.getUserId());
+		}, userId -> {
+			checkCancelled(scope);
+			removedIds.add(userId);
+		});
+		return next != null ? next : userDao.streamAppendedUsers(userCursor, user -> {
+			checkCancelled(scope);
+			users.add(user);
+		});
+	}
+
+	/**
+	 * Publishes the next snapshot with the given products merged into the
+	 * current one, without reading the daos. It is meant for applying a write
+	 * which the dao has already stored; it runs one after another with the
+	 * reloads. The catalog is changed as its layout allows, see
+	 * {@link IProductCatalog#merge(List, Set)}.
+	 *
+	 * @param products   products to add, after the removed ones are removed.
+	 * @param removedIds ids of the products to remove.
+	 * @return the newly published snapshot, its version is one more than the
+	 *         version it was derived from.
+	 */
+	public CatalogSnapshot update(List<Product> products, Set<String> removedIds) {
+		LOGGER_OBJ.debug("execution of update() started");
+		synchronized (reloadLock) {
+			CatalogSnapshot current = snapshot.get();
+			CatalogSnapshot next = current.merge(products, removedIds, Collections.<User>emptyList(),
+					Collections.<String>emptySet(), current.getVersion() + 1, 0);
+			snapshot.set(next);
+			LOGGER_OBJ.info("catalog updated " + next);
+			LOGGER_OBJ.debug("execution of update() completed");
+			return next;
+		}
+	}
+
+	/**
+	 * Starts reloading the catalog periodically on a background thread. A failed
+	 * reload is logged and the previous snapshot stays published.
+	 *
+	 * @param period time between the end of one reload and the start of the next.
+	 * @param unit   unit of the period.
+	 */
+	public synchronized void start(long period, TimeUnit unit) {
+		LOGGER_OBJ.debug("execution of start() started");
+		schedule(this::reloadQuietly, period, unit);
+		LOGGER_OBJ.debug("execution of start() completed");
+	}
+
+	/**
+	 * Starts refreshing the catalog periodically on a background thread, in place
+	 * of the periodic reload if one was started. A failed refresh is logged and
+	 * the previous snapshot stays published.
+	 *
+	 * @param period time between the end of one refresh and the start of the
+	 *               next.
+	 * @param unit   unit of the period.
+	 */
+	public synchronized void follow(long period, TimeUnit unit) {
+		LOGGER_OBJ.debug("execution of follow() started");
+		schedule(this::refreshQuietly, period, unit);
+		LOGGER_OBJ.debug("execution of follow() completed");
+	}
+
+	private void schedule(Runnable task, long period, TimeUnit unit) {
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "catalog-reloader");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		if (scheduledReload != null) {
+			scheduledReload.cancel(false);
+		}
+		scheduledReload = scheduler.scheduleWithFixedDelay(task, period, period, unit);
+	}
+
+	/**
+	 * Stops the periodic reload. The current snapshot stays published.
+	 */
+	@Override
+	public synchronized void close() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+			scheduledReload = null;
+		}
+	}
+
+	private static CatalogSnapshot build(IProductCatalog.Builder products, List<User> users, long version,
+			long loadTimeMillis) {
+		long buildStart = System.nanoTime();
+		IProductCatalog catalog = products.build();
+		return CatalogSnapshot.build(catalog, users, version, loadTimeMillis,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - buildStart));
+	}
+
+	private static void checkCancelled(CancellationScope scope) {
+		if (scope != null && scope.isCancelled()) {
+			throw new CancellationException("catalog reload was cancelled");
+		}
+	}
+
+	private void refreshQuietly() {
+		try {
+			refresh();
+		} catch (DataBaseAccessException | DBOperationFailureException | InvalidDBRecordFormatException exp) {
+			LOGGER_OBJ.error("unable to refresh the catalog, keeping version " + snapshot.get().getVersion() + " "
+					+ exp);
+		} catch (RuntimeException exp) {
+			LOGGER_OBJ.error("unable to refresh the catalog, keeping version " + snapshot.get().getVersion(), exp);
+		}
+	}
+
+	private void reloadQuietly() {
+		try {
+			reload();
+		} catch (DataBaseAccessException | DBOperationFailureException | InvalidDBRecordFormatException exp) {
+			LOGGER_OBJ.error("unable to reload the catalog, keeping version " + snapshot.get().getVersion() + " "
+					+ exp);
+		} catch (RuntimeException exp) {
+			LOGGER_OBJ.error("unable to reload the catalog, keeping version " + snapshot.get().getVersion(), exp);
+		}
+	}
+
+}
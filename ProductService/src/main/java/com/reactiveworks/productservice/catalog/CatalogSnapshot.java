@@ -0,0 +1,220 @@
+package com.reactiveworks.productservice.catalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.User;
+
+/**
+ * Immutable view of the loaded catalog together with its indexes.
+ *
+ * A snapshot is fully built before it is published, so readers holding a
+ * reference always see a consistent set of products, users and indexes.
+ */
+public final class CatalogSnapshot {
+
+	private static final CatalogSnapshot EMPTY = new CatalogSnapshot(
+			new ObjectProductCatalog(Collections.<Product>emptyList()), Collections.<User>emptyList(), 0L, 0L, 0L);
+
+	private final IProductCatalog catalog;
+	private final List<User> users;
+	private final UserIndex userIndex;
+	private final long version;
+	private final long loadTimeMillis;
+	private final long buildTimeMillis;
+	private final long createdAtMillis;
+
+	private CatalogSnapshot(IProductCatalog catalog, List<User> users, long version, long loadTimeMillis,
+			long catalogBuildNanos) {
+		this(catalog, users, null, version, loadTimeMillis, catalogBuildNanos);
+	}
+
+	private CatalogSnapshot(IProductCatalog catalog, List<User> users, UserIndex userIndex, long version,
+			long loadTimeMillis, long catalogBuildNanos) {
+		long buildStart = System.nanoTime();
+		this.catalog = catalog;
+		this.users = users;
+		this.userIndex = userIndex != null ? userIndex : new UserIndex(users);
+		this.version = version;
+		this.loadTimeMillis = loadTimeMillis;
+		this.buildTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - buildStart + catalogBuildNanos);
+		this.createdAtMillis = System.currentTimeMillis();
+	}
+
+	/**
+	 * Builds a snapshot and all of its indexes from the given records, keeping
+	 * the products as objects.
+	 *
+	 * @param products       products of the catalog.
+	 * @param users          users of the user database.
+	 * @param version        version number of the snapshot.
+	 * @param loadTimeMillis time taken to load the records, in milliseconds.
+	 * @return the snapshot.
+	 */
+	public static CatalogSnapshot build(List<Product> products, List<User> users, long version,
+			long loadTimeMillis) {
+		long buildStart = System.nanoTime();
+		IProductCatalog catalog = new ObjectProductCatalog(copyRecords(products));
+		return new CatalogSnapshot(catalog, Collections.unmodifiableList(copyRecords(users)), version, loadTimeMillis,
+				System.nanoTime() - buildStart);
+	}
+
+	/**
+	 * Builds a snapshot over the given catalog, which is already built, and
+	 * indexes the users.
+	 *
+	 * @param catalog            products of the catalog with their indexes.
+	 * @param users              users of the user database.
+	 * @param version            version number of the snapshot.
+	 * @param loadTimeMillis     time taken to load the records, in milliseconds.
+	 * @param catalogBuildMillis time taken to build the catalog, in milliseconds.
+	 * @return the snapshot.
+	 */
+	public static CatalogSnapshot build(IProductCatalog catalog, List<User> users, long version,
+			long loadTimeMillis, long catalogBuildMillis) {
+		return new CatalogSnapshot(catalog, Collections.unmodifiableList(copyRecords(users)), version, loadTimeMillis,
+				TimeUnit.MILLISECONDS.toNanos(catalogBuildMillis));
+	}
+
+	/**
+	 * Builds the snapshot holding the records of this one followed by the given
+	 * ones. The product indexes are extended as the layout of the catalog allows,
+	 * see {@link IProductCatalog#append(List)}; the user index is shared when no
+	 * user is appended and built again otherwise.
+	 *
+	 * @param products       products appended to the catalog.
+	 * @param appendedUsers  users appended to the user database.
+	 * @param version        version number of the snapshot.
+	 * @param loadTimeMillis time taken to load the appended records, in
+	 *                       milliseconds.
+	 * @return the snapshot.
+	 */
+	public CatalogSnapshot append(List<Product> products, List<User> appendedUsers, long version,
+			long loadTimeMillis) {
+		return merge(products, Collections.<String>emptySet(), appendedUsers, Collections.<String>emptySet(), version,
+				loadTimeMillis);
+	}
+
+	/**
+	 * Builds the snapshot holding the records of this one whose ids are not
+	 * removed, followed by the given ones. The product indexes are changed as the
+	 * layout of the catalog allows, see {@link IProductCatalog#merge(List, Set)};
+	 * the user index is shared when no user changes and built again otherwise.
+	 *
+	 * @param products          products added to the catalog.
+	 * @param removedProductIds ids of the products to remove.
+	 * @param addedUsers        users added to the user database.
+	 * @param removedUserIds    ids of the users to remove.
+	 * @param version           version number of the snapshot.
+	 * @param loadTimeMillis    time taken to load the changed records, in
+	 *                          milliseconds.
+	 * @return the snapshot.
+	 */
+	public CatalogSnapshot merge(List<Product> products, Set<String> removedProductIds, List<User> addedUsers,
+			Set<String> removedUserIds, long version, long loadTimeMillis) {
+		long buildStart = System.nanoTime();
+		IProductCatalog mergedCatalog = products.isEmpty() && removedProductIds.isEmpty() ? catalog
+				: catalog.merge(products, removedProductIds);
+		List<User> added = copyRecords(addedUsers);
+		if (added.isEmpty() && removedUserIds.isEmpty()) {
+			return new CatalogSnapshot(mergedCatalog, users, userIndex, version, loadTimeMillis,
+					System.nanoTime() - buildStart);
+		}
+		List<User> allUsers = new ArrayList<>(users.size() + added.size());
+		for (User user : users) {
+			if (!removedUserIds.contains(user.getUserId())) {
+				allUsers.add(user);
+			}
+		}
+		allUsers.addAll(added);
+		return new CatalogSnapshot(mergedCatalog, Collections.unmodifiableList(allUsers), version, loadTimeMillis,
+				System.nanoTime() - buildStart);
+	}
+
+	/**
+	 * Gives the snapshot which holds no records.
+	 *
+	 * @return the empty snapshot.
+	 */
+	public static CatalogSnapshot empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * Gives all the products of the catalog.
+	 *
+	 * @return unmodifiable list of the products.
+	 */
+	public List<Product> getProducts() {
+		return catalog.getProducts();
+	}
+
+	/**
+	 * Gives the products of the snapshot together with their indexes.
+	 *
+	 * @return the catalog.
+	 */
+	public IProductCatalog getCatalog() {
+		return catalog;
+	}
+
+	public List<User> getUsers() {
+		return users;
+	}
+
+	public UserIndex getUserIndex() {
+		return userIndex;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Gives the time taken to read the records from the database.
+	 *
+	 * @return the load time in milliseconds.
+	 */
+	public long getLoadTimeMillis() {
+		return loadTimeMillis;
+	}
+
+	/**
+	 * Gives the time taken to build the indexes of the snapshot.
+	 *
+	 * @return the build time in milliseconds.
+	 */
+	public long getBuildTimeMillis() {
+		return buildTimeMillis;
+	}
+
+	public long getCreatedAtMillis() {
+		return createdAtMillis;
+	}
+
+	/**
+	 * Copies the records leaving out the missing ones.
+	 */
+	private static <T> List<T> copyRecords(List<T> records) {
+		List<T> copy = new ArrayList<>(records == null ? 0 : records.size());
+		if (records != null) {
+			for (T record : records) {
+				if (record != null) {
+					copy.add(record);
+				}
+			}
+		}
+		return copy;
+	}
+
+	@Override
+	public String toString() {
+		return "CatalogSnapshot [version=" + version + ", products=" + catalog.size() + ", users=" + users.size()
+				+ ", loadTimeMillis=" + loadTimeMillis + ", buildTimeMillis=" + buildTimeMillis + "]";
+	}
+
+}
@@ -0,0 +1,142 @@
+package com.reactiveworks.productservice.catalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.util.ProductKeys;
+
+/**
+ * Inverted index from a city to the products available in that city.
+ *
+ * The '/' separated availableCity field of every product is tokenized once when
+ * the index is built, so a lookup costs the same as the size of its result.
+ */
+public class CityProductIndex {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CityProductIndex.class");
+
+	private final Map<String, List<Product>> productsByCity;
+
+	/**
+	 * Builds the index over the given products.
+	 *
+	 * @param products products of the catalog.
+	 */
+	public CityProductIndex(List<Product> products) {
+		LOGGER_OBJ.debug("execution of CityProductIndex() started");
+		Map<String, List<Product>> index = new HashMap<>();
+		if (products != null) {
+			for (Product product : products) {
+				addProduct(index, product);
+			}
+		}
+		for (Map.Entry<String, List<Product>> entry : index.entrySet()) {
+			ArrayList<Product> cityProducts = (ArrayList<Product>) entry.getValue();
+			cityProducts.trimToSize();
+			entry.setValue(Collections.unmodifiableList(cityProducts));
+		}
+		productsByCity = index;
+		LOGGER_OBJ.debug("execution of CityProductIndex() completed");
+	}
+
+	private CityProductIndex(Map<String, List<Product>> productsByCity) {
+		this.productsByCity = productsByCity;
+	}
+
+	/**
+	 * Gives the index of the products of this index followed by the given ones.
+	 * Only the lists of the cities of the given products are copied, the others
+	 * are shared with this index, which is left unchanged.
+	 *
+	 * @param products products appended to the catalog.
+	 * @return the index over all the products.
+	 */
+	public CityProductIndex append(List<Product> products) {
+		return merge(Collections.<Product>emptySet(), products);
+	}
+
+	/**
+	 * Gives the index of the products of this index but the removed ones,
+	 * followed by the added ones. Only the lists of the cities of the removed and
+	 * added products are copied, the others are shared with this index, which is
+	 * left unchanged. A city left without products is dropped.
+	 *
+	 * @param removed products removed from the catalog, compared by identity.
+	 * @param added   products added to the catalog.
+	 * @return the index over the products of the changed catalog.
+	 */
+	public CityProductIndex merge(Set<Product> removed, List<Product> added) {
+		LOGGER_OBJ.debug("execution of merge() started");
+		Map<String, List<Product>> addedByCity = new HashMap<>();
+		for (Product product : added) {
+			addProduct(addedByCity, product);
+		}
+		Map<String, List<Product>> index = new HashMap<>(productsByCity);
+		for (Product product : removed) {
+			ProductKeys.forEachCity(product.getAvailableCity(),
+					city -> addedByCity.putIfAbsent(city, Collections.emptyList()));
+		}
+		addedByCity.forEach((city, addedProducts) -> {
+			List<Product> cityProducts = productsByCity.getOrDefault(city, Collections.<Product>emptyList());
+			ArrayList<Product> merged = new ArrayList<>(cityProducts.size() + addedProducts.size());
+			for (Product product : cityProducts) {
+				if (!removed.contains(product)) {
+					merged.add(product);
+				}
+			}
+			merged.addAll(addedProducts);
+			if (merged.isEmpty()) {
+				index.remove(city);
+			} else {
+				index.put(city, Collections.unmodifiableList(merged));
+			}
+		});
+		LOGGER_OBJ.debug("execution of merge() completed");
+		return new CityProductIndex(index);
+	}
+
+	/**
+	 * Finds the products which are available in the given city.
+	 *
+	 * @param city name of the city, matched ignoring case.
+	 * @return unmodifiable list of the products available in the city, empty when
+	 *         no product is available there.
+	 */
+	public List<Product> getProducts(String city) {
+		if (city == null) {
+			return Collections.emptyList();
+		}
+		List<Product> cityProducts = productsByCity.get(ProductKeys.normalizeCity(city));
+		return cityProducts == null ? Collections.<Product>emptyList() : cityProducts;
+	}
+
+	/**
+	 * Gives the number of distinct cities in the index.
+	 *
+	 * @return the number of distinct cities.
+	 */
+	public int getCityCount() {
+		return productsByCity.size();
+	}
+
+	/**
+	 * Adds the product to the list of each of its cities.
+	 */
+	private static void addProduct(Map<String, List<Product>> index, Product product) {
+		ProductKeys.forEachCity(product.getAvailableCity(), city -> {
+			List<Product> cityProducts = index.computeIfAbsent(city, key -> new ArrayList<>());
+			// a city repeated in the same field must not list the product twice
+			if (cityProducts.isEmpty() || cityProducts.get(cityProducts.size() - 1) != product) {
+				cityProducts.add(product);
+			}
+		});
+	}
+
+}
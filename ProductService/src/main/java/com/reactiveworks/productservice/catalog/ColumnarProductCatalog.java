@@ -0,0 +1,183 @@
+package com.reactiveworks.productservice.catalog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import org.roaringbitmap.ImmutableBitmapDataProvider;
+import org.roaringbitmap.RoaringBitmap;
+
+import com.reactiveworks.productservice.binary.BinaryCatalog;
+import com.reactiveworks.productservice.model.Product;
+
+/**
+ * Catalog which keeps the products in columns on the heap instead of objects.
+ *
+ * The columns are a primitive price column, a category column coded against
+ * the dictionary of the distinct categories and a city column coded against
+ * the dictionary of the distinct availableCity fields, each of which keeps the
+ * bitset of its cities while the catalog is built. The ids and names are kept
+ * as UTF-8 in one byte array, next to the id table which finds a product by
+ * its id. The queries are those of
+ * {@link AbstractColumnarCatalog}: the city and category bitmaps follow the
+ * price order and products are created only for the results.
+ */
+public final class ColumnarProductCatalog extends AbstractColumnarCatalog {
+
+	private final int[] prices;
+	private final int[] categoryCodes;
+	private final int[] citySetCodes;
+	private final int[] textOffsets;
+	private final byte[] text;
+	private final BitSet nullTexts;
+	private final int[] idTable;
+	private final Map<String, RoaringBitmap> cityBitmaps;
+	private final Map<String, RoaringBitmap> categoryBitmaps;
+
+	private ColumnarProductCatalog(CatalogColumns columns) {
+		super(columns);
+		prices = columns.prices;
+		categoryCodes = columns.categoryCodes;
+		citySetCodes = columns.citySetCodes;
+		textOffsets = columns.textOffsets;
+		text = columns.text;
+		nullTexts = columns.nullTexts;
+		idTable = columns.idTable;
+		cityBitmaps = columns.cityBitmaps;
+		categoryBitmaps = columns.categoryBitmaps;
+	}
+
+	/**
+	 * Creates a builder of a columnar catalog.
+	 *
+	 * @return the builder.
+	 */
+	public static IProductCatalog.Builder builder() {
+		CatalogColumns.Collector columns = new CatalogColumns.Collector();
+		return new IProductCatalog.Builder() {
+
+			@Override
+			public void add(Product product) {
+				columns.add(product);
+			}
+
+			@Override
+			public void addAll(BinaryCatalog catalog) {
+				columns.addAll(catalog);
+			}
+
+			@Override
+			public IProductCatalog build() {
+				return new ColumnarProductCatalog(columns.sort());
+			}
+		};
+	}
+
+	/**
+	 * Builds the catalog over the given products.
+	 *
+	 * @param products products of the catalog.
+	 * @return the catalog.
+	 */
+	public static ColumnarProductCatalog of(List<Product> products) {
+		CatalogColumns.Collector columns = new CatalogColumns.Collector();
+		if (products != null) {
+			products.forEach(columns::add);
+		}
+		return new ColumnarProductCatalog(columns.sort());
+	}
+
+	/**
+	 * Gives the bytes of the columns, of the id table and of the city and
+	 * category bitmaps.
+	 *
+	 * @return the size of the catalog in bytes.
+	 */
+	@Override
+	public long getMemoryBytes() {
+		long bytes = Integer.BYTES * (3L * size + textOffsets.length + idTable.length) + text.length;
+		for (RoaringBitmap bitmap : cityBitmaps.values()) {
+			bytes += bitmap.getLongSizeInBytes();
+		}
+		for (RoaringBitmap bitmap : categoryBitmaps.values()) {
+			bytes += bitmap.getLongSizeInBytes();
+		}
+		return bytes;
+	}
+
+	@Override
+	protected IProductCatalog.Builder newBuilder() {
+		return builder();
+	}
+
+	@Override
+	protected int price(int ordinal) {
+		return prices[ordinal];
+	}
+
+	@Override
+	protected int categoryCode(int ordinal) {
+		return categoryCodes[ordinal];
+	}
+
+	@Override
+	protected int citySetCode(int ordinal) {
+		return citySetCodes[ordinal];
+	}
+
+	@Override
+	protected String text(int index) {
+		if (nullTexts.get(index)) {
+			return null;
+		}
+		int offset = textOffsets[index];
+		return new String(text, offset, textOffsets[index + 1] - offset, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	protected boolean textEquals(int index, byte[] value) {
+		int offset = textOffsets[index];
+		if (textOffsets[index + 1] - offset != value.length || nullTexts.get(index)) {
+			return false;
+		}
+		for (int i = 0; i < value.length; i++) {
+			if (text[offset + i] != value[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	protected int idTableLength() {
+		return idTable.length;
+	}
+
+	@Override
+	protected int idTableEntry(int slot) {
+		return idTable[slot];
+	}
+
+	@Override
+	protected ImmutableBitmapDataProvider cityBitmap(String cityKey) {
+		return cityBitmaps.get(cityKey);
+	}
+
+	@Override
+	protected ImmutableBitmapDataProvider cityCategoryBitmap(String cityKey, String categoryKey) {
+		RoaringBitmap cityBitmap = cityBitmaps.get(cityKey);
+		RoaringBitmap categoryBitmap = categoryBitmaps.get(categoryKey);
+		if (cityBitmap == null || categoryBitmap == null) {
+			return null;
+		}
+		return RoaringBitmap.and(cityBitmap, categoryBitmap);
+	}
+
+	@Override
+	public String toString() {
+		return "ColumnarProductCatalog [products=" + size + ", categories=" + getCategoryCount() + ", citySets="
+				+ getCitySetCount() + ", cities=" + cityBitmaps.size() + ", textBytes=" + text.length + "]";
+	}
+
+}
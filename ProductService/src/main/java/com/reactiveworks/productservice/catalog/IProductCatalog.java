@@ -0,0 +1,162 @@
+package com.reactiveworks.productservice.catalog;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.reactiveworks.productservice.binary.BinaryCatalog;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.ProductPage;
+import com.reactiveworks.productservice.model.ProductPageRequest;
+
+/**
+ * Products of a catalog snapshot together with the indexes which answer the
+ * availability queries.
+ *
+ * The implementations differ only in how they lay the products out in memory,
+ * see {@link CatalogLayout}. A catalog is immutable once built and safe to
+ * share between threads. Cities and categories are matched ignoring case.
+ */
+public interface IProductCatalog {
+
+	/**
+	 * Gives the number of products of the catalog.
+	 *
+	 * @return the number of products.
+	 */
+	public int size();
+
+	/**
+	 * Gives all the products of the catalog.
+	 *
+	 * @return unmodifiable list of the products.
+	 */
+	public List<Product> getProducts();
+
+	/**
+	 * Finds the products which are available in the given city.
+	 *
+	 * @param city name of the city.
+	 * @return unmodifiable list of the products, empty when no product is
+	 *         available in the city.
+	 */
+	public List<Product> getProducts(String city);
+
+	/**
+	 * Finds the products of the given category which are available in the given
+	 * city.
+	 *
+	 * @param city     name of the city.
+	 * @param category category of the product.
+	 * @return unmodifiable list of the matching products.
+	 */
+	public List<Product> getProducts(String city, String category);
+
+	/**
+	 * Gives a page of the products available in the given city, ordered by
+	 * price.
+	 *
+	 * @param city    name of the city.
+	 * @param request page to give.
+	 * @return the page, empty when no product is available in the city.
+	 */
+	public ProductPage getProducts(String city, ProductPageRequest request);
+
+	/**
+	 * Gives a page of the products of the given category available in the given
+	 * city, ordered by price.
+	 *
+	 * @param city     name of the city.
+	 * @param category category of the product.
+	 * @param request  page to give.
+	 * @return the page, empty when no product matches.
+	 */
+	public ProductPage getProducts(String city, String category, ProductPageRequest request);
+
+	/**
+	 * Finds the products of the given category available in the given city whose
+	 * price lies in the given range, bounds included.
+	 *
+	 * @param city     name of the city.
+	 * @param category category of the product.
+	 * @param minPrice lowest price of the range.
+	 * @param maxPrice highest price of the range.
+	 * @return unmodifiable list of the matching products, cheapest first.
+	 */
+	public List<Product> getProductsInPriceRange(String city, String category, int minPrice, int maxPrice);
+
+	/**
+	 * Finds the product with the given id.
+	 *
+	 * @param productId id of the product.
+	 * @return the product, or null when no product has the id.
+	 */
+	public Product findProduct(String productId);
+
+	/**
+	 * Estimates the bytes of memory held by the products and the indexes of the
+	 * catalog.
+	 *
+	 * @return the estimated size of the catalog in bytes.
+	 */
+	public long getMemoryBytes();
+
+	/**
+	 * Gives a catalog of the same layout holding the products of this catalog
+	 * followed by the given ones. This catalog is left unchanged.
+	 *
+	 * @param products products to append; missing ones are left out.
+	 * @return the catalog with the appended products.
+	 */
+	default public IProductCatalog append(List<Product> products) {
+		return merge(products, Collections.<String>emptySet());
+	}
+
+	/**
+	 * Gives a catalog of the same layout holding the products of this catalog
+	 * whose ids are not removed, followed by the given ones. An updated product
+	 * is passed as added with its id removed. This catalog is left unchanged.
+	 *
+	 * @param products   products to add; missing ones are left out.
+	 * @param removedIds ids of the products to remove.
+	 * @return the catalog with the changes applied.
+	 */
+	public IProductCatalog merge(List<Product> products, Set<String> removedIds);
+
+	/**
+	 * Collects the products of a catalog one at a time and builds the catalog
+	 * once all of them are added. A builder is used by one thread and builds
+	 * one catalog.
+	 */
+	public interface Builder {
+
+		/**
+		 * Adds the product to the catalog being built; a missing product is left
+		 * out.
+		 *
+		 * @param product product to add.
+		 */
+		public void add(Product product);
+
+		/**
+		 * Adds all the products of the binary catalog to the catalog being built.
+		 * By default a product object is created and added for each of them.
+		 *
+		 * @param catalog binary catalog to add.
+		 */
+		default public void addAll(BinaryCatalog catalog) {
+			for (int ordinal = 0; ordinal < catalog.size(); ordinal++) {
+				add(catalog.getProduct(ordinal));
+			}
+		}
+
+		/**
+		 * Builds the catalog and its indexes over the added products.
+		 *
+		 * @return the catalog.
+		 */
+		public IProductCatalog build();
+
+	}
+
+}
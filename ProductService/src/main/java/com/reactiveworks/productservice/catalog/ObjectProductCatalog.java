@@ -0,0 +1,221 @@
+package com.reactiveworks.productservice.catalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.ProductPage;
+import com.reactiveworks.productservice.model.ProductPageRequest;
+import com.reactiveworks.productservice.util.ProductKeys;
+
+/**
+ * Catalog which keeps the products as the objects read from the dao, indexed
+ * by {@link CityProductIndex}, {@link CatalogBitmapIndex} and
+ * {@link PriceIndex}, and by their ids in a hash map. The city and category
+ * queries give the products in catalog order.
+ */
+public final class ObjectProductCatalog implements IProductCatalog {
+
+	// sizes with compressed references: header, four references and the price
+	private static final int PRODUCT_BYTES = 32;
+	// header of the string and of its byte array
+	private static final int STRING_BYTES = 40;
+	// a reference in the city list and in the two price listings, with a price each
+	private static final int CITY_LISTING_BYTES = 20;
+	// a node of the id map with its slot in the table
+	private static final int ID_ENTRY_BYTES = 40;
+
+	private final List<Product> products;
+	private final Map<String, Product> productsById;
+	private final CityProductIndex cityIndex;
+	private final CatalogBitmapIndex bitmapIndex;
+	private final PriceIndex priceIndex;
+
+	/**
+	 * Builds the catalog over the given products, which must not change
+	 * afterwards.
+	 *
+	 * @param products products of the catalog, without missing ones.
+	 */
+	public ObjectProductCatalog(List<Product> products) {
+		this.products = Collections.unmodifiableList(products);
+		this.productsById = new HashMap<>();
+		for (Product product : products) {
+			productsById.putIfAbsent(product.getProductId(), product);
+		}
+		this.cityIndex = new CityProductIndex(products);
+		this.bitmapIndex = new CatalogBitmapIndex(products);
+		this.priceIndex = new PriceIndex(products);
+	}
+
+	private ObjectProductCatalog(List<Product> products, Map<String, Product> productsById,
+			CityProductIndex cityIndex, CatalogBitmapIndex bitmapIndex, PriceIndex priceIndex) {
+		this.products = products;
+		this.productsById = productsById;
+		this.cityIndex = cityIndex;
+		this.bitmapIndex = bitmapIndex;
+		this.priceIndex = priceIndex;
+	}
+
+	/**
+	 * Creates a builder of an object catalog.
+	 *
+	 * @return the builder.
+	 */
+	public static IProductCatalog.Builder builder() {
+		List<Product> products = new ArrayList<>();
+		return new IProductCatalog.Builder() {
+
+			@Override
+			public void add(Product product) {
+				if (product != null) {
+					products.add(product);
+				}
+			}
+
+			@Override
+			public IProductCatalog build() {
+				return new ObjectProductCatalog(products);
+			}
+		};
+	}
+
+	public CityProductIndex getCityIndex() {
+		return cityIndex;
+	}
+
+	public CatalogBitmapIndex getBitmapIndex() {
+		return bitmapIndex;
+	}
+
+	public PriceIndex getPriceIndex() {
+		return priceIndex;
+	}
+
+	@Override
+	public int size() {
+		return products.size();
+	}
+
+	@Override
+	public List<Product> getProducts() {
+		return products;
+	}
+
+	@Override
+	public List<Product> getProducts(String city) {
+		return cityIndex.getProducts(city);
+	}
+
+	@Override
+	public List<Product> getProducts(String city, String category) {
+		return bitmapIndex.getProducts(city, category);
+	}
+
+	@Override
+	public ProductPage getProducts(String city, ProductPageRequest request) {
+		return priceIndex.getProducts(city, request);
+	}
+
+	@Override
+	public ProductPage getProducts(String city, String category, ProductPageRequest request) {
+		return priceIndex.getProducts(city, category, request);
+	}
+
+	@Override
+	public List<Product> getProductsInPriceRange(String city, String category, int minPrice, int maxPrice) {
+		return priceIndex.getProductsInPriceRange(city, category, minPrice, maxPrice);
+	}
+
+	@Override
+	public Product findProduct(String productId) {
+		return productId == null ? null : productsById.get(productId);
+	}
+
+	/**
+	 * Estimates the heap held by the products with their strings and by one
+	 * entry per city of a product in the city and price indexes and its entry in
+	 * the id map, plus the bitmaps. A string shared by several products is counted for each of them,
+	 * so the estimate is an upper bound. It walks the products.
+	 *
+	 * @return the estimated size of the catalog in bytes.
+	 */
+	@Override
+	public long getMemoryBytes() {
+		long[] bytes = { bitmapIndex.getSizeInBytes() };
+		for (Product product : products) {
+			bytes[0] += PRODUCT_BYTES + ID_ENTRY_BYTES + stringBytes(product.getProductId())
+					+ stringBytes(product.getProductName()) + stringBytes(product.getProductCategory())
+					+ stringBytes(product.getAvailableCity());
+			ProductKeys.forEachCity(product.getAvailableCity(), city -> bytes[0] += CITY_LISTING_BYTES);
+		}
+		return bytes[0];
+	}
+
+	private static long stringBytes(String value) {
+		return value == null ? 0 : STRING_BYTES + value.length();
+	}
+
+	/**
+	 * Gives the catalog with the given changes kept aside of this one, see
+	 * {@link OverlayProductCatalog}, so that the merge costs the size of the
+	 * changes.
+	 *
+	 * @param products   products to add; missing ones are left out.
+	 * @param removedIds ids of the products to remove.
+	 * @return the catalog with the changes applied.
+	 */
+	@Override
+	public IProductCatalog merge(List<Product> products, Set<String> removedIds) {
+		return OverlayProductCatalog.merge(this, ObjectProductCatalog::builder, products, removedIds);
+	}
+
+	/**
+	 * Gives the catalog with the given changes applied, or this catalog when
+	 * nothing changes. The indexes are changed rather than rebuilt: only the
+	 * listings of the cities and categories of the removed and added products
+	 * are copied, the others are shared with this catalog. The list of the
+	 * products is copied, so it suits the small catalogs of the changes kept by
+	 * an {@link OverlayProductCatalog}.
+	 *
+	 * @param merged     products to add; missing ones are left out.
+	 * @param removedIds ids of the products to remove.
+	 * @return the catalog with the changes applied.
+	 */
+	ObjectProductCatalog withChanges(List<Product> merged, Set<String> removedIds) {
+		List<Product> added = new ArrayList<>(merged.size());
+		for (Product product : merged) {
+			if (product != null) {
+				added.add(product);
+			}
+		}
+		Set<Product> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+		List<Product> all = new ArrayList<>(products.size() + added.size());
+		for (Product product : products) {
+			if (!removedIds.isEmpty() && removedIds.contains(product.getProductId())) {
+				removed.add(product);
+			} else {
+				all.add(product);
+			}
+		}
+		if (added.isEmpty() && removed.isEmpty()) {
+			return this;
+		}
+		all.addAll(added);
+		Map<String, Product> byId = new HashMap<>(productsById);
+		for (Product product : removed) {
+			byId.remove(product.getProductId());
+		}
+		for (Product product : added) {
+			byId.putIfAbsent(product.getProductId(), product);
+		}
+		return new ObjectProductCatalog(Collections.unmodifiableList(all), byId, cityIndex.merge(removed, added),
+				bitmapIndex.merge(removed, added), priceIndex.merge(removed, added));
+	}
+
+}
@@ -0,0 +1,316 @@
+package com.reactiveworks.productservice.catalog;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.roaringbitmap.ImmutableBitmapDataProvider;
+import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+
+import com.reactiveworks.productservice.binary.BinaryCatalog;
+import com.reactiveworks.productservice.model.Product;
+
+/**
+ * Catalog which keeps its columns and indexes in direct buffers, out of the
+ * heap.
+ *
+ * The columns and the id table are those of {@link ColumnarProductCatalog},
+ * copied into one direct buffer each once they are sorted, and the city and category bitmaps
+ * are serialized into direct buffers and read in place. The heap keeps only the
+ * buffer handles, the category and availableCity dictionaries and one small
+ * bitmap handle per city and category, so the garbage collector has almost
+ * nothing to trace however large the catalog is. The columns are read through
+ * a {@link Flyweight}, which walks the products without creating them; the
+ * queries create products only for their results.
+ *
+ * The buffers are released when the catalog is no longer reachable and
+ * collected, and count against -XX:MaxDirectMemorySize. A column holds at most
+ * 2 GB, which bounds the ids and names of the catalog together.
+ */
+public final class OffHeapProductCatalog extends AbstractColumnarCatalog {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("OffHeapProductCatalog.class");
+
+	private final IntBuffer prices;
+	private final IntBuffer categoryCodes;
+	private final IntBuffer citySetCodes;
+	private final IntBuffer textOffsets;
+	private final ByteBuffer text;
+	private final BitSet nullTexts;
+	private final IntBuffer idTable;
+	private final Map<String, ImmutableRoaringBitmap> cityBitmaps;
+	private final Map<String, ImmutableRoaringBitmap> categoryBitmaps;
+	private final long offHeapBytes;
+
+	private OffHeapProductCatalog(CatalogColumns columns) {
+		super(columns);
+		LOGGER_OBJ.debug("execution of OffHeapProductCatalog() started");
+		prices = copyOf(columns.prices);
+		categoryCodes = copyOf(columns.categoryCodes);
+		citySetCodes = copyOf(columns.citySetCodes);
+		textOffsets = copyOf(columns.textOffsets);
+		text = ByteBuffer.allocateDirect(columns.text.length);
+		text.put(columns.text);
+		nullTexts = columns.nullTexts;
+		idTable = copyOf(columns.idTable);
+		long[] bitmapBytes = new long[1];
+		cityBitmaps = copyOf(columns.cityBitmaps, bitmapBytes);
+		categoryBitmaps = copyOf(columns.categoryBitmaps, bitmapBytes);
+		offHeapBytes = Integer.BYTES * (3L * size + textOffsets.capacity() + idTable.capacity()) + text.capacity()
+				+ bitmapBytes[0];
+		LOGGER_OBJ.debug("execution of OffHeapProductCatalog() completed");
+	}
+
+	/**
+	 * Creates a builder of an off-heap catalog. The columns are collected and
+	 * sorted on the heap and copied out of it when the catalog is built.
+	 *
+	 * @return the builder.
+	 */
+	public static IProductCatalog.Builder builder() {
+		CatalogColumns.Collector columns = new CatalogColumns.Collector();
+		return new IProductCatalog.Builder() {
+
+			@Override
+			public void add(Product product) {
+				columns.add(product);
+			}
+
+			@Override
+			public void addAll(BinaryCatalog catalog) {
+				columns.addAll(catalog);
+			}
+
+			@Override
+			public IProductCatalog build() {
+				return new OffHeapProductCatalog(columns.sort());
+			}
+		};
+	}
+
+	/**
+	 * Builds the catalog over the given products.
+	 *
+	 * @param products products of the catalog.
+	 * @return the catalog.
+	 */
+	public static OffHeapProductCatalog of(List<Product> products) {
+		CatalogColumns.Collector columns = new CatalogColumns.Collector();
+		if (products != null) {
+			products.forEach(columns::add);
+		}
+		return new OffHeapProductCatalog(columns.sort());
+	}
+
+	/**
+	 * Creates a flyweight over the products of the catalog. The products are
+	 * numbered from 0, cheapest first.
+	 *
+	 * @return the flyweight, placed on no product yet.
+	 */
+	public Flyweight flyweight() {
+		return new Flyweight();
+	}
+
+	/**
+	 * Gives the number of bytes of the direct buffers of the catalog.
+	 *
+	 * @return the off-heap size of the catalog.
+	 */
+	public long getOffHeapBytes() {
+		return offHeapBytes;
+	}
+
+	/**
+	 * Gives the bytes of the direct buffers, which hold nearly all of the
+	 * catalog.
+	 *
+	 * @return the size of the catalog in bytes.
+	 */
+	@Override
+	public long getMemoryBytes() {
+		return offHeapBytes;
+	}
+
+	@Override
+	protected IProductCatalog.Builder newBuilder() {
+		return builder();
+	}
+
+	@Override
+	protected int price(int ordinal) {
+		return prices.get(ordinal);
+	}
+
+	@Override
+	protected int categoryCode(int ordinal) {
+		return categoryCodes.get(ordinal);
+	}
+
+	@Override
+	protected int citySetCode(int ordinal) {
+		return citySetCodes.get(ordinal);
+	}
+
+	@Override
+	protected String text(int index) {
+		if (nullTexts.get(index)) {
+			return null;
+		}
+		int start = textOffsets.get(index);
+		byte[] bytes = new byte[textOffsets.get(index + 1) - start];
+		ByteBuffer view = text.duplicate();
+		view.position(start);
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	protected boolean textEquals(int index, byte[] value) {
+		int start = textOffsets.get(index);
+		if (textOffsets.get(index + 1) - start != value.length || nullTexts.get(index)) {
+			return false;
+		}
+		for (int i = 0; i < value.length; i++) {
+			if (text.get(start + i) != value[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	protected int idTableLength() {
+		return idTable.capacity();
+	}
+
+	@Override
+	protected int idTableEntry(int slot) {
+		return idTable.get(slot);
+	}
+
+	@Override
+	protected ImmutableBitmapDataProvider cityBitmap(String cityKey) {
+		return cityBitmaps.get(cityKey);
+	}
+
+	@Override
+	protected ImmutableBitmapDataProvider cityCategoryBitmap(String cityKey, String categoryKey) {
+		ImmutableRoaringBitmap cityBitmap = cityBitmaps.get(cityKey);
+		ImmutableRoaringBitmap categoryBitmap = categoryBitmaps.get(categoryKey);
+		if (cityBitmap == null || categoryBitmap == null) {
+			return null;
+		}
+		return ImmutableRoaringBitmap.and(cityBitmap, categoryBitmap);
+	}
+
+	@Override
+	public String toString() {
+		return "OffHeapProductCatalog [products=" + size + ", categories=" + getCategoryCount() + ", citySets="
+				+ getCitySetCount() + ", cities=" + cityBitmaps.size() + ", offHeapBytes=" + offHeapBytes + "]";
+	}
+
+	private static IntBuffer copyOf(int[] column) {
+		IntBuffer buffer = ByteBuffer.allocateDirect(Integer.BYTES * column.length).order(ByteOrder.nativeOrder())
+				.asIntBuffer();
+		buffer.put(column);
+		return buffer;
+	}
+
+	/**
+	 * Serializes the bitmaps into one direct buffer and maps each of them in
+	 * place, adding the size of the buffer to the given total.
+	 */
+	private static Map<String, ImmutableRoaringBitmap> copyOf(Map<String, RoaringBitmap> bitmaps, long[] bytes) {
+		long length = 0;
+		for (RoaringBitmap bitmap : bitmaps.values()) {
+			length += bitmap.serializedSizeInBytes();
+		}
+		if (length > Integer.MAX_VALUE) {
+			throw new IllegalStateException("bitmaps of the catalog exceed " + Integer.MAX_VALUE + " bytes");
+		}
+		ByteBuffer buffer = ByteBuffer.allocateDirect((int) length).order(ByteOrder.LITTLE_ENDIAN);
+		Map<String, ImmutableRoaringBitmap> copies = new HashMap<>();
+		for (Map.Entry<String, RoaringBitmap> entry : bitmaps.entrySet()) {
+			int start = buffer.position();
+			entry.getValue().serialize(buffer);
+			ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+			view.position(start);
+			view.limit(buffer.position());
+			copies.put(entry.getKey(), new ImmutableRoaringBitmap(view.slice().order(ByteOrder.LITTLE_ENDIAN)));
+		}
+		bytes[0] += length;
+		return copies;
+	}
+
+	/**
+	 * Reusable accessor which reads the fields of one product of the catalog
+	 * straight from the buffers. It is placed on a product by its ordinal and
+	 * creates no object but the strings it is asked for. A flyweight is not safe
+	 * to share between threads.
+	 */
+	public final class Flyweight {
+
+		private int ordinal = -1;
+
+		private Flyweight() {
+
+		}
+
+		/**
+		 * Places the flyweight on the product of the given ordinal.
+		 *
+		 * @param ordinal ordinal of the product, from 0 to the size of the catalog
+		 *                less one.
+		 * @return this flyweight.
+		 */
+		public Flyweight moveTo(int ordinal) {
+			if (ordinal < 0 || ordinal >= size) {
+				throw new IndexOutOfBoundsException("ordinal " + ordinal + " of a catalog of size " + size);
+			}
+			this.ordinal = ordinal;
+			return this;
+		}
+
+		public int getOrdinal() {
+			return ordinal;
+		}
+
+		public int getPrice() {
+			return price(ordinal);
+		}
+
+		public String getProductId() {
+			return text(2 * ordinal);
+		}
+
+		public String getProductName() {
+			return text(2 * ordinal + 1);
+		}
+
+		public String getProductCategory() {
+			return category(categoryCode(ordinal));
+		}
+
+		public String getAvailableCity() {
+			return citySet(citySetCode(ordinal));
+		}
+
+		/**
+		 * Creates the product the flyweight is placed on.
+		 *
+		 * @return a new product.
+		 */
+		public Product toProduct() {
+			return product(ordinal);
+		}
+	}
+
+}
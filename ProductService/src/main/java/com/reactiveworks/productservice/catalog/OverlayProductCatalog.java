@@ -0,0 +1,408 @@
+package com.reactiveworks.productservice.catalog;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.model.PriceOrder;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.ProductPage;
+import com.reactiveworks.productservice.model.ProductPageRequest;
+
+/**
+ * Catalog of any layout with the changes merged since it was built kept
+ * aside of it: the base catalog, the products added since in one
+ * {@link ObjectProductCatalog} and the products of the base removed or
+ * replaced since in another one. A merge changes only the two small catalogs,
+ * so it costs the size of the changes rather than the size of the base. Once
+ * the changes outgrow a share of the base they are folded into a new catalog
+ * of the layout of the base, whose build is spread over the merges which led
+ * to it.
+ *
+ * A query is answered by the base without its hidden products together with
+ * the added products: the lists give the products of the base first, the
+ * pages and price ranges merge both in price order. An offset page finds its
+ * start in the base by a binary search over the ranks of the base listing,
+ * counting the hidden and added products ahead of a rank in their own price
+ * listings, and then reads the base from there in chunks.
+ */
+final class OverlayProductCatalog implements IProductCatalog {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("OverlayProductCatalog.class");
+	private static final ObjectProductCatalog NO_PRODUCTS = new ObjectProductCatalog(
+			Collections.<Product>emptyList());
+	// fewest changes kept aside, and the share of the base they may grow to
+	private static final int MIN_CHANGES = 256;
+	private static final int BASE_SHARE = 32;
+
+	private final IProductCatalog base;
+	private final Supplier<IProductCatalog.Builder> builders;
+	private final ObjectProductCatalog added;
+	private final ObjectProductCatalog hidden;
+
+	private OverlayProductCatalog(IProductCatalog base, Supplier<IProductCatalog.Builder> builders,
+			ObjectProductCatalog added, ObjectProductCatalog hidden) {
+		this.base = base;
+		this.builders = builders;
+		this.added = added;
+		this.hidden = hidden;
+	}
+
+	/**
+	 * Gives the given catalog with the given changes kept aside of it.
+	 *
+	 * @param base       catalog the changes apply to.
+	 * @param builders   creates builders of catalogs of the layout of the base.
+	 * @param products   products to add; missing ones are left out.
+	 * @param removedIds ids of the products to remove.
+	 * @return the catalog with the changes applied.
+	 */
+	static IProductCatalog merge(IProductCatalog base, Supplier<IProductCatalog.Builder> builders,
+			List<Product> products, Set<String> removedIds) {
+		return new OverlayProductCatalog(base, builders, NO_PRODUCTS, NO_PRODUCTS).merge(products, removedIds);
+	}
+
+	@Override
+	public int size() {
+		return base.size() - hidden.size() + added.size();
+	}
+
+	@Override
+	public List<Product> getProducts() {
+		List<Product> products = new ArrayList<>(size());
+		for (Product product : base.getProducts()) {
+			if (!isHidden(product)) {
+				products.add(product);
+			}
+		}
+		products.addAll(added.getProducts());
+		return Collections.unmodifiableList(products);
+	}
+
+	@Override
+	public List<Product> getProducts(String city) {
+		if (city == null) {
+			return base.getProducts(city);
+		}
+		return concat(base.getProducts(city), !hidden.getProducts(city).isEmpty(), added.getProducts(city));
+	}
+
+	@Override
+	public List<Product> getProducts(String city, String category) {
+		if (city == null || category == null) {
+			return base.getProducts(city, category);
+		}
+		return concat(base.getProducts(city, category), !hidden.getProducts(city, category).isEmpty(),
+				added.getProducts(city, category));
+	}
+
+	@Override
+	public ProductPage getProducts(String city, ProductPageRequest request) {
+		if (city == null) {
+			return base.getProducts(city, request);
+		}
+		return page(pageRequest -> base.getProducts(city, pageRequest),
+				hidden.getPriceIndex().getListedProducts(city), added.getPriceIndex().getListedProducts(city),
+				request);
+	}
+
+	@Override
+	public ProductPage getProducts(String city, String category, ProductPageRequest request) {
+		if (city == null || category == null) {
+			return base.getProducts(city, category, request);
+		}
+		return page(pageRequest -> base.getProducts(city, category, pageRequest),
+				hidden.getPriceIndex().getListedProducts(city, category),
+				added.getPriceIndex().getListedProducts(city, category), request);
+	}
+
+	@Override
+	public List<Product> getProductsInPriceRange(String city, String category, int minPrice, int maxPrice) {
+		List<Product> listed = base.getProductsInPriceRange(city, category, minPrice, maxPrice);
+		List<Product> addedListed = added.getProductsInPriceRange(city, category, minPrice, maxPrice);
+		boolean filtered = !hidden.getProductsInPriceRange(city, category, minPrice, maxPrice).isEmpty();
+		if (!filtered && addedListed.isEmpty()) {
+			return listed;
+		}
+		List<Product> products = new ArrayList<>(listed.size() + addedListed.size());
+		int next = 0;
+		for (Product product : listed) {
+			if (filtered && isHidden(product)) {
+				continue;
+			}
+			while (next < addedListed.size() && PriceIndex.PRICE_ORDER.compare(addedListed.get(next), product) < 0) {
+				products.add(addedListed.get(next++));
+			}
+			products.add(product);
+		}
+		products.addAll(addedListed.subList(next, addedListed.size()));
+		return Collections.unmodifiableList(products);
+	}
+
+	@Override
+	public Product findProduct(String productId) {
+		Product product = added.findProduct(productId);
+		if (product != null || hidden.findProduct(productId) != null) {
+			return product;
+		}
+		return base.findProduct(productId);
+	}
+
+	/**
+	 * Gives the memory of the base and of the changes kept aside. The hidden
+	 * products are counted although the base may share them, so the estimate is
+	 * an upper bound.
+	 *
+	 * @return the estimated size of the catalog in bytes.
+	 */
+	@Override
+	public long getMemoryBytes() {
+		return base.getMemoryBytes() + added.getMemoryBytes() + hidden.getMemoryBytes();
+	}
+
+	/**
+	 * Gives the catalog with the given changes kept aside of the base along with
+	 * the earlier ones: the removed products of the base are hidden and the
+	 * added and removed products change the added ones. When the changes outgrow
+	 * their share of the base, the catalog is built again in the layout of the
+	 * base instead.
+	 *
+	 * @param products   products to add; missing ones are left out.
+	 * @param removedIds ids of the products to remove.
+	 * @return the catalog with the changes applied.
+	 */
+	@Override
+	public IProductCatalog merge(List<Product> products, Set<String> removedIds) {
+		List<Product> newlyHidden = new ArrayList<>();
+		for (String productId : removedIds) {
+			if (hidden.findProduct(productId) == null) {
+				Product product = base.findProduct(productId);
+				if (product != null) {
+					newlyHidden.add(product);
+				}
+			}
+		}
+		ObjectProductCatalog nextAdded = added.withChanges(products, removedIds);
+		ObjectProductCatalog nextHidden = newlyHidden.isEmpty() ? hidden
+				: hidden.withChanges(newlyHidden, Collections.<String>emptySet());
+		if (nextAdded == added && nextHidden == hidden) {
+			return added.size() + hidden.size() == 0 ? base : this;
+		}
+		if (nextAdded.size() + nextHidden.size() > Math.max(MIN_CHANGES, base.size() / BASE_SHARE)) {
+			return fold(nextAdded, nextHidden);
+		}
+		return new OverlayProductCatalog(base, builders, nextAdded, nextHidden);
+	}
+
+	/**
+	 * Builds the catalog of the layout of the base over its products which are
+	 * not hidden, followed by the added ones.
+	 */
+	private IProductCatalog fold(ObjectProductCatalog foldedAdded, ObjectProductCatalog foldedHidden) {
+		LOGGER_OBJ.debug("execution of fold() started");
+		IProductCatalog.Builder builder = builders.get();
+		for (Product product : base.getProducts()) {
+			if (foldedHidden.findProduct(product.getProductId()) == null) {
+				builder.add(product);
+			}
+		}
+		foldedAdded.getProducts().forEach(builder::add);
+		IProductCatalog catalog = builder.build();
+		LOGGER_OBJ.debug("execution of fold() completed");
+		return catalog;
+	}
+
+	private boolean isHidden(Product product) {
+		return hidden.size() > 0 && hidden.findProduct(product.getProductId()) != null;
+	}
+
+	/**
+	 * Gives the listed products of the base, without the hidden ones when some
+	 * are listed, followed by the added ones.
+	 */
+	private List<Product> concat(List<Product> listed, boolean filtered, List<Product> addedListed) {
+		if (!filtered && addedListed.isEmpty()) {
+			return listed;
+		}
+		List<Product> products = new ArrayList<>(listed.size() + addedListed.size());
+		for (Product product : listed) {
+			if (!filtered || !isHidden(product)) {
+				products.add(product);
+			}
+		}
+		products.addAll(addedListed);
+		return Collections.unmodifiableList(products);
+	}
+
+	/**
+	 * Cuts the page out of the base listing without its hidden products merged
+	 * with the added listing. A keyset page starts after the given product in
+	 * both; an offset page starts at the first rank of the base listing with as
+	 * many visible and added products ahead of it as the offset, and at the added
+	 * product which makes up the difference.
+	 *
+	 * @param listing       gives the pages of the base listing.
+	 * @param hiddenListed  hidden products of the listing, cheapest first.
+	 * @param addedListed   added products of the listing, cheapest first.
+	 * @param request       page to give.
+	 * @return the page.
+	 */
+	private ProductPage page(Function<ProductPageRequest, ProductPage> listing, List<Product> hiddenListed,
+			List<Product> addedListed, ProductPageRequest request) {
+		if (hiddenListed.isEmpty() && addedListed.isEmpty()) {
+			return listing.apply(request);
+		}
+		PriceOrder order = request.getOrder();
+		boolean ascending = order == PriceOrder.ASCENDING;
+		Comparator<Product> comparator = ascending ? PriceIndex.PRICE_ORDER : PriceIndex.PRICE_ORDER.reversed();
+		List<Product> hiddenOrdered = ordered(hiddenListed, ascending);
+		List<Product> addedOrdered = ordered(addedListed, ascending);
+		int baseTotal = listing.apply(ProductPageRequest.top(order, 1)).getTotalCount();
+		int total = baseTotal - hiddenListed.size() + addedListed.size();
+		int chunk = (int) Math.min(Integer.MAX_VALUE, request.getLimit() + 1L);
+		BaseReader reader;
+		int next;
+		if (request.isKeyset()) {
+			Product after = new Product();
+			after.setPrice(request.getAfterPrice());
+			after.setProductId(request.getAfterProductId());
+			reader = new BaseReader(listing, order, chunk, listing.apply(
+					ProductPageRequest.after(order, request.getAfterPrice(), request.getAfterProductId(), chunk)));
+			next = countBefore(addedOrdered, after, comparator, true);
+		} else {
+			int offset = request.getOffset();
+			if (offset >= total) {
+				return new ProductPage(Collections.<Product>emptyList(), total, false, request);
+			}
+			int low = 0;
+			int high = baseTotal;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				Product product = listing.apply(ProductPageRequest.page(order, middle, 1)).getProducts().get(0);
+				int rank = middle - countBefore(hiddenOrdered, product, comparator, false)
+						+ countBefore(addedOrdered, product, comparator, false);
+				if (rank < offset) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			ProductPage first = listing.apply(ProductPageRequest.page(order, low, chunk));
+			int visibleBefore = low - (low == baseTotal ? hiddenListed.size()
+					: countBefore(hiddenOrdered, first.getProducts().get(0), comparator, false));
+			reader = new BaseReader(listing, order, chunk, first);
+			next = offset - visibleBefore;
+		}
+		List<Product> page = new ArrayList<>();
+		Product fromBase = reader.next();
+		while (page.size() < request.getLimit() && (fromBase != null || next < addedOrdered.size())) {
+			if (fromBase != null
+					&& (next == addedOrdered.size() || comparator.compare(fromBase, addedOrdered.get(next)) <= 0)) {
+				page.add(fromBase);
+				fromBase = reader.next();
+			} else {
+				page.add(addedOrdered.get(next++));
+			}
+		}
+		return new ProductPage(Collections.unmodifiableList(page), total,
+				fromBase != null || next < addedOrdered.size(), request);
+	}
+
+	/**
+	 * Gives the listing held cheapest first in the order of the page.
+	 */
+	private static List<Product> ordered(List<Product> listed, boolean ascending) {
+		if (ascending) {
+			return listed;
+		}
+		return new AbstractList<Product>() {
+
+			@Override
+			public Product get(int index) {
+				return listed.get(listed.size() - 1 - index);
+			}
+
+			@Override
+			public int size() {
+				return listed.size();
+			}
+		};
+	}
+
+	/**
+	 * Counts the products of the ordered listing which sort before the given
+	 * one, or which do not sort after it when ties are counted.
+	 */
+	private static int countBefore(List<Product> ordered, Product product, Comparator<Product> comparator,
+			boolean countTies) {
+		int low = 0;
+		int high = ordered.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			int comparison = comparator.compare(ordered.get(middle), product);
+			if (comparison < 0 || (countTies && comparison == 0)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Reads the base listing forward from a first page, skipping the hidden
+	 * products; each further chunk is read as a keyset page after the last
+	 * product read.
+	 */
+	private final class BaseReader {
+
+		private final Function<ProductPageRequest, ProductPage> listing;
+		private final PriceOrder order;
+		private final int chunk;
+		private List<Product> products;
+		private boolean more;
+		private int position;
+
+		private BaseReader(Function<ProductPageRequest, ProductPage> listing, PriceOrder order, int chunk,
+				ProductPage first) {
+			this.listing = listing;
+			this.order = order;
+			this.chunk = chunk;
+			this.products = first.getProducts();
+			this.more = first.hasMore();
+		}
+
+		/**
+		 * Gives the next product of the base which is not hidden, null past the
+		 * end of the listing.
+		 */
+		private Product next() {
+			while (true) {
+				if (position == products.size()) {
+					if (!more || products.isEmpty()) {
+						return null;
+					}
+					Product last = products.get(products.size() - 1);
+					ProductPage page = listing
+							.apply(ProductPageRequest.after(order, last.getPrice(), last.getProductId(), chunk));
+					products = page.getProducts();
+					more = page.hasMore();
+					position = 0;
+					continue;
+				}
+				Product product = products.get(position++);
+				if (!isHidden(product)) {
+					return product;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,68 @@
+package com.reactiveworks.productservice.catalog;
+
+/**
+ * Point in time statistics of a partition of a PartitionedProductCatalog.
+ */
+public class PartitionStatistics {
+
+	private final String partition;
+	private final int cityCount;
+	private final int productCount;
+	private final long memoryBytes;
+	private final long refreshTimeMillis;
+	private final long refreshedAtMillis;
+
+	/**
+	 * Creates the statistics.
+	 *
+	 * @param partition         key of the partition.
+	 * @param cityCount         cities owned by the partition.
+	 * @param productCount      products held by the partition, including those
+	 *                          shared with other partitions.
+	 * @param memoryBytes       estimated memory of the catalog of the partition.
+	 * @param refreshTimeMillis time taken by the last build or merge of the
+	 *                          partition.
+	 * @param refreshedAtMillis time of the last build or merge of the partition.
+	 */
+	public PartitionStatistics(String partition, int cityCount, int productCount, long memoryBytes,
+			long refreshTimeMillis, long refreshedAtMillis) {
+		this.partition = partition;
+		this.cityCount = cityCount;
+		this.productCount = productCount;
+		this.memoryBytes = memoryBytes;
+		this.refreshTimeMillis = refreshTimeMillis;
+		this.refreshedAtMillis = refreshedAtMillis;
+	}
+
+	public String getPartition() {
+		return partition;
+	}
+
+	public int getCityCount() {
+		return cityCount;
+	}
+
+	public int getProductCount() {
+		return productCount;
+	}
+
+	public long getMemoryBytes() {
+		return memoryBytes;
+	}
+
+	public long getRefreshTimeMillis() {
+		return refreshTimeMillis;
+	}
+
+	public long getRefreshedAtMillis() {
+		return refreshedAtMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "PartitionStatistics [partition=" + partition + ", cityCount=" + cityCount + ", productCount="
+				+ productCount + ", memoryBytes=" + memoryBytes + ", refreshTimeMillis=" + refreshTimeMillis
+				+ ", refreshedAtMillis=" + refreshedAtMillis + "]";
+	}
+
+}
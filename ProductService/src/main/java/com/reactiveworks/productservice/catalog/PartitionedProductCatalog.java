@@ -0,0 +1,379 @@
+package com.reactiveworks.productservice.catalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.ProductPage;
+import com.reactiveworks.productservice.model.ProductPageRequest;
+import com.reactiveworks.productservice.util.ProductKeys;
+
+/**
+ * Catalog split by city into independent partitions, each of them a catalog
+ * of the configured layout over the products available in the cities it owns;
+ * {@link CatalogPartitioning} says which partition owns a city.
+ *
+ * A city query is routed to the partition owning the city and answered by its
+ * catalog alone, with the results an unpartitioned catalog of the same layout
+ * gives. A product available in cities of several partitions is held by each
+ * of them; its home partition, the partition of its first city, counts it in
+ * the size of the catalog and gives it in getProducts(). Products without a
+ * city live in the partition with the empty key.
+ *
+ * The partitions are built in parallel. A merge looks the removed products up
+ * by id in the partitions in parallel and changes only the partitions holding
+ * one and those of the added products, again in parallel, each as its layout
+ * allows; the other partitions are shared with this catalog. The catalog is
+ * immutable like the partitions, so the queries of a city never wait for the
+ * refresh of another one.
+ */
+public final class PartitionedProductCatalog implements IProductCatalog {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("PartitionedProductCatalog.class");
+	private static final String NO_CITY = "";
+	private static final IProductCatalog EMPTY_CATALOG = new ObjectProductCatalog(Collections.<Product>emptyList());
+
+	private final CatalogLayout layout;
+	private final CatalogPartitioning partitioning;
+	private final Map<String, Partition> partitions;
+	private final int size;
+
+	private PartitionedProductCatalog(CatalogLayout layout, CatalogPartitioning partitioning,
+			Map<String, Partition> partitions) {
+		this.layout = layout;
+		this.partitioning = partitioning;
+		this.partitions = partitions;
+		int homeCount = 0;
+		for (Partition partition : partitions.values()) {
+			homeCount += partition.homeCount;
+		}
+		this.size = homeCount;
+	}
+
+	/**
+	 * Creates a builder of a catalog split as the partitioning says, whose
+	 * partitions are of the given layout. The products are routed to the
+	 * builders of their partitions as they are added, and the partitions are
+	 * built in parallel.
+	 *
+	 * @param layout       layout of the products of every partition.
+	 * @param partitioning partitioning of the catalog by city.
+	 * @return the builder.
+	 */
+	public static IProductCatalog.Builder builder(CatalogLayout layout, CatalogPartitioning partitioning) {
+		Map<String, PartitionBuilder> builders = new HashMap<>();
+		return new IProductCatalog.Builder() {
+
+			@Override
+			public void add(Product product) {
+				if (product == null) {
+					return;
+				}
+				Set<String> keys = partitionsOf(partitioning, product);
+				String home = keys.iterator().next();
+				for (String key : keys) {
+					PartitionBuilder builder = builders.computeIfAbsent(key,
+							partitionKey -> new PartitionBuilder(layout.newBuilder()));
+					builder.builder.add(product);
+					if (key.equals(home)) {
+						builder.homeCount++;
+					}
+				}
+			}
+
+			@Override
+			public IProductCatalog build() {
+				LOGGER_OBJ.debug("execution of build() started");
+				Map<String, Partition> partitions = builders.entrySet().parallelStream()
+						.map(entry -> entry.getValue().build(entry.getKey()))
+						.collect(Collectors.toMap(partition -> partition.key, partition -> partition));
+				LOGGER_OBJ.debug("execution of build() completed");
+				return new PartitionedProductCatalog(layout, partitioning, partitions);
+			}
+		};
+	}
+
+	public CatalogLayout getLayout() {
+		return layout;
+	}
+
+	public CatalogPartitioning getPartitioning() {
+		return partitioning;
+	}
+
+	public int getPartitionCount() {
+		return partitions.size();
+	}
+
+	/**
+	 * Gives the catalog of the partition owning the given city.
+	 *
+	 * @param city name of the city.
+	 * @return the catalog of the partition, empty when no product is available
+	 *         in the cities of the partition.
+	 */
+	public IProductCatalog getPartition(String city) {
+		if (city == null) {
+			return EMPTY_CATALOG;
+		}
+		Partition partition = partitions.get(partitioning.partitionOf(ProductKeys.normalizeCity(city)));
+		return partition == null ? EMPTY_CATALOG : partition.catalog;
+	}
+
+	/**
+	 * Gives the statistics of every partition, ordered by key. The cities of a
+	 * partition are counted and its memory is estimated by walking its products.
+	 *
+	 * @return the statistics of the partitions.
+	 */
+	public List<PartitionStatistics> getStatistics() {
+		List<PartitionStatistics> statistics = partitions.values().parallelStream()
+				.map(partition -> partition.statistics(partitioning)).collect(Collectors.toList());
+		statistics.sort((first, second) -> first.getPartition().compareTo(second.getPartition()));
+		return statistics;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gives all the products of the catalog, each from its home partition, so
+	 * grouped by partition. The list is collected on every call.
+	 *
+	 * @return unmodifiable list of the products.
+	 */
+	@Override
+	public List<Product> getProducts() {
+		List<Product> products = new ArrayList<>(size);
+		for (Partition partition : partitions.values()) {
+			for (Product product : partition.catalog.getProducts()) {
+				if (homeOf(partitioning, product).equals(partition.key)) {
+					products.add(product);
+				}
+			}
+		}
+		return Collections.unmodifiableList(products);
+	}
+
+	@Override
+	public List<Product> getProducts(String city) {
+		return getPartition(city).getProducts(city);
+	}
+
+	@Override
+	public List<Product> getProducts(String city, String category) {
+		return getPartition(city).getProducts(city, category);
+	}
+
+	@Override
+	public ProductPage getProducts(String city, ProductPageRequest request) {
+		return getPartition(city).getProducts(city, request);
+	}
+
+	@Override
+	public ProductPage getProducts(String city, String category, ProductPageRequest request) {
+		return getPartition(city).getProducts(city, category, request);
+	}
+
+	@Override
+	public List<Product> getProductsInPriceRange(String city, String category, int minPrice, int maxPrice) {
+		return getPartition(city).getProductsInPriceRange(city, category, minPrice, maxPrice);
+	}
+
+	@Override
+	public Product findProduct(String productId) {
+		for (Partition partition : partitions.values()) {
+			Product product = partition.catalog.findProduct(productId);
+			if (product != null) {
+				return product;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gives the sum of the memory of the partitions. A product held by several
+	 * partitions is counted in each of them.
+	 *
+	 * @return the estimated size of the catalog in bytes.
+	 */
+	@Override
+	public long getMemoryBytes() {
+		long bytes = 0;
+		for (Partition partition : partitions.values()) {
+			bytes += partition.catalog.getMemoryBytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Gives the catalog with the given changes applied to the partitions they
+	 * touch, which are merged in parallel as their layout allows; the other
+	 * partitions are shared with this catalog and a partition left without
+	 * products is dropped.
+	 *
+	 * @param products   products to add; missing ones are left out.
+	 * @param removedIds ids of the products to remove.
+	 * @return the catalog with the changes applied.
+	 */
+	@Override
+	public IProductCatalog merge(List<Product> products, Set<String> removedIds) {
+		LOGGER_OBJ.debug("execution of merge() started");
+		Map<String, List<Product>> addedByPartition = new HashMap<>();
+		Map<String, Integer> addedHomes = new HashMap<>();
+		for (Product product : products) {
+			if (product == null) {
+				continue;
+			}
+			Set<String> keys = partitionsOf(partitioning, product);
+			for (String key : keys) {
+				addedByPartition.computeIfAbsent(key, partitionKey -> new ArrayList<>()).add(product);
+			}
+			addedHomes.merge(keys.iterator().next(), 1, Integer::sum);
+		}
+		Map<String, Integer> removedHomes = new ConcurrentHashMap<>();
+		if (!removedIds.isEmpty()) {
+			partitions.values().parallelStream().forEach(partition -> {
+				int held = 0;
+				int homes = 0;
+				for (String productId : removedIds) {
+					Product product = partition.catalog.findProduct(productId);
+					if (product != null) {
+						held++;
+						homes += homeOf(partitioning, product).equals(partition.key) ? 1 : 0;
+					}
+				}
+				if (held > 0) {
+					removedHomes.put(partition.key, homes);
+				}
+			});
+		}
+		Set<String> touched = new HashSet<>(addedByPartition.keySet());
+		touched.addAll(removedHomes.keySet());
+		if (touched.isEmpty()) {
+			LOGGER_OBJ.debug("execution of merge() completed");
+			return this;
+		}
+		List<Partition> merged = touched.parallelStream().map(key -> {
+			long mergeStart = System.nanoTime();
+			Partition partition = partitions.get(key);
+			List<Product> added = addedByPartition.getOrDefault(key, Collections.<Product>emptyList());
+			IProductCatalog catalog;
+			if (partition == null) {
+				IProductCatalog.Builder builder = layout.newBuilder();
+				added.forEach(builder::add);
+				catalog = builder.build();
+			} else {
+				catalog = partition.catalog.merge(added, removedIds);
+			}
+			int homeCount = (partition == null ? 0 : partition.homeCount) - removedHomes.getOrDefault(key, 0)
+					+ addedHomes.getOrDefault(key, 0);
+			return new Partition(key, catalog, homeCount, System.nanoTime() - mergeStart);
+		}).collect(Collectors.toList());
+		Map<String, Partition> next = new HashMap<>(partitions);
+		for (Partition partition : merged) {
+			if (partition.catalog.size() == 0) {
+				next.remove(partition.key);
+			} else {
+				next.put(partition.key, partition);
+			}
+		}
+		LOGGER_OBJ.debug("execution of merge() completed");
+		return new PartitionedProductCatalog(layout, partitioning, next);
+	}
+
+	@Override
+	public String toString() {
+		return "PartitionedProductCatalog [layout=" + layout + ", " + partitioning + ", partitions="
+				+ partitions.size() + ", products=" + size + "]";
+	}
+
+	/**
+	 * Gives the keys of the partitions owning the cities of the product, the
+	 * home partition first.
+	 */
+	private static Set<String> partitionsOf(CatalogPartitioning partitioning, Product product) {
+		Set<String> keys = new LinkedHashSet<>();
+		ProductKeys.forEachCity(product.getAvailableCity(), city -> keys.add(partitioning.partitionOf(city)));
+		if (keys.isEmpty()) {
+			keys.add(NO_CITY);
+		}
+		return keys;
+	}
+
+	private static String homeOf(CatalogPartitioning partitioning, Product product) {
+		String[] home = { null };
+		ProductKeys.forEachCity(product.getAvailableCity(), city -> {
+			if (home[0] == null) {
+				home[0] = partitioning.partitionOf(city);
+			}
+		});
+		return home[0] == null ? NO_CITY : home[0];
+	}
+
+	/**
+	 * Builder of one partition, counting the products whose home it is.
+	 */
+	private static final class PartitionBuilder {
+
+		private final IProductCatalog.Builder builder;
+		private int homeCount;
+
+		private PartitionBuilder(IProductCatalog.Builder builder) {
+			this.builder = builder;
+		}
+
+		private Partition build(String key) {
+			long buildStart = System.nanoTime();
+			IProductCatalog catalog = builder.build();
+			return new Partition(key, catalog, homeCount, System.nanoTime() - buildStart);
+		}
+	}
+
+	/**
+	 * Catalog of a partition with the time of its last build or merge.
+	 */
+	private static final class Partition {
+
+		private final String key;
+		private final IProductCatalog catalog;
+		private final int homeCount;
+		private final long refreshTimeMillis;
+		private final long refreshedAtMillis;
+
+		private Partition(String key, IProductCatalog catalog, int homeCount, long refreshNanos) {
+			this.key = key;
+			this.catalog = catalog;
+			this.homeCount = homeCount;
+			this.refreshTimeMillis = TimeUnit.NANOSECONDS.toMillis(refreshNanos);
+			this.refreshedAtMillis = System.currentTimeMillis();
+		}
+
+		private PartitionStatistics statistics(CatalogPartitioning partitioning) {
+			Set<String> cities = new HashSet<>();
+			for (Product product : catalog.getProducts()) {
+				ProductKeys.forEachCity(product.getAvailableCity(), city -> {
+					if (partitioning.partitionOf(city).equals(key)) {
+						cities.add(city);
+					}
+				});
+			}
+			return new PartitionStatistics(key, cities.size(), catalog.size(), catalog.getMemoryBytes(),
+					refreshTimeMillis, refreshedAtMillis);
+		}
+	}
+
+}
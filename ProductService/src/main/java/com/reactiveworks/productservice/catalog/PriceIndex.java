@@ -0,0 +1,380 @@
+package com.reactiveworks.productservice.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.model.PriceOrder;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.ProductPage;
+import com.reactiveworks.productservice.model.ProductPageRequest;
+import com.reactiveworks.productservice.util.ProductKeys;
+
+/**
+ * Price ordered listings of the catalog per city and per city and category.
+ *
+ * The products are sorted by price and product id once when the index is built
+ * and then dealt out to the listings in that order, so every listing is sorted
+ * without a sort of its own. Each listing keeps its prices in a primitive int
+ * array next to the array of its products, so searches by price run over the
+ * int array without touching a product. A page is read straight out of its
+ * listing: an offset page costs the size of the page, a keyset page a binary
+ * search more, in either order. A price range costs two binary searches and is
+ * returned as a view of the listing.
+ */
+public class PriceIndex {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("PriceIndex.class");
+	private static final Product[] NO_PRODUCTS = new Product[0];
+	private static final Listing EMPTY_LISTING = new Listing(NO_PRODUCTS);
+
+	/**
+	 * Order of the listings: by price, then by product id.
+	 */
+	public static final Comparator<Product> PRICE_ORDER = Comparator.comparingInt(Product::getPrice)
+			.thenComparing(Product::getProductId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+	private final Map<String, Listing> productsByCity;
+	private final Map<String, Map<String, Listing>> productsByCityAndCategory;
+
+	/**
+	 * Builds the index over the given products.
+	 *
+	 * @param products products of the catalog.
+	 */
+	public PriceIndex(List<Product> products) {
+		LOGGER_OBJ.debug("execution of PriceIndex() started");
+		Map<String, List<Product>> cities = new HashMap<>();
+		Map<String, Map<String, List<Product>>> cityCategories = new HashMap<>();
+		deal(products, cities, cityCategories);
+		productsByCity = new HashMap<>();
+		cities.forEach((cityKey, cityProducts) -> productsByCity.put(cityKey,
+				new Listing(cityProducts.toArray(NO_PRODUCTS))));
+		productsByCityAndCategory = new HashMap<>();
+		cityCategories.forEach((cityKey, categories) -> {
+			Map<String, Listing> categoryListings = new HashMap<>();
+			categories.forEach((categoryKey, categoryProducts) -> categoryListings.put(categoryKey,
+					new Listing(categoryProducts.toArray(NO_PRODUCTS))));
+			productsByCityAndCategory.put(cityKey, categoryListings);
+		});
+		LOGGER_OBJ.debug("execution of PriceIndex() completed");
+	}
+
+	private PriceIndex(Map<String, Listing> productsByCity,
+			Map<String, Map<String, Listing>> productsByCityAndCategory) {
+		this.productsByCity = productsByCity;
+		this.productsByCityAndCategory = productsByCityAndCategory;
+	}
+
+	/**
+	 * Gives the index of the products of this index followed by the given ones.
+	 * The given products are sorted and dealt out on their own, then merged into
+	 * the listings of their cities and categories; the other listings are shared
+	 * with this index, which is left unchanged.
+	 *
+	 * @param products products appended to the catalog.
+	 * @return the index over all the products.
+	 */
+	public PriceIndex append(List<Product> products) {
+		return merge(Collections.<Product>emptySet(), products);
+	}
+
+	/**
+	 * Gives the index of the products of this index but the removed ones,
+	 * together with the added ones. The listings of the cities and categories of
+	 * the removed products are filtered and the added products are sorted, dealt
+	 * out on their own and merged into the listings of their cities and
+	 * categories; the other listings are shared with this index, which is left
+	 * unchanged. A listing left without products is dropped.
+	 *
+	 * @param removed  products removed from the catalog, compared by identity.
+	 * @param products products added to the catalog.
+	 * @return the index over the products of the changed catalog.
+	 */
+	public PriceIndex merge(Set<Product> removed, List<Product> products) {
+		LOGGER_OBJ.debug("execution of merge() started");
+		Map<String, List<Product>> cities = new HashMap<>();
+		Map<String, Map<String, List<Product>>> cityCategories = new HashMap<>();
+		deal(products, cities, cityCategories);
+		for (Product product : removed) {
+			String categoryKey = product.getProductCategory() == null ? null
+					: ProductKeys.normalizeCategory(product.getProductCategory());
+			ProductKeys.forEachCity(product.getAvailableCity(), cityKey -> {
+				cities.putIfAbsent(cityKey, Collections.<Product>emptyList());
+				if (categoryKey != null) {
+					cityCategories.computeIfAbsent(cityKey, key -> new HashMap<>()).putIfAbsent(categoryKey,
+							Collections.<Product>emptyList());
+				}
+			});
+		}
+		Map<String, Listing> byCity = new HashMap<>(productsByCity);
+		cities.forEach((cityKey, cityProducts) -> putListing(byCity, cityKey,
+				merge(productsByCity.get(cityKey), removed, cityProducts)));
+		Map<String, Map<String, Listing>> byCityAndCategory = new HashMap<>(productsByCityAndCategory);
+		cityCategories.forEach((cityKey, categories) -> {
+			Map<String, Listing> listings = productsByCityAndCategory.getOrDefault(cityKey,
+					Collections.<String, Listing>emptyMap());
+			Map<String, Listing> categoryListings = new HashMap<>(listings);
+			categories.forEach((categoryKey, categoryProducts) -> putListing(categoryListings, categoryKey,
+					merge(listings.get(categoryKey), removed, categoryProducts)));
+			if (categoryListings.isEmpty()) {
+				byCityAndCategory.remove(cityKey);
+			} else {
+				byCityAndCategory.put(cityKey, categoryListings);
+			}
+		});
+		LOGGER_OBJ.debug("execution of merge() completed");
+		return new PriceIndex(byCity, byCityAndCategory);
+	}
+
+	private static void putListing(Map<String, Listing> listings, String key, Listing listing) {
+		if (listing.products.length == 0) {
+			listings.remove(key);
+		} else {
+			listings.put(key, listing);
+		}
+	}
+
+	/**
+	 * Sorts the products and deals them out to the lists of their cities and of
+	 * their cities and categories, which are sorted as a result. A city repeated
+	 * in the availableCity field of a product, in whatever case, lists the
+	 * product once.
+	 */
+	private static void deal(List<Product> products, Map<String, List<Product>> cities,
+			Map<String, Map<String, List<Product>>> cityCategories) {
+		Product[] sorted = products == null ? NO_PRODUCTS : products.toArray(new Product[0]);
+		Arrays.sort(sorted, PRICE_ORDER);
+		Set<String> cityKeys = new HashSet<>();
+		for (Product product : sorted) {
+			String categoryKey = product.getProductCategory() == null ? null
+					: ProductKeys.normalizeCategory(product.getProductCategory());
+			cityKeys.clear();
+			ProductKeys.forEachCity(product.getAvailableCity(), cityKeys::add);
+			for (String cityKey : cityKeys) {
+				cities.computeIfAbsent(cityKey, key -> new ArrayList<>()).add(product);
+				if (categoryKey != null) {
+					cityCategories.computeIfAbsent(cityKey, key -> new HashMap<>())
+							.computeIfAbsent(categoryKey, key -> new ArrayList<>()).add(product);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Merges the sorted products into the listing without its removed products;
+	 * on a tie the product of the listing comes first, as it would in a stable
+	 * sort of the whole catalog.
+	 */
+	private static Listing merge(Listing listing, Set<Product> removed, List<Product> products) {
+		Product[] listed = listing == null ? NO_PRODUCTS : listing.products;
+		if (!removed.isEmpty()) {
+			listed = Arrays.stream(listed).filter(product -> !removed.contains(product)).toArray(Product[]::new);
+		}
+		Product[] merged = new Product[listed.length + products.size()];
+		int i = 0;
+		int j = 0;
+		for (int k = 0; k < merged.length; k++) {
+			if (j == products.size() || (i < listed.length && PRICE_ORDER.compare(listed[i], products.get(j)) <= 0)) {
+				merged[k] = listed[i++];
+			} else {
+				merged[k] = products.get(j++);
+			}
+		}
+		return new Listing(merged);
+	}
+
+	/**
+	 * Gives a page of the products available in the given city.
+	 *
+	 * @param city    name of the city, matched ignoring case.
+	 * @param request page to give.
+	 * @return the page, empty when no product is available in the city.
+	 */
+	public ProductPage getProducts(String city, ProductPageRequest request) {
+		Listing listing = city == null ? null : productsByCity.get(ProductKeys.normalizeCity(city));
+		return page(listing == null ? EMPTY_LISTING : listing, request);
+	}
+
+	/**
+	 * Gives a page of the products of the given category available in the given
+	 * city.
+	 *
+	 * @param city     name of the city, matched ignoring case.
+	 * @param category category of the product, matched ignoring case.
+	 * @param request  page to give.
+	 * @return the page, empty when no product matches.
+	 */
+	public ProductPage getProducts(String city, String category, ProductPageRequest request) {
+		return page(getListing(city, category), request);
+	}
+
+	/**
+	 * Finds the products of the given category available in the given city whose
+	 * price lies in the given range, bounds included.
+	 *
+	 * @param city     name of the city, matched ignoring case.
+	 * @param category category of the product, matched ignoring case.
+	 * @param minPrice lowest price of the range.
+	 * @param maxPrice highest price of the range.
+	 * @return unmodifiable list of the matching products, cheapest first.
+	 */
+	public List<Product> getProductsInPriceRange(String city, String category, int minPrice, int maxPrice) {
+		if (minPrice > maxPrice) {
+			return Collections.emptyList();
+		}
+		Listing listing = getListing(city, category);
+		int start = firstPriceNotBelow(listing.prices, minPrice);
+		int end = maxPrice == Integer.MAX_VALUE ? listing.prices.length
+				: firstPriceNotBelow(listing.prices, maxPrice + 1);
+		if (start >= end) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(Arrays.asList(listing.products).subList(start, end));
+	}
+
+	/**
+	 * Gives the listing of the given city, cheapest first.
+	 */
+	List<Product> getListedProducts(String city) {
+		Listing listing = city == null ? null : productsByCity.get(ProductKeys.normalizeCity(city));
+		return listing == null ? Collections.<Product>emptyList()
+				: Collections.unmodifiableList(Arrays.asList(listing.products));
+	}
+
+	/**
+	 * Gives the listing of the given category in the given city, cheapest first.
+	 */
+	List<Product> getListedProducts(String city, String category) {
+		return Collections.unmodifiableList(Arrays.asList(getListing(city, category).products));
+	}
+
+	private Listing getListing(String city, String category) {
+		if (city == null || category == null) {
+			return EMPTY_LISTING;
+		}
+		Map<String, Listing> categories = productsByCityAndCategory.get(ProductKeys.normalizeCity(city));
+		Listing listing = categories == null ? null : categories.get(ProductKeys.normalizeCategory(category));
+		return listing == null ? EMPTY_LISTING : listing;
+	}
+
+	/**
+	 * Cuts the page out of the ascending listing. A descending page walks the
+	 * listing backwards from its end.
+	 */
+	private static ProductPage page(Listing listing, ProductPageRequest request) {
+		Product[] products = listing.products;
+		int size = products.length;
+		boolean ascending = request.getOrder() == PriceOrder.ASCENDING;
+		int start;
+		if (!request.isKeyset()) {
+			start = Math.min(size, request.getOffset());
+		} else if (ascending) {
+			start = firstAfter(listing, request.getAfterPrice(), request.getAfterProductId());
+		} else {
+			start = size - firstNotBefore(listing, request.getAfterPrice(), request.getAfterProductId());
+		}
+		int end = (int) Math.min(size, (long) start + request.getLimit());
+		Product[] page = new Product[end - start];
+		for (int i = start; i < end; i++) {
+			page[i - start] = ascending ? products[i] : products[size - 1 - i];
+		}
+		return new ProductPage(Collections.unmodifiableList(Arrays.asList(page)), size, end < size, request);
+	}
+
+	/**
+	 * Finds the index of the first product which sorts after the given price and
+	 * product id.
+	 */
+	private static int firstAfter(Listing listing, int price, String productId) {
+		int low = 0;
+		int high = listing.prices.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compare(listing, middle, price, productId) <= 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Finds the index of the first product which does not sort before the given
+	 * price and product id.
+	 */
+	private static int firstNotBefore(Listing listing, int price, String productId) {
+		int low = 0;
+		int high = listing.prices.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compare(listing, middle, price, productId) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Finds the index of the first price which is not below the given price.
+	 */
+	private static int firstPriceNotBelow(int[] prices, int price) {
+		int low = 0;
+		int high = prices.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (prices[middle] < price) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Compares the product at the given position of the listing with the given
+	 * price and product id; the product is only read on a price tie.
+	 */
+	private static int compare(Listing listing, int position, int price, String productId) {
+		int comparison = Integer.compare(listing.prices[position], price);
+		if (comparison != 0) {
+			return comparison;
+		}
+		Product product = listing.products[position];
+		if (product.getProductId() == null || productId == null) {
+			return product.getProductId() == null ? (productId == null ? 0 : -1) : 1;
+		}
+		return product.getProductId().compareTo(productId);
+	}
+
+	/**
+	 * Products of a listing in price order with their prices in a parallel
+	 * array.
+	 */
+	private static final class Listing {
+
+		private final Product[] products;
+		private final int[] prices;
+
+		private Listing(Product[] products) {
+			this.products = products;
+			this.prices = new int[products.length];
+			for (int i = 0; i < products.length; i++) {
+				prices[i] = products[i].getPrice();
+			}
+		}
+	}
+
+}
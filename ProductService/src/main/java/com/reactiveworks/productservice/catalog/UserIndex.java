@@ -0,0 +1,112 @@
+package com.reactiveworks.productservice.catalog;
+
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.model.User;
+
+/**
+ * Hash index of the users keyed by userId, matched ignoring case.
+ *
+ * The table uses open addressing over parallel arrays and hashes the case
+ * folded characters of the key in place, so a lookup neither scans the users
+ * nor allocates a lower cased copy of the userId.
+ */
+public class UserIndex {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("UserIndex.class");
+
+	private final String[] keys;
+	private final User[] users;
+	private final int[] hashes;
+	private final int mask;
+	private final int size;
+
+	/**
+	 * Builds the index over the given users. When a userId is repeated the first
+	 * user wins.
+	 *
+	 * @param userList users of the user database.
+	 */
+	public UserIndex(List<User> userList) {
+		LOGGER_OBJ.debug("execution of UserIndex() started");
+		int expected = userList == null ? 0 : userList.size();
+		int capacity = Integer.highestOneBit(Math.max(expected, 1) * 2 - 1) << 1;
+		keys = new String[capacity];
+		users = new User[capacity];
+		hashes = new int[capacity];
+		mask = capacity - 1;
+		int count = 0;
+		if (userList != null) {
+			for (User user : userList) {
+				if (user != null && user.getUserId() != null && insert(user)) {
+					count++;
+				}
+			}
+		}
+		size = count;
+		LOGGER_OBJ.debug("execution of UserIndex() completed");
+	}
+
+	/**
+	 * Finds the user with the given id.
+	 *
+	 * @param userId id of the user, matched ignoring case.
+	 * @return the user or null when no user has the given id.
+	 */
+	public User getUser(String userId) {
+		if (userId == null) {
+			return null;
+		}
+		int hash = foldedHash(userId);
+		for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+			String key = keys[slot];
+			if (key == null) {
+				return null;
+			}
+			if (hashes[slot] == hash && key.equalsIgnoreCase(userId)) {
+				return users[slot];
+			}
+		}
+	}
+
+	/**
+	 * Gives the number of distinct users in the index.
+	 *
+	 * @return the number of users.
+	 */
+	public int size() {
+		return size;
+	}
+
+	private boolean insert(User user) {
+		String userId = user.getUserId();
+		int hash = foldedHash(userId);
+		int slot = hash & mask;
+		while (keys[slot] != null) {
+			if (hashes[slot] == hash && keys[slot].equalsIgnoreCase(userId)) {
+				LOGGER_OBJ.warn("duplicate user id " + userId + " ignored");
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = userId;
+		users[slot] = user;
+		hashes[slot] = hash;
+		return true;
+	}
+
+	/**
+	 * Hashes the key folding each character the same way as
+	 * String.equalsIgnoreCase, so keys equal ignoring case hash alike.
+	 */
+	private static int foldedHash(String key) {
+		int hash = 0;
+		for (int i = 0; i < key.length(); i++) {
+			hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(key.charAt(i)));
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+}
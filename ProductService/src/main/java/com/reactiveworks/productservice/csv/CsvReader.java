@@ -0,0 +1,589 @@
+package com.reactiveworks.productservice.csv;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+
+/**
+ * Reads CSV records straight from the bytes of the file.
+ *
+ * A file on the filesystem is memory mapped window by window; a classpath
+ * resource packed inside a jar is streamed through an NIO channel. Records are
+ * split on ',' and line ends without regular expressions or intermediate
+ * String arrays, fields may be enclosed in double quotes and a doubled quote
+ * inside a quoted field stands for one quote. The text is read as UTF-8.
+ */
+public class CsvReader {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CsvReader.class");
+	/** size of the mapped window or of the stream buffer. */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024 * 1024;
+	private static final int STREAM_BUFFER_SIZE = 1024 * 1024;
+	private static final byte QUOTE = '"';
+	private static final byte COMMA = ',';
+	private static final byte LF = '\n';
+	private static final byte CR = '\r';
+	private static final int INCOMPLETE = -1;
+	private static final long MIN_CHUNK_SIZE = 256 * 1024;
+	private static final int PROBE_SIZE = 8 * 1024;
+
+	private final Path path;
+	private final URL resource;
+	private final int bufferSize;
+
+	/**
+	 * Creates a reader of the given file.
+	 * 
+	 * @param path path of the CSV file.
+	 */
+	public CsvReader(Path path) {
+		this(path, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a reader of the given file mapping at most bufferSize bytes at a
+	 * time. A record longer than the window grows the window.
+	 * 
+	 * @param path       path of the CSV file.
+	 * @param bufferSize size of the mapped window in bytes.
+	 */
+	public CsvReader(Path path, int bufferSize) {
+		this.path = path;
+		this.resource = null;
+		this.bufferSize = bufferSize;
+	}
+
+	private CsvReader(URL resource) {
+		this.path = null;
+		this.resource = resource;
+		this.bufferSize = STREAM_BUFFER_SIZE;
+	}
+
+	/**
+	 * Creates a reader of a classpath resource. A resource on the filesystem is
+	 * memory mapped, a resource inside a jar is streamed.
+	 * 
+	 * @param name name of the resource.
+	 * @return the reader of the resource.
+	 * @throws FileNotFoundException when the resource does not exist.
+	 */
+	public static CsvReader forResource(String name) throws FileNotFoundException {
+		URL url = CsvReader.class.getClassLoader().getResource(name);
+		if (url == null) {
+			throw new FileNotFoundException("resource " + name + " not found on the classpath");
+		}
+		if ("file".equals(url.getProtocol())) {
+			try {
+				return new CsvReader(Paths.get(url.toURI()));
+			} catch (URISyntaxException | IllegalArgumentException exp) {
+				LOGGER_OBJ.debug("streaming resource " + url + " which is not a plain file path");
+			}
+		}
+		return new CsvReader(url);
+	}
+
+	/**
+	 * Gives the path of the file read by this reader.
+	 * 
+	 * @return the path of the file, null for a resource streamed from a jar.
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Reads every record of the file and passes it to the handler in file order.
+	 * Blank lines are skipped.
+	 * 
+	 * @param skipHeader whether the first record is a header to skip.
+	 * @param handler    handler of the records.
+	 * @return the number of records passed to the handler.
+	 * @throws IOException                    when unable to read the file.
+	 * @throws InvalidDBRecordFormatException when the CSV structure is invalid.
+	 */
+	public long read(boolean skipHeader, CsvRecordHandler handler)
+			throws IOException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of read() started");
+		RecordParser parser = new RecordParser(skipHeader, handler);
+		if (path != null) {
+			readMapped(parser);
+		} else {
+			readStream(parser);
+		}
+		LOGGER_OBJ.debug("execution of read() completed");
+		return parser.handledRecords;
+	}
+
+	/**
+	 * Reads the complete records of the file which start at or after the given
+	 * offset and passes them to the handler in file order. A record is complete
+	 * once its line end is written: a last record without line end is left
+	 * unread, since a writer may still be appending it, and is read by the next
+	 * call from the returned offset.
+	 * 
+	 * @param offset     offset of the first byte to read, on a record boundary.
+	 * @param skipHeader whether the record at offset 0 is a header to skip.
+	 * @param handler    handler of the records.
+	 * @return the offset following the last complete record, the given offset
+	 *         when there is none.
+	 * @throws IOException                    when unable to read the file or when
+	 *                                        the reader streams a resource.
+	 * @throws InvalidDBRecordFormatException when the CSV structure is invalid.
+	 */
+	public long readFrom(long offset, boolean skipHeader, CsvRecordHandler handler)
+			throws IOException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of readFrom() started");
+		if (path == null) {
+			throw new IOException("resource " + resource + " is not a file and cannot be read from an offset");
+		}
+		RecordParser parser = new RecordParser(skipHeader && offset == 0, handler);
+		long end = readMapped(parser, offset, -1, false);
+		LOGGER_OBJ.debug("execution of readFrom() completed");
+		// a byte order mark alone is not a record, it is skipped again next time
+		return parser.recordNumber == 0 ? offset : end;
+	}
+
+	/**
+	 * Reads every record of the file and converts it with the mapper. With a
+	 * parallelism above one, a file on the filesystem is split into byte ranges
+	 * aligned on line ends which are parsed on a fork-join pool; the results are
+	 * merged in file order, so the list is the same as the one of a sequential
+	 * read. Parallel reading requires that no quoted field spans several lines.
+	 * 
+	 * @param skipHeader  whether the first record is a header to skip.
+	 * @param parallelism number of chunks parsed at the same time.
+	 * @param mapper      converter of the records.
+	 * @param <T>         type of the objects.
+	 * @return the converted records in file order.
+	 * @throws IOException                    when unable to read the file.
+	 * @throws InvalidDBRecordFormatException when the CSV structure is invalid.
+	 */
+	public <T> List<T> readAll(boolean skipHeader, int parallelism, CsvRecordMapper<T> mapper)
+			throws IOException, InvalidDBRecordFormatException {
+		List<T> records = new ArrayList<>();
+		readAll(skipHeader, parallelism, mapper, records::add);
+		return records;
+	}
+
+	/**
+	 * Reads every record of the file, converts it with the mapper and passes the
+	 * result to the consumer in file order. With a parallelism above one, a file
+	 * on the filesystem is parsed in chunks as by
+	 * {@link #readAll(boolean, int, CsvRecordMapper)}; the records of a chunk are
+	 * passed on as soon as the chunks ahead of it are, while the later chunks are
+	 * still being parsed. The consumer is called from the calling thread only.
+	 * 
+	 * @param skipHeader  whether the first record is a header to skip.
+	 * @param parallelism number of chunks parsed at the same time.
+	 * @param mapper      converter of the records.
+	 * @param consumer    consumer of the converted records.
+	 * @param <T>         type of the objects.
+	 * @throws IOException                    when unable to read the file.
+	 * @throws InvalidDBRecordFormatException when the CSV structure is invalid.
+	 */
+	public <T> void readAll(boolean skipHeader, int parallelism, CsvRecordMapper<T> mapper,
+			Consumer<? super T> consumer) throws IOException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of readAll() started");
+		long[] boundaries = path == null || parallelism <= 1 ? null : splitIntoChunks(parallelism, false);
+		if (boundaries == null || boundaries.length <= 2) {
+			read(skipHeader, record -> acceptMapped(consumer, mapper, record));
+		} else {
+			readChunks(skipHeader, boundaries, mapper, consumer);
+		}
+		LOGGER_OBJ.debug("execution of readAll() completed");
+	}
+
+	/**
+	 * Reads the complete records of the file from its start as
+	 * {@link #readFrom(long, boolean, CsvRecordHandler)} from offset 0, converts
+	 * them with the mapper and passes the results to the consumer in file order.
+	 * With a parallelism above one, the file up to its last line end is parsed in
+	 * chunks as by {@link #readAll(boolean, int, CsvRecordMapper, Consumer)}.
+	 * 
+	 * @param skipHeader  whether the first record is a header to skip.
+	 * @param parallelism number of chunks parsed at the same time.
+	 * @param mapper      converter of the records.
+	 * @param consumer    consumer of the converted records.
+	 * @param <T>         type of the objects.
+	 * @return the offset following the last complete record, 0 when there is
+	 *         none.
+	 * @throws IOException                    when unable to read the file or when
+	 *                                        the reader streams a resource.
+	 * @throws InvalidDBRecordFormatException when the CSV structure is invalid.
+	 */
+	public <T> long readComplete(boolean skipHeader, int parallelism, CsvRecordMapper<T> mapper,
+			Consumer<? super T> consumer) throws IOException, InvalidDBRecordFormatException {
+		long[] boundaries = path == null || parallelism <= 1 ? null : splitIntoChunks(parallelism, true);
+		if (boundaries == null || boundaries.length <= 2) {
+			return readFrom(0, skipHeader, record -> acceptMapped(consumer, mapper, record));
+		}
+		LOGGER_OBJ.debug("execution of readComplete() started");
+		readChunks(skipHeader, boundaries, mapper, consumer);
+		LOGGER_OBJ.debug("execution of readComplete() completed");
+		return boundaries[boundaries.length - 1];
+	}
+
+	/**
+	 * Parses the chunks on a fork-join pool and passes the records of each chunk
+	 * to the consumer, in file order, once the chunk is parsed.
+	 */
+	private <T> void readChunks(boolean skipHeader, long[] boundaries, CsvRecordMapper<T> mapper,
+			Consumer<? super T> consumer) throws IOException, InvalidDBRecordFormatException {
+		int chunks = boundaries.length - 1;
+		ForkJoinPool pool = new ForkJoinPool(chunks);
+		try {
+			List<ForkJoinTask<List<T>>> tasks = new ArrayList<>(chunks);
+			for (int chunk = 0; chunk < chunks; chunk++) {
+				long start = boundaries[chunk];
+				long end = boundaries[chunk + 1];
+				boolean chunkHeader = skipHeader && chunk == 0;
+				tasks.add(pool.submit(() -> {
+					List<T> chunkRecords = new ArrayList<>();
+					readMapped(new RecordParser(chunkHeader, record -> acceptMapped(chunkRecords::add, mapper, record)),
+							start, end, true);
+					return chunkRecords;
+				}));
+			}
+			for (int chunk = 0; chunk < chunks; chunk++) {
+				joinChunk(tasks.get(chunk)).forEach(consumer);
+				// the records handed off are not held until the last chunk is
+				tasks.set(chunk, null);
+			}
+			LOGGER_OBJ.debug("read " + path + " in " + chunks + " chunks");
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static <T> List<T> joinChunk(ForkJoinTask<List<T>> task)
+			throws IOException, InvalidDBRecordFormatException {
+		try {
+			return task.get();
+		} catch (InterruptedException exp) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while reading the file");
+		} catch (ExecutionException exp) {
+			Throwable cause = exp.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof InvalidDBRecordFormatException) {
+				throw (InvalidDBRecordFormatException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException("unable to read the file", cause);
+		}
+	}
+
+	private static <T> void acceptMapped(Consumer<? super T> consumer, CsvRecordMapper<T> mapper,
+			CsvRecord record) {
+		T mapped = mapper.mapRecord(record);
+		if (mapped != null) {
+			consumer.accept(mapped);
+		}
+	}
+
+	/**
+	 * Splits the file, or its complete records only, into byte ranges which start
+	 * right after a line end.
+	 * 
+	 * @return the offsets of the range boundaries, the first being 0 and the last
+	 *         the file size or the offset following its last line end.
+	 */
+	private long[] splitIntoChunks(int parallelism, boolean completeOnly) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = completeOnly ? lastLineEnd(channel, channel.size()) : channel.size();
+			int chunks = (int) Math.max(1, Math.min(parallelism, size / MIN_CHUNK_SIZE));
+			List<Long> boundaries = new ArrayList<>(chunks + 1);
+			boundaries.add(0L);
+			ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+			for (int chunk = 1; chunk < chunks; chunk++) {
+				long boundary = nextLineStart(channel, Math.max(size * chunk / chunks,
+						boundaries.get(boundaries.size() - 1)), size, probe);
+				if (boundary > boundaries.get(boundaries.size() - 1) && boundary < size) {
+					boundaries.add(boundary);
+				}
+			}
+			boundaries.add(size);
+			long[] offsets = new long[boundaries.size()];
+			for (int i = 0; i < offsets.length; i++) {
+				offsets[i] = boundaries.get(i);
+			}
+			return offsets;
+		}
+	}
+
+	/**
+	 * Gives the offset following the first line feed at or after the position.
+	 */
+	private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer probe)
+			throws IOException {
+		while (position < size) {
+			probe.clear();
+			int read = channel.read(probe, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (probe.get(i) == LF) {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	/**
+	 * Gives the offset following the last line feed before the given size, 0
+	 * when there is none.
+	 */
+	private long lastLineEnd(FileChannel channel, long size) throws IOException {
+		ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+		long end = size;
+		while (end > 0) {
+			long position = Math.max(0, end - PROBE_SIZE);
+			int length = (int) (end - position);
+			probe.clear();
+			probe.limit(length);
+			while (probe.hasRemaining()) {
+				if (channel.read(probe, position + probe.position()) < 0) {
+					throw new IOException(path + " is shorter than " + end + " bytes");
+				}
+			}
+			for (int i = length - 1; i >= 0; i--) {
+				if (probe.get(i) == LF) {
+					return position + i + 1;
+				}
+			}
+			end = position;
+		}
+		return 0;
+	}
+
+	private void readMapped(RecordParser parser) throws IOException, InvalidDBRecordFormatException {
+		readMapped(parser, 0, -1, true);
+	}
+
+	/**
+	 * Parses the records in the byte range [start, end) of the file, end being -1
+	 * for the end of the file. The range must start on a record boundary; when
+	 * the range is the whole input it must end on one too, otherwise a record cut
+	 * by the end of the range is left unread.
+	 * 
+	 * @return the offset following the last record read.
+	 */
+	private long readMapped(RecordParser parser, long start, long end, boolean wholeInput)
+			throws IOException, InvalidDBRecordFormatException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = end < 0 ? channel.size() : end;
+			long position = start;
+			int window = bufferSize;
+			while (position < size) {
+				int length = (int) Math.min(window, size - position);
+				boolean lastWindow = position + length == size;
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				int from = position == 0 ? skipByteOrderMark(buffer, length) : 0;
+				int consumed = parser.parse(buffer, from, length, lastWindow && wholeInput);
+				if (consumed == 0 && !lastWindow) {
+					if (window == Integer.MAX_VALUE) {
+						throw new InvalidDBRecordFormatException("record at byte " + position + " of " + path
+								+ " is larger than " + Integer.MAX_VALUE + " bytes");
+					}
+					window = (int) Math.min((long) window * 2, Integer.MAX_VALUE);
+					continue;
+				}
+				position += consumed;
+				window = bufferSize;
+				if (lastWindow) {
+					break;
+				}
+			}
+			return position;
+		}
+	}
+
+	private void readStream(RecordParser parser) throws IOException, InvalidDBRecordFormatException {
+		try (InputStream input = resource.openStream(); ReadableByteChannel channel = Channels.newChannel(input)) {
+			ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+			boolean firstRead = true;
+			boolean endOfInput = false;
+			while (!endOfInput) {
+				if (!buffer.hasRemaining()) {
+					ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+					buffer.flip();
+					larger.put(buffer);
+					buffer = larger;
+				}
+				endOfInput = channel.read(buffer) < 0;
+				buffer.flip();
+				int from = firstRead ? skipByteOrderMark(buffer, buffer.limit()) : 0;
+				firstRead = false;
+				int consumed = parser.parse(buffer, from, buffer.limit(), endOfInput);
+				buffer.position(consumed);
+				buffer.compact();
+			}
+		}
+	}
+
+	/**
+	 * Gives the offset of the first byte after a UTF-8 byte order mark.
+	 */
+	private static int skipByteOrderMark(ByteBuffer buffer, int limit) {
+		if (limit >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB
+				&& buffer.get(2) == (byte) 0xBF) {
+			return 3;
+		}
+		return 0;
+	}
+
+	/**
+	 * Splits the bytes of a buffer into records. A record cut by the end of the
+	 * buffer is left for the next buffer unless the input has ended.
+	 */
+	private static final class RecordParser {
+
+		private final CsvRecordHandler handler;
+		private boolean headerPending;
+		private final CsvRecord record = new CsvRecord();
+		private long recordNumber;
+		private long handledRecords;
+
+		RecordParser(boolean skipHeader, CsvRecordHandler handler) {
+			this.headerPending = skipHeader;
+			this.handler = handler;
+		}
+
+		/**
+		 * Parses the complete records of buffer[from, limit).
+		 * 
+		 * @return the offset following the last complete record.
+		 */
+		int parse(ByteBuffer buffer, int from, int limit, boolean endOfInput)
+				throws InvalidDBRecordFormatException {
+			ByteBuffer view = buffer.duplicate();
+			int position = from;
+			while (position < limit) {
+				record.reset(buffer, view, recordNumber + 1);
+				int next = parseRecord(buffer, position, limit, endOfInput);
+				if (next == INCOMPLETE) {
+					return position;
+				}
+				recordNumber++;
+				position = next;
+				if (record.isBlank()) {
+					continue;
+				}
+				if (headerPending) {
+					headerPending = false;
+					continue;
+				}
+				handler.handleRecord(record);
+				handledRecords++;
+			}
+			return position;
+		}
+
+		/**
+		 * Parses one record starting at the given offset.
+		 * 
+		 * @return the offset following the record or INCOMPLETE.
+		 */
+		private int parseRecord(ByteBuffer buffer, int position, int limit, boolean endOfInput)
+				throws InvalidDBRecordFormatException {
+			while (true) {
+				int fieldEnd;
+				if (position < limit && buffer.get(position) == QUOTE) {
+					int start = position + 1;
+					boolean escaped = false;
+					position = start;
+					while (true) {
+						if (position >= limit) {
+							if (endOfInput) {
+								throw new InvalidDBRecordFormatException(
+										"unterminated quoted field in record " + (recordNumber + 1));
+							}
+							return INCOMPLETE;
+						}
+						if (buffer.get(position) == QUOTE) {
+							if (position + 1 >= limit && !endOfInput) {
+								return INCOMPLETE;
+							}
+							if (position + 1 < limit && buffer.get(position + 1) == QUOTE) {
+								escaped = true;
+								position += 2;
+								continue;
+							}
+							break;
+						}
+						position++;
+					}
+					record.addField(start, position, escaped);
+					position++;
+					fieldEnd = position;
+					if (position < limit) {
+						byte next = buffer.get(position);
+						if (next != COMMA && next != LF && next != CR) {
+							throw new InvalidDBRecordFormatException(
+									"unexpected character after quoted field in record " + (recordNumber + 1));
+						}
+					}
+				} else {
+					int start = position;
+					while (position < limit) {
+						byte next = buffer.get(position);
+						if (next == COMMA || next == LF || next == CR) {
+							break;
+						}
+						position++;
+					}
+					if (position >= limit && !endOfInput) {
+						return INCOMPLETE;
+					}
+					record.addField(start, position, false);
+					fieldEnd = position;
+				}
+				if (fieldEnd >= limit) {
+					return endOfInput ? limit : INCOMPLETE;
+				}
+				byte separator = buffer.get(fieldEnd);
+				if (separator == COMMA) {
+					position = fieldEnd + 1;
+					continue;
+				}
+				if (separator == LF) {
+					return fieldEnd + 1;
+				}
+				// CR alone or CR LF ends the record
+				if (fieldEnd + 1 < limit) {
+					return buffer.get(fieldEnd + 1) == LF ? fieldEnd + 2 : fieldEnd + 1;
+				}
+				return endOfInput ? fieldEnd + 1 : INCOMPLETE;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,170 @@
+package com.reactiveworks.productservice.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * View of one record parsed by the {@link CsvReader}.
+ *
+ * The record keeps only the offsets of its fields inside the reader's buffer.
+ * A field is decoded into a String or an int when it is asked for, straight
+ * from the bytes, and the same instance is reused for every record.
+ */
+public final class CsvRecord {
+
+	private static final int INITIAL_FIELDS = 8;
+	private static final byte QUOTE = '"';
+
+	private ByteBuffer buffer;
+	private ByteBuffer view;
+	private int[] fieldStarts = new int[INITIAL_FIELDS];
+	private int[] fieldEnds = new int[INITIAL_FIELDS];
+	private boolean[] escapedQuotes = new boolean[INITIAL_FIELDS];
+	private int fieldCount;
+	private long recordNumber;
+	private byte[] scratch = new byte[256];
+
+	CsvRecord() {
+
+	}
+
+	/**
+	 * Gives the number of fields in the record.
+	 * 
+	 * @return the number of fields.
+	 */
+	public int getFieldCount() {
+		return fieldCount;
+	}
+
+	/**
+	 * Gives the number of the record in the file, the header being record 1.
+	 * 
+	 * @return the record number.
+	 */
+	public long getRecordNumber() {
+		return recordNumber;
+	}
+
+	/**
+	 * Decodes the field as UTF-8 text. Surrounding quotes are removed and doubled
+	 * quotes inside a quoted field are unescaped.
+	 * 
+	 * @param field index of the field.
+	 * @return the text of the field.
+	 */
+	public String getString(int field) {
+		checkField(field);
+		int start = fieldStarts[field];
+		int length = fieldEnds[field] - start;
+		if (length == 0) {
+			return "";
+		}
+		if (scratch.length < length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		view.limit(start + length).position(start);
+		view.get(scratch, 0, length);
+		if (escapedQuotes[field]) {
+			length = unescape(scratch, length);
+		}
+		return new String(scratch, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parses the field as a decimal int without creating a String.
+	 * 
+	 * @param field index of the field.
+	 * @return the value of the field.
+	 * @throws NumberFormatException when the field is not a valid int.
+	 */
+	public int getInt(int field) {
+		checkField(field);
+		int position = fieldStarts[field];
+		int end = fieldEnds[field];
+		if (position == end) {
+			throw new NumberFormatException("empty field " + field + " in record " + recordNumber);
+		}
+		boolean negative = false;
+		byte first = buffer.get(position);
+		if (first == '-' || first == '+') {
+			negative = first == '-';
+			position++;
+			if (position == end) {
+				throw new NumberFormatException("invalid number in field " + field + " of record " + recordNumber);
+			}
+		}
+		// accumulate negatively so that Integer.MIN_VALUE is representable
+		int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+		int multiplyLimit = limit / 10;
+		int result = 0;
+		while (position < end) {
+			int digit = buffer.get(position++) - '0';
+			if (digit < 0 || digit > 9 || result < multiplyLimit) {
+				throw new NumberFormatException("invalid number in field " + field + " of record " + recordNumber);
+			}
+			result *= 10;
+			if (result < limit + digit) {
+				throw new NumberFormatException("invalid number in field " + field + " of record " + recordNumber);
+			}
+			result -= digit;
+		}
+		return negative ? result : -result;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		for (int field = 0; field < fieldCount; field++) {
+			if (field > 0) {
+				text.append(',');
+			}
+			text.append(getString(field));
+		}
+		return text.toString();
+	}
+
+	void reset(ByteBuffer buffer, ByteBuffer view, long recordNumber) {
+		this.buffer = buffer;
+		this.view = view;
+		this.recordNumber = recordNumber;
+		this.fieldCount = 0;
+	}
+
+	boolean isBlank() {
+		return fieldCount == 1 && fieldStarts[0] == fieldEnds[0];
+	}
+
+	void addField(int start, int end, boolean escaped) {
+		if (fieldCount == fieldStarts.length) {
+			int capacity = fieldCount * 2;
+			fieldStarts = Arrays.copyOf(fieldStarts, capacity);
+			fieldEnds = Arrays.copyOf(fieldEnds, capacity);
+			escapedQuotes = Arrays.copyOf(escapedQuotes, capacity);
+		}
+		fieldStarts[fieldCount] = start;
+		fieldEnds[fieldCount] = end;
+		escapedQuotes[fieldCount] = escaped;
+		fieldCount++;
+	}
+
+	private void checkField(int field) {
+		if (field < 0 || field >= fieldCount) {
+			throw new IndexOutOfBoundsException(
+					"record " + recordNumber + " has " + fieldCount + " fields, field " + field + " requested");
+		}
+	}
+
+	private static int unescape(byte[] bytes, int length) {
+		int target = 0;
+		for (int source = 0; source < length; source++) {
+			bytes[target++] = bytes[source];
+			if (bytes[source] == QUOTE && source + 1 < length && bytes[source + 1] == QUOTE) {
+				source++;
+			}
+		}
+		return target;
+	}
+
+}
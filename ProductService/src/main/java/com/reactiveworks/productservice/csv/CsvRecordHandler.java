@@ -0,0 +1,17 @@
+package com.reactiveworks.productservice.csv;
+
+/**
+ * Receives the records parsed by the {@link CsvReader}.
+ */
+@FunctionalInterface
+public interface CsvRecordHandler {
+
+	/**
+	 * Handles one record. The record is a view over the reader's buffer and is
+	 * only valid during this call.
+	 * 
+	 * @param record the parsed record.
+	 */
+	public void handleRecord(CsvRecord record);
+
+}
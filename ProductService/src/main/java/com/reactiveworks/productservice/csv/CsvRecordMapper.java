@@ -0,0 +1,20 @@
+package com.reactiveworks.productservice.csv;
+
+/**
+ * Converts the records parsed by the {@link CsvReader} into objects.
+ *
+ * @param <T> type of the objects.
+ */
+@FunctionalInterface
+public interface CsvRecordMapper<T> {
+
+	/**
+	 * Converts one record. When the reader runs in parallel the mapper is called
+	 * from several threads at once, so it must not keep state between calls.
+	 * 
+	 * @param record the parsed record, only valid during this call.
+	 * @return the object of the record, or null to leave the record out.
+	 */
+	public T mapRecord(CsvRecord record);
+
+}
@@ -0,0 +1,188 @@
+package com.reactiveworks.productservice.csv;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+
+/**
+ * Follows a CSV file which only grows by records appended at its end.
+ *
+ * A read gives the {@link Mark} following the last complete record it read, so
+ * a read of the records appended after that mark parses only the bytes written
+ * since. A record whose line end is not written yet is left for the next read.
+ * The mark also holds what the file looked like: the file key of the
+ * filesystem and a checksum of its first bytes. A file which is shorter than
+ * the mark, replaced by another file or rewritten in place no longer continues
+ * the records already read, and must be read again from its start. The tail
+ * keeps no state of its readers, each follows the file from its own mark.
+ */
+public final class CsvTail {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CsvTail.class");
+	private static final int HEAD_SIZE = 4096;
+
+	private final CsvReader reader;
+	private final boolean skipHeader;
+
+	/**
+	 * Creates the tail of the given file.
+	 *
+	 * @param path       path of the CSV file.
+	 * @param skipHeader whether the first record of the file is a header.
+	 */
+	public CsvTail(Path path, boolean skipHeader) {
+		this.reader = new CsvReader(path);
+		this.skipHeader = skipHeader;
+	}
+
+	public Path getPath() {
+		return reader.getPath();
+	}
+
+	/**
+	 * Reads the complete records of the whole file from its start, in parallel
+	 * chunks handed off in file order as by
+	 * {@link CsvReader#readComplete(boolean, int, CsvRecordMapper, Consumer)}.
+	 *
+	 * @param parallelism number of chunks parsed at the same time, 1 to read the
+	 *                    file sequentially.
+	 * @param mapper      converter of the records.
+	 * @param consumer    consumer of the converted records.
+	 * @param <T>         type of the objects.
+	 * @return the mark following the last complete record.
+	 * @throws IOException                    when unable to read the file.
+	 * @throws InvalidDBRecordFormatException when the CSV structure is invalid.
+	 */
+	public <T> Mark readAll(int parallelism, CsvRecordMapper<T> mapper, Consumer<? super T> consumer)
+			throws IOException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of readAll() started");
+		Object fileKey = readFileKey();
+		long offset = reader.readComplete(skipHeader, parallelism, mapper, consumer);
+		Mark mark = new Mark(offset, fileKey, headChecksum(offset));
+		LOGGER_OBJ.debug("execution of readAll() completed");
+		return mark;
+	}
+
+	/**
+	 * Reads the complete records appended after the given mark. Nothing is read
+	 * when the file was truncated, replaced or rewritten since the mark was
+	 * taken.
+	 *
+	 * @param from    mark of the records already read.
+	 * @param handler handler of the records.
+	 * @return the mark following the last complete record, or null when the file
+	 *         must be read again with readAll.
+	 * @throws IOException                    when unable to read the file.
+	 * @throws InvalidDBRecordFormatException when the CSV structure is invalid.
+	 */
+	public Mark readAppended(Mark from, CsvRecordHandler handler) throws IOException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of readAppended() started");
+		if (isRewritten(from)) {
+			LOGGER_OBJ.info(getPath() + " was truncated or rewritten since byte " + from.getOffset());
+			return null;
+		}
+		long end = reader.readFrom(from.getOffset(), skipHeader, handler);
+		Mark mark = end == from.getOffset() ? from
+				: new Mark(end, from.fileKey, from.getOffset() < HEAD_SIZE ? headChecksum(end) : from.headChecksum);
+		LOGGER_OBJ.debug("execution of readAppended() completed");
+		return mark;
+	}
+
+	/**
+	 * Tells whether the file no longer continues the records read up to the
+	 * mark.
+	 */
+	private boolean isRewritten(Mark mark) throws IOException {
+		if (!Objects.equals(mark.fileKey, readFileKey())) {
+			return true;
+		}
+		return Files.size(getPath()) < mark.getOffset() || headChecksum(mark.getOffset()) != mark.headChecksum;
+	}
+
+	private Object readFileKey() throws IOException {
+		return Files.readAttributes(getPath(), BasicFileAttributes.class).fileKey();
+	}
+
+	/**
+	 * Computes the checksum of the bytes of the file below the given offset, up to
+	 * HEAD_SIZE of them.
+	 */
+	private long headChecksum(long end) throws IOException {
+		ByteBuffer head = ByteBuffer.allocate((int) Math.min(HEAD_SIZE, end));
+		try (FileChannel channel = FileChannel.open(getPath(), StandardOpenOption.READ)) {
+			while (head.hasRemaining() && channel.read(head, head.position()) > 0) {
+				// reads until the head is full or the file ends
+			}
+		}
+		CRC32 checksum = new CRC32();
+		checksum.update(head.array(), 0, head.position());
+		return checksum.getValue();
+	}
+
+	@Override
+	public String toString() {
+		return "CsvTail [path=" + getPath() + "]";
+	}
+
+	/**
+	 * Position following the last complete record read, with what the file
+	 * looked like up to it.
+	 */
+	public static final class Mark {
+
+		private final long offset;
+		private final Object fileKey;
+		private final long headChecksum;
+
+		private Mark(long offset, Object fileKey, long headChecksum) {
+			this.offset = offset;
+			this.fileKey = fileKey;
+			this.headChecksum = headChecksum;
+		}
+
+		/**
+		 * Gives the offset following the last complete record read.
+		 *
+		 * @return the offset where the next read starts.
+		 */
+		public long getOffset() {
+			return offset;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Mark)) {
+				return false;
+			}
+			Mark other = (Mark) obj;
+			return offset == other.offset && headChecksum == other.headChecksum
+					&& Objects.equals(fileKey, other.fileKey);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(offset, fileKey, headChecksum);
+		}
+
+		@Override
+		public String toString() {
+			return "Mark [offset=" + offset + "]";
+		}
+
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.reactiveworks.productservice.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk insert: the number of inserted records and the records
+ * which could not be inserted.
+ */
+public class BatchInsertReport {
+
+	private int insertedCount;
+	private final List<RowFailure> failures = new ArrayList<>();
+
+	public int getInsertedCount() {
+		return insertedCount;
+	}
+
+	public List<RowFailure> getFailures() {
+		return Collections.unmodifiableList(failures);
+	}
+
+	public boolean hasFailures() {
+		return !failures.isEmpty();
+	}
+
+	/**
+	 * Counts inserted records.
+	 * 
+	 * @param count number of records inserted.
+	 */
+	public void addInserted(int count) {
+		insertedCount += count;
+	}
+
+	/**
+	 * Records a record which could not be inserted.
+	 * 
+	 * @param index    position of the record in the inserted list.
+	 * @param recordId id of the record.
+	 * @param reason   reason of the failure.
+	 */
+	public void addFailure(int index, String recordId, String reason) {
+		failures.add(new RowFailure(index, recordId, reason));
+	}
+
+	@Override
+	public String toString() {
+		return "BatchInsertReport [insertedCount=" + insertedCount + ", failures=" + failures.size() + "]";
+	}
+
+	/**
+	 * A record which could not be inserted.
+	 */
+	public static class RowFailure {
+
+		private final int index;
+		private final String recordId;
+		private final String reason;
+
+		public RowFailure(int index, String recordId, String reason) {
+			this.index = index;
+			this.recordId = recordId;
+			this.reason = reason;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public String getRecordId() {
+			return recordId;
+		}
+
+		public String getReason() {
+			return reason;
+		}
+
+		@Override
+		public String toString() {
+			return "RowFailure [index=" + index + ", recordId=" + recordId + ", reason=" + reason + "]";
+		}
+	}
+
+}
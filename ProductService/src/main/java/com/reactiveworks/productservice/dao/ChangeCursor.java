@@ -0,0 +1,74 @@
+package com.reactiveworks.productservice.dao;
+
+import java.util.Objects;
+
+/**
+ * Position of one reader in the changes of a table, given by a full read of
+ * the table and passed back to read the changes made since.
+ *
+ * The cursor belongs to the reader, not to the dao, so any number of readers
+ * follow the same dao each from its own position, and reads which do not
+ * follow the changes leave every cursor as it is. Cursors are immutable: a
+ * read of the changes gives the cursor to continue from and leaves the one it
+ * was given valid, so a reader which fails to apply the changes reads them
+ * again from its previous cursor.
+ */
+public final class ChangeCursor {
+
+	private final long position;
+	private final Object state;
+
+	/**
+	 * Creates the cursor at the given position.
+	 *
+	 * @param position version or offset of the table the reader has read up to.
+	 * @param state    what else the dao needs to continue from the position, such
+	 *                 as what the file read looked like, null when nothing.
+	 */
+	public ChangeCursor(long position, Object state) {
+		this.position = position;
+		this.state = state;
+	}
+
+	/**
+	 * Creates the cursor at the given version of a table whose writes are
+	 * versioned.
+	 *
+	 * @param version version the reader has read up to.
+	 * @return the cursor.
+	 */
+	public static ChangeCursor at(long version) {
+		return new ChangeCursor(version, null);
+	}
+
+	public long getPosition() {
+		return position;
+	}
+
+	public Object getState() {
+		return state;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ChangeCursor)) {
+			return false;
+		}
+		ChangeCursor other = (ChangeCursor) obj;
+		return position == other.position && Objects.equals(state, other.state);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(position) * 31 + Objects.hashCode(state);
+	}
+
+	@Override
+	public String toString() {
+		return "ChangeCursor [position=" + position + "]";
+	}
+
+}
@@ -1,16 +1,44 @@
 package com.reactiveworks.productservice.dao;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
+import com.reactiveworks.productservice.binary.BinaryCatalog;
 import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
 import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
 import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
 import com.reactiveworks.productservice.db.exceptions.OperationNotSupportedException;
 import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.util.ProductKeys;
 
 public interface IProductDao {
 	
-	default public void insertRecords(List<Product> products) {}
+	/**
+	 * Inserts the records into the product database and reports the records which
+	 * could not be inserted. By default the records are inserted one by one.
+	 * 
+	 * @param products records to insert.
+	 * @return the report of inserted and failed records.
+	 * @throws OperationNotSupportedException when operation is not supported by the
+	 *                                        database.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on the database fails.
+	 */
+	default public BatchInsertReport insertRecords(List<Product> products)
+			throws OperationNotSupportedException, DataBaseAccessException, DBOperationFailureException {
+		BatchInsertReport report = new BatchInsertReport();
+		for (int index = 0; index < products.size(); index++) {
+			Product product = products.get(index);
+			try {
+				insertProduct(product);
+				report.addInserted(1);
+			} catch (DataBaseAccessException exp) {
+				report.addFailure(index, product.getProductId(), exp.getMessage());
+			}
+		}
+		return report;
+	}
 
 	/**
 	 * Gets the records from the product database.
@@ -20,6 +48,145 @@ public interface IProductDao {
 	 */
 	public List<Product> getProducts() throws DataBaseAccessException, DBOperationFailureException,InvalidDBRecordFormatException;
 
+	/**
+	 * Passes the records of the product database to the consumer one by one, in
+	 * the order of getProducts(), without materializing the whole table where the
+	 * database allows it.
+	 * 
+	 * A read of the whole table changes nothing in the dao, the reader which
+	 * follows the changes of the table keeps the cursor returned.
+	 * 
+	 * @param consumer consumer of the products.
+	 * @return the cursor of the records read, from which the changes made since
+	 *         are read, or null when the database cannot be followed.
+	 * @throws DataBaseAccessException when unable to access the database.
+	 */
+	default public ChangeCursor streamProducts(Consumer<Product> consumer)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		getProducts().forEach(consumer);
+		return null;
+	}
+
+	/**
+	 * Gives the columns of the product database, for a database kept as a binary
+	 * catalog, so that a catalog can be built from its dictionaries and columns
+	 * without creating a product object per record. By default the records are
+	 * only read as products and no columns are given.
+	 * 
+	 * @return the mapped binary catalog, or null when the database has none.
+	 * @throws DataBaseAccessException when unable to access the database.
+	 */
+	default public BinaryCatalog getBinaryCatalog()
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		return null;
+	}
+
+	/**
+	 * Passes to the consumer the records appended to the product database after
+	 * the given cursor, for a database whose records are only ever appended. By
+	 * default the appended records cannot be told apart and nothing is passed.
+	 * 
+	 * @param from     cursor of the records already read.
+	 * @param consumer consumer of the appended products.
+	 * @return the cursor following the records passed, or null when the
+	 *         database was rewritten or cannot be followed and every record has
+	 *         to be read again.
+	 * @throws DataBaseAccessException when unable to access the database.
+	 */
+	default public ChangeCursor streamAppendedProducts(ChangeCursor from, Consumer<Product> consumer)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		return null;
+	}
+
+	/**
+	 * Passes to the first consumer the records inserted or updated in the product
+	 * database after the given cursor, and to the second the ids of the records
+	 * deleted since then, for a database which tracks the versions of its
+	 * changes. By default the changes are not tracked and nothing is passed.
+	 * 
+	 * @param from       cursor of the records already read.
+	 * @param changed    consumer of the inserted and updated products.
+	 * @param deletedIds consumer of the ids of the deleted products.
+	 * @return the cursor following the changes passed, or null when they are
+	 *         not tracked and every record has to be read again.
+	 * @throws DataBaseAccessException when unable to access the database.
+	 */
+	default public ChangeCursor streamProductChanges(ChangeCursor from, Consumer<Product> changed,
+			Consumer<String> deletedIds)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		return null;
+	}
+
+	/**
+	 * Gets the products which are available in the given city. By default the
+	 * records are streamed and filtered in memory.
+	 * 
+	 * @param city name of the city, matched ignoring case.
+	 * @return the list of products available in the city.
+	 * @throws DataBaseAccessException when unable to access the database.
+	 */
+	default public List<Product> getProductsByCity(String city)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		List<Product> products = new ArrayList<>();
+		if (city == null) {
+			return products;
+		}
+		String cityKey = ProductKeys.normalizeCity(city);
+		streamProducts(product -> {
+			if (ProductKeys.containsCity(product.getAvailableCity(), cityKey)) {
+				products.add(product);
+			}
+		});
+		return products;
+	}
+
+	/**
+	 * Gets the products of the given category which are available in the given
+	 * city. By default the records are streamed and filtered in memory.
+	 * 
+	 * @param city     name of the city, matched ignoring case.
+	 * @param category category of the product, matched ignoring case.
+	 * @return the list of matching products.
+	 * @throws DataBaseAccessException when unable to access the database.
+	 */
+	default public List<Product> getProductsByCityAndCategory(String city, String category)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		List<Product> products = new ArrayList<>();
+		if (city == null || category == null) {
+			return products;
+		}
+		String cityKey = ProductKeys.normalizeCity(city);
+		String categoryKey = ProductKeys.normalizeCategory(category);
+		streamProducts(product -> {
+			if (product.getProductCategory() != null
+					&& ProductKeys.normalizeCategory(product.getProductCategory()).equals(categoryKey)
+					&& ProductKeys.containsCity(product.getAvailableCity(), cityKey)) {
+				products.add(product);
+			}
+		});
+		return products;
+	}
+
+	/**
+	 * Gets the products whose price lies in the given range, bounds included. By
+	 * default the records are streamed and filtered in memory.
+	 * 
+	 * @param minPrice lowest price of the range.
+	 * @param maxPrice highest price of the range.
+	 * @return the list of matching products.
+	 * @throws DataBaseAccessException when unable to access the database.
+	 */
+	default public List<Product> getProductsByPriceRange(int minPrice, int maxPrice)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		List<Product> products = new ArrayList<>();
+		streamProducts(product -> {
+			if (product.getPrice() >= minPrice && product.getPrice() <= maxPrice) {
+				products.add(product);
+			}
+		});
+		return products;
+	}
+
 	/**
 	 * Inserts the record into the product database.
 	 * 
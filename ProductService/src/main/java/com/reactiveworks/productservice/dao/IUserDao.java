@@ -1,6 +1,7 @@
 package com.reactiveworks.productservice.dao;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
 import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
@@ -11,7 +12,31 @@ import com.reactiveworks.productservice.model.User;
 public interface IUserDao {
 
 	
-	default public void insertRecords(List<User> users) {}
+	/**
+	 * Inserts the records into the user database and reports the records which
+	 * could not be inserted. By default the records are inserted one by one.
+	 * 
+	 * @param users records to insert.
+	 * @return the report of inserted and failed records.
+	 * @throws OperationNotSupportedException when operation is not supported by the
+	 *                                        database.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on the database fails.
+	 */
+	default public BatchInsertReport insertRecords(List<User> users)
+			throws OperationNotSupportedException, DataBaseAccessException, DBOperationFailureException {
+		BatchInsertReport report = new BatchInsertReport();
+		for (int index = 0; index < users.size(); index++) {
+			User user = users.get(index);
+			try {
+				insertUser(user);
+				report.addInserted(1);
+			} catch (DataBaseAccessException exp) {
+				report.addFailure(index, user.getUserId(), exp.getMessage());
+			}
+		}
+		return report;
+	}
 
 	/**
 	 * Gets the records from the user database.
@@ -21,6 +46,61 @@ public interface IUserDao {
 	 */
 	public List<User> getUsers() throws DataBaseAccessException, DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException;
 
+	/**
+	 * Passes the records of the user database to the consumer one by one, in the
+	 * order of getUsers(), without materializing the whole table where the
+	 * database allows it.
+	 * 
+	 * A read of the whole table changes nothing in the dao, the reader which
+	 * follows the changes of the table keeps the cursor returned.
+	 * 
+	 * @param consumer consumer of the users.
+	 * @return the cursor of the records read, from which the changes made since
+	 *         are read, or null when the database cannot be followed.
+	 * @throws DataBaseAccessException when unable to access the database.
+	 */
+	default public ChangeCursor streamUsers(Consumer<User> consumer)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		getUsers().forEach(consumer);
+		return null;
+	}
+
+	/**
+	 * Passes to the consumer the records appended to the user database after
+	 * the given cursor, for a database whose records are only ever appended. By
+	 * default the appended records cannot be told apart and nothing is passed.
+	 * 
+	 * @param from     cursor of the records already read.
+	 * @param consumer consumer of the appended users.
+	 * @return the cursor following the records passed, or null when the
+	 *         database was rewritten or cannot be followed and every record has
+	 *         to be read again.
+	 * @throws DataBaseAccessException when unable to access the database.
+	 */
+	default public ChangeCursor streamAppendedUsers(ChangeCursor from, Consumer<User> consumer)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		return null;
+	}
+
+	/**
+	 * Passes to the first consumer the records inserted or updated in the user
+	 * database after the given cursor, and to the second the ids of the records
+	 * deleted since then, for a database which tracks the versions of its
+	 * changes. By default the changes are not tracked and nothing is passed.
+	 * 
+	 * @param from       cursor of the records already read.
+	 * @param changed    consumer of the inserted and updated users.
+	 * @param deletedIds consumer of the ids of the deleted users.
+	 * @return the cursor following the changes passed, or null when they are
+	 *         not tracked and every record has to be read again.
+	 * @throws DataBaseAccessException when unable to access the database.
+	 */
+	default public ChangeCursor streamUserChanges(ChangeCursor from, Consumer<User> changed,
+			Consumer<String> deletedIds)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		return null;
+	}
+
 	/**
 	 * inserts the record into the user database.
 	 * 
@@ -0,0 +1,236 @@
+package com.reactiveworks.productservice.dao.caching;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.dao.ChangeCursor;
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+
+/**
+ * Records of a table held in memory for a caching dao.
+ *
+ * The table is loaded on the first read. Readers take the current unmodifiable
+ * list without locking. Loads, refreshes and writes hold the monitor of the
+ * table and replace the list with a changed copy, so a refresh never drops a
+ * write which was applied while it ran. When a refresh period is given, the
+ * table is reloaded in the background once it has been loaded, and a failed
+ * refresh keeps the previous records.
+ *
+ * The table also keeps the cursor of the backing dao its records are at: the
+ * cursor of the load, moved on by the changes of the backing dao applied to
+ * the table. Writes applied to the table leave it as it is, since the backing
+ * dao gives them again as changes after it.
+ *
+ * @param <T> type of the records.
+ */
+final class CachedTable<T> implements AutoCloseable {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CachedTable.class");
+
+	/**
+	 * Reads all the records of the table from the backing dao into the list and
+	 * gives the cursor of the read.
+	 */
+	interface Loader<T> {
+		ChangeCursor load(List<T> records)
+				throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException;
+	}
+
+	private final String name;
+	private final Loader<T> loader;
+	private final long refreshPeriodNanos;
+	private volatile List<T> records;
+	private volatile long loadCount;
+	private ChangeCursor cursor;
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * Creates the table.
+	 *
+	 * @param name          name of the table, used for logging and for the name of
+	 *                      the refresh thread.
+	 * @param loader        reads the records from the backing dao.
+	 * @param refreshPeriod time between the end of one refresh and the start of
+	 *                      the next, 0 or less to load the table only once.
+	 * @param unit          unit of the refresh period.
+	 */
+	CachedTable(String name, Loader<T> loader, long refreshPeriod, TimeUnit unit) {
+		this.name = name;
+		this.loader = loader;
+		this.refreshPeriodNanos = refreshPeriod > 0 ? unit.toNanos(refreshPeriod) : 0;
+	}
+
+	/**
+	 * Gives the records, loading them on the first call.
+	 *
+	 * @return the unmodifiable list of the records.
+	 */
+	List<T> get() throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		List<T> current = records;
+		if (current == null) {
+			synchronized (this) {
+				if (records == null) {
+					load();
+					startRefresh();
+				}
+				current = records;
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Passes the records to the consumer, loading them on the first call, and
+	 * gives the cursor of the backing dao they are at. The consumer runs without
+	 * the monitor of the table.
+	 *
+	 * @param consumer consumer of the records.
+	 * @return the cursor of the records, null when the backing dao cannot be
+	 *         followed.
+	 */
+	ChangeCursor read(Consumer<T> consumer)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		List<T> current;
+		ChangeCursor currentCursor;
+		synchronized (this) {
+			current = get();
+			currentCursor = cursor;
+		}
+		current.forEach(consumer);
+		return currentCursor;
+	}
+
+	/**
+	 * Gives the cursor of the backing dao the records are at.
+	 *
+	 * @return the cursor, null when the table is not loaded or the backing dao
+	 *         cannot be followed.
+	 */
+	synchronized ChangeCursor getCursor() {
+		return cursor;
+	}
+
+	/**
+	 * Reloads the records from the backing dao.
+	 */
+	synchronized void refresh() throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		load();
+	}
+
+	/**
+	 * Applies a write which the backing dao has already stored. Nothing is done
+	 * while the table is not loaded, since the first load reads the write from
+	 * the dao. Callers hold the monitor of the table around the dao write and
+	 * this call.
+	 *
+	 * @param change action which changes the copy of the records in place.
+	 */
+	synchronized void apply(Consumer<List<T>> change) {
+		List<T> current = records;
+		if (current != null) {
+			List<T> next = new ArrayList<>(current);
+			change.accept(next);
+			records = Collections.unmodifiableList(next);
+		}
+	}
+
+	/**
+	 * Applies the changes read from the backing dao after the cursor of the
+	 * table: a changed record replaces the record of the same key or is added,
+	 * and the records of the removed keys which were not changed are removed.
+	 * The table then moves to the cursor following the changes.
+	 *
+	 * @param changed     changed records.
+	 * @param removedKeys keys of the removed records.
+	 * @param keyOf       gives the key of a record.
+	 * @param next        cursor following the changes.
+	 */
+	synchronized void applyChanges(Collection<T> changed, Set<String> removedKeys, Function<T, String> keyOf,
+			ChangeCursor next) {
+		cursor = next;
+		if (changed.isEmpty() && removedKeys.isEmpty()) {
+			return;
+		}
+		apply(cached -> {
+			Map<String, T> pending = new LinkedHashMap<>();
+			changed.forEach(record -> pending.put(keyOf.apply(record), record));
+			for (ListIterator<T> iterator = cached.listIterator(); iterator.hasNext();) {
+				String key = keyOf.apply(iterator.next());
+				T replacement = pending.remove(key);
+				if (replacement != null) {
+					iterator.set(replacement);
+				} else if (removedKeys.contains(key)) {
+					iterator.remove();
+				}
+			}
+			cached.addAll(pending.values());
+		});
+	}
+
+	/**
+	 * Gives the number of times the records were read from the backing dao.
+	 */
+	long getLoadCount() {
+		return loadCount;
+	}
+
+	/**
+	 * Stops the background refresh. The loaded records stay cached.
+	 */
+	@Override
+	public synchronized void close() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	private void load() throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		long loadStart = System.nanoTime();
+		List<T> loaded = new ArrayList<>();
+		ChangeCursor loadedCursor = loader.load(loaded);
+		records = Collections.unmodifiableList(loaded);
+		cursor = loadedCursor;
+		loadCount++;
+		LOGGER_OBJ.debug(name + " table loaded with " + records.size() + " records in "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStart) + " ms");
+	}
+
+	private void startRefresh() {
+		if (refreshPeriodNanos > 0 && scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, name + "-cache-refresh");
+				thread.setDaemon(true);
+				return thread;
+			});
+			scheduler.scheduleWithFixedDelay(this::refreshQuietly, refreshPeriodNanos, refreshPeriodNanos,
+					TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private void refreshQuietly() {
+		try {
+			refresh();
+		} catch (DataBaseAccessException | DBOperationFailureException | InvalidDBRecordFormatException exp) {
+			LOGGER_OBJ.error("unable to refresh the " + name + " table, keeping the cached records " + exp.getMessage());
+		} catch (RuntimeException exp) {
+			LOGGER_OBJ.error("unable to refresh the " + name + " table, keeping the cached records", exp);
+		}
+	}
+
+}
@@ -0,0 +1,249 @@
+package com.reactiveworks.productservice.dao.caching;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.dao.BatchInsertReport;
+import com.reactiveworks.productservice.dao.ChangeCursor;
+import com.reactiveworks.productservice.dao.IProductDao;
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+import com.reactiveworks.productservice.db.exceptions.OperationNotSupportedException;
+import com.reactiveworks.productservice.model.Product;
+
+/**
+ * Product dao which keeps the table of another product dao in memory.
+ *
+ * The table is read from the backing dao once and all reads, including the
+ * city, category and price queries, are served from memory. Writes go to the
+ * backing dao first and are applied to the cached table once it accepted them.
+ * Changes made to the backing database by others show up after the next
+ * refresh, periodic when a refresh period is given or on demand through
+ * {@link #refresh()}.
+ *
+ * The table is loaded with a streamProducts() read of the backing dao and
+ * keeps the cursor of that read, so a backing dao which tracks the changes of
+ * its table, or follows the records appended to it, gives them after that
+ * cursor. The cursors given by this dao are those of the backing dao: a reader
+ * follows the backing dao from its own cursor whatever the reloads of the
+ * table, and the changes read for a reader at the cursor of the table are
+ * also applied to the table.
+ *
+ * The cached products are shared between callers and must not be modified;
+ * changes go through the write methods.
+ */
+public class CachingProductDao implements IProductDao, AutoCloseable {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CachingProductDao.class");
+
+	private final IProductDao productDao;
+	private final CachedTable<Product> table;
+
+	/**
+	 * Creates the dao over the given backing dao.
+	 *
+	 * @param productDao    dao the products are read from and written to.
+	 * @param refreshPeriod time between two reloads of the table, 0 or less to
+	 *                      load it only once.
+	 * @param unit          unit of the refresh period.
+	 */
+	public CachingProductDao(IProductDao productDao, long refreshPeriod, TimeUnit unit) {
+		this.productDao = productDao;
+		this.table = new CachedTable<>("product", products -> productDao.streamProducts(products::add), refreshPeriod,
+				unit);
+	}
+
+	/**
+	 * Gives the dao the products are read from and written to.
+	 *
+	 * @return the backing dao.
+	 */
+	public IProductDao getProductDao() {
+		return productDao;
+	}
+
+	@Override
+	public List<Product> getProducts()
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		return new ArrayList<>(table.get());
+	}
+
+	/**
+	 * Passes the cached products to the consumer.
+	 *
+	 * @return the cursor of the backing dao the cached products are at.
+	 */
+	@Override
+	public ChangeCursor streamProducts(Consumer<Product> consumer)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		return table.read(consumer);
+	}
+
+	/**
+	 * Reads the products appended to the backing database after the cursor and
+	 * passes them to the consumer, applying them to the cached table when the
+	 * cursor is that of the table.
+	 *
+	 * @return the cursor following the appended products, null when the backing
+	 *         dao does not follow its appended records or every product has to be
+	 *         read again.
+	 */
+	@Override
+	public ChangeCursor streamAppendedProducts(ChangeCursor from, Consumer<Product> consumer)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of streamAppendedProducts() started");
+		List<Product> appended = new ArrayList<>();
+		ChangeCursor next;
+		synchronized (table) {
+			boolean atTable = from != null && from.equals(table.getCursor());
+			next = productDao.streamAppendedProducts(from, appended::add);
+			if (next != null && atTable) {
+				table.applyChanges(appended, Collections.<String>emptySet(), Product::getProductId, next);
+			}
+		}
+		if (next != null) {
+			appended.forEach(consumer);
+		}
+		LOGGER_OBJ.debug("execution of streamAppendedProducts() completed");
+		return next;
+	}
+
+	/**
+	 * Reads the products changed in the backing database after the cursor and
+	 * passes them on, applying them to the cached table when the cursor is that
+	 * of the table. Writes made through this dao are passed again, which leaves
+	 * the records of the reader as they are.
+	 *
+	 * @return the cursor following the changes, null when the backing dao does
+	 *         not track its changes.
+	 */
+	@Override
+	public ChangeCursor streamProductChanges(ChangeCursor from, Consumer<Product> changed,
+			Consumer<String> deletedIds)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of streamProductChanges() started");
+		List<Product> changedProducts = new ArrayList<>();
+		Set<String> deletedProductIds = new LinkedHashSet<>();
+		ChangeCursor next;
+		synchronized (table) {
+			boolean atTable = from != null && from.equals(table.getCursor());
+			next = productDao.streamProductChanges(from, changedProducts::add, deletedProductIds::add);
+			if (next != null && atTable) {
+				table.applyChanges(changedProducts, deletedProductIds, Product::getProductId, next);
+			}
+		}
+		if (next != null) {
+			deletedProductIds.forEach(deletedIds);
+			changedProducts.forEach(changed);
+		}
+		LOGGER_OBJ.debug("execution of streamProductChanges() completed");
+		return next;
+	}
+
+	@Override
+	public BatchInsertReport insertRecords(List<Product> products)
+			throws OperationNotSupportedException, DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of insertRecords() started");
+		synchronized (table) {
+			BatchInsertReport report = productDao.insertRecords(products);
+			Set<Integer> failedIndexes = new HashSet<>();
+			report.getFailures().forEach(failure -> failedIndexes.add(failure.getIndex()));
+			table.apply(cachedProducts -> {
+				for (int index = 0; index < products.size(); index++) {
+					if (!failedIndexes.contains(index)) {
+						cachedProducts.add(copyOf(products.get(index), products.get(index).getPrice()));
+					}
+				}
+			});
+			LOGGER_OBJ.debug("execution of insertRecords() completed");
+			return report;
+		}
+	}
+
+	@Override
+	public void insertProduct(Product product)
+			throws OperationNotSupportedException, DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of insertProduct() started");
+		synchronized (table) {
+			productDao.insertProduct(product);
+			Product inserted = copyOf(product, product.getPrice());
+			table.apply(cachedProducts -> cachedProducts.add(inserted));
+		}
+		LOGGER_OBJ.debug("execution of insertProduct() completed");
+	}
+
+	@Override
+	public void deleteProduct(Product product)
+			throws OperationNotSupportedException, DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of deleteProduct() started");
+		synchronized (table) {
+			productDao.deleteProduct(product);
+			table.apply(cachedProducts -> cachedProducts
+					.removeIf(cached -> cached.getProductId().equals(product.getProductId())));
+		}
+		LOGGER_OBJ.debug("execution of deleteProduct() completed");
+	}
+
+	@Override
+	public void updateProduct(Product product, int price)
+			throws OperationNotSupportedException, DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of updateProduct() started");
+		synchronized (table) {
+			productDao.updateProduct(product, price);
+			table.apply(cachedProducts -> cachedProducts
+					.replaceAll(cached -> cached.getProductId().equals(product.getProductId())
+							? copyOf(cached, price)
+							: cached));
+		}
+		LOGGER_OBJ.debug("execution of updateProduct() completed");
+	}
+
+	/**
+	 * Reloads the table from the backing dao.
+	 *
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on the database fails.
+	 * @throws InvalidDBRecordFormatException when the format of the database
+	 *                                        record is invalid.
+	 */
+	public void refresh() throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		table.refresh();
+	}
+
+	/**
+	 * Gives the number of times the table was read from the backing dao.
+	 *
+	 * @return the number of loads.
+	 */
+	public long getLoadCount() {
+		return table.getLoadCount();
+	}
+
+	/**
+	 * Stops the periodic refresh.
+	 */
+	@Override
+	public void close() {
+		table.close();
+	}
+
+	private static Product copyOf(Product product, int price) {
+		Product copy = new Product();
+		copy.setProductId(product.getProductId());
+		copy.setProductName(product.getProductName());
+		copy.setProductCategory(product.getProductCategory());
+		copy.setPrice(price);
+		copy.setAvailableCity(product.getAvailableCity());
+		return copy;
+	}
+
+}
@@ -0,0 +1,245 @@
+package com.reactiveworks.productservice.dao.caching;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.dao.BatchInsertReport;
+import com.reactiveworks.productservice.dao.ChangeCursor;
+import com.reactiveworks.productservice.dao.IUserDao;
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+import com.reactiveworks.productservice.db.exceptions.OperationNotSupportedException;
+import com.reactiveworks.productservice.model.User;
+
+/**
+ * User dao which keeps the table of another user dao in memory.
+ *
+ * The table is read from the backing dao once and all reads are served from
+ * memory. Writes go to the backing dao first and are applied to the cached
+ * table once it accepted them. Changes made to the backing database by others
+ * show up after the next refresh, periodic when a refresh period is given or on
+ * demand through {@link #refresh()}.
+ *
+ * The table is loaded with a streamUsers() read of the backing dao and
+ * keeps the cursor of that read, so a backing dao which tracks the changes of
+ * its table, or follows the records appended to it, gives them after that
+ * cursor. The cursors given by this dao are those of the backing dao: a reader
+ * follows the backing dao from its own cursor whatever the reloads of the
+ * table, and the changes read for a reader at the cursor of the table are
+ * also applied to the table.
+ *
+ * The cached users are shared between callers and must not be modified;
+ * changes go through the write methods.
+ */
+public class CachingUserDao implements IUserDao, AutoCloseable {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CachingUserDao.class");
+
+	private final IUserDao userDao;
+	private final CachedTable<User> table;
+
+	/**
+	 * Creates the dao over the given backing dao.
+	 *
+	 * @param userDao       dao the users are read from and written to.
+	 * @param refreshPeriod time between two reloads of the table, 0 or less to
+	 *                      load it only once.
+	 * @param unit          unit of the refresh period.
+	 */
+	public CachingUserDao(IUserDao userDao, long refreshPeriod, TimeUnit unit) {
+		this.userDao = userDao;
+		this.table = new CachedTable<>("user", users -> userDao.streamUsers(users::add), refreshPeriod, unit);
+	}
+
+	/**
+	 * Gives the dao the users are read from and written to.
+	 *
+	 * @return the backing dao.
+	 */
+	public IUserDao getUserDao() {
+		return userDao;
+	}
+
+	@Override
+	public List<User> getUsers() throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		return new ArrayList<>(table.get());
+	}
+
+	/**
+	 * Passes the cached users to the consumer.
+	 *
+	 * @return the cursor of the backing dao the cached users are at.
+	 */
+	@Override
+	public ChangeCursor streamUsers(Consumer<User> consumer)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		return table.read(consumer);
+	}
+
+	/**
+	 * Reads the users appended to the backing database after the cursor and
+	 * passes them to the consumer, applying them to the cached table when the
+	 * cursor is that of the table.
+	 *
+	 * @return the cursor following the appended users, null when the backing
+	 *         dao does not follow its appended records or every user has to be
+	 *         read again.
+	 */
+	@Override
+	public ChangeCursor streamAppendedUsers(ChangeCursor from, Consumer<User> consumer)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of streamAppendedUsers() started");
+		List<User> appended = new ArrayList<>();
+		ChangeCursor next;
+		synchronized (table) {
+			boolean atTable = from != null && from.equals(table.getCursor());
+			next = userDao.streamAppendedUsers(from, appended::add);
+			if (next != null && atTable) {
+				table.applyChanges(appended, Collections.<String>emptySet(), User::getUserId, next);
+			}
+		}
+		if (next != null) {
+			appended.forEach(consumer);
+		}
+		LOGGER_OBJ.debug("execution of streamAppendedUsers() completed");
+		return next;
+	}
+
+	/**
+	 * Reads the users changed in the backing database after the cursor and
+	 * passes them on, applying them to the cached table when the cursor is that
+	 * of the table. Writes made through this dao are passed again, which leaves
+	 * the records of the reader as they are.
+	 *
+	 * @return the cursor following the changes, null when the backing dao does
+	 *         not track its changes.
+	 */
+	@Override
+	public ChangeCursor streamUserChanges(ChangeCursor from, Consumer<User> changed,
+			Consumer<String> deletedIds)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of streamUserChanges() started");
+		List<User> changedUsers = new ArrayList<>();
+		Set<String> deletedUserIds = new LinkedHashSet<>();
+		ChangeCursor next;
+		synchronized (table) {
+			boolean atTable = from != null && from.equals(table.getCursor());
+			next = userDao.streamUserChanges(from, changedUsers::add, deletedUserIds::add);
+			if (next != null && atTable) {
+				table.applyChanges(changedUsers, deletedUserIds, User::getUserId, next);
+			}
+		}
+		if (next != null) {
+			deletedUserIds.forEach(deletedIds);
+			changedUsers.forEach(changed);
+		}
+		LOGGER_OBJ.debug("execution of streamUserChanges() completed");
+		return next;
+	}
+
+	@Override
+	public BatchInsertReport insertRecords(List<User> users)
+			throws OperationNotSupportedException, DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of insertRecords() started");
+		synchronized (table) {
+			BatchInsertReport report = userDao.insertRecords(users);
+			Set<Integer> failedIndexes = new HashSet<>();
+			report.getFailures().forEach(failure -> failedIndexes.add(failure.getIndex()));
+			table.apply(cachedUsers -> {
+				for (int index = 0; index < users.size(); index++) {
+					if (!failedIndexes.contains(index)) {
+						cachedUsers.add(copyOf(users.get(index), users.get(index).getPhoneNumber()));
+					}
+				}
+			});
+			LOGGER_OBJ.debug("execution of insertRecords() completed");
+			return report;
+		}
+	}
+
+	@Override
+	public void insertUser(User user)
+			throws OperationNotSupportedException, DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of insertUser() started");
+		synchronized (table) {
+			userDao.insertUser(user);
+			User inserted = copyOf(user, user.getPhoneNumber());
+			table.apply(cachedUsers -> cachedUsers.add(inserted));
+		}
+		LOGGER_OBJ.debug("execution of insertUser() completed");
+	}
+
+	@Override
+	public void deleteUser(User user)
+			throws OperationNotSupportedException, DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of deleteUser() started");
+		synchronized (table) {
+			userDao.deleteUser(user);
+			table.apply(cachedUsers -> cachedUsers.removeIf(cached -> cached.getUserId().equals(user.getUserId())));
+		}
+		LOGGER_OBJ.debug("execution of deleteUser() completed");
+	}
+
+	@Override
+	public void updateUser(User user, String phoneNumber)
+			throws OperationNotSupportedException, DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of updateUser() started");
+		synchronized (table) {
+			userDao.updateUser(user, phoneNumber);
+			table.apply(cachedUsers -> cachedUsers
+					.replaceAll(cached -> cached.getUserId().equals(user.getUserId())
+							? copyOf(cached, phoneNumber)
+							: cached));
+		}
+		LOGGER_OBJ.debug("execution of updateUser() completed");
+	}
+
+	/**
+	 * Reloads the table from the backing dao.
+	 *
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on the database fails.
+	 * @throws InvalidDBRecordFormatException when the format of the database
+	 *                                        record is invalid.
+	 */
+	public void refresh() throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		table.refresh();
+	}
+
+	/**
+	 * Gives the number of times the table was read from the backing dao.
+	 *
+	 * @return the number of loads.
+	 */
+	public long getLoadCount() {
+		return table.getLoadCount();
+	}
+
+	/**
+	 * Stops the periodic refresh.
+	 */
+	@Override
+	public void close() {
+		table.close();
+	}
+
+	private static User copyOf(User user, String phoneNumber) {
+		User copy = new User();
+		copy.setUserId(user.getUserId());
+		copy.setUserName(user.getUserName());
+		copy.setEmail(user.getEmail());
+		copy.setPhoneNumber(phoneNumber);
+		copy.setCity(user.getCity());
+		return copy;
+	}
+
+}
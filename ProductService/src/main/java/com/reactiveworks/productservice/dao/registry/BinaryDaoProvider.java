@@ -0,0 +1,43 @@
+package com.reactiveworks.productservice.dao.registry;
+
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import com.reactiveworks.productservice.dao.IProductDao;
+import com.reactiveworks.productservice.dao.IUserDao;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoBinaryImpl;
+
+/**
+ * Provider of the product dao over a binary catalog compiled by
+ * BinaryCatalogWriter, dbtype binary. The users are read from the CSV files,
+ * the binary catalog holds only products.
+ */
+public class BinaryDaoProvider implements IDaoProvider {
+
+	private static final String BINARY_FILE = "binaryfile";
+	private static final String DEFAULT_BINARY_FILE = "Product.bin";
+
+	@Override
+	public String getType() {
+		return "binary";
+	}
+
+	/**
+	 * Creates the binary catalog dao over the file configured by the binaryfile
+	 * property, Product.bin of the working directory by default.
+	 */
+	@Override
+	public IProductDao createProductDao(Properties properties) {
+		String binaryFile = properties.getProperty(BINARY_FILE);
+		if (binaryFile == null || binaryFile.trim().isEmpty()) {
+			binaryFile = DEFAULT_BINARY_FILE;
+		}
+		return new ProductDaoBinaryImpl(Paths.get(binaryFile.trim()));
+	}
+
+	@Override
+	public IUserDao createUserDao(Properties properties) {
+		return new CsvDaoProvider().createUserDao(properties);
+	}
+
+}
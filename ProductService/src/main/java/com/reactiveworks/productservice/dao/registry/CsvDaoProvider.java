@@ -0,0 +1,80 @@
+package com.reactiveworks.productservice.dao.registry;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.dao.IProductDao;
+import com.reactiveworks.productservice.dao.IUserDao;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoCSVImpl;
+import com.reactiveworks.productservice.user.dao.implementation.UserDaoCSVImpl;
+
+/**
+ * Provider of the daos over the CSV files, dbtype csv.
+ */
+public class CsvDaoProvider implements IDaoProvider {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CsvDaoProvider.class");
+	static final String TYPE = "csv";
+	private static final String PRODUCT_FILE = "productfile";
+	private static final String USER_FILE = "userfile";
+	private static final String CSV_PARALLELISM = "csvparallelism";
+	private static final String CSV_FOLLOW = "csvfollow";
+
+	@Override
+	public String getType() {
+		return TYPE;
+	}
+
+	/**
+	 * Creates the CSV dao over the file configured by the productfile property, or
+	 * over the classpath resource when no file is configured, with the parallelism
+	 * of the csvparallelism property, following the file when csvfollow is true.
+	 */
+	@Override
+	public IProductDao createProductDao(Properties properties) {
+		return new ProductDaoCSVImpl(getPath(properties, PRODUCT_FILE), getCsvParallelism(properties),
+				isFollowed(properties));
+	}
+
+	/**
+	 * Creates the CSV dao over the file configured by the userfile property, or
+	 * over the classpath resource when no file is configured, with the parallelism
+	 * of the csvparallelism property, following the file when csvfollow is true.
+	 */
+	@Override
+	public IUserDao createUserDao(Properties properties) {
+		return new UserDaoCSVImpl(getPath(properties, USER_FILE), getCsvParallelism(properties),
+				isFollowed(properties));
+	}
+
+	private static Path getPath(Properties properties, String property) {
+		String csvFile = properties.getProperty(property);
+		return csvFile != null && !csvFile.trim().isEmpty() ? Paths.get(csvFile.trim()) : null;
+	}
+
+	private static boolean isFollowed(Properties properties) {
+		return Boolean.parseBoolean(properties.getProperty(CSV_FOLLOW, "false").trim());
+	}
+
+	/**
+	 * Reads the csvparallelism property: 0 stands for the number of processors,
+	 * 1 or an absent value for a sequential read.
+	 */
+	private static int getCsvParallelism(Properties properties) {
+		String parallelism = properties.getProperty(CSV_PARALLELISM);
+		if (parallelism == null || parallelism.trim().isEmpty()) {
+			return 1;
+		}
+		try {
+			int value = Integer.parseInt(parallelism.trim());
+			return value <= 0 ? Runtime.getRuntime().availableProcessors() : value;
+		} catch (NumberFormatException exp) {
+			LOGGER_OBJ.error("format of " + CSV_PARALLELISM + " property is invalid, reading sequentially");
+			return 1;
+		}
+	}
+
+}
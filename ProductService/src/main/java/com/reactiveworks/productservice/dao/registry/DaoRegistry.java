@@ -0,0 +1,235 @@
+package com.reactiveworks.productservice.dao.registry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.dao.IProductDao;
+import com.reactiveworks.productservice.dao.IUserDao;
+import com.reactiveworks.productservice.dao.caching.CachingProductDao;
+import com.reactiveworks.productservice.dao.caching.CachingUserDao;
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+
+/**
+ * Registry of the product and user daos of every backend.
+ *
+ * The backends are the {@link IDaoProvider}s found by the ServiceLoader, keyed
+ * by their dbtype, so a new backend is added by listing its provider in
+ * META-INF/services without changing the registry. The dao of each backend is
+ * created once, on first request, and shared by every caller until the
+ * registry is closed; when the daocache property is true it is wrapped in a
+ * caching dao. A dao which tracks what its reader has read, following CSV
+ * files or the changes in MySQL, serves a single catalog.
+ *
+ * The shared registry reads dbtype.properties once, its properties are never
+ * modified afterwards.
+ */
+public final class DaoRegistry implements AutoCloseable {
+
+	private static final String PROPERTY_FILE = "dbtype.properties";
+	private static final Logger LOGGER_OBJ = Logger.getLogger("DaoRegistry.class");
+	private static final String DB_TYPE = "dbtype";
+	private static final String DAO_CACHE = "daocache";
+	private static final String DAO_CACHE_REFRESH_SECONDS = "daocacherefreshseconds";
+
+	private static DaoRegistry instance;
+
+	private final Properties properties;
+	private final Map<String, IDaoProvider> providers = new TreeMap<>();
+	private final Map<String, IProductDao> productDaos = new ConcurrentHashMap<>();
+	private final Map<String, IUserDao> userDaos = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates the registry of the providers found by the ServiceLoader, with the
+	 * given properties.
+	 *
+	 * @param properties properties of the backends, as in dbtype.properties.
+	 */
+	public DaoRegistry(Properties properties) {
+		this.properties = new Properties();
+		this.properties.putAll(properties);
+		for (IDaoProvider provider : ServiceLoader.load(IDaoProvider.class, DaoRegistry.class.getClassLoader())) {
+			providers.putIfAbsent(normalizeType(provider.getType()), provider);
+		}
+		LOGGER_OBJ.info("dao backends " + providers.keySet());
+	}
+
+	/**
+	 * Gives the registry shared by the service, configured by dbtype.properties.
+	 *
+	 * @return the shared registry.
+	 * @throws DBOperationFailureException when dbtype.properties cannot be read.
+	 */
+	public static synchronized DaoRegistry getInstance() throws DBOperationFailureException {
+		if (instance == null) {
+			instance = new DaoRegistry(loadProperties());
+		}
+		return instance;
+	}
+
+	/**
+	 * Gives the dbtypes of the registered backends.
+	 *
+	 * @return the sorted dbtypes.
+	 */
+	public Set<String> getTypes() {
+		return Collections.unmodifiableSet(providers.keySet());
+	}
+
+	/**
+	 * Gives the dbtype configured by the dbtype property, csv when it is absent.
+	 *
+	 * @return the configured dbtype.
+	 */
+	public String getType() {
+		return normalizeType(properties.getProperty(DB_TYPE, CsvDaoProvider.TYPE));
+	}
+
+	/**
+	 * Gives the product dao of the configured dbtype.
+	 *
+	 * @return the shared product dao.
+	 */
+	public IProductDao getProductDao() {
+		return getProductDao(getType());
+	}
+
+	/**
+	 * Gives the product dao of the given dbtype, the CSV dao when no backend has
+	 * that type.
+	 *
+	 * @param dbType type of the backend.
+	 * @return the shared product dao.
+	 */
+	public IProductDao getProductDao(String dbType) {
+		LOGGER_OBJ.debug("execution of getProductDao() started");
+		IProductDao productDao = productDaos.computeIfAbsent(getProvider(dbType).getType(), type -> {
+			IProductDao created = getProvider(type).createProductDao(properties);
+			return isCached() ? new CachingProductDao(created, getCacheRefreshSeconds(), TimeUnit.SECONDS) : created;
+		});
+		LOGGER_OBJ.debug("execution of getProductDao() completed");
+		return productDao;
+	}
+
+	/**
+	 * Gives the user dao of the configured dbtype.
+	 *
+	 * @return the shared user dao.
+	 */
+	public IUserDao getUserDao() {
+		return getUserDao(getType());
+	}
+
+	/**
+	 * Gives the user dao of the given dbtype, the CSV dao when no backend has
+	 * that type.
+	 *
+	 * @param dbType type of the backend.
+	 * @return the shared user dao.
+	 */
+	public IUserDao getUserDao(String dbType) {
+		LOGGER_OBJ.debug("execution of getUserDao() started");
+		IUserDao userDao = userDaos.computeIfAbsent(getProvider(dbType).getType(), type -> {
+			IUserDao created = getProvider(type).createUserDao(properties);
+			return isCached() ? new CachingUserDao(created, getCacheRefreshSeconds(), TimeUnit.SECONDS) : created;
+		});
+		LOGGER_OBJ.debug("execution of getUserDao() completed");
+		return userDao;
+	}
+
+	/**
+	 * Closes the daos which hold resources, the caching daos stop their refresh,
+	 * and forgets all the daos, so the next request creates new ones.
+	 */
+	@Override
+	public void close() {
+		LOGGER_OBJ.debug("execution of close() started");
+		for (Object dao : productDaos.values()) {
+			closeDao(dao);
+		}
+		for (Object dao : userDaos.values()) {
+			closeDao(dao);
+		}
+		productDaos.clear();
+		userDaos.clear();
+		LOGGER_OBJ.debug("execution of close() completed");
+	}
+
+	/**
+	 * Gives the provider of the dbtype, the CSV provider when there is none.
+	 */
+	private IDaoProvider getProvider(String dbType) {
+		IDaoProvider provider = providers.get(normalizeType(dbType));
+		if (provider == null) {
+			LOGGER_OBJ.error(dbType + " implementation does not exist, using " + CsvDaoProvider.TYPE);
+			provider = providers.get(CsvDaoProvider.TYPE);
+		}
+		return provider == null ? new CsvDaoProvider() : provider;
+	}
+
+	private boolean isCached() {
+		return Boolean.parseBoolean(properties.getProperty(DAO_CACHE, "false").trim());
+	}
+
+	/**
+	 * Reads the daocacherefreshseconds property, 0 or an absent value loads the
+	 * cached table only once.
+	 */
+	private long getCacheRefreshSeconds() {
+		String refreshSeconds = properties.getProperty(DAO_CACHE_REFRESH_SECONDS);
+		if (refreshSeconds == null || refreshSeconds.trim().isEmpty()) {
+			return 0;
+		}
+		try {
+			return Long.parseLong(refreshSeconds.trim());
+		} catch (NumberFormatException exp) {
+			LOGGER_OBJ.error("format of " + DAO_CACHE_REFRESH_SECONDS + " property is invalid, loading the cache once");
+			return 0;
+		}
+	}
+
+	private static void closeDao(Object dao) {
+		if (dao instanceof AutoCloseable) {
+			try {
+				((AutoCloseable) dao).close();
+			} catch (Exception exp) {
+				LOGGER_OBJ.warn("unable to close the dao " + dao + " " + exp.getMessage());
+			}
+		}
+	}
+
+	private static String normalizeType(String dbType) {
+		return dbType.trim().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Reads dbtype.properties.
+	 *
+	 * @throws DBOperationFailureException when the file cannot be read.
+	 */
+	private static Properties loadProperties() throws DBOperationFailureException {
+		try (InputStream input = DaoRegistry.class.getClassLoader().getResourceAsStream(PROPERTY_FILE)) {
+			Properties properties = new Properties();
+			if (input == null) {
+				LOGGER_OBJ.error("properties file " + PROPERTY_FILE + " not found");
+				throw new DBOperationFailureException("properties file " + PROPERTY_FILE + " not found");
+			}
+			properties.load(input);
+			return properties;
+		} catch (IOException exp) {
+			LOGGER_OBJ.error("not able to read the properties file " + PROPERTY_FILE);
+			throw new DBOperationFailureException("not able to read the file " + PROPERTY_FILE, exp);
+		}
+	}
+
+}
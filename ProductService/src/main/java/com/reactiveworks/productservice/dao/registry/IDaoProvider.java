@@ -0,0 +1,41 @@
+package com.reactiveworks.productservice.dao.registry;
+
+import java.util.Properties;
+
+import com.reactiveworks.productservice.dao.IProductDao;
+import com.reactiveworks.productservice.dao.IUserDao;
+
+/**
+ * Backend of the product and user daos, discovered by the {@link DaoRegistry}
+ * through the ServiceLoader. Providers are listed in
+ * META-INF/services/com.reactiveworks.productservice.dao.registry.IDaoProvider
+ * and selected by the dbtype property.
+ */
+public interface IDaoProvider {
+
+	/**
+	 * Gives the dbtype this provider is selected by.
+	 *
+	 * @return the lower case type.
+	 */
+	public String getType();
+
+	/**
+	 * Creates the product dao of this backend. The registry creates it once and
+	 * shares it.
+	 *
+	 * @param properties the properties of dbtype.properties.
+	 * @return the product dao.
+	 */
+	public IProductDao createProductDao(Properties properties);
+
+	/**
+	 * Creates the user dao of this backend. The registry creates it once and
+	 * shares it.
+	 *
+	 * @param properties the properties of dbtype.properties.
+	 * @return the user dao.
+	 */
+	public IUserDao createUserDao(Properties properties);
+
+}
@@ -0,0 +1,40 @@
+package com.reactiveworks.productservice.dao.registry;
+
+import java.util.Properties;
+
+import com.reactiveworks.productservice.dao.IProductDao;
+import com.reactiveworks.productservice.dao.IUserDao;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoInMemoryImpl;
+import com.reactiveworks.productservice.user.dao.implementation.UserDaoInMemoryImpl;
+
+/**
+ * Provider of the daos holding their tables in memory, dbtype inmemory. When
+ * the inmemoryseed property is true the tables are filled from the CSV files
+ * on first use, otherwise they start empty.
+ */
+public class InMemoryDaoProvider implements IDaoProvider {
+
+	private static final String IN_MEMORY_SEED = "inmemoryseed";
+
+	@Override
+	public String getType() {
+		return "inmemory";
+	}
+
+	@Override
+	public IProductDao createProductDao(Properties properties) {
+		IProductDao seedDao = isSeeded(properties) ? new CsvDaoProvider().createProductDao(properties) : null;
+		return new ProductDaoInMemoryImpl(seedDao);
+	}
+
+	@Override
+	public IUserDao createUserDao(Properties properties) {
+		IUserDao seedDao = isSeeded(properties) ? new CsvDaoProvider().createUserDao(properties) : null;
+		return new UserDaoInMemoryImpl(seedDao);
+	}
+
+	private static boolean isSeeded(Properties properties) {
+		return Boolean.parseBoolean(properties.getProperty(IN_MEMORY_SEED, "false").trim());
+	}
+
+}
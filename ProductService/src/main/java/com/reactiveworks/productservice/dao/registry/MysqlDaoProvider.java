@@ -0,0 +1,31 @@
+package com.reactiveworks.productservice.dao.registry;
+
+import java.util.Properties;
+
+import com.reactiveworks.productservice.dao.IProductDao;
+import com.reactiveworks.productservice.dao.IUserDao;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoMysqlImpl;
+import com.reactiveworks.productservice.user.dao.implementation.UserDaoMysqlImpl;
+
+/**
+ * Provider of the daos over the MySQL database of database.properties, dbtype
+ * mysql.
+ */
+public class MysqlDaoProvider implements IDaoProvider {
+
+	@Override
+	public String getType() {
+		return "mysql";
+	}
+
+	@Override
+	public IProductDao createProductDao(Properties properties) {
+		return new ProductDaoMysqlImpl();
+	}
+
+	@Override
+	public IUserDao createUserDao(Properties properties) {
+		return new UserDaoMysqlImpl();
+	}
+
+}
@@ -0,0 +1,245 @@
+package com.reactiveworks.productservice.db;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Function;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.dao.BatchInsertReport;
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+
+/**
+ * Inserts records with JDBC batches over a single pooled connection.
+ *
+ * The records are sent in chunks of the configured batch size and every chunk
+ * is its own transaction. When a chunk fails it is rolled back and its rows
+ * are inserted one by one, so that the good rows are kept and each bad row is
+ * reported with its reason. An optional transaction statement runs first in
+ * every transaction, for instance to take the next version of the tracked
+ * changes. Any other failure of a transaction rolls it back and ends the
+ * insert: the committed records stay inserted and the others are reported as
+ * failed.
+ *
+ * @param <T> type of the records.
+ */
+public class BatchInserter<T> {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("BatchInserter.class");
+	private static final int CONFIGURED_BATCH_SIZE = 0;
+
+	private final String transactionQuery;
+	private final String[] insertQueries;
+	private final BatchBinder<T> binder;
+	private final Function<T, String> idOf;
+	private final int batchSize;
+
+	/**
+	 * Adds the rows of one record to the batches of the insert statements, one
+	 * statement per table the record is stored in.
+	 *
+	 * @param <T> type of the records.
+	 */
+	@FunctionalInterface
+	public interface BatchBinder<T> {
+		public void addBatch(PreparedStatement[] statements, T record) throws SQLException;
+	}
+
+	/**
+	 * Creates the inserter with the batch size of database.properties, which
+	 * runs the transaction statement first in every transaction.
+	 * 
+	 * @param transactionQuery statement without parameters run at the start of
+	 *                         every transaction, or null for none.
+	 * @param insertQueries    insert statements of the tables, parent rows first.
+	 * @param binder           binder of the rows of a record.
+	 * @param idOf             id of a record, used in the failure report.
+	 */
+	public BatchInserter(String transactionQuery, String[] insertQueries, BatchBinder<T> binder,
+			Function<T, String> idOf) {
+		this(transactionQuery, insertQueries, binder, idOf, CONFIGURED_BATCH_SIZE);
+	}
+
+	/**
+	 * Creates the inserter which runs the transaction statement first in every
+	 * transaction. The insert statements are executed in the given order, so
+	 * parent rows go first.
+	 * 
+	 * @param transactionQuery statement without parameters run at the start of
+	 *                         every transaction, or null for none.
+	 * @param insertQueries    insert statements of the tables.
+	 * @param binder           binder of the rows of a record.
+	 * @param idOf             id of a record, used in the failure report.
+	 * @param batchSize        number of records per batch and transaction, 0 for
+	 *                         the batch size of database.properties.
+	 */
+	public BatchInserter(String transactionQuery, String[] insertQueries, BatchBinder<T> binder,
+			Function<T, String> idOf, int batchSize) {
+		this.transactionQuery = transactionQuery;
+		this.insertQueries = insertQueries.clone();
+		this.binder = binder;
+		this.idOf = idOf;
+		this.batchSize = Math.max(CONFIGURED_BATCH_SIZE, batchSize);
+	}
+
+	/**
+	 * Inserts the records.
+	 * 
+	 * @param records records to insert.
+	 * @return the report of inserted and failed records.
+	 * @throws DataBaseAccessException     when unable to access the database.
+	 * @throws DBOperationFailureException when operation on the database fails.
+	 */
+	public BatchInsertReport insert(List<T> records) throws DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of insert() started");
+		BatchInsertReport report = new BatchInsertReport();
+		Connection connection = null;
+		PreparedStatement[] statements = new PreparedStatement[insertQueries.length];
+		PreparedStatement transactionStatement = null;
+		boolean autoCommit = true;
+		try {
+			connection = DBUtil.getdbconnection();
+			autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			if (transactionQuery != null) {
+				transactionStatement = connection.prepareStatement(transactionQuery);
+				DBUtil.watchStatement(transactionStatement);
+			}
+			for (int i = 0; i < insertQueries.length; i++) {
+				statements[i] = connection.prepareStatement(insertQueries[i]);
+				DBUtil.watchStatement(statements[i]);
+			}
+			// the configured size is known once the pool has read database.properties
+			int chunkSize = batchSize == CONFIGURED_BATCH_SIZE ? Math.max(1, DBUtil.getBatchSize()) : batchSize;
+			for (int chunkStart = 0; chunkStart < records.size(); chunkStart += chunkSize) {
+				int chunkEnd = Math.min(chunkStart + chunkSize, records.size());
+				int processed = report.getInsertedCount() + report.getFailures().size();
+				try {
+					insertChunk(connection, transactionStatement, statements, records, chunkStart, chunkEnd, report);
+				} catch (SQLException exp) {
+					// the rows of the chunk are processed in order, each one inserted or failed
+					int next = chunkStart + report.getInsertedCount() + report.getFailures().size() - processed;
+					LOGGER_OBJ.error("batch insert stopped at record " + next + ", the later records are not inserted "
+							+ exp.getMessage());
+					for (int index = next; index < records.size(); index++) {
+						report.addFailure(index, idOf.apply(records.get(index)), exp.getMessage());
+					}
+					break;
+				}
+			}
+		} catch (SQLException exp) {
+			LOGGER_OBJ.error("unable to insert the records into the database");
+			throw new DataBaseAccessException("unable to insert the records into the database", exp);
+		} finally {
+			restoreAutoCommit(connection, autoCommit);
+			DBUtil.cleanupdbresources(null, transactionStatement, null);
+			for (int i = 1; i < statements.length; i++) {
+				DBUtil.cleanupdbresources(null, statements[i], null);
+			}
+			DBUtil.cleanupdbresources(null, statements[0], connection);
+		}
+		LOGGER_OBJ.info("batch insert completed " + report);
+		LOGGER_OBJ.debug("execution of insert() completed");
+		return report;
+	}
+
+	/**
+	 * Inserts the records of the chunk in one transaction, or one by one when the
+	 * batch fails. Any other failure rolls the transaction back and is thrown.
+	 */
+	private void insertChunk(Connection connection, PreparedStatement transactionStatement,
+			PreparedStatement[] statements, List<T> records, int chunkStart, int chunkEnd, BatchInsertReport report)
+			throws SQLException {
+		try {
+			beginTransaction(transactionStatement);
+			for (int index = chunkStart; index < chunkEnd; index++) {
+				binder.addBatch(statements, records.get(index));
+			}
+			executeBatches(statements);
+			connection.commit();
+			report.addInserted(chunkEnd - chunkStart);
+		} catch (BatchUpdateException exp) {
+			LOGGER_OBJ.warn("batch of records " + chunkStart + " to " + (chunkEnd - 1)
+					+ " failed, inserting its rows one by one " + exp.getMessage());
+			clearBatches(statements);
+			connection.rollback();
+			insertRowByRow(connection, transactionStatement, statements, records, chunkStart, chunkEnd, report);
+		} catch (SQLException exp) {
+			rollback(connection, statements);
+			throw exp;
+		}
+	}
+
+	private void insertRowByRow(Connection connection, PreparedStatement transactionStatement,
+			PreparedStatement[] statements, List<T> records, int chunkStart, int chunkEnd, BatchInsertReport report)
+			throws SQLException {
+		for (int index = chunkStart; index < chunkEnd; index++) {
+			T record = records.get(index);
+			try {
+				beginTransaction(transactionStatement);
+				binder.addBatch(statements, record);
+				executeBatches(statements);
+				connection.commit();
+				report.addInserted(1);
+			} catch (SQLException rowExp) {
+				report.addFailure(index, idOf.apply(record), rowExp.getMessage());
+				clearBatches(statements);
+				connection.rollback();
+			}
+		}
+	}
+
+	private static void beginTransaction(PreparedStatement transactionStatement) throws SQLException {
+		if (transactionStatement != null) {
+			transactionStatement.executeUpdate();
+		}
+	}
+
+	private static void executeBatches(PreparedStatement[] statements) throws SQLException {
+		for (PreparedStatement statement : statements) {
+			statement.executeBatch();
+		}
+	}
+
+	private static void clearBatches(PreparedStatement[] statements) throws SQLException {
+		for (PreparedStatement statement : statements) {
+			statement.clearBatch();
+		}
+	}
+
+	/**
+	 * Rolls back the failed transaction, so that restoring the auto commit mode
+	 * does not commit its executed statements.
+	 */
+	private static void rollback(Connection connection, PreparedStatement[] statements) {
+		try {
+			clearBatches(statements);
+			connection.rollback();
+		} catch (SQLException exp) {
+			LOGGER_OBJ.error("unable to roll back the failed batch " + exp.getMessage());
+		}
+	}
+
+	/**
+	 * Restores the auto commit mode of the connection once whatever was not
+	 * committed is rolled back, since switching auto commit on commits it.
+	 */
+	private static void restoreAutoCommit(Connection connection, boolean autoCommit) {
+		if (connection == null) {
+			return;
+		}
+		try {
+			if (!connection.getAutoCommit()) {
+				connection.rollback();
+			}
+			connection.setAutoCommit(autoCommit);
+		} catch (SQLException exp) {
+			LOGGER_OBJ.error("unable to restore the auto commit mode of the connection");
+		}
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.reactiveworks.productservice.db;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Deadline and cancellation of the database calls made for one request.
+ *
+ * The thread running the request binds the scope with {@link #bind(CancellationScope)}.
+ * Every statement the daos execute on that thread is registered through
+ * {@link DBUtil#watchStatement(Statement)}, which turns the time left until the
+ * deadline into the query timeout of the statement. Cancelling the scope from
+ * any thread cancels the statements which are running and fails the ones
+ * started afterwards, and long running loads can poll {@link #isCancelled()}.
+ */
+public final class CancellationScope {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CancellationScope.class");
+	private static final ThreadLocal<CancellationScope> CURRENT = new ThreadLocal<>();
+
+	private final long deadlineNanos;
+	private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+	private volatile boolean cancelled;
+
+	/**
+	 * Creates the scope.
+	 *
+	 * @param timeout time the request may take from now, 0 or less for no
+	 *                deadline.
+	 * @param unit    unit of the timeout.
+	 */
+	public CancellationScope(long timeout, TimeUnit unit) {
+		this.deadlineNanos = timeout > 0 ? System.nanoTime() + unit.toNanos(timeout) : 0;
+	}
+
+	/**
+	 * Gives the scope bound to the current thread.
+	 *
+	 * @return the current scope, or null when none is bound.
+	 */
+	public static CancellationScope current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Binds the scope to the current thread.
+	 *
+	 * @param scope scope to bind, null to unbind.
+	 * @return the scope which was bound before, to be bound again once the
+	 *         request completes.
+	 */
+	public static CancellationScope bind(CancellationScope scope) {
+		CancellationScope previous = CURRENT.get();
+		if (scope == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(scope);
+		}
+		return previous;
+	}
+
+	/**
+	 * Cancels the scope and the statements which are running in it.
+	 */
+	public void cancel() {
+		cancelled = true;
+		for (Statement statement : statements) {
+			cancelStatement(statement);
+		}
+	}
+
+	/**
+	 * Tells whether the scope was cancelled.
+	 *
+	 * @return true once {@link #cancel()} was called.
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	void register(Statement statement) throws SQLException {
+		if (cancelled) {
+			throw new SQLException("request was cancelled before the statement ran");
+		}
+		if (deadlineNanos != 0) {
+			long remainingNanos = deadlineNanos - System.nanoTime();
+			if (remainingNanos <= 0) {
+				throw new SQLTimeoutException("request deadline passed before the statement ran");
+			}
+			long remainingSeconds = (remainingNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+			statement.setQueryTimeout((int) Math.min(Integer.MAX_VALUE, remainingSeconds));
+		} else {
+			statement.setQueryTimeout(0);
+		}
+		statements.add(statement);
+		if (cancelled) {
+			cancelStatement(statement);
+		}
+	}
+
+	void unregister(Statement statement) {
+		statements.remove(statement);
+	}
+
+	private static void cancelStatement(Statement statement) {
+		try {
+			statement.cancel();
+		} catch (SQLException exp) {
+			LOGGER_OBJ.error("unable to cancel the statement " + exp);
+		}
+	}
+
+}
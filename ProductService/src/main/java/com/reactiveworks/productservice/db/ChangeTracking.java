@@ -0,0 +1,159 @@
+package com.reactiveworks.productservice.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+
+/**
+ * Versions the writes to the productuser database so that readers can fetch
+ * only the rows changed since the version they last read.
+ *
+ * Every write runs in a transaction which first increments the single row of
+ * catalog_version and then stamps the rows it inserts or updates, and a
+ * tombstone row for each key it deletes, with the incremented version. The
+ * increment keeps the row locked until the commit, so the writes commit one
+ * after another in version order: once a reader sees a version, every write
+ * of that version or below is committed, and the rows of the versions above
+ * the version of the reader's cursor up to that version are all the changes it
+ * missed.
+ */
+public final class ChangeTracking {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("ChangeTracking.class");
+	private static final String SELECT_VERSION_QUERY = "SELECT version FROM catalog_version WHERE id=1;";
+
+	/** increments the version, to run first in the transaction of a write. */
+	public static final String NEXT_VERSION_QUERY = "UPDATE catalog_version SET version=version+1 WHERE id=1;";
+	/** subquery giving the version of the current write, to stamp on its rows. */
+	public static final String CURRENT_VERSION = "(SELECT version FROM catalog_version WHERE id=1)";
+	/** version of a database whose changes are not tracked. */
+	public static final long UNTRACKED = -1;
+
+	/**
+	 * Work of a versioned write, run in its transaction.
+	 */
+	@FunctionalInterface
+	public interface VersionedWork {
+		public void run(Connection connection) throws SQLException;
+	}
+
+	private ChangeTracking() {
+
+	}
+
+	/**
+	 * Gives the version of the last committed write.
+	 *
+	 * @return the version, or UNTRACKED when the database has no catalog_version
+	 *         table or it cannot be read.
+	 */
+	public static long getCurrentVersion() {
+		LOGGER_OBJ.debug("execution of getCurrentVersion() started");
+		ResultSet res = null;
+		Connection connection = null;
+		PreparedStatement statement = null;
+		long version = UNTRACKED;
+		try {
+			connection = DBUtil.getdbconnection();
+			statement = connection.prepareStatement(SELECT_VERSION_QUERY);
+			DBUtil.watchStatement(statement);
+			res = statement.executeQuery();
+			if (res.next()) {
+				version = res.getLong(1);
+			} else {
+				LOGGER_OBJ.warn("catalog_version has no row, changes are not tracked");
+			}
+		} catch (SQLException | DataBaseAccessException | DBOperationFailureException exp) {
+			LOGGER_OBJ.warn("unable to read catalog_version, changes are not tracked " + exp.getMessage());
+		} finally {
+			DBUtil.cleanupdbresources(res, statement, connection);
+		}
+		LOGGER_OBJ.debug("execution of getCurrentVersion() completed");
+		return version;
+	}
+
+	/**
+	 * Runs the work as one transaction of the next version. The connection is
+	 * left in its auto commit mode; the transaction is rolled back when the work
+	 * fails.
+	 *
+	 * @param connection connection to run the work on.
+	 * @param work       statements of the write.
+	 * @throws SQLException when the version cannot be taken or the work fails.
+	 */
+	public static void runVersioned(Connection connection, VersionedWork work) throws SQLException {
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try {
+			nextVersion(connection);
+			work.run(connection);
+			connection.commit();
+		} catch (SQLException | RuntimeException exp) {
+			connection.rollback();
+			throw exp;
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
+	/**
+	 * Increments the version in the transaction of the connection.
+	 *
+	 * @param connection connection of the write, not in auto commit mode.
+	 * @throws SQLException when catalog_version cannot be updated.
+	 */
+	public static void nextVersion(Connection connection) throws SQLException {
+		PreparedStatement statement = connection.prepareStatement(NEXT_VERSION_QUERY);
+		try {
+			DBUtil.watchStatement(statement);
+			if (statement.executeUpdate() != 1) {
+				throw new SQLException("catalog_version has no row with id 1");
+			}
+		} finally {
+			DBUtil.cleanupdbresources(null, statement, null);
+		}
+	}
+
+	/**
+	 * Passes to the consumer the keys read by the query, which selects one
+	 * column between two versions: those above the first and up to the second.
+	 *
+	 * @param query    select query of the keys.
+	 * @param from     version already read.
+	 * @param to       last version to read.
+	 * @param consumer consumer of the keys.
+	 * @throws DataBaseAccessException     when unable to access the database.
+	 * @throws DBOperationFailureException when operation on the database fails.
+	 */
+	public static void streamKeys(String query, long from, long to, Consumer<String> consumer)
+			throws DataBaseAccessException, DBOperationFailureException {
+		ResultSet res = null;
+		Connection connection = null;
+		PreparedStatement statement = null;
+		try {
+			connection = DBUtil.getdbconnection();
+			statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			DBUtil.watchStatement(statement);
+			statement.setFetchSize(DBUtil.getFetchSize());
+			statement.setLong(1, from);
+			statement.setLong(2, to);
+			res = statement.executeQuery();
+			while (res.next()) {
+				consumer.accept(res.getString(1));
+			}
+		} catch (SQLException exp) {
+			LOGGER_OBJ.error("unable to read the keys changed after version " + from);
+			throw new DataBaseAccessException("unable to read the keys changed after version " + from, exp);
+		} finally {
+			DBUtil.cleanupdbresources(res, statement, connection);
+		}
+	}
+
+}
@@ -2,11 +2,16 @@ package com.reactiveworks.productservice.db;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Properties;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.commons.dbcp2.BasicDataSource;
 
@@ -22,63 +27,228 @@ public class DBUtil {
 
 	private static final Logger LOGGER_OBJ = Logger.getLogger("DBUtil.class");
 	private static final String PROPERTY_FILE = "database.properties";
+	private static final String PROPERTY_FILE_OVERRIDE = "productservice.database.properties";
 	private static final String URL = "url";
 	private static final String USER_NAME = "username";
 	private static final String PASSWORD = "password";
+	private static final String DRIVER_CLASS_NAME = "driver.class.name";
 	private static final String MIN_IDLE_INDEX = "minidleindex";
 	private static final String MAX_IDLE_INDEX = "maxidleindex";
-	private static BasicDataSource dataSource = null;
+	private static final String INITIAL_SIZE = "initialsize";
+	private static final String MAX_TOTAL = "maxtotal";
+	private static final String MAX_WAIT_MILLIS = "maxwaitmillis";
+	private static final String VALIDATION_QUERY = "validationquery";
+	private static final String VALIDATION_TIMEOUT = "validationtimeoutseconds";
+	private static final String TEST_ON_BORROW = "testonborrow";
+	private static final String TEST_WHILE_IDLE = "testwhileidle";
+	private static final String EVICTION_RUN_MILLIS = "evictionrunmillis";
+	private static final String POOL_PREPARED_STATEMENTS = "poolpreparedstatements";
+	private static final String MAX_OPEN_PREPARED_STATEMENTS = "maxopenpreparedstatements";
+	private static final String FETCH_SIZE = "fetchsize";
+	private static final String BATCH_SIZE = "batchsize";
+	private static final int DEFAULT_MAX_TOTAL = 50;
+	private static final long DEFAULT_MAX_WAIT_MILLIS = 30000;
+	private static final int DEFAULT_FETCH_SIZE = 1000;
+	private static final int DEFAULT_BATCH_SIZE = 1000;
+	private static final Object INIT_LOCK = new Object();
+	private static final LongAdder BORROW_COUNT = new LongAdder();
+	private static final LongAdder BORROW_WAIT_NANOS = new LongAdder();
+	private static final LongAccumulator MAX_BORROW_WAIT_NANOS = new LongAccumulator(Long::max, 0);
+	private static volatile BasicDataSource dataSource = null;
+	private static volatile int fetchSize = DEFAULT_FETCH_SIZE;
+	private static volatile int batchSize = DEFAULT_BATCH_SIZE;
 
 	private DBUtil() {
 
 	}
 
 	/**
-	 * Gets the connection object from the connection pool.
+	 * Gets the connection object from the connection pool. The pool is created
+	 * once, on the first call; afterwards a checkout takes no lock of DBUtil and
+	 * only waits on the pool itself.
 	 * 
 	 * @return the connection object from the connection pool.
 	 * @throws DataBaseAccessException     when there is problem in accessing
 	 *                                     stocktrade data from the database.
 	 * @throws DBOperationFailureException when operation on database fails.
 	 */
-	public static synchronized Connection getdbconnection()
-			throws DataBaseAccessException, DBOperationFailureException {
+	public static Connection getdbconnection() throws DataBaseAccessException, DBOperationFailureException {
 		LOGGER_OBJ.debug("execution of getdbconnection() started");
 		Connection connection = null;
-		if (dataSource == null) {
-			dataSource = new BasicDataSource();
-			try (InputStream input = DBUtil.class.getClassLoader().getResourceAsStream(PROPERTY_FILE)) {
-
-				Properties properties = new Properties();
-				properties.load(input);
-				dataSource.setUrl(properties.getProperty(URL));
-				dataSource.setUsername(properties.getProperty(USER_NAME));
-				dataSource.setPassword(properties.getProperty(PASSWORD));
-				dataSource.setMinIdle(Integer.parseInt(properties.getProperty(MIN_IDLE_INDEX)));
-				dataSource.setMaxOpenPreparedStatements(Integer.parseInt(properties.getProperty(MAX_IDLE_INDEX)));
-
-			} catch (IOException exp) {
-				LOGGER_OBJ.error("not able to read the properties file " + PROPERTY_FILE);
-				throw new DBOperationFailureException("not able to read the file " + PROPERTY_FILE, exp);
-			} catch (NumberFormatException exp) {
-				LOGGER_OBJ.error("format of dataSource property is invalid .");
-				throw new DataBaseAccessException("format of dataSource property is invalid  " + exp);
-			}
-
+		BasicDataSource pool = dataSource;
+		if (pool == null) {
+			pool = initDataSource();
 		}
-
+		long borrowStart = System.nanoTime();
 		try {
 
-			connection = dataSource.getConnection();
+			connection = pool.getConnection();
 
 		} catch (SQLException exp) {
 			LOGGER_OBJ.error(" unable to access the stocktrade database ");
 			throw new DataBaseAccessException("unable to access the stocktrade database " + exp);
+		} finally {
+			long waitNanos = System.nanoTime() - borrowStart;
+			BORROW_COUNT.increment();
+			BORROW_WAIT_NANOS.add(waitNanos);
+			MAX_BORROW_WAIT_NANOS.accumulate(waitNanos);
 		}
 		LOGGER_OBJ.debug("execution of getdbconnection() completed");
 		return connection;
 	}
 
+	/**
+	 * Gives the live statistics of the connection pool.
+	 * 
+	 * @return the statistics, all zero when the pool is not created yet.
+	 */
+	public static PoolStatistics getPoolStatistics() {
+		BasicDataSource pool = dataSource;
+		if (pool == null) {
+			return new PoolStatistics(0, 0, 0, 0, 0, 0);
+		}
+		return new PoolStatistics(pool.getNumActive(), pool.getNumIdle(), pool.getMaxTotal(), BORROW_COUNT.sum(),
+				BORROW_WAIT_NANOS.sum(), MAX_BORROW_WAIT_NANOS.get());
+	}
+
+	/**
+	 * Creates the pool unless another thread already did.
+	 */
+	private static BasicDataSource initDataSource() throws DataBaseAccessException, DBOperationFailureException {
+		synchronized (INIT_LOCK) {
+			if (dataSource == null) {
+				dataSource = createDataSource();
+			}
+			return dataSource;
+		}
+	}
+
+	/**
+	 * Creates the pool configured by database.properties, or by the file named
+	 * by the productservice.database.properties system property.
+	 */
+	private static BasicDataSource createDataSource() throws DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of createDataSource() started");
+		BasicDataSource pool = new BasicDataSource();
+		try (InputStream input = openProperties()) {
+
+			Properties properties = new Properties();
+			properties.load(input);
+			String driverClassName = properties.getProperty(DRIVER_CLASS_NAME);
+			if (driverClassName != null && !driverClassName.trim().isEmpty()) {
+				pool.setDriverClassName(driverClassName.trim());
+			}
+			pool.setUrl(properties.getProperty(URL));
+			pool.setUsername(properties.getProperty(USER_NAME));
+			pool.setPassword(properties.getProperty(PASSWORD));
+			pool.setInitialSize(intProperty(properties, INITIAL_SIZE, 0));
+			pool.setMinIdle(intProperty(properties, MIN_IDLE_INDEX, 0));
+			pool.setMaxIdle(intProperty(properties, MAX_IDLE_INDEX, DEFAULT_MAX_TOTAL));
+			pool.setMaxTotal(intProperty(properties, MAX_TOTAL, DEFAULT_MAX_TOTAL));
+			pool.setMaxWaitMillis(longProperty(properties, MAX_WAIT_MILLIS, DEFAULT_MAX_WAIT_MILLIS));
+			String validationQuery = properties.getProperty(VALIDATION_QUERY);
+			if (validationQuery != null && !validationQuery.trim().isEmpty()) {
+				pool.setValidationQuery(validationQuery.trim());
+				pool.setValidationQueryTimeout(intProperty(properties, VALIDATION_TIMEOUT, -1));
+			}
+			pool.setTestOnBorrow(booleanProperty(properties, TEST_ON_BORROW, true));
+			pool.setTestWhileIdle(booleanProperty(properties, TEST_WHILE_IDLE, false));
+			pool.setTimeBetweenEvictionRunsMillis(longProperty(properties, EVICTION_RUN_MILLIS, -1));
+			pool.setPoolPreparedStatements(booleanProperty(properties, POOL_PREPARED_STATEMENTS, false));
+			pool.setMaxOpenPreparedStatements(intProperty(properties, MAX_OPEN_PREPARED_STATEMENTS, -1));
+			int configuredFetchSize = intProperty(properties, FETCH_SIZE, DEFAULT_FETCH_SIZE);
+			fetchSize = configuredFetchSize < 0 ? Integer.MIN_VALUE : configuredFetchSize;
+			batchSize = intProperty(properties, BATCH_SIZE, DEFAULT_BATCH_SIZE);
+
+		} catch (IOException exp) {
+			LOGGER_OBJ.error("not able to read the properties file " + PROPERTY_FILE);
+			throw new DBOperationFailureException("not able to read the file " + PROPERTY_FILE, exp);
+		} catch (NumberFormatException exp) {
+			LOGGER_OBJ.error("format of dataSource property is invalid .");
+			throw new DataBaseAccessException("format of dataSource property is invalid  " + exp);
+		}
+		LOGGER_OBJ.info("connection pool created with maxTotal " + pool.getMaxTotal() + " and maxWaitMillis "
+				+ pool.getMaxWaitMillis());
+		LOGGER_OBJ.debug("execution of createDataSource() completed");
+		return pool;
+	}
+
+	/**
+	 * Opens the file named by the productservice.database.properties system
+	 * property when it is set, otherwise database.properties of the classpath.
+	 */
+	private static InputStream openProperties() throws IOException {
+		String overrideFile = System.getProperty(PROPERTY_FILE_OVERRIDE);
+		if (overrideFile != null && !overrideFile.trim().isEmpty()) {
+			LOGGER_OBJ.info("reading the database properties from " + overrideFile);
+			return Files.newInputStream(Paths.get(overrideFile.trim()));
+		}
+		InputStream input = DBUtil.class.getClassLoader().getResourceAsStream(PROPERTY_FILE);
+		if (input == null) {
+			throw new IOException(PROPERTY_FILE + " not found on the classpath");
+		}
+		return input;
+	}
+
+	private static int intProperty(Properties properties, String key, int defaultValue) {
+		String value = properties.getProperty(key);
+		return value == null || value.trim().isEmpty() ? defaultValue : Integer.parseInt(value.trim());
+	}
+
+	private static long longProperty(Properties properties, String key, long defaultValue) {
+		String value = properties.getProperty(key);
+		return value == null || value.trim().isEmpty() ? defaultValue : Long.parseLong(value.trim());
+	}
+
+	private static boolean booleanProperty(Properties properties, String key, boolean defaultValue) {
+		String value = properties.getProperty(key);
+		return value == null || value.trim().isEmpty() ? defaultValue : Boolean.parseBoolean(value.trim());
+	}
+
+	/**
+	 * Gives the number of rows fetched from the database per round trip by the
+	 * streaming reads. A negative value of the fetchsize property asks the MySQL
+	 * driver to stream row by row; a positive value needs useCursorFetch=true in
+	 * the url.
+	 * 
+	 * @return the fetch size to set on the statements.
+	 */
+	public static int getFetchSize() {
+		return fetchSize;
+	}
+
+	/**
+	 * Gives the number of rows sent per JDBC batch and committed per transaction
+	 * by the bulk inserts. The value is read when the pool is created.
+	 * 
+	 * @return the batch size of the batchsize property.
+	 */
+	public static int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Registers the statement with the cancellation scope bound to the current
+	 * thread, if any, before it is executed: the time left until the deadline of
+	 * the scope becomes the query timeout of the statement, and cancelling the
+	 * scope cancels the statement. The registration ends when the statement is
+	 * released through cleanupdbresources. Without a scope, or with one without
+	 * deadline, the query timeout is cleared: the pooled prepared statements
+	 * keep the timeout of the call which used them last.
+	 * 
+	 * @param statement statement about to be executed.
+	 * @throws SQLException when the scope is already cancelled or past its
+	 *                      deadline.
+	 */
+	public static void watchStatement(Statement statement) throws SQLException {
+		CancellationScope scope = CancellationScope.current();
+		if (scope != null) {
+			scope.register(statement);
+		} else {
+			statement.setQueryTimeout(0);
+		}
+	}
+
 	/**
 	 * Releases ResultSet, PreparedStatement, Connection object's database and JDBC
 	 * resources
@@ -100,6 +270,10 @@ public class DBUtil {
 		} finally {
 			try {
 				if (pstatement != null) {
+					CancellationScope scope = CancellationScope.current();
+					if (scope != null) {
+						scope.unregister(pstatement);
+					}
 					pstatement.close();
 				}
 			} catch (SQLException exp) {
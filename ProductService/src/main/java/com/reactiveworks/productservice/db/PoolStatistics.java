@@ -0,0 +1,78 @@
+package com.reactiveworks.productservice.db;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time statistics of the connection pool of DBUtil.
+ */
+public class PoolStatistics {
+
+	private final int activeConnections;
+	private final int idleConnections;
+	private final int maxTotal;
+	private final long borrowCount;
+	private final long totalWaitNanos;
+	private final long maxWaitNanos;
+
+	/**
+	 * Creates the statistics.
+	 * 
+	 * @param activeConnections connections currently borrowed.
+	 * @param idleConnections   connections currently idle in the pool.
+	 * @param maxTotal          largest number of connections of the pool.
+	 * @param borrowCount       number of connection checkouts so far.
+	 * @param totalWaitNanos    time spent waiting for a connection by all
+	 *                          checkouts.
+	 * @param maxWaitNanos      longest wait of a single checkout.
+	 */
+	public PoolStatistics(int activeConnections, int idleConnections, int maxTotal, long borrowCount,
+			long totalWaitNanos, long maxWaitNanos) {
+		this.activeConnections = activeConnections;
+		this.idleConnections = idleConnections;
+		this.maxTotal = maxTotal;
+		this.borrowCount = borrowCount;
+		this.totalWaitNanos = totalWaitNanos;
+		this.maxWaitNanos = maxWaitNanos;
+	}
+
+	public int getActiveConnections() {
+		return activeConnections;
+	}
+
+	public int getIdleConnections() {
+		return idleConnections;
+	}
+
+	public int getMaxTotal() {
+		return maxTotal;
+	}
+
+	public long getBorrowCount() {
+		return borrowCount;
+	}
+
+	public long getTotalWaitNanos() {
+		return totalWaitNanos;
+	}
+
+	public long getMaxWaitNanos() {
+		return maxWaitNanos;
+	}
+
+	/**
+	 * Gives the average time a checkout waited for a connection.
+	 * 
+	 * @return the average wait in microseconds, 0 before the first checkout.
+	 */
+	public long getAverageWaitMicros() {
+		return borrowCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos / borrowCount);
+	}
+
+	@Override
+	public String toString() {
+		return "PoolStatistics [activeConnections=" + activeConnections + ", idleConnections=" + idleConnections
+				+ ", maxTotal=" + maxTotal + ", borrowCount=" + borrowCount + ", averageWaitMicros="
+				+ getAverageWaitMicros() + ", maxWaitMicros=" + TimeUnit.NANOSECONDS.toMicros(maxWaitNanos) + "]";
+	}
+
+}
@@ -0,0 +1,15 @@
+package com.reactiveworks.productservice.model;
+
+/**
+ * This enum represents the order of a product listing by price. Products of the
+ * same price are listed by product id.
+ */
+public enum PriceOrder {
+
+	/** Cheapest product first. */
+	ASCENDING,
+
+	/** Most expensive product first. */
+	DESCENDING
+
+}
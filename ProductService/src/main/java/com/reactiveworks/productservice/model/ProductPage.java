@@ -0,0 +1,65 @@
+package com.reactiveworks.productservice.model;
+
+import java.util.List;
+
+/**
+ * This class represents one page of a product listing ordered by price.
+ */
+public final class ProductPage {
+
+	private final List<Product> products;
+	private final int totalCount;
+	private final boolean hasMore;
+	private final ProductPageRequest request;
+
+	/**
+	 * Creates the page.
+	 *
+	 * @param products   unmodifiable list of the products of the page.
+	 * @param totalCount number of products of the whole listing.
+	 * @param hasMore    whether products follow the page.
+	 * @param request    request the page answers.
+	 */
+	public ProductPage(List<Product> products, int totalCount, boolean hasMore, ProductPageRequest request) {
+		this.products = products;
+		this.totalCount = totalCount;
+		this.hasMore = hasMore;
+		this.request = request;
+	}
+
+	public List<Product> getProducts() {
+		return products;
+	}
+
+	public int getTotalCount() {
+		return totalCount;
+	}
+
+	public boolean hasMore() {
+		return hasMore;
+	}
+
+	public ProductPageRequest getRequest() {
+		return request;
+	}
+
+	/**
+	 * Gives the keyset request of the page which follows this one.
+	 *
+	 * @return the request of the next page, or null when this page is the last.
+	 */
+	public ProductPageRequest nextPageRequest() {
+		if (!hasMore || products.isEmpty()) {
+			return null;
+		}
+		Product last = products.get(products.size() - 1);
+		return ProductPageRequest.after(request.getOrder(), last.getPrice(), last.getProductId(), request.getLimit());
+	}
+
+	@Override
+	public String toString() {
+		return "ProductPage [products=" + products.size() + ", totalCount=" + totalCount + ", hasMore=" + hasMore
+				+ ", request=" + request + "]";
+	}
+
+}
@@ -0,0 +1,110 @@
+package com.reactiveworks.productservice.model;
+
+/**
+ * This class represents the request of one page of a product listing ordered
+ * by price.
+ *
+ * A page starts either at an offset into the listing or, for keyset
+ * pagination, right after the product of a given price and id, which stays
+ * stable while products are added and removed ahead of it.
+ */
+public final class ProductPageRequest {
+
+	private final PriceOrder order;
+	private final int offset;
+	private final int limit;
+	private final boolean keyset;
+	private final int afterPrice;
+	private final String afterProductId;
+
+	private ProductPageRequest(PriceOrder order, int offset, int limit, boolean keyset, int afterPrice,
+			String afterProductId) {
+		if (order == null) {
+			throw new IllegalArgumentException("order of the page is missing");
+		}
+		if (offset < 0 || limit < 1) {
+			throw new IllegalArgumentException("invalid page offset " + offset + " or limit " + limit);
+		}
+		this.order = order;
+		this.offset = offset;
+		this.limit = limit;
+		this.keyset = keyset;
+		this.afterPrice = afterPrice;
+		this.afterProductId = afterProductId;
+	}
+
+	/**
+	 * Requests the page at the given offset.
+	 *
+	 * @param order  order of the listing.
+	 * @param offset number of products skipped from the start of the listing.
+	 * @param limit  largest number of products of the page.
+	 * @return the page request.
+	 */
+	public static ProductPageRequest page(PriceOrder order, int offset, int limit) {
+		return new ProductPageRequest(order, offset, limit, false, 0, null);
+	}
+
+	/**
+	 * Requests the page which follows the product of the given price and id.
+	 *
+	 * @param order          order of the listing.
+	 * @param afterPrice     price of the last product of the previous page.
+	 * @param afterProductId id of the last product of the previous page.
+	 * @param limit          largest number of products of the page.
+	 * @return the page request.
+	 */
+	public static ProductPageRequest after(PriceOrder order, int afterPrice, String afterProductId, int limit) {
+		return new ProductPageRequest(order, 0, limit, true, afterPrice, afterProductId);
+	}
+
+	/**
+	 * Requests the count cheapest products, or the count most expensive ones for
+	 * the descending order.
+	 *
+	 * @param order order of the listing.
+	 * @param count number of products.
+	 * @return the page request.
+	 */
+	public static ProductPageRequest top(PriceOrder order, int count) {
+		return page(order, 0, count);
+	}
+
+	public PriceOrder getOrder() {
+		return order;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Tells whether the page starts after a given product instead of at an
+	 * offset.
+	 *
+	 * @return true for a keyset page request.
+	 */
+	public boolean isKeyset() {
+		return keyset;
+	}
+
+	public int getAfterPrice() {
+		return afterPrice;
+	}
+
+	public String getAfterProductId() {
+		return afterProductId;
+	}
+
+	@Override
+	public String toString() {
+		return "ProductPageRequest [order=" + order + ", "
+				+ (keyset ? "afterPrice=" + afterPrice + ", afterProductId=" + afterProductId : "offset=" + offset)
+				+ ", limit=" + limit + "]";
+	}
+
+}
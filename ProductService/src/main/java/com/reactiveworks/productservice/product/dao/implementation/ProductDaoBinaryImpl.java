@@ -0,0 +1,134 @@
+package com.reactiveworks.productservice.product.dao.implementation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.binary.BinaryCatalog;
+import com.reactiveworks.productservice.dao.ChangeCursor;
+import com.reactiveworks.productservice.dao.IProductDao;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+import com.reactiveworks.productservice.db.exceptions.OperationNotSupportedException;
+import com.reactiveworks.productservice.model.Product;
+
+/**
+ * Binary catalog implementation of ProductDao.
+ *
+ * The products are read from a memory mapped file compiled by
+ * BinaryCatalogWriter, without parsing the whole file. A columnar catalog is
+ * built from the columns of the file through {@link #getBinaryCatalog()}.
+ */
+public class ProductDaoBinaryImpl implements IProductDao {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("ProductDaoBinaryImpl.class");
+
+	private final Path catalogFile;
+
+	/**
+	 * Creates the dao over the given binary catalog file.
+	 * 
+	 * @param catalogFile path of the binary catalog file.
+	 */
+	public ProductDaoBinaryImpl(Path catalogFile) {
+		this.catalogFile = catalogFile;
+	}
+
+	/**
+	 * Gets the records from the product database. The list is a read only view
+	 * over the mapped file which creates the product objects as they are read.
+	 * 
+	 * @return the list of products into the database.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws InvalidDBRecordFormatException when the file is not a binary catalog
+	 *                                        of a supported version.
+	 */
+	@Override
+	public List<Product> getProducts() throws DataBaseAccessException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of getProducts() started");
+		List<Product> products = getBinaryCatalog().asProductList();
+		LOGGER_OBJ.debug("execution of getProducts() completed");
+		return products;
+	}
+
+	/**
+	 * Passes the products of the mapped file to the consumer, creating each one
+	 * as it is passed.
+	 * 
+	 * @param consumer consumer of the products.
+	 * @return null, the file is rewritten as a whole and cannot be followed.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws InvalidDBRecordFormatException when the file is not a binary catalog
+	 *                                        of a supported version.
+	 */
+	@Override
+	public ChangeCursor streamProducts(Consumer<Product> consumer)
+			throws DataBaseAccessException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of streamProducts() started");
+		BinaryCatalog catalog = getBinaryCatalog();
+		for (int ordinal = 0; ordinal < catalog.size(); ordinal++) {
+			consumer.accept(catalog.getProduct(ordinal));
+		}
+		LOGGER_OBJ.debug("execution of streamProducts() completed");
+		return null;
+	}
+
+	/**
+	 * Maps the binary catalog file, decoding only its dictionaries.
+	 * 
+	 * @return the mapped binary catalog.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws InvalidDBRecordFormatException when the file is not a binary catalog
+	 *                                        of a supported version.
+	 */
+	@Override
+	public BinaryCatalog getBinaryCatalog() throws DataBaseAccessException, InvalidDBRecordFormatException {
+		try {
+			return BinaryCatalog.open(catalogFile);
+		} catch (IOException ioExp) {
+			LOGGER_OBJ.error("unable to access the product database " + catalogFile);
+			throw new DataBaseAccessException("unable to access the product database", ioExp);
+		}
+	}
+
+	/**
+	 * Inserts the record into the product database.
+	 * 
+	 * @param product object of the product.
+	 * @throws OperationNotSupportedException when operation is not supported by the
+	 *                                        database.
+	 */
+	@Override
+	public void insertProduct(Product product) throws OperationNotSupportedException {
+		throw new OperationNotSupportedException("insert Operation is not supported by product database");
+	}
+
+	/**
+	 * deletes the given record from the product database.
+	 * 
+	 * @param product object of the product.
+	 * @throws OperationNotSupportedException when operation is not supported by the
+	 *                                        database.
+	 */
+	@Override
+	public void deleteProduct(Product product) throws OperationNotSupportedException {
+		throw new OperationNotSupportedException("delete Operation is not supported by product database");
+	}
+
+	/**
+	 * updates the record in the product database.
+	 * 
+	 * @param product product to be updated.
+	 * @param price   updated value of the product price.
+	 * @throws OperationNotSupportedException when operation is not supported by the
+	 *                                        database.
+	 */
+	@Override
+	public void updateProduct(Product product, int price) throws OperationNotSupportedException {
+		throw new OperationNotSupportedException("update Operation is not supported by product database");
+	}
+
+}
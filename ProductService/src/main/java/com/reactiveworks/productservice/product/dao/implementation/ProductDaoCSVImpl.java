@@ -1,50 +1,102 @@
 package com.reactiveworks.productservice.product.dao.implementation;
 
-import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.Consumer;
 
 import org.apache.log4j.Logger;
 
+import com.reactiveworks.productservice.csv.CsvReader;
+import com.reactiveworks.productservice.csv.CsvRecord;
+import com.reactiveworks.productservice.csv.CsvRecordHandler;
+import com.reactiveworks.productservice.csv.CsvTail;
+import com.reactiveworks.productservice.dao.ChangeCursor;
 import com.reactiveworks.productservice.dao.IProductDao;
 import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
 import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
 import com.reactiveworks.productservice.db.exceptions.OperationNotSupportedException;
 import com.reactiveworks.productservice.model.Product;
 
+/**
+ * CSV implementation of ProductDao.
+ */
 public class ProductDaoCSVImpl implements IProductDao {
 
 	private static final String FILE_NAME = "Product.csv";
 	private static final Logger LOGGER_OBJ = Logger.getLogger("ProductDaoCSVImpl.class");
+	private static final int PRODUCT_FIELDS = 5;
+
+	private final Path csvFile;
+	private final int parallelism;
+	private final boolean follow;
+	private CsvTail tail;
+
+	/**
+	 * Creates the dao over the Product.csv resource of the classpath.
+	 */
+	public ProductDaoCSVImpl() {
+		this(null, 1);
+	}
+
+	/**
+	 * Creates the dao over the given CSV file.
+	 * 
+	 * @param csvFile path of the product CSV file.
+	 */
+	public ProductDaoCSVImpl(Path csvFile) {
+		this(csvFile, 1);
+	}
+
+	/**
+	 * Creates the dao over the given CSV file, parsing it in parallel chunks.
+	 * 
+	 * @param csvFile     path of the product CSV file, null for the Product.csv resource
+	 *                    of the classpath.
+	 * @param parallelism number of chunks of the file parsed at the same time, 1
+	 *                    to read the file sequentially.
+	 */
+	public ProductDaoCSVImpl(Path csvFile, int parallelism) {
+		this(csvFile, parallelism, false);
+	}
 
 	/**
-	 * Gets the records from the product database.
+	 * Creates the dao over the given CSV file, optionally following it. A dao
+	 * which follows its file gives, with the complete records of the file read by
+	 * streamProducts(), the cursor where they end, and the records appended after
+	 * a cursor in streamAppendedProducts(). The file must then be on the filesystem.
+	 * 
+	 * @param csvFile     path of the product CSV file, null for the Product.csv resource
+	 *                    of the classpath.
+	 * @param parallelism number of chunks of the file parsed at the same time by
+	 *                    getProducts() and streamProducts(), 1 to read the file
+	 *                    sequentially.
+	 * @param follow      whether the dao follows the records appended to the file.
+	 */
+	public ProductDaoCSVImpl(Path csvFile, int parallelism, boolean follow) {
+		this.csvFile = csvFile;
+		this.parallelism = parallelism;
+		this.follow = follow;
+	}
+
+	/**
+	 * Gets the records from the product database. A record with an invalid format
+	 * is logged and skipped.
 	 * 
 	 * @return the list of products into the database.
-	 * @throws DataBaseAccessException when unable to access the database.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws InvalidDBRecordFormatException when the CSV structure of the file is
+	 *                                        invalid.
 	 */
-	public List<Product> getProducts() throws DataBaseAccessException {
+	public List<Product> getProducts() throws DataBaseAccessException, InvalidDBRecordFormatException {
 		LOGGER_OBJ.debug("execution of getDBRecords() started");
-		File file = new File(getClass().getClassLoader().getResource(FILE_NAME).getFile());
-
 		List<Product> products;
 
-		try (Stream<String> line = Files.lines(Paths.get(file.toURI()))) {
-
-			products = line.skip(1).map(str -> {
-				try {
-					return parseCSVLine(str);
-				} catch (InvalidDBRecordFormatException e) {
-					e.printStackTrace();
-				}
-				return null;
-			}).collect(Collectors.toList());
+		try {
+			products = getCsvReader().readAll(true, parallelism, this::parseCSVRecord);
 		} catch (IOException ioExp) {
-			LOGGER_OBJ.error("unable to access the product with id= ");
+			LOGGER_OBJ.error("unable to access the product database " + getFileName());
 			throw new DataBaseAccessException("unable to access the product database" , ioExp);
 
 		}
@@ -53,34 +105,137 @@ public class ProductDaoCSVImpl implements IProductDao {
 	}
 
 	/**
-	 * converts one line in csv file to the product object.
+	 * Passes every record of the product database to the consumer in file order. With
+	 * a parallelism above one the file is parsed in chunks on as many threads and
+	 * the records of a chunk are handed off once the chunk is parsed, so only the
+	 * chunks parsed ahead are held in memory rather than the whole file. A record
+	 * with an invalid format is logged and skipped.
 	 * 
-	 * @param str the string which has to be parsed.
-	 * @return the object of the product.
-	 * @throws InvalidDBRecordFormatException when the operation is not supported by
-	 *                                        the database.
+	 * @param consumer consumer of the products.
+	 * @return the cursor following the last complete record when the dao follows
+	 *         its file, else null.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws InvalidDBRecordFormatException when the CSV structure of the file is
+	 *                                        invalid.
 	 */
-	private Product parseCSVLine(String str) throws InvalidDBRecordFormatException {
-		LOGGER_OBJ.debug("execution of parseLine() started");
-		Product productObj = new Product();
-		String[] prodDetails = str.split(",");
+	@Override
+	public ChangeCursor streamProducts(Consumer<Product> consumer)
+			throws DataBaseAccessException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of streamProducts() started");
+		ChangeCursor cursor = null;
+		try {
+			if (follow) {
+				CsvTail.Mark mark = getTail().readAll(parallelism, this::parseCSVRecord, consumer);
+				cursor = new ChangeCursor(mark.getOffset(), mark);
+			} else {
+				getCsvReader().readAll(true, parallelism, this::parseCSVRecord, consumer);
+			}
+		} catch (IOException ioExp) {
+			LOGGER_OBJ.error("unable to access the product database " + getFileName());
+			throw new DataBaseAccessException("unable to access the product database", ioExp);
+		}
+		LOGGER_OBJ.debug("execution of streamProducts() completed");
+		return cursor;
+	}
 
-		productObj.setProductId(prodDetails[0]);
-		productObj.setProductName(prodDetails[1]);
-		productObj.setProductCategory(prodDetails[2]);
-		productObj.setAvailableCity(prodDetails[4]);
+	/**
+	 * Passes to the consumer the records appended to the file after the cursor,
+	 * when the dao follows its file. Only the bytes written since are parsed. A
+	 * record with an invalid format is logged and skipped.
+	 * 
+	 * @param from     cursor of the products already read.
+	 * @param consumer consumer of the appended products.
+	 * @return the cursor following the last complete record, or null when the
+	 *         dao does not follow its file or when the file was truncated or
+	 *         rewritten.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws InvalidDBRecordFormatException when the CSV structure of the file is
+	 *                                        invalid.
+	 */
+	@Override
+	public ChangeCursor streamAppendedProducts(ChangeCursor from, Consumer<Product> consumer)
+			throws DataBaseAccessException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of streamAppendedProducts() started");
+		if (!follow || from == null || !(from.getState() instanceof CsvTail.Mark)) {
+			return null;
+		}
+		CsvTail.Mark mark;
+		try {
+			mark = getTail().readAppended((CsvTail.Mark) from.getState(), recordHandler(consumer));
+		} catch (IOException ioExp) {
+			LOGGER_OBJ.error("unable to access the product database " + getFileName());
+			throw new DataBaseAccessException("unable to access the products database", ioExp);
+		}
+		LOGGER_OBJ.debug("execution of streamAppendedProducts() completed");
+		return mark == null ? null : new ChangeCursor(mark.getOffset(), mark);
+	}
+
+	/**
+	 * Creates the handler which converts the records and passes the valid ones to
+	 * the consumer.
+	 */
+	private CsvRecordHandler recordHandler(Consumer<Product> consumer) {
+		return record -> {
+			Product product = parseCSVRecord(record);
+			if (product != null) {
+				consumer.accept(product);
+			}
+		};
+	}
+
+	/**
+	 * converts one record of the csv file to the product object.
+	 * 
+	 * @param record the record which has to be converted.
+	 * @return the object of the product, null when the format of the record is
+	 *         invalid.
+	 */
+	private Product parseCSVRecord(CsvRecord record) {
+		if (record.getFieldCount() < PRODUCT_FIELDS) {
+			LOGGER_OBJ.error("record " + record.getRecordNumber() + " of " + getFileName() + " has "
+					+ record.getFieldCount() + " fields instead of " + PRODUCT_FIELDS);
+			return null;
+		}
+		Product productObj = new Product();
+		productObj.setProductId(record.getString(0));
+		productObj.setProductName(record.getString(1));
+		productObj.setProductCategory(record.getString(2));
+		productObj.setAvailableCity(record.getString(4));
 
 		try {
-			int price = Integer.parseInt(prodDetails[3]);
-			productObj.setPrice(price);
+			productObj.setPrice(record.getInt(3));
 		} catch (NumberFormatException numFormatExp) {
-			LOGGER_OBJ.error("format of the database record price is invalid in "+str);
-			throw new InvalidDBRecordFormatException("format of the database record price is invalid" + numFormatExp);
+			LOGGER_OBJ.error("format of the database record price is invalid in " + record);
+			return null;
 		}
-		LOGGER_OBJ.debug("execution of parseLine() completed");
 		return productObj;
 	}
 
+	/**
+	 * Creates the reader of the product CSV file.
+	 */
+	private CsvReader getCsvReader() throws FileNotFoundException {
+		return csvFile != null ? new CsvReader(csvFile) : CsvReader.forResource(FILE_NAME);
+	}
+
+	/**
+	 * Gives the tail of the product CSV file, created on first use.
+	 */
+	private synchronized CsvTail getTail() throws IOException {
+		if (tail == null) {
+			Path path = getCsvReader().getPath();
+			if (path == null) {
+				throw new IOException(getFileName() + " is not a file and cannot be followed");
+			}
+			tail = new CsvTail(path, true);
+		}
+		return tail;
+	}
+
+	private String getFileName() {
+		return csvFile != null ? csvFile.toString() : FILE_NAME;
+	}
+
 	/**
 	 * Inserts the record into the product database.
 	 * 
@@ -0,0 +1,199 @@
+package com.reactiveworks.productservice.product.dao.implementation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.dao.ChangeCursor;
+import com.reactiveworks.productservice.dao.IProductDao;
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+import com.reactiveworks.productservice.model.Product;
+
+/**
+ * In memory implementation of ProductDao, holding the product table in a map
+ * by product id.
+ *
+ * The table starts empty, or with the products of a seed dao read on first
+ * use. Every write takes the next version of the table and, once the table
+ * has been read, the dao remembers the version of the last write of each
+ * product id, deleted ones included, so that
+ * {@link #streamProductChanges(ChangeCursor, Consumer, Consumer)} gives the
+ * products changed after the cursor of any reader.
+ */
+public class ProductDaoInMemoryImpl implements IProductDao {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("ProductDaoInMemoryImpl.class");
+
+	private final Map<String, Product> products = new LinkedHashMap<>();
+	private final Map<String, Long> changeVersions = new HashMap<>();
+	private final TreeMap<Long, String> changedIds = new TreeMap<>();
+	private IProductDao seedDao;
+	private boolean read;
+	private long version;
+
+	/**
+	 * Creates the dao over an empty table.
+	 */
+	public ProductDaoInMemoryImpl() {
+		this(null);
+	}
+
+	/**
+	 * Creates the dao over the products of the given dao, read on first use.
+	 *
+	 * @param seedDao dao the table is filled from, null for an empty table.
+	 */
+	public ProductDaoInMemoryImpl(IProductDao seedDao) {
+		this.seedDao = seedDao;
+	}
+
+	@Override
+	public synchronized List<Product> getProducts()
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		seed();
+		List<Product> copies = new ArrayList<>();
+		for (Product product : products.values()) {
+			copies.add(copyOf(product, product.getPrice()));
+		}
+		return copies;
+	}
+
+	/**
+	 * Passes copies of all the products to the consumer.
+	 *
+	 * @return the cursor of the current version.
+	 */
+	@Override
+	public synchronized ChangeCursor streamProducts(Consumer<Product> consumer)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of streamProducts() started");
+		seed();
+		read = true;
+		for (Product product : products.values()) {
+			consumer.accept(copyOf(product, product.getPrice()));
+		}
+		LOGGER_OBJ.debug("execution of streamProducts() completed");
+		return ChangeCursor.at(version);
+	}
+
+	/**
+	 * Passes copies of the products inserted or updated after the version of the
+	 * cursor to the first consumer and the ids of the deleted ones to the
+	 * second.
+	 *
+	 * @return the cursor of the current version, null when the cursor is null.
+	 */
+	@Override
+	public synchronized ChangeCursor streamProductChanges(ChangeCursor from, Consumer<Product> changed,
+			Consumer<String> deletedIds) {
+		LOGGER_OBJ.debug("execution of streamProductChanges() started");
+		if (from == null) {
+			return null;
+		}
+		for (String productId : changedIds.tailMap(from.getPosition(), false).values()) {
+			Product product = products.get(productId);
+			if (product != null) {
+				changed.accept(copyOf(product, product.getPrice()));
+			} else {
+				deletedIds.accept(productId);
+			}
+		}
+		LOGGER_OBJ.debug("execution of streamProductChanges() completed");
+		return ChangeCursor.at(version);
+	}
+
+	/**
+	 * Inserts a copy of the product.
+	 *
+	 * @throws DataBaseAccessException when a product of the same id exists.
+	 */
+	@Override
+	public synchronized void insertProduct(Product product)
+			throws DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of insertProduct() started");
+		seed();
+		if (products.containsKey(product.getProductId())) {
+			LOGGER_OBJ.error("product " + product.getProductId() + " already exists");
+			throw new DataBaseAccessException("product " + product.getProductId() + " already exists");
+		}
+		put(copyOf(product, product.getPrice()));
+		LOGGER_OBJ.debug("execution of insertProduct() completed");
+	}
+
+	@Override
+	public synchronized void deleteProduct(Product product) throws DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of deleteProduct() started");
+		seed();
+		if (products.remove(product.getProductId()) != null) {
+			recordChange(product.getProductId());
+		}
+		LOGGER_OBJ.debug("execution of deleteProduct() completed");
+	}
+
+	@Override
+	public synchronized void updateProduct(Product product, int price)
+			throws DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of updateProduct() started");
+		seed();
+		Product stored = products.get(product.getProductId());
+		if (stored != null) {
+			put(copyOf(stored, price));
+		}
+		LOGGER_OBJ.debug("execution of updateProduct() completed");
+	}
+
+	private void put(Product product) {
+		products.put(product.getProductId(), product);
+		recordChange(product.getProductId());
+	}
+
+	/**
+	 * Takes the next version for a write of the given id and, once the table has
+	 * been read, makes it the version of the last write of the id.
+	 */
+	private void recordChange(String productId) {
+		version++;
+		if (read) {
+			Long previous = changeVersions.put(productId, version);
+			if (previous != null) {
+				changedIds.remove(previous);
+			}
+			changedIds.put(version, productId);
+		}
+	}
+
+	/**
+	 * Fills the table from the seed dao the first time it is used.
+	 */
+	private void seed() throws DataBaseAccessException, DBOperationFailureException {
+		if (seedDao == null) {
+			return;
+		}
+		try {
+			seedDao.streamProducts(product -> products.put(product.getProductId(), product));
+		} catch (InvalidDBRecordFormatException exp) {
+			LOGGER_OBJ.error("unable to seed the product table " + exp.getMessage());
+			throw new DBOperationFailureException("unable to seed the product table", exp);
+		}
+		seedDao = null;
+	}
+
+	private static Product copyOf(Product product, int price) {
+		Product copy = new Product();
+		copy.setProductId(product.getProductId());
+		copy.setProductName(product.getProductName());
+		copy.setProductCategory(product.getProductCategory());
+		copy.setPrice(price);
+		copy.setAvailableCity(product.getAvailableCity());
+		return copy;
+	}
+
+}
@@ -5,11 +5,17 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.apache.log4j.Logger;
 
+import com.reactiveworks.productservice.dao.BatchInsertReport;
+import com.reactiveworks.productservice.dao.ChangeCursor;
 import com.reactiveworks.productservice.dao.IProductDao;
+import com.reactiveworks.productservice.db.BatchInserter;
+import com.reactiveworks.productservice.db.ChangeTracking;
 import com.reactiveworks.productservice.db.DBUtil;
 import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
 import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
@@ -19,15 +25,37 @@ import com.reactiveworks.productservice.model.Product;
 
 /**
  * Mysql implementation of ProductDao.
+ *
+ * The writes are versioned as {@link ChangeTracking} describes, so a full
+ * read gives the cursor of the version it saw and streamProductChanges() gives
+ * only the products changed or deleted after a cursor. The dao keeps no state of
+ * its readers.
  */
 public class ProductDaoMysqlImpl implements IProductDao{
 	
 	private static final Logger LOGGER_OBJ=Logger.getLogger("ProductDaoMysqlImpl.class");
-	private static final String INSERT_QUERY="INSERT INTO product VALUES(?,?,?,?,?);";
-	private static final String UPDATE_QUERY="UPDATE product SET price=? WHERE productId=?;";
+	private static final String INSERT_QUERY="INSERT INTO product (productId, productName, productCategory, price,"
+			+ " version) VALUES(?,?,?,?,"+ChangeTracking.CURRENT_VERSION+");";
+	private static final String INSERT_CITY_QUERY="INSERT INTO product_city VALUES(?,?,?);";
+	private static final String UPDATE_QUERY="UPDATE product SET price=?, version="+ChangeTracking.CURRENT_VERSION
+			+" WHERE productId=?;";
 	private static final String DELETE_QUERY="DELETE FROM product WHERE productId=?;";
-	private static final String SELECT_QUERY="SELECT * FROM product ;";
-	
+	private static final String DELETE_TOMBSTONE_QUERY="DELETE FROM product_tombstone WHERE productId=?;";
+	private static final String INSERT_TOMBSTONE_QUERY="INSERT INTO product_tombstone (productId, version) VALUES(?,"
+			+ChangeTracking.CURRENT_VERSION+");";
+	private static final String SELECT_TOMBSTONES_QUERY="SELECT productId FROM product_tombstone"
+			+ " WHERE version > ? AND version <= ?;";
+	private static final String SELECT_COLUMNS="SELECT p.productId, p.productName, p.productCategory, p.price,"
+			+ " (SELECT GROUP_CONCAT(c.city ORDER BY c.position SEPARATOR '/') FROM product_city c"
+			+ " WHERE c.productId=p.productId) AS availableCity FROM product p";
+	private static final String CITY_CONDITION="EXISTS (SELECT 1 FROM product_city pc"
+			+ " WHERE pc.productId=p.productId AND pc.city=?)";
+	private static final String SELECT_QUERY=SELECT_COLUMNS+" ;";
+	private static final String SELECT_BY_CITY_QUERY=SELECT_COLUMNS+" WHERE "+CITY_CONDITION+";";
+	private static final String SELECT_BY_CITY_CATEGORY_QUERY=SELECT_COLUMNS+" WHERE p.productCategory=? AND "
+			+CITY_CONDITION+";";
+	private static final String SELECT_BY_PRICE_QUERY=SELECT_COLUMNS+" WHERE p.price BETWEEN ? AND ?;";
+	private static final String SELECT_CHANGED_QUERY=SELECT_COLUMNS+" WHERE p.version > ? AND p.version <= ?;";
 	
 	/**
 	 * Gets the records from the product database.
@@ -41,39 +69,181 @@ public class ProductDaoMysqlImpl implements IProductDao{
 	public List<Product> getProducts() throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
 		LOGGER_OBJ.debug("execution of getProducts() started");
 		List<Product> productsList=new ArrayList<Product>();
+		queryProducts(SELECT_QUERY, productsList::add);
+		LOGGER_OBJ.debug("execution of getProducts() completed");
+		return productsList;
+	}
+
+	/**
+	 * Passes every record of the product database to the consumer as it arrives.
+	 * The rows are read through a forward only, read only result set with the
+	 * fetch size configured in database.properties, so the table is never held
+	 * in memory. The cursor returned is at the version read just before the rows;
+	 * a row written meanwhile may be read again as a change.
+	 * 
+	 * @param consumer consumer of the products.
+	 * @return the cursor of the version read, null when the database does not
+	 *         track its changes.
+	 * @throws DataBaseAccessException when unable to access the database.
+	 * @throws DBOperationFailureException when database operation fails.
+	 * @throws InvalidDBRecordFormatException  when the format of the database record is invalid.
+	 */
+	@Override
+	public ChangeCursor streamProducts(Consumer<Product> consumer)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of streamProducts() started");
+		long version = ChangeTracking.getCurrentVersion();
+		queryProducts(SELECT_QUERY, consumer);
+		LOGGER_OBJ.debug("execution of streamProducts() completed");
+		return version == ChangeTracking.UNTRACKED ? null : ChangeCursor.at(version);
+	}
+
+	/**
+	 * Passes the products inserted or updated after the version of the cursor to
+	 * the first consumer and the ids of the products deleted since then to the
+	 * second, up to the current version. Both reads are served by the
+	 * version indexes, so they cost the number of changes, not the size of the
+	 * table.
+	 * 
+	 * @param from       cursor of the products already read.
+	 * @param changed    consumer of the inserted and updated products.
+	 * @param deletedIds consumer of the ids of the deleted products.
+	 * @return the cursor of the current version, null when the cursor is null
+	 *         or the database does not track its changes.
+	 * @throws DataBaseAccessException when unable to access the database.
+	 * @throws DBOperationFailureException when database operation fails.
+	 * @throws InvalidDBRecordFormatException  when the format of the database record is invalid.
+	 */
+	@Override
+	public ChangeCursor streamProductChanges(ChangeCursor from, Consumer<Product> changed,
+			Consumer<String> deletedIds)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of streamProductChanges() started");
+		long to = from == null ? ChangeTracking.UNTRACKED : ChangeTracking.getCurrentVersion();
+		if (to == ChangeTracking.UNTRACKED) {
+			LOGGER_OBJ.debug("execution of streamProductChanges() completed");
+			return null;
+		}
+		if (to > from.getPosition()) {
+			queryProducts(SELECT_CHANGED_QUERY, changed, from.getPosition(), to);
+			ChangeTracking.streamKeys(SELECT_TOMBSTONES_QUERY, from.getPosition(), to, deletedIds);
+		}
+		LOGGER_OBJ.debug("execution of streamProductChanges() completed");
+		return ChangeCursor.at(to);
+	}
+
+	/**
+	 * Gets the products which are available in the given city with an indexed
+	 * lookup of product_city.
+	 * 
+	 * @param city name of the city, matched with the collation of the database.
+	 * @return the list of products available in the city.
+	 * @throws DataBaseAccessException when unable to access the database.
+	 * @throws DBOperationFailureException when database operation fails.
+	 * @throws InvalidDBRecordFormatException  when the format of the database record is invalid.
+	 */
+	@Override
+	public List<Product> getProductsByCity(String city)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of getProductsByCity() started");
+		List<Product> productsList=new ArrayList<Product>();
+		if (city != null) {
+			queryProducts(SELECT_BY_CITY_QUERY, productsList::add, city.trim());
+		}
+		LOGGER_OBJ.debug("execution of getProductsByCity() completed");
+		return productsList;
+	}
+
+	/**
+	 * Gets the products of the given category which are available in the given
+	 * city, filtered by the database.
+	 * 
+	 * @param city     name of the city, matched with the collation of the database.
+	 * @param category category of the product, matched with the collation of the database.
+	 * @return the list of matching products.
+	 * @throws DataBaseAccessException when unable to access the database.
+	 * @throws DBOperationFailureException when database operation fails.
+	 * @throws InvalidDBRecordFormatException  when the format of the database record is invalid.
+	 */
+	@Override
+	public List<Product> getProductsByCityAndCategory(String city, String category)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of getProductsByCityAndCategory() started");
+		List<Product> productsList=new ArrayList<Product>();
+		if (city != null && category != null) {
+			queryProducts(SELECT_BY_CITY_CATEGORY_QUERY, productsList::add, category.trim(), city.trim());
+		}
+		LOGGER_OBJ.debug("execution of getProductsByCityAndCategory() completed");
+		return productsList;
+	}
+
+	/**
+	 * Gets the products whose price lies in the given range, bounds included,
+	 * filtered by the database.
+	 * 
+	 * @param minPrice lowest price of the range.
+	 * @param maxPrice highest price of the range.
+	 * @return the list of matching products.
+	 * @throws DataBaseAccessException when unable to access the database.
+	 * @throws DBOperationFailureException when database operation fails.
+	 * @throws InvalidDBRecordFormatException  when the format of the database record is invalid.
+	 */
+	@Override
+	public List<Product> getProductsByPriceRange(int minPrice, int maxPrice)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of getProductsByPriceRange() started");
+		List<Product> productsList=new ArrayList<Product>();
+		queryProducts(SELECT_BY_PRICE_QUERY, productsList::add, minPrice, maxPrice);
+		LOGGER_OBJ.debug("execution of getProductsByPriceRange() completed");
+		return productsList;
+	}
+
+	/**
+	 * Runs the select query with the given parameters and passes every product
+	 * to the consumer as it arrives. The rows are read through a forward only,
+	 * read only result set with the fetch size configured in
+	 * database.properties.
+	 */
+	private static void queryProducts(String query, Consumer<Product> consumer, Object... parameters)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
 		ResultSet res = null;
 		Connection connection = null;
 		PreparedStatement statement = null;
-		Product productObj = null;
+		String productId = null;
 		try {
 
 			connection = DBUtil.getdbconnection();
-			statement = connection.prepareStatement(SELECT_QUERY);
-			res = statement.executeQuery(SELECT_QUERY);
+			statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+					ResultSet.CONCUR_READ_ONLY);
+			DBUtil.watchStatement(statement);
+			statement.setFetchSize(DBUtil.getFetchSize());
+			for (int i = 0; i < parameters.length; i++) {
+				statement.setObject(i + 1, parameters[i]);
+			}
+			res = statement.executeQuery();
 			while (res.next()) {
-				productObj=new Product();
-				productObj.setProductId(res.getString(1));
+				productId = res.getString(1);
+				Product productObj = new Product();
+				productObj.setProductId(productId);
 				productObj.setProductName(res.getString(2));
 				productObj.setProductCategory(res.getString(3));
 				int price=Integer.parseInt(res.getString(4));
 				productObj.setPrice(price);
 				productObj.setAvailableCity(res.getString(5));
-				productsList.add(productObj);
+				consumer.accept(productObj);
 			}
 			
 		} catch (SQLException exp) {
-			LOGGER_OBJ.error("unable to access  product with id " + productObj.getProductId());
-			throw new DataBaseAccessException("unable to access product database" + exp);
+			LOGGER_OBJ.error("unable to access  product with id " + productId);
+			throw new DataBaseAccessException("unable to access product database" , exp);
 		} catch (NumberFormatException numFormatExp) {
 			LOGGER_OBJ.error("format of product db record is invalid");
-			throw new InvalidDBRecordFormatException("format of product with id "+productObj.getProductId()+" is invalid" , numFormatExp);
+			throw new InvalidDBRecordFormatException("format of product with id "+productId+" is invalid" , numFormatExp);
 		}finally {
 
 			DBUtil.cleanupdbresources(res, statement, connection);
 
 		}
-		LOGGER_OBJ.debug("execution of getProducts() completed");
-		return productsList;
 	}
 
 	/**
@@ -88,25 +258,11 @@ public class ProductDaoMysqlImpl implements IProductDao{
 	@Override
 	public void insertProduct(Product product) throws DataBaseAccessException, DBOperationFailureException   {
 		LOGGER_OBJ.debug("execution of insertProduct() started");
-		ResultSet resultSet = null;
-		Connection connection = null;
-		PreparedStatement statement = null;
-		try {
-			connection = DBUtil.getdbconnection();
-			statement = connection.prepareStatement(INSERT_QUERY);
-			statement.setString(1, product.getProductId());
-			statement.setString(2, product.getProductName());
-			statement.setString(3, product.getProductCategory());
-			statement.setInt(4, product.getPrice());
-			statement.setString(5, product.getAvailableCity());
-			statement.executeUpdate();
-		}catch (SQLException exp) {
+		BatchInsertReport report = insertRecords(Collections.singletonList(product));
+		if (report.hasFailures()) {
 			LOGGER_OBJ.error("unable to access database");
-			throw new DataBaseAccessException("unable to access product database" , exp);
-		}  finally {
-
-			DBUtil.cleanupdbresources(resultSet, statement, connection);
-
+			throw new DataBaseAccessException("unable to insert product with id " + product.getProductId() + " "
+					+ report.getFailures().get(0).getReason());
 		}
 		LOGGER_OBJ.debug("execution of insertProduct() completed");
 	}
@@ -128,8 +284,14 @@ public class ProductDaoMysqlImpl implements IProductDao{
 		try {
 			connection = DBUtil.getdbconnection();
 			statement = connection.prepareStatement(DELETE_QUERY);
+			DBUtil.watchStatement(statement);
 			statement.setString(1, product.getProductId());
-			statement.executeUpdate();
+			PreparedStatement deleteStatement = statement;
+			ChangeTracking.runVersioned(connection, versioned -> {
+				if (deleteStatement.executeUpdate() > 0) {
+					addTombstone(versioned, product.getProductId());
+				}
+			});
 		} catch (SQLException exp) {
 			LOGGER_OBJ.error("unable to access the database");
 			throw new DataBaseAccessException("unable to delete product with id " +product.getProductId(), exp);
@@ -160,10 +322,12 @@ public class ProductDaoMysqlImpl implements IProductDao{
 		try {
 			connection = DBUtil.getdbconnection();
 			statement = connection.prepareStatement(UPDATE_QUERY);
+			DBUtil.watchStatement(statement);
 			statement.setInt(1, price);
 			
 			statement.setString(2, product.getProductId());
-			statement.executeUpdate();
+			PreparedStatement updateStatement = statement;
+			ChangeTracking.runVersioned(connection, versioned -> updateStatement.executeUpdate());
 		} catch (SQLException exp) {
 			LOGGER_OBJ.error("unable to access  database");
 			throw new DataBaseAccessException("unable to update product with id "+product.getProductId() , exp);
@@ -176,20 +340,75 @@ public class ProductDaoMysqlImpl implements IProductDao{
 	}
 	
 	/**
-	 * inserts records into the database.
+	 * inserts records into the database with JDBC batches over one connection,
+	 * committing every batchsize records as one version. A failed batch is
+	 * retried row by row and the rows which still fail are reported.
+	 * 
 	 * @param products list of products.
+	 * @return the report of inserted and failed records.
+	 * @throws DBOperationFailureException when operation on the database fails.
+	 * @throws DataBaseAccessException     when unable to access the database.
 	 */
-	public void insertRecords(List<Product> products)  {
+	@Override
+	public BatchInsertReport insertRecords(List<Product> products)
+			throws DataBaseAccessException, DBOperationFailureException {
 		LOGGER_OBJ.debug("execution of insertRecords() started");
-		products.stream().forEach(product->{
-			try {
-				insertProduct(product);
-			} catch (DataBaseAccessException | DBOperationFailureException e) {
-				
-				e.printStackTrace();
-			}
-		});
+		BatchInsertReport report = new BatchInserter<Product>(ChangeTracking.NEXT_VERSION_QUERY,
+				new String[] { DELETE_TOMBSTONE_QUERY, INSERT_QUERY, INSERT_CITY_QUERY },
+				ProductDaoMysqlImpl::addInsertBatch, Product::getProductId).insert(products);
 		LOGGER_OBJ.debug("execution of insertRecords() completed");
+		return report;
+	}
+
+	/**
+	 * Replaces the tombstone of the deleted product with one of the current
+	 * version.
+	 */
+	private static void addTombstone(Connection connection, String productId) throws SQLException {
+		PreparedStatement deleteStatement = connection.prepareStatement(DELETE_TOMBSTONE_QUERY);
+		PreparedStatement insertStatement = null;
+		try {
+			DBUtil.watchStatement(deleteStatement);
+			deleteStatement.setString(1, productId);
+			deleteStatement.executeUpdate();
+			insertStatement = connection.prepareStatement(INSERT_TOMBSTONE_QUERY);
+			DBUtil.watchStatement(insertStatement);
+			insertStatement.setString(1, productId);
+			insertStatement.executeUpdate();
+		} finally {
+			DBUtil.cleanupdbresources(null, insertStatement, null);
+			DBUtil.cleanupdbresources(null, deleteStatement, null);
+		}
+	}
+
+	/**
+	 * Removes the tombstone of a product inserted again and adds the product row
+	 * and one product_city row per city of the availableCity field to the insert
+	 * batches.
+	 */
+	private static void addInsertBatch(PreparedStatement[] statements, Product product) throws SQLException {
+		statements[0].setString(1, product.getProductId());
+		statements[0].addBatch();
+		PreparedStatement productStatement = statements[1];
+		productStatement.setString(1, product.getProductId());
+		productStatement.setString(2, product.getProductName());
+		productStatement.setString(3, product.getProductCategory());
+		productStatement.setInt(4, product.getPrice());
+		productStatement.addBatch();
+		if (product.getAvailableCity() == null) {
+			return;
+		}
+		PreparedStatement cityStatement = statements[2];
+		int position = 0;
+		for (String city : product.getAvailableCity().split("/")) {
+			city = city.trim();
+			if (!city.isEmpty()) {
+				cityStatement.setString(1, product.getProductId());
+				cityStatement.setInt(2, position++);
+				cityStatement.setString(3, city);
+				cityStatement.addBatch();
+			}
+		}
 	}
 
 }
@@ -0,0 +1,114 @@
+package com.reactiveworks.productservice.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.ProductPage;
+import com.reactiveworks.productservice.model.ProductPageRequest;
+
+/**
+ * Provides product services to the user without blocking the calling thread.
+ *
+ * Every method returns at once with a future of the result. A failed future
+ * carries the exception of the matching method of
+ * {@link IProductAvailabilityService}, a TimeoutException when the call does
+ * not complete in time or a RejectedExecutionException when too many calls are
+ * waiting. Cancelling a future, or its timing out, cancels the database call
+ * which is running for it.
+ */
+public interface IAsyncProductAvailabilityService {
+
+	/**
+	 * Finds the products which are available in the city of the user.
+	 * @param userId id of the user.
+	 * @return the future list of products which are available in the city of the user.
+	 */
+	public CompletableFuture<List<Product>> getAllProductForUser(String userId);
+
+	/**
+	 * Finds the products which match the category.
+	 * @param userId id of the user.
+	 * @param productCategory category of the product.
+	 * @return the future list of products which match the given category.
+	 */
+	public CompletableFuture<List<Product>> getAllProductForUserForCategory(String userId, String productCategory);
+
+	/**
+	 * Gives a page of the products which are available in the city of the user, ordered by price.
+	 * @param userId id of the user.
+	 * @param request order, position and size of the page.
+	 * @return the future page of products.
+	 */
+	public CompletableFuture<ProductPage> getProductPageForUser(String userId, ProductPageRequest request);
+
+	/**
+	 * Gives a page of the products of the category which are available in the city of the user,
+	 * ordered by price.
+	 * @param userId id of the user.
+	 * @param productCategory category of the product.
+	 * @param request order, position and size of the page.
+	 * @return the future page of products.
+	 */
+	public CompletableFuture<ProductPage> getProductPageForUserForCategory(String userId, String productCategory,
+			ProductPageRequest request);
+
+	/**
+	 * Finds the products of the category which are available in the city of the user and whose
+	 * price lies in the given range, bounds included.
+	 * @param userId id of the user.
+	 * @param productCategory category of the product.
+	 * @param minPrice lowest price of the range.
+	 * @param maxPrice highest price of the range.
+	 * @return the future list of matching products, cheapest first.
+	 */
+	public CompletableFuture<List<Product>> getProductsInPriceRange(String userId, String productCategory,
+			int minPrice, int maxPrice);
+
+	/**
+	 * Finds the products which are available in the city of each of the given users.
+	 * @param userIds ids of the users.
+	 * @return the future lists of products of each user by user id, users which do not exist are left out.
+	 */
+	public CompletableFuture<Map<String, List<Product>>> getAllProductForUsers(Collection<String> userIds);
+
+	/**
+	 * Finds the products of the category which are available in the city of each of the given users.
+	 * @param userIds ids of the users.
+	 * @param productCategory category of the product.
+	 * @return the future lists of matching products of each user by user id, users which do not exist are left out.
+	 */
+	public CompletableFuture<Map<String, List<Product>>> getAllProductForUsersForCategory(Collection<String> userIds,
+			String productCategory);
+
+	/**
+	 * Inserts the product into the product database and makes it available to the queries.
+	 * @param product product to insert.
+	 * @return the future completed once the product is inserted.
+	 */
+	public CompletableFuture<Void> insertProduct(Product product);
+
+	/**
+	 * Updates the price of the product in the product database and in the query results.
+	 * @param product product to update.
+	 * @param price new price of the product.
+	 * @return the future completed once the product is updated.
+	 */
+	public CompletableFuture<Void> updateProduct(Product product, int price);
+
+	/**
+	 * Deletes the product from the product database and from the query results.
+	 * @param product product to delete.
+	 * @return the future completed once the product is deleted.
+	 */
+	public CompletableFuture<Void> deleteProduct(Product product);
+
+	/**
+	 * Reloads the products and users from the databases and makes them available to the queries.
+	 * @return the future completed once the reloaded catalog is published.
+	 */
+	public CompletableFuture<Void> reloadCatalog();
+
+}
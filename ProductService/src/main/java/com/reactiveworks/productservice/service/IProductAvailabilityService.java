@@ -1,10 +1,17 @@
 package com.reactiveworks.productservice.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
 import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+import com.reactiveworks.productservice.db.exceptions.OperationNotSupportedException;
 import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.ProductPage;
+import com.reactiveworks.productservice.model.ProductPageRequest;
+import com.reactiveworks.productservice.service.exceptions.UserNotFoundException;
 
 /**
  * Provides product services to the user.
@@ -15,16 +22,95 @@ public interface IProductAvailabilityService {
 	 * Finds the products which are available in the city of the user.
 	 * @param userId id of the user. 
 	 * @return the list of products which are available in the city of the user.
+	 * @throws UserNotFoundException when no user has the given id.
 	 */
-	 public List<Product> getAllProductForUser(String userId)  throws DBOperationFailureException, DataBaseAccessException;
+	 public List<Product> getAllProductForUser(String userId)  throws DBOperationFailureException, DataBaseAccessException, UserNotFoundException;
      
 	 /**
 	  * Finds the products which match the category.
 	  * @param userId id of the user.
 	  * @param productCategory category of the user.
 	  * @return the list of products which match the given category.
+	  * @throws UserNotFoundException when no user has the given id.
 	  */
-	 public List<Product> getAllProductForUserForCategory(String userId,String productCategory) throws DBOperationFailureException, DataBaseAccessException;
+	 public List<Product> getAllProductForUserForCategory(String userId,String productCategory) throws DBOperationFailureException, DataBaseAccessException, UserNotFoundException;
+
+	 /**
+	  * Gives a page of the products which are available in the city of the user, ordered by price.
+	  * @param userId id of the user.
+	  * @param request order, position and size of the page.
+	  * @return the page of products.
+	  * @throws UserNotFoundException when no user has the given id.
+	  */
+	 public ProductPage getProductPageForUser(String userId, ProductPageRequest request) throws DBOperationFailureException, DataBaseAccessException, UserNotFoundException;
+
+	 /**
+	  * Gives a page of the products of the category which are available in the city of the user,
+	  * ordered by price.
+	  * @param userId id of the user.
+	  * @param productCategory category of the product.
+	  * @param request order, position and size of the page.
+	  * @return the page of products.
+	  * @throws UserNotFoundException when no user has the given id.
+	  */
+	 public ProductPage getProductPageForUserForCategory(String userId, String productCategory, ProductPageRequest request) throws DBOperationFailureException, DataBaseAccessException, UserNotFoundException;
+
+	 /**
+	  * Finds the products of the category which are available in the city of the user and whose
+	  * price lies in the given range, bounds included.
+	  * @param userId id of the user.
+	  * @param productCategory category of the product.
+	  * @param minPrice lowest price of the range.
+	  * @param maxPrice highest price of the range.
+	  * @return the list of matching products, cheapest first.
+	  * @throws UserNotFoundException when no user has the given id.
+	  */
+	 public List<Product> getProductsInPriceRange(String userId, String productCategory, int minPrice, int maxPrice) throws DBOperationFailureException, DataBaseAccessException, UserNotFoundException;
+
+	 /**
+	  * Finds the products which are available in the city of each of the given users. The
+	  * products of each distinct city are looked up once and shared by all users of the city.
+	  * @param userIds ids of the users.
+	  * @return the unmodifiable list of products of each user by user id, users which do not exist are left out.
+	  */
+	 public Map<String, List<Product>> getAllProductForUsers(Collection<String> userIds) throws DBOperationFailureException, DataBaseAccessException;
+
+	 /**
+	  * Finds the products of the category which are available in the city of each of the given
+	  * users. The products of each distinct city are looked up once and shared by all users of the city.
+	  * @param userIds ids of the users.
+	  * @param productCategory category of the product.
+	  * @return the unmodifiable list of matching products of each user by user id, users which do not exist are left out.
+	  */
+	 public Map<String, List<Product>> getAllProductForUsersForCategory(Collection<String> userIds, String productCategory) throws DBOperationFailureException, DataBaseAccessException;
+
+	 /**
+	  * Inserts the product into the product database and makes it available to the queries.
+	  * @param product product to insert.
+	  * @throws OperationNotSupportedException when the database does not support writes.
+	  */
+	 public void insertProduct(Product product) throws OperationNotSupportedException, DataBaseAccessException, DBOperationFailureException;
+
+	 /**
+	  * Updates the price of the product in the product database and in the query results.
+	  * @param product product to update.
+	  * @param price new price of the product.
+	  * @throws OperationNotSupportedException when the database does not support writes.
+	  */
+	 public void updateProduct(Product product, int price) throws OperationNotSupportedException, DataBaseAccessException, DBOperationFailureException;
+
+	 /**
+	  * Deletes the product from the product database and from the query results.
+	  * @param product product to delete.
+	  * @throws OperationNotSupportedException when the database does not support writes.
+	  */
+	 public void deleteProduct(Product product) throws OperationNotSupportedException, DataBaseAccessException, DBOperationFailureException;
+
+	 /**
+	  * Reloads the products and users from the databases and makes them available to the queries.
+	  * @throws InvalidDBRecordFormatException when the format of a database record is invalid.
+	  */
+	 public void reloadCatalog() throws DBOperationFailureException, DataBaseAccessException, InvalidDBRecordFormatException;
 	
 	
 }
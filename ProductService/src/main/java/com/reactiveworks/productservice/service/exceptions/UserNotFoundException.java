@@ -0,0 +1,26 @@
+package com.reactiveworks.productservice.service.exceptions;
+
+/**
+ * Represents the exceptions raised when the requested user does not exist.
+ */
+public class UserNotFoundException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	public UserNotFoundException() {
+		super();
+	}
+
+	public UserNotFoundException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	public UserNotFoundException(String message) {
+		super(message);
+	}
+
+	public UserNotFoundException(Throwable cause) {
+		super(cause);
+	}
+
+}
@@ -0,0 +1,319 @@
+package com.reactiveworks.productservice.service.implementation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.db.CancellationScope;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.ProductPage;
+import com.reactiveworks.productservice.model.ProductPageRequest;
+import com.reactiveworks.productservice.service.IAsyncProductAvailabilityService;
+import com.reactiveworks.productservice.service.IProductAvailabilityService;
+
+/**
+ * Runs the calls of a product availability service on executors and gives
+ * futures of their results.
+ *
+ * The queries are answered from the catalog in memory and run on the CPU
+ * executor. The writes and reloads wait on the databases and run on the I/O
+ * executor, which should be bounded by the size of the connection pool. Every
+ * call runs in its own {@link CancellationScope}: the timeout of the service
+ * becomes the deadline of its statements, and cancelling the future or its
+ * timing out cancels the statement which is running and stops a catalog reload
+ * at the next record.
+ */
+public class AsyncProductAvailabilityService implements IAsyncProductAvailabilityService, AutoCloseable {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("AsyncProductAvailabilityService.class");
+
+	private static final String PROPERTY_FILE = "service.properties";
+	private static final String IO_THREADS = "async.iothreads";
+	private static final String IO_QUEUE_CAPACITY = "async.ioqueuecapacity";
+	private static final String CPU_THREADS = "async.cputhreads";
+	private static final String TIMEOUT_MILLIS = "async.timeoutmillis";
+	private static final int DEFAULT_IO_THREADS = 16;
+	private static final int DEFAULT_IO_QUEUE_CAPACITY = 1000;
+	private static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+
+	private final IProductAvailabilityService service;
+	private final Executor ioExecutor;
+	private final Executor cpuExecutor;
+	private final long timeoutNanos;
+	private final ScheduledThreadPoolExecutor timer;
+	private final boolean ownsExecutors;
+
+	/**
+	 * Creates the service over the given service with the executors and timeout
+	 * configured by the async properties of service.properties.
+	 *
+	 * @param service service the calls are delegated to.
+	 */
+	public AsyncProductAvailabilityService(IProductAvailabilityService service) {
+		this(service, loadProperties());
+	}
+
+	/**
+	 * Creates the service over the given service with the given executors. The
+	 * executors are not shut down by {@link #close()}.
+	 *
+	 * @param service     service the calls are delegated to.
+	 * @param ioExecutor  executor of the calls which access the databases.
+	 * @param cpuExecutor executor of the queries.
+	 * @param timeout     time a call may take, 0 or less for no timeout.
+	 * @param unit        unit of the timeout.
+	 */
+	public AsyncProductAvailabilityService(IProductAvailabilityService service, Executor ioExecutor,
+			Executor cpuExecutor, long timeout, TimeUnit unit) {
+		this(service, ioExecutor, cpuExecutor, timeout, unit, false);
+	}
+
+	private AsyncProductAvailabilityService(IProductAvailabilityService service, Properties properties) {
+		this(service, createIoExecutor(intProperty(properties, IO_THREADS, DEFAULT_IO_THREADS),
+				intProperty(properties, IO_QUEUE_CAPACITY, DEFAULT_IO_QUEUE_CAPACITY)),
+				createCpuExecutor(intProperty(properties, CPU_THREADS, 0)),
+				longProperty(properties, TIMEOUT_MILLIS, DEFAULT_TIMEOUT_MILLIS), TimeUnit.MILLISECONDS, true);
+	}
+
+	private AsyncProductAvailabilityService(IProductAvailabilityService service, Executor ioExecutor,
+			Executor cpuExecutor, long timeout, TimeUnit unit, boolean ownsExecutors) {
+		this.service = service;
+		this.ioExecutor = ioExecutor;
+		this.cpuExecutor = cpuExecutor;
+		this.timeoutNanos = timeout > 0 ? unit.toNanos(timeout) : 0;
+		this.ownsExecutors = ownsExecutors;
+		this.timer = new ScheduledThreadPoolExecutor(1, daemonThreads("availability-timeout"));
+		this.timer.setRemoveOnCancelPolicy(true);
+	}
+
+	@Override
+	public CompletableFuture<List<Product>> getAllProductForUser(String userId) {
+		return submit("getAllProductForUser()", cpuExecutor, () -> service.getAllProductForUser(userId));
+	}
+
+	@Override
+	public CompletableFuture<List<Product>> getAllProductForUserForCategory(String userId, String productCategory) {
+		return submit("getAllProductForUserForCategory()", cpuExecutor,
+				() -> service.getAllProductForUserForCategory(userId, productCategory));
+	}
+
+	@Override
+	public CompletableFuture<ProductPage> getProductPageForUser(String userId, ProductPageRequest request) {
+		return submit("getProductPageForUser()", cpuExecutor, () -> service.getProductPageForUser(userId, request));
+	}
+
+	@Override
+	public CompletableFuture<ProductPage> getProductPageForUserForCategory(String userId, String productCategory,
+			ProductPageRequest request) {
+		return submit("getProductPageForUserForCategory()", cpuExecutor,
+				() -> service.getProductPageForUserForCategory(userId, productCategory, request));
+	}
+
+	@Override
+	public CompletableFuture<List<Product>> getProductsInPriceRange(String userId, String productCategory,
+			int minPrice, int maxPrice) {
+		return submit("getProductsInPriceRange()", cpuExecutor,
+				() -> service.getProductsInPriceRange(userId, productCategory, minPrice, maxPrice));
+	}
+
+	@Override
+	public CompletableFuture<Map<String, List<Product>>> getAllProductForUsers(Collection<String> userIds) {
+		return submit("getAllProductForUsers()", cpuExecutor, () -> service.getAllProductForUsers(userIds));
+	}
+
+	@Override
+	public CompletableFuture<Map<String, List<Product>>> getAllProductForUsersForCategory(Collection<String> userIds,
+			String productCategory) {
+		return submit("getAllProductForUsersForCategory()", cpuExecutor,
+				() -> service.getAllProductForUsersForCategory(userIds, productCategory));
+	}
+
+	@Override
+	public CompletableFuture<Void> insertProduct(Product product) {
+		return submit("insertProduct()", ioExecutor, () -> {
+			service.insertProduct(product);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> updateProduct(Product product, int price) {
+		return submit("updateProduct()", ioExecutor, () -> {
+			service.updateProduct(product, price);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> deleteProduct(Product product) {
+		return submit("deleteProduct()", ioExecutor, () -> {
+			service.deleteProduct(product);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> reloadCatalog() {
+		return submit("reloadCatalog()", ioExecutor, () -> {
+			service.reloadCatalog();
+			return null;
+		});
+	}
+
+	/**
+	 * Stops the timeout timer and, when the service created them, the executors.
+	 * Calls which are still running are cancelled.
+	 */
+	@Override
+	public void close() {
+		timer.shutdownNow();
+		if (ownsExecutors) {
+			((ExecutorService) ioExecutor).shutdownNow();
+			((ExecutorService) cpuExecutor).shutdownNow();
+		}
+	}
+
+	/**
+	 * Runs the call on the executor in a new cancellation scope and completes the
+	 * returned future with its outcome, unless the future was cancelled or timed
+	 * out first.
+	 */
+	private <T> CompletableFuture<T> submit(String callName, Executor executor, Callable<T> call) {
+		LOGGER_OBJ.debug("execution of " + callName + " submitted");
+		CancellationScope scope = new CancellationScope(timeoutNanos, TimeUnit.NANOSECONDS);
+		ScopedFuture<T> result = new ScopedFuture<>(scope);
+		try {
+			executor.execute(() -> {
+				if (result.isDone()) {
+					return;
+				}
+				CancellationScope previous = CancellationScope.bind(scope);
+				try {
+					result.complete(call.call());
+				} catch (Exception exp) {
+					result.completeExceptionally(exp);
+				} finally {
+					CancellationScope.bind(previous);
+				}
+			});
+		} catch (RejectedExecutionException exp) {
+			LOGGER_OBJ.error("unable to run " + callName + ", too many calls are waiting");
+			result.completeExceptionally(exp);
+			return result;
+		}
+		if (timeoutNanos > 0) {
+			ScheduledFuture<?> timeout = timer.schedule(() -> {
+				if (result.completeExceptionally(new TimeoutException(callName + " did not complete in "
+						+ TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms"))) {
+					LOGGER_OBJ.error(callName + " timed out");
+					scope.cancel();
+				}
+			}, timeoutNanos, TimeUnit.NANOSECONDS);
+			result.whenComplete((value, exp) -> timeout.cancel(false));
+		}
+		return result;
+	}
+
+	/**
+	 * Future which cancels the scope of its call when it is cancelled.
+	 */
+	private static final class ScopedFuture<T> extends CompletableFuture<T> {
+
+		private final CancellationScope scope;
+
+		private ScopedFuture(CancellationScope scope) {
+			this.scope = scope;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				scope.cancel();
+			}
+			return cancelled;
+		}
+	}
+
+	/**
+	 * Creates the bounded pool of the database calls. A call submitted while all
+	 * threads are busy and the queue is full is rejected.
+	 */
+	private static ExecutorService createIoExecutor(int threads, int queueCapacity) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), daemonThreads("availability-io"));
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Creates the pool of the queries, one thread per processor when threads is 0
+	 * or less.
+	 */
+	private static ExecutorService createCpuExecutor(int threads) {
+		return new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+	}
+
+	private static ThreadFactory daemonThreads(String name) {
+		AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Reads service.properties, an absent file leaves every property at its
+	 * default.
+	 */
+	private static Properties loadProperties() {
+		Properties properties = new Properties();
+		try (InputStream input = AsyncProductAvailabilityService.class.getClassLoader()
+				.getResourceAsStream(PROPERTY_FILE)) {
+			if (input != null) {
+				properties.load(input);
+			}
+		} catch (IOException exp) {
+			LOGGER_OBJ.error("not able to read the properties file " + PROPERTY_FILE + ", using the defaults " + exp);
+		}
+		return properties;
+	}
+
+	private static int intProperty(Properties properties, String key, int defaultValue) {
+		return (int) longProperty(properties, key, defaultValue);
+	}
+
+	private static long longProperty(Properties properties, String key, long defaultValue) {
+		String value = properties.getProperty(key);
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException exp) {
+			LOGGER_OBJ.error("format of " + key + " property is invalid, using " + defaultValue);
+			return defaultValue;
+		}
+	}
+
+}
@@ -1,20 +1,46 @@
 package com.reactiveworks.productservice.service.implementation;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.apache.log4j.Logger;
 
+import com.reactiveworks.productservice.catalog.CatalogLayout;
+import com.reactiveworks.productservice.catalog.CatalogPartitioning;
+import com.reactiveworks.productservice.catalog.CatalogQueryCache;
+import com.reactiveworks.productservice.catalog.CatalogReloader;
+import com.reactiveworks.productservice.catalog.CatalogSnapshot;
+import com.reactiveworks.productservice.catalog.IProductCatalog;
+import com.reactiveworks.productservice.catalog.PartitionStatistics;
+import com.reactiveworks.productservice.catalog.PartitionedProductCatalog;
 import com.reactiveworks.productservice.dao.IProductDao;
 import com.reactiveworks.productservice.dao.IUserDao;
+import com.reactiveworks.productservice.dao.registry.DaoRegistry;
 import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
 import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
 import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+import com.reactiveworks.productservice.db.exceptions.OperationNotSupportedException;
+import com.reactiveworks.productservice.model.PriceOrder;
 import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.ProductPage;
+import com.reactiveworks.productservice.model.ProductPageRequest;
 import com.reactiveworks.productservice.model.User;
-import com.reactiveworks.productservice.product.dao.ProductDaoFactory;
 import com.reactiveworks.productservice.service.IProductAvailabilityService;
-import com.reactiveworks.productservice.user.dao.UserDaoFactory;
+import com.reactiveworks.productservice.service.exceptions.UserNotFoundException;
+import com.reactiveworks.productservice.util.ProductKeys;
 
 /**
  * Provides product services to the user.
@@ -22,47 +48,254 @@ import com.reactiveworks.productservice.user.dao.UserDaoFactory;
 public class ProductAvailabilityService implements IProductAvailabilityService {
 	private static final Logger LOGGER_OBJ = Logger.getLogger("ProductAvailabilityService.class");
 
-	private List<Product> productList;
-	private List<User> userList;
+	private static final String PROPERTY_FILE = "service.properties";
+	private static final String CACHE_MAX_WEIGHT = "cache.maxweight";
+	private static final String CACHE_TTL_SECONDS = "cache.ttlseconds";
+	private static final String CATALOG_LAYOUT = "catalog.layout";
+	private static final String CATALOG_PARTITIONS = "catalog.partitions";
+	private static final String CATALOG_REFRESH_SECONDS = "catalog.refreshseconds";
+	private static final String STARTUP_WARM_UP_QUERIES = "startup.warmupqueries";
+	private static final int DEFAULT_WARM_UP_QUERIES = 10000;
+	private static final int WARM_UP_PAGE_SIZE = 20;
+	private static final long DEFAULT_CACHE_MAX_WEIGHT = 1000000;
+	private static final int PARALLEL_CITY_THRESHOLD = 64;
 
+	private final IProductDao productDao;
+	private final CatalogReloader catalogReloader;
+	private final CatalogQueryCache queryCache;
+	private volatile boolean ready;
+
+	/**
+	 * Creates the service over the daos of the dbtype configured in
+	 * dbtype.properties, taken from the shared {@link DaoRegistry}, and starts it:
+	 * the catalog is loaded and indexed, then the startup.warmupqueries property
+	 * sets the number of queries run on it before the service is ready, so the
+	 * first requests run compiled code. When the catalog.refreshseconds property
+	 * is set, the catalog is then refreshed with the records changed in the
+	 * databases at that period.
+	 */
 	public ProductAvailabilityService() {
 		LOGGER_OBJ.debug("execution of ProductAvailabilityService() started");
-		IProductDao productDao;
-		IUserDao userDao;
+		IProductDao productDao = null;
+		IUserDao userDao = null;
 		try {
-			productDao = ProductDaoFactory.getInstance();
-			userDao = UserDaoFactory.getInstance();
-			productList = productDao.getProducts();
-			userList = userDao.getUsers();
+			DaoRegistry daoRegistry = DaoRegistry.getInstance();
+			productDao = daoRegistry.getProductDao();
+			userDao = daoRegistry.getUserDao();
 		} catch (DBOperationFailureException operationFailureExp) {
 			LOGGER_OBJ.error("unable to perform operation on the database"+operationFailureExp);
-		} catch (DataBaseAccessException dbAccessFailureExp) {
-			LOGGER_OBJ.error("unable to access the database"+dbAccessFailureExp);
-		} catch (InvalidDBRecordFormatException exp) {
-			LOGGER_OBJ.error("format of database record is invalid"+exp);
 		}
+		this.productDao = productDao;
+		Properties properties = loadProperties();
+		catalogReloader = new CatalogReloader(productDao, userDao, createCatalogLayout(properties),
+				createCatalogPartitioning(properties));
+		queryCache = createQueryCache(properties);
+		if (productDao != null && userDao != null) {
+			if (loadCatalog()) {
+				warmUp(getWarmUpQueries(properties));
+				ready = true;
+			}
+			long refreshSeconds = getRefreshSeconds(properties);
+			if (refreshSeconds > 0) {
+				catalogReloader.follow(refreshSeconds, TimeUnit.SECONDS);
+			}
+		}
+		LOGGER_OBJ.debug("execution of ProductAvailabilityService() completed");
+	}
+
+	/**
+	 * Creates the service over the given daos and loads the catalog.
+	 * 
+	 * @param productDao dao of the product database.
+	 * @param userDao    dao of the user database.
+	 */
+	public ProductAvailabilityService(IProductDao productDao, IUserDao userDao) {
+		this(productDao, userDao, loadProperties());
+	}
+
+	private ProductAvailabilityService(IProductDao productDao, IUserDao userDao, Properties properties) {
+		this(productDao, userDao, createQueryCache(properties), createCatalogLayout(properties),
+				createCatalogPartitioning(properties));
+	}
+
+	/**
+	 * Creates the service over the given daos with the given query cache and
+	 * loads the catalog.
+	 * 
+	 * @param productDao dao of the product database.
+	 * @param userDao    dao of the user database.
+	 * @param queryCache cache of the query results.
+	 */
+	public ProductAvailabilityService(IProductDao productDao, IUserDao userDao, CatalogQueryCache queryCache) {
+		this(productDao, userDao, queryCache, loadProperties());
+	}
+
+	private ProductAvailabilityService(IProductDao productDao, IUserDao userDao, CatalogQueryCache queryCache,
+			Properties properties) {
+		this(productDao, userDao, queryCache, createCatalogLayout(properties), createCatalogPartitioning(properties));
+	}
+
+	/**
+	 * Creates the service over the given daos with the given query cache and
+	 * catalog layout, and loads the catalog.
+	 * 
+	 * @param productDao dao of the product database.
+	 * @param userDao    dao of the user database.
+	 * @param queryCache cache of the query results.
+	 * @param layout     layout of the products of the catalog in memory.
+	 */
+	public ProductAvailabilityService(IProductDao productDao, IUserDao userDao, CatalogQueryCache queryCache,
+			CatalogLayout layout) {
+		this(productDao, userDao, queryCache, layout, CatalogPartitioning.none());
+	}
+
+	/**
+	 * Creates the service over the given daos with the given query cache, catalog
+	 * layout and partitioning of the catalog by city, and loads the catalog.
+	 * 
+	 * @param productDao   dao of the product database.
+	 * @param userDao      dao of the user database.
+	 * @param queryCache   cache of the query results.
+	 * @param layout       layout of the products of the catalog in memory.
+	 * @param partitioning partitioning of the catalog by city.
+	 */
+	public ProductAvailabilityService(IProductDao productDao, IUserDao userDao, CatalogQueryCache queryCache,
+			CatalogLayout layout, CatalogPartitioning partitioning) {
 		LOGGER_OBJ.debug("execution of ProductAvailabilityService() started");
+		this.productDao = productDao;
+		this.catalogReloader = new CatalogReloader(productDao, userDao, layout, partitioning);
+		this.queryCache = queryCache;
+		ready = loadCatalog();
+		LOGGER_OBJ.debug("execution of ProductAvailabilityService() completed");
+	}
+
+	/**
+	 * Gives the reloader which publishes the catalog snapshots read by this
+	 * service. It can be used to reload the catalog on demand or on a schedule.
+	 * 
+	 * @return the catalog reloader.
+	 */
+	public CatalogReloader getCatalogReloader() {
+		return catalogReloader;
+	}
+
+	/**
+	 * Tells whether the catalog is loaded and, for the service configured by
+	 * dbtype.properties, warmed up, so that the service can take requests.
+	 * 
+	 * @return true once the service is ready.
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * Runs the given number of queries on the current catalog so that the JIT
+	 * compiles the query paths before the first request. The queries cycle
+	 * through the cities of the users and the categories of the products, with
+	 * the city, category, paged and price range lookups and the grouping of the
+	 * users by city. They bypass the query cache, whose results and statistics
+	 * are left to the real requests.
+	 * 
+	 * @param queries number of queries to run, 0 or less for none.
+	 */
+	public void warmUp(int queries) {
+		LOGGER_OBJ.debug("execution of warmUp() started");
+		CatalogSnapshot snapshot = catalogReloader.getSnapshot();
+		List<String> cities = new ArrayList<>();
+		List<String> userIds = new ArrayList<>();
+		Set<String> cityKeys = new HashSet<>();
+		for (User user : snapshot.getUsers()) {
+			userIds.add(user.getUserId());
+			if (user.getCity() != null && cityKeys.add(ProductKeys.normalizeCity(user.getCity()))) {
+				cities.add(user.getCity());
+			}
+		}
+		Set<String> categorySet = new HashSet<>();
+		for (Product product : snapshot.getCatalog().getProducts()) {
+			if (product.getProductCategory() != null) {
+				categorySet.add(product.getProductCategory());
+			}
+		}
+		List<String> categories = new ArrayList<>(categorySet);
+		if (queries <= 0 || cities.isEmpty() || categories.isEmpty()) {
+			LOGGER_OBJ.debug("execution of warmUp() completed");
+			return;
+		}
+		long start = System.nanoTime();
+		long results = 0;
+		IProductCatalog catalog = snapshot.getCatalog();
+		ProductPageRequest page = ProductPageRequest.page(PriceOrder.ASCENDING, 0, WARM_UP_PAGE_SIZE);
+		for (int query = 0; query < queries; query++) {
+			String city = cities.get(query % cities.size());
+			String category = categories.get(query % categories.size());
+			switch (query % 5) {
+			case 0:
+				results += catalog.getProducts(city).size();
+				break;
+			case 1:
+				results += catalog.getProducts(city, category).size();
+				break;
+			case 2:
+				results += catalog.getProducts(city, category, page).getProducts().size();
+				break;
+			case 3:
+				results += catalog.getProductsInPriceRange(city, category, 0, Integer.MAX_VALUE).size();
+				break;
+			default:
+				int from = query % userIds.size();
+				results += getProductsByUser(snapshot, userIds.subList(from, Math.min(userIds.size(), from + 8)),
+						cityKey -> catalog.getProducts(cityKey), false).size();
+			}
+		}
+		LOGGER_OBJ.info("ran " + queries + " warm-up queries, " + results + " results, in "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+		LOGGER_OBJ.debug("execution of warmUp() completed");
+	}
+
+	/**
+	 * Gives the cache of the city and category query results, for its
+	 * statistics.
+	 * 
+	 * @return the query cache.
+	 */
+	public CatalogQueryCache getQueryCache() {
+		return queryCache;
+	}
+
+	/**
+	 * Gives the statistics of the partitions of the current catalog: their
+	 * cities, products, memory and the time of their last refresh.
+	 * 
+	 * @return the statistics ordered by partition, empty when the catalog is not
+	 *         partitioned.
+	 */
+	public List<PartitionStatistics> getPartitionStatistics() {
+		IProductCatalog catalog = catalogReloader.getSnapshot().getCatalog();
+		if (catalog instanceof PartitionedProductCatalog) {
+			return ((PartitionedProductCatalog) catalog).getStatistics();
+		}
+		return Collections.emptyList();
 	}
 
 	/**
 	 * Finds the products which are available in the city of the user.
 	 * 
 	 * @param userId id of the user.
-	 * @return the list of products which are available in the city of the user.
+	 * @return the unmodifiable list of products which are available in the city of
+	 *         the user.
 	 * @throws DataBaseAccessException     when unable to access the database.
 	 * @throws DBOperationFailureException when operation on the database fails.
+	 * @throws UserNotFoundException       when no user has the given id.
 	 */
 	public List<Product> getAllProductForUser(String userId)
-			throws DBOperationFailureException, DataBaseAccessException {
+			throws DBOperationFailureException, DataBaseAccessException, UserNotFoundException {
 		LOGGER_OBJ.debug("execution of getAllProductForUser() started");
 		List<Product> productsForUser;
 
-		String userCity = userList.stream().filter(user -> user.getUserId().equalsIgnoreCase(userId))
-				.map(user -> user.getCity()).collect(Collectors.toList()).get(0);
-
-		productsForUser = productList.stream().filter(product -> product.getAvailableCity().contains(userCity))
-				.collect(Collectors.toList());
-		LOGGER_OBJ.debug("execution of getAllProductForUser() started");
+		CatalogSnapshot snapshot = catalogReloader.getSnapshot();
+		productsForUser = getProducts(snapshot, getUserCity(snapshot, userId));
+		LOGGER_OBJ.debug("execution of getAllProductForUser() completed");
 		return productsForUser;
 	}
 
@@ -71,19 +304,463 @@ public class ProductAvailabilityService implements IProductAvailabilityService {
 	 * 
 	 * @param userId          id of the user.
 	 * @param productCategory category of the user.
-	 * @return the list of products which match the given category.
+	 * @return the unmodifiable list of products which match the given category.
 	 * @throws DataBaseAccessException     when unable to access the database.
 	 * @throws DBOperationFailureException when operation on the database fails.
+	 * @throws UserNotFoundException       when no user has the given id.
 	 */
 	public List<Product> getAllProductForUserForCategory(String userId, String productCategory)
-			throws DBOperationFailureException, DataBaseAccessException {
+			throws DBOperationFailureException, DataBaseAccessException, UserNotFoundException {
 		LOGGER_OBJ.debug("execution of getAllProductForUserForCategory() started");
-		List<Product> productsInUserCity = getAllProductForUser(userId);
-		List<Product> allProductForUser = productsInUserCity.stream()
-				.filter(product -> product.getProductCategory().equalsIgnoreCase(productCategory))
-				.collect(Collectors.toList());
+		CatalogSnapshot snapshot = catalogReloader.getSnapshot();
+		List<Product> allProductForUser = getProducts(snapshot, getUserCity(snapshot, userId), productCategory);
 		LOGGER_OBJ.debug("execution of getAllProductForUserForCategory() completed");
 		return allProductForUser;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Gives a page of the products which are available in the city of the user,
+	 * ordered by price. The page is read out of the price ordered listing of the
+	 * city, so its cost follows the size of the page.
+	 * 
+	 * @param userId  id of the user.
+	 * @param request order, position and size of the page.
+	 * @return the page of products.
+	 * @throws UserNotFoundException when no user has the given id.
+	 */
+	@Override
+	public ProductPage getProductPageForUser(String userId, ProductPageRequest request) throws UserNotFoundException {
+		LOGGER_OBJ.debug("execution of getProductPageForUser() started");
+		CatalogSnapshot snapshot = catalogReloader.getSnapshot();
+		ProductPage page = snapshot.getCatalog().getProducts(getUserCity(snapshot, userId), request);
+		LOGGER_OBJ.debug("execution of getProductPageForUser() completed");
+		return page;
+	}
+
+	/**
+	 * Gives a page of the products of the category which are available in the
+	 * city of the user, ordered by price.
+	 * 
+	 * @param userId          id of the user.
+	 * @param productCategory category of the product.
+	 * @param request         order, position and size of the page.
+	 * @return the page of products.
+	 * @throws UserNotFoundException when no user has the given id.
+	 */
+	@Override
+	public ProductPage getProductPageForUserForCategory(String userId, String productCategory,
+			ProductPageRequest request) throws UserNotFoundException {
+		LOGGER_OBJ.debug("execution of getProductPageForUserForCategory() started");
+		CatalogSnapshot snapshot = catalogReloader.getSnapshot();
+		ProductPage page = snapshot.getCatalog().getProducts(getUserCity(snapshot, userId), productCategory,
+				request);
+		LOGGER_OBJ.debug("execution of getProductPageForUserForCategory() completed");
+		return page;
+	}
+
+	/**
+	 * Finds the products of the category which are available in the city of the
+	 * user and whose price lies in the given range, bounds included. The bounds
+	 * are found by binary search over the price column of the listing of the city
+	 * and category, and the result is a view of that listing.
+	 * 
+	 * @param userId          id of the user.
+	 * @param productCategory category of the product.
+	 * @param minPrice        lowest price of the range.
+	 * @param maxPrice        highest price of the range.
+	 * @return the unmodifiable list of matching products, cheapest first.
+	 * @throws UserNotFoundException when no user has the given id.
+	 */
+	@Override
+	public List<Product> getProductsInPriceRange(String userId, String productCategory, int minPrice, int maxPrice)
+			throws UserNotFoundException {
+		LOGGER_OBJ.debug("execution of getProductsInPriceRange() started");
+		CatalogSnapshot snapshot = catalogReloader.getSnapshot();
+		List<Product> products = snapshot.getCatalog().getProductsInPriceRange(getUserCity(snapshot, userId),
+				productCategory, minPrice, maxPrice);
+		LOGGER_OBJ.debug("execution of getProductsInPriceRange() completed");
+		return products;
+	}
+
+	/**
+	 * Finds the products which are available in the city of each of the given
+	 * users. The users are grouped by city and the products of each distinct city
+	 * are looked up once, through the query cache, so the cost follows the number
+	 * of cities rather than the number of users.
+	 * 
+	 * @param userIds ids of the users.
+	 * @return the unmodifiable list of products of each user by user id, users
+	 *         which do not exist are left out.
+	 */
+	@Override
+	public Map<String, List<Product>> getAllProductForUsers(Collection<String> userIds) {
+		LOGGER_OBJ.debug("execution of getAllProductForUsers() started");
+		CatalogSnapshot snapshot = catalogReloader.getSnapshot();
+		Map<String, List<Product>> productsByUser = getProductsByUser(snapshot, userIds,
+				cityKey -> getProducts(snapshot, cityKey), false);
+		LOGGER_OBJ.debug("execution of getAllProductForUsers() completed");
+		return productsByUser;
+	}
+
+	/**
+	 * Finds the products of the category which are available in the city of each
+	 * of the given users. The users are grouped by city and the products of each
+	 * distinct city are computed once, in parallel when there are many cities.
+	 * 
+	 * @param userIds         ids of the users.
+	 * @param productCategory category of the product.
+	 * @return the unmodifiable list of matching products of each user by user id,
+	 *         users which do not exist are left out.
+	 */
+	@Override
+	public Map<String, List<Product>> getAllProductForUsersForCategory(Collection<String> userIds,
+			String productCategory) {
+		LOGGER_OBJ.debug("execution of getAllProductForUsersForCategory() started");
+		CatalogSnapshot snapshot = catalogReloader.getSnapshot();
+		Map<String, List<Product>> productsByUser = getProductsByUser(snapshot, userIds,
+				cityKey -> getProducts(snapshot, cityKey, productCategory), true);
+		LOGGER_OBJ.debug("execution of getAllProductForUsersForCategory() completed");
+		return productsByUser;
+	}
+
+	/**
+	 * Inserts the product into the product database and publishes it in the
+	 * catalog.
+	 * 
+	 * @param product product to insert.
+	 * @throws OperationNotSupportedException when the database does not support
+	 *                                        writes.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on the database fails.
+	 */
+	@Override
+	public void insertProduct(Product product)
+			throws OperationNotSupportedException, DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of insertProduct() started");
+		getProductDao().insertProduct(product);
+		Product inserted = copyOf(product, product.getPrice());
+		publishChange(null, inserted, Collections.singletonList(inserted), Collections.<String>emptySet());
+		LOGGER_OBJ.debug("execution of insertProduct() completed");
+	}
+
+	/**
+	 * Updates the price of the product in the product database and in the
+	 * catalog.
+	 * 
+	 * @param product product to update.
+	 * @param price   new price of the product.
+	 * @throws OperationNotSupportedException when the database does not support
+	 *                                        writes.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on the database fails.
+	 */
+	@Override
+	public void updateProduct(Product product, int price)
+			throws OperationNotSupportedException, DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of updateProduct() started");
+		getProductDao().updateProduct(product, price);
+		Product previous = findProduct(product.getProductId());
+		Product updated = copyOf(previous == null ? product : previous, price);
+		if (previous == null) {
+			publishChange(null, updated, Collections.<Product>emptyList(), Collections.<String>emptySet());
+		} else {
+			publishChange(previous, updated, Collections.singletonList(updated),
+					Collections.singleton(updated.getProductId()));
+		}
+		LOGGER_OBJ.debug("execution of updateProduct() completed");
+	}
+
+	/**
+	 * Deletes the product from the product database and from the catalog.
+	 * 
+	 * @param product product to delete.
+	 * @throws OperationNotSupportedException when the database does not support
+	 *                                        writes.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on the database fails.
+	 */
+	@Override
+	public void deleteProduct(Product product)
+			throws OperationNotSupportedException, DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of deleteProduct() started");
+		getProductDao().deleteProduct(product);
+		Product previous = findProduct(product.getProductId());
+		publishChange(previous == null ? product : previous, null, Collections.<Product>emptyList(),
+				Collections.singleton(product.getProductId()));
+		LOGGER_OBJ.debug("execution of deleteProduct() completed");
+	}
+
+	/**
+	 * Reloads the catalog from the daos. The query cache needs no invalidation,
+	 * its results are tagged with the version of the replaced snapshot.
+	 * 
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on the database fails.
+	 * @throws InvalidDBRecordFormatException when the format of a database record
+	 *                                        is invalid.
+	 */
+	@Override
+	public void reloadCatalog()
+			throws DBOperationFailureException, DataBaseAccessException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of reloadCatalog() started");
+		catalogReloader.reload();
+		LOGGER_OBJ.debug("execution of reloadCatalog() completed");
+	}
+
+	/**
+	 * Publishes the snapshot with the written product merged in and drops the
+	 * cached results of the cities and categories of the product before and
+	 * after the write.
+	 */
+	private void publishChange(Product before, Product after, List<Product> products, Set<String> removedIds) {
+		CatalogSnapshot next = catalogReloader.update(products, removedIds);
+		Collection<String> cities = new ArrayList<>();
+		Collection<String> categories = new ArrayList<>();
+		for (Product product : new Product[] { before, after }) {
+			if (product != null) {
+				ProductKeys.forEachCity(product.getAvailableCity(), cities::add);
+				if (product.getProductCategory() != null) {
+					categories.add(product.getProductCategory());
+				}
+			}
+		}
+		queryCache.advance(next.getVersion() - 1, next.getVersion(), cities, categories);
+	}
+
+	private IProductDao getProductDao() throws DBOperationFailureException {
+		if (productDao == null) {
+			LOGGER_OBJ.error("product database is not available");
+			throw new DBOperationFailureException("product database is not available");
+		}
+		return productDao;
+	}
+
+	private Product findProduct(String productId) {
+		return catalogReloader.getSnapshot().getCatalog().findProduct(productId);
+	}
+
+	/**
+	 * Copies the product so that the published snapshot does not share a
+	 * mutable object with the caller.
+	 */
+	private static Product copyOf(Product product, int price) {
+		Product copy = new Product();
+		copy.setProductId(product.getProductId());
+		copy.setProductName(product.getProductName());
+		copy.setProductCategory(product.getProductCategory());
+		copy.setPrice(price);
+		copy.setAvailableCity(product.getAvailableCity());
+		return copy;
+	}
+
+	/**
+	 * Finds the products available in the city, through the query cache.
+	 */
+	private List<Product> getProducts(CatalogSnapshot snapshot, String city) {
+		if (city == null) {
+			return snapshot.getCatalog().getProducts(city);
+		}
+		List<Product> products = queryCache.get(snapshot.getVersion(), city);
+		if (products == null) {
+			products = materialize(snapshot.getCatalog().getProducts(city));
+			queryCache.put(snapshot.getVersion(), city, products);
+		}
+		return products;
+	}
+
+	/**
+	 * Finds the products of the category available in the city, through the query
+	 * cache.
+	 */
+	private List<Product> getProducts(CatalogSnapshot snapshot, String city, String productCategory) {
+		if (city == null || productCategory == null) {
+			return snapshot.getCatalog().getProducts(city, productCategory);
+		}
+		List<Product> products = queryCache.get(snapshot.getVersion(), city, productCategory);
+		if (products == null) {
+			products = materialize(snapshot.getCatalog().getProducts(city, productCategory));
+			queryCache.put(snapshot.getVersion(), city, productCategory, products);
+		}
+		return products;
+	}
+
+	/**
+	 * Copies the result of a catalog query into the unmodifiable list which is
+	 * cached: a columnar catalog gives a view which creates every product again
+	 * each time it is read, so the cached result holds the products themselves.
+	 */
+	private static List<Product> materialize(List<Product> products) {
+		return products.isEmpty() ? Collections.<Product>emptyList()
+				: Collections.unmodifiableList(new ArrayList<>(products));
+	}
+
+	/**
+	 * Groups the users by the normalized name of their city, runs the city query
+	 * once per distinct city and maps every user to the result of its city.
+	 */
+	private static Map<String, List<Product>> getProductsByUser(CatalogSnapshot snapshot, Collection<String> userIds,
+			Function<String, List<Product>> cityQuery, boolean parallel) {
+		Map<String, String> cityKeyByUser = new HashMap<>(capacityOf(userIds.size()));
+		Set<String> cityKeys = new HashSet<>();
+		int unknownUsers = 0;
+		for (String userId : userIds) {
+			User user = userId == null ? null : snapshot.getUserIndex().getUser(userId);
+			if (user == null) {
+				unknownUsers++;
+				continue;
+			}
+			String cityKey = user.getCity() == null ? null : ProductKeys.normalizeCity(user.getCity());
+			cityKeyByUser.put(userId, cityKey);
+			if (cityKey != null) {
+				cityKeys.add(cityKey);
+			}
+		}
+		Map<String, List<Product>> productsByCity = new ConcurrentHashMap<>(capacityOf(cityKeys.size()));
+		Stream<String> cities = parallel && cityKeys.size() >= PARALLEL_CITY_THRESHOLD ? cityKeys.parallelStream()
+				: cityKeys.stream();
+		cities.forEach(cityKey -> productsByCity.put(cityKey, cityQuery.apply(cityKey)));
+
+		Map<String, List<Product>> productsByUser = new HashMap<>(capacityOf(cityKeyByUser.size()));
+		List<Product> noProducts = Collections.emptyList();
+		cityKeyByUser.forEach((userId, cityKey) -> productsByUser.put(userId,
+				cityKey == null ? noProducts : productsByCity.get(cityKey)));
+		if (unknownUsers > 0) {
+			LOGGER_OBJ.debug(unknownUsers + " of " + userIds.size() + " users do not exist");
+		}
+		return productsByUser;
+	}
+
+	private static int capacityOf(int size) {
+		return (int) Math.min(Integer.MAX_VALUE, size * 4L / 3 + 1);
+	}
+
+	/**
+	 * Finds the city of the user in the given snapshot.
+	 * 
+	 * @param snapshot snapshot of the catalog.
+	 * @param userId   id of the user.
+	 * @return the city of the user.
+	 * @throws UserNotFoundException when no user has the given id.
+	 */
+	private String getUserCity(CatalogSnapshot snapshot, String userId) throws UserNotFoundException {
+		User user = snapshot.getUserIndex().getUser(userId);
+		if (user == null) {
+			LOGGER_OBJ.error("user with id " + userId + " does not exist");
+			throw new UserNotFoundException("user with id " + userId + " does not exist");
+		}
+		return user.getCity();
+	}
+
+	/**
+	 * Loads the first snapshot of the catalog. A failure is logged and the
+	 * service starts with an empty catalog.
+	 * 
+	 * @return true when the catalog is loaded.
+	 */
+	private boolean loadCatalog() {
+		try {
+			catalogReloader.reload();
+			return true;
+		} catch (DBOperationFailureException operationFailureExp) {
+			LOGGER_OBJ.error("unable to perform operation on the database"+operationFailureExp);
+		} catch (DataBaseAccessException dbAccessFailureExp) {
+			LOGGER_OBJ.error("unable to access the database"+dbAccessFailureExp);
+		} catch (InvalidDBRecordFormatException exp) {
+			LOGGER_OBJ.error("format of database record is invalid"+exp);
+		}
+		return false;
+	}
+
+	/**
+	 * Reads service.properties, an absent file leaves every property at its
+	 * default.
+	 */
+	private static Properties loadProperties() {
+		Properties properties = new Properties();
+		try (InputStream input = ProductAvailabilityService.class.getClassLoader()
+				.getResourceAsStream(PROPERTY_FILE)) {
+			if (input != null) {
+				properties.load(input);
+			}
+		} catch (IOException exp) {
+			LOGGER_OBJ.error("not able to read the properties file " + PROPERTY_FILE + ", using the defaults " + exp);
+		}
+		return properties;
+	}
+
+	/**
+	 * Creates the query cache configured by the cache.maxweight and
+	 * cache.ttlseconds properties, or with the defaults when a property is
+	 * absent.
+	 */
+	private static CatalogQueryCache createQueryCache(Properties properties) {
+		long maxWeight = DEFAULT_CACHE_MAX_WEIGHT;
+		long ttlSeconds = 0;
+		try {
+			maxWeight = Long.parseLong(properties.getProperty(CACHE_MAX_WEIGHT, "" + maxWeight).trim());
+			ttlSeconds = Long.parseLong(properties.getProperty(CACHE_TTL_SECONDS, "" + ttlSeconds).trim());
+		} catch (NumberFormatException exp) {
+			LOGGER_OBJ.error("not able to read the cache properties of " + PROPERTY_FILE + ", using the defaults "
+					+ exp);
+		}
+		return new CatalogQueryCache(maxWeight, ttlSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Reads the catalog.refreshseconds property, 0 or an absent value refreshes
+	 * the catalog only on demand.
+	 */
+	private static long getRefreshSeconds(Properties properties) {
+		try {
+			return Long.parseLong(properties.getProperty(CATALOG_REFRESH_SECONDS, "0").trim());
+		} catch (NumberFormatException exp) {
+			LOGGER_OBJ.error("format of " + CATALOG_REFRESH_SECONDS + " property is invalid, refreshing on demand only");
+			return 0;
+		}
+	}
+
+	/**
+	 * Reads the startup.warmupqueries property, the default number of warm-up
+	 * queries when it is absent.
+	 */
+	private static int getWarmUpQueries(Properties properties) {
+		try {
+			return Integer.parseInt(
+					properties.getProperty(STARTUP_WARM_UP_QUERIES, "" + DEFAULT_WARM_UP_QUERIES).trim());
+		} catch (NumberFormatException exp) {
+			LOGGER_OBJ.error("format of " + STARTUP_WARM_UP_QUERIES + " property is invalid, using the default "
+					+ DEFAULT_WARM_UP_QUERIES);
+			return DEFAULT_WARM_UP_QUERIES;
+		}
+	}
+
+	/**
+	 * Gives the layout of the catalog configured by the catalog.layout property,
+	 * or the object layout when it is absent.
+	 */
+	private static CatalogLayout createCatalogLayout(Properties properties) {
+		String layout = properties.getProperty(CATALOG_LAYOUT);
+		try {
+			return layout == null ? CatalogLayout.OBJECTS : CatalogLayout.of(layout);
+		} catch (IllegalArgumentException exp) {
+			LOGGER_OBJ.error("unknown catalog layout " + layout + " in " + PROPERTY_FILE + ", using the object layout");
+			return CatalogLayout.OBJECTS;
+		}
+	}
+
+	/**
+	 * Gives the partitioning of the catalog configured by the catalog.partitions
+	 * property, or none when it is absent.
+	 */
+	private static CatalogPartitioning createCatalogPartitioning(Properties properties) {
+		String partitions = properties.getProperty(CATALOG_PARTITIONS);
+		try {
+			return partitions == null ? CatalogPartitioning.none() : CatalogPartitioning.of(partitions);
+		} catch (IllegalArgumentException exp) {
+			LOGGER_OBJ.error("invalid catalog partitioning " + partitions + " in " + PROPERTY_FILE
+					+ ", keeping the catalog whole");
+			return CatalogPartitioning.none();
+		}
+	}
+
+}
@@ -1,47 +1,102 @@
 package com.reactiveworks.productservice.user.dao.implementation;
 
-import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.Consumer;
 
 import org.apache.log4j.Logger;
 
+import com.reactiveworks.productservice.csv.CsvReader;
+import com.reactiveworks.productservice.csv.CsvRecord;
+import com.reactiveworks.productservice.csv.CsvRecordHandler;
+import com.reactiveworks.productservice.csv.CsvTail;
+import com.reactiveworks.productservice.dao.ChangeCursor;
 import com.reactiveworks.productservice.dao.IUserDao;
 import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
 import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
 import com.reactiveworks.productservice.db.exceptions.OperationNotSupportedException;
 import com.reactiveworks.productservice.model.User;
 
+/**
+ * CSV implementation of UserDao.
+ */
 public class UserDaoCSVImpl implements IUserDao {
 	private static final String FILE_NAME = "User.csv";
 	private static final Logger LOGGER_OBJ = Logger.getLogger("UserDaoCSVImpl.class");
+	private static final int USER_FIELDS = 5;
+
+	private final Path csvFile;
+	private final int parallelism;
+	private final boolean follow;
+	private CsvTail tail;
+
+	/**
+	 * Creates the dao over the User.csv resource of the classpath.
+	 */
+	public UserDaoCSVImpl() {
+		this(null, 1);
+	}
+
+	/**
+	 * Creates the dao over the given CSV file.
+	 * 
+	 * @param csvFile path of the user CSV file.
+	 */
+	public UserDaoCSVImpl(Path csvFile) {
+		this(csvFile, 1);
+	}
+
+	/**
+	 * Creates the dao over the given CSV file, parsing it in parallel chunks.
+	 * 
+	 * @param csvFile     path of the user CSV file, null for the User.csv resource
+	 *                    of the classpath.
+	 * @param parallelism number of chunks of the file parsed at the same time, 1
+	 *                    to read the file sequentially.
+	 */
+	public UserDaoCSVImpl(Path csvFile, int parallelism) {
+		this(csvFile, parallelism, false);
+	}
 
 	/**
-	 * Gets the records from the user database.
+	 * Creates the dao over the given CSV file, optionally following it. A dao
+	 * which follows its file gives, with the complete records of the file read by
+	 * streamUsers(), the cursor where they end, and the records appended after
+	 * a cursor in streamAppendedUsers(). The file must then be on the filesystem.
+	 * 
+	 * @param csvFile     path of the user CSV file, null for the User.csv resource
+	 *                    of the classpath.
+	 * @param parallelism number of chunks of the file parsed at the same time by
+	 *                    getUsers() and streamUsers(), 1 to read the file
+	 *                    sequentially.
+	 * @param follow      whether the dao follows the records appended to the file.
+	 */
+	public UserDaoCSVImpl(Path csvFile, int parallelism, boolean follow) {
+		this.csvFile = csvFile;
+		this.parallelism = parallelism;
+		this.follow = follow;
+	}
+
+	/**
+	 * Gets the records from the user database. A record with an invalid format is
+	 * logged and skipped.
 	 * 
 	 * @return the list of users from the database.
-	 * @throws DataBaseAccessException when unable to access the database.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws InvalidDBRecordFormatException when the CSV structure of the file is
+	 *                                        invalid.
 	 */
 	@Override
-	public List<User> getUsers() throws DataBaseAccessException {
+	public List<User> getUsers() throws DataBaseAccessException, InvalidDBRecordFormatException {
 		LOGGER_OBJ.debug("execution of getDBRecords() started");
-		File file = new File(getClass().getClassLoader().getResource(FILE_NAME).getFile());
 		List<User> users;
 
-		try (Stream<String> line = Files.lines(Paths.get(file.toURI()))) {
-
-			users = line.skip(1).map(str -> {
-
-				return parseCSVLine(str);
-
-			}).collect(Collectors.toList());
-
+		try {
+			users = getCsvReader().readAll(true, parallelism, this::parseCSVRecord);
 		} catch (IOException ioExp) {
-			LOGGER_OBJ.error("unable to access the database "+ FILE_NAME);
+			LOGGER_OBJ.error("unable to access the database "+ getFileName());
 			throw new DataBaseAccessException("unable to access the users database" , ioExp);
 
 		}
@@ -50,26 +105,131 @@ public class UserDaoCSVImpl implements IUserDao {
 	}
 
 	/**
-	 * converts one line in csv file to the user object.
+	 * Passes every record of the user database to the consumer in file order. With
+	 * a parallelism above one the file is parsed in chunks on as many threads and
+	 * the records of a chunk are handed off once the chunk is parsed, so only the
+	 * chunks parsed ahead are held in memory rather than the whole file. A record
+	 * with an invalid format is logged and skipped.
 	 * 
-	 * @param str the string which has to be parsed.
-	 * @return the object of the product.
-	 * @throws InvalidDBRecordFormatException when the operation is not supported by
-	 *                                        the database.
+	 * @param consumer consumer of the users.
+	 * @return the cursor following the last complete record when the dao follows
+	 *         its file, else null.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws InvalidDBRecordFormatException when the CSV structure of the file is
+	 *                                        invalid.
 	 */
-	private User parseCSVLine(String str) {
-		LOGGER_OBJ.debug("execution of parseCSVLine() started");
-		User userObj = new User();
-		String[] userDetails = str.split(",");
+	@Override
+	public ChangeCursor streamUsers(Consumer<User> consumer)
+			throws DataBaseAccessException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of streamUsers() started");
+		ChangeCursor cursor = null;
+		try {
+			if (follow) {
+				CsvTail.Mark mark = getTail().readAll(parallelism, this::parseCSVRecord, consumer);
+				cursor = new ChangeCursor(mark.getOffset(), mark);
+			} else {
+				getCsvReader().readAll(true, parallelism, this::parseCSVRecord, consumer);
+			}
+		} catch (IOException ioExp) {
+			LOGGER_OBJ.error("unable to access the user database " + getFileName());
+			throw new DataBaseAccessException("unable to access the users database", ioExp);
+		}
+		LOGGER_OBJ.debug("execution of streamUsers() completed");
+		return cursor;
+	}
 
-		userObj.setUserId(userDetails[0]);
-		userObj.setUserName(userDetails[1]);
-		userObj.setEmail(userDetails[2]);
-		userObj.setCity(userDetails[4]);
-		LOGGER_OBJ.debug("execution of parseCSVLine() completed");
+	/**
+	 * Passes to the consumer the records appended to the file after the cursor,
+	 * when the dao follows its file. Only the bytes written since are parsed. A
+	 * record with an invalid format is logged and skipped.
+	 * 
+	 * @param from     cursor of the users already read.
+	 * @param consumer consumer of the appended users.
+	 * @return the cursor following the last complete record, or null when the
+	 *         dao does not follow its file or when the file was truncated or
+	 *         rewritten.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws InvalidDBRecordFormatException when the CSV structure of the file is
+	 *                                        invalid.
+	 */
+	@Override
+	public ChangeCursor streamAppendedUsers(ChangeCursor from, Consumer<User> consumer)
+			throws DataBaseAccessException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of streamAppendedUsers() started");
+		if (!follow || from == null || !(from.getState() instanceof CsvTail.Mark)) {
+			return null;
+		}
+		CsvTail.Mark mark;
+		try {
+			mark = getTail().readAppended((CsvTail.Mark) from.getState(), recordHandler(consumer));
+		} catch (IOException ioExp) {
+			LOGGER_OBJ.error("unable to access the user database " + getFileName());
+			throw new DataBaseAccessException("unable to access the users database", ioExp);
+		}
+		LOGGER_OBJ.debug("execution of streamAppendedUsers() completed");
+		return mark == null ? null : new ChangeCursor(mark.getOffset(), mark);
+	}
+
+	/**
+	 * Creates the handler which converts the records and passes the valid ones to
+	 * the consumer.
+	 */
+	private CsvRecordHandler recordHandler(Consumer<User> consumer) {
+		return record -> {
+			User user = parseCSVRecord(record);
+			if (user != null) {
+				consumer.accept(user);
+			}
+		};
+	}
+
+	/**
+	 * converts one record of the csv file to the user object.
+	 * 
+	 * @param record the record which has to be converted.
+	 * @return the object of the user, null when the format of the record is
+	 *         invalid.
+	 */
+	private User parseCSVRecord(CsvRecord record) {
+		if (record.getFieldCount() < USER_FIELDS) {
+			LOGGER_OBJ.error("record " + record.getRecordNumber() + " of " + getFileName() + " has "
+					+ record.getFieldCount() + " fields instead of " + USER_FIELDS);
+			return null;
+		}
+		User userObj = new User();
+		userObj.setUserId(record.getString(0));
+		userObj.setUserName(record.getString(1));
+		userObj.setEmail(record.getString(2));
+		userObj.setPhoneNumber(record.getString(3));
+		userObj.setCity(record.getString(4));
 		return userObj;
 	}
 
+	/**
+	 * Creates the reader of the user CSV file.
+	 */
+	private CsvReader getCsvReader() throws FileNotFoundException {
+		return csvFile != null ? new CsvReader(csvFile) : CsvReader.forResource(FILE_NAME);
+	}
+
+	/**
+	 * Gives the tail of the user CSV file, created on first use.
+	 */
+	private synchronized CsvTail getTail() throws IOException {
+		if (tail == null) {
+			Path path = getCsvReader().getPath();
+			if (path == null) {
+				throw new IOException(getFileName() + " is not a file and cannot be followed");
+			}
+			tail = new CsvTail(path, true);
+		}
+		return tail;
+	}
+
+	private String getFileName() {
+		return csvFile != null ? csvFile.toString() : FILE_NAME;
+	}
+
 	/**
 	 * inserts the record into the user database.
 	 * 
@@ -0,0 +1,198 @@
+package com.reactiveworks.productservice.user.dao.implementation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.dao.ChangeCursor;
+import com.reactiveworks.productservice.dao.IUserDao;
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+import com.reactiveworks.productservice.model.User;
+
+/**
+ * In memory implementation of UserDao, holding the user table in a map by user
+ * id.
+ *
+ * The table starts empty, or with the users of a seed dao read on first
+ * use. Every write takes the next version of the table and, once the table
+ * has been read, the dao remembers the version of the last write of each
+ * user id, deleted ones included, so that
+ * {@link #streamUserChanges(ChangeCursor, Consumer, Consumer)} gives the
+ * users changed after the cursor of any reader.
+ */
+public class UserDaoInMemoryImpl implements IUserDao {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("UserDaoInMemoryImpl.class");
+
+	private final Map<String, User> users = new LinkedHashMap<>();
+	private final Map<String, Long> changeVersions = new HashMap<>();
+	private final TreeMap<Long, String> changedIds = new TreeMap<>();
+	private IUserDao seedDao;
+	private boolean read;
+	private long version;
+
+	/**
+	 * Creates the dao over an empty table.
+	 */
+	public UserDaoInMemoryImpl() {
+		this(null);
+	}
+
+	/**
+	 * Creates the dao over the users of the given dao, read on first use.
+	 *
+	 * @param seedDao dao the table is filled from, null for an empty table.
+	 */
+	public UserDaoInMemoryImpl(IUserDao seedDao) {
+		this.seedDao = seedDao;
+	}
+
+	@Override
+	public synchronized List<User> getUsers()
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		seed();
+		List<User> copies = new ArrayList<>();
+		for (User user : users.values()) {
+			copies.add(copyOf(user, user.getPhoneNumber()));
+		}
+		return copies;
+	}
+
+	/**
+	 * Passes copies of all the users to the consumer.
+	 *
+	 * @return the cursor of the current version.
+	 */
+	@Override
+	public synchronized ChangeCursor streamUsers(Consumer<User> consumer)
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of streamUsers() started");
+		seed();
+		read = true;
+		for (User user : users.values()) {
+			consumer.accept(copyOf(user, user.getPhoneNumber()));
+		}
+		LOGGER_OBJ.debug("execution of streamUsers() completed");
+		return ChangeCursor.at(version);
+	}
+
+	/**
+	 * Passes copies of the users inserted or updated after the version of the
+	 * cursor to the first consumer and the ids of the deleted ones to the
+	 * second.
+	 *
+	 * @return the cursor of the current version, null when the cursor is null.
+	 */
+	@Override
+	public synchronized ChangeCursor streamUserChanges(ChangeCursor from, Consumer<User> changed,
+			Consumer<String> deletedIds) {
+		LOGGER_OBJ.debug("execution of streamUserChanges() started");
+		if (from == null) {
+			return null;
+		}
+		for (String userId : changedIds.tailMap(from.getPosition(), false).values()) {
+			User user = users.get(userId);
+			if (user != null) {
+				changed.accept(copyOf(user, user.getPhoneNumber()));
+			} else {
+				deletedIds.accept(userId);
+			}
+		}
+		LOGGER_OBJ.debug("execution of streamUserChanges() completed");
+		return ChangeCursor.at(version);
+	}
+
+	/**
+	 * Inserts a copy of the user.
+	 *
+	 * @throws DataBaseAccessException when a user of the same id exists.
+	 */
+	@Override
+	public synchronized void insertUser(User user) throws DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of insertUser() started");
+		seed();
+		if (users.containsKey(user.getUserId())) {
+			LOGGER_OBJ.error("user " + user.getUserId() + " already exists");
+			throw new DataBaseAccessException("user " + user.getUserId() + " already exists");
+		}
+		put(copyOf(user, user.getPhoneNumber()));
+		LOGGER_OBJ.debug("execution of insertUser() completed");
+	}
+
+	@Override
+	public synchronized void deleteUser(User user) throws DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of deleteUser() started");
+		seed();
+		if (users.remove(user.getUserId()) != null) {
+			recordChange(user.getUserId());
+		}
+		LOGGER_OBJ.debug("execution of deleteUser() completed");
+	}
+
+	@Override
+	public synchronized void updateUser(User user, String phoneNumber)
+			throws DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of updateUser() started");
+		seed();
+		User stored = users.get(user.getUserId());
+		if (stored != null) {
+			put(copyOf(stored, phoneNumber));
+		}
+		LOGGER_OBJ.debug("execution of updateUser() completed");
+	}
+
+	private void put(User user) {
+		users.put(user.getUserId(), user);
+		recordChange(user.getUserId());
+	}
+
+	/**
+	 * Takes the next version for a write of the given id and, once the table has
+	 * been read, makes it the version of the last write of the id.
+	 */
+	private void recordChange(String userId) {
+		version++;
+		if (read) {
+			Long previous = changeVersions.put(userId, version);
+			if (previous != null) {
+				changedIds.remove(previous);
+			}
+			changedIds.put(version, userId);
+		}
+	}
+
+	/**
+	 * Fills the table from the seed dao the first time it is used.
+	 */
+	private void seed() throws DataBaseAccessException, DBOperationFailureException {
+		if (seedDao == null) {
+			return;
+		}
+		try {
+			seedDao.streamUsers(user -> users.put(user.getUserId(), user));
+		} catch (InvalidDBRecordFormatException exp) {
+			LOGGER_OBJ.error("unable to seed the user table " + exp.getMessage());
+			throw new DBOperationFailureException("unable to seed the user table", exp);
+		}
+		seedDao = null;
+	}
+
+	private static User copyOf(User user, String phoneNumber) {
+		User copy = new User();
+		copy.setUserId(user.getUserId());
+		copy.setUserName(user.getUserName());
+		copy.setEmail(user.getEmail());
+		copy.setPhoneNumber(phoneNumber);
+		copy.setCity(user.getCity());
+		return copy;
+	}
+
+}
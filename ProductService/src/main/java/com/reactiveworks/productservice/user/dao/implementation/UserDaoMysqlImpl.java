@@ -6,10 +6,15 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.apache.log4j.Logger;
 
+import com.reactiveworks.productservice.dao.BatchInsertReport;
+import com.reactiveworks.productservice.dao.ChangeCursor;
 import com.reactiveworks.productservice.dao.IUserDao;
+import com.reactiveworks.productservice.db.BatchInserter;
+import com.reactiveworks.productservice.db.ChangeTracking;
 import com.reactiveworks.productservice.db.DBUtil;
 import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
 import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
@@ -19,57 +24,137 @@ import com.reactiveworks.productservice.model.User;
 
 /**
  *Mysql implementation of UserDao.
+ *
+ * The writes are versioned as {@link ChangeTracking} describes, so a full
+ * read gives the cursor of the version it saw and streamUserChanges() gives
+ * only the users changed or deleted after a cursor. The dao keeps no state of
+ * its readers.
  */
 public class UserDaoMysqlImpl implements IUserDao {
 
 	private static final Logger LOGGER_OBJ = Logger.getLogger("UserDaoMysqlImpl.class");
-	private static final String INSERT_QUERY = "INSERT INTO user VALUES(?,?,?,?,?);";
-	private static final String UPDATE_QUERY = "UPDATE user SET phoneNumber=? WHERE userId=?;";
+	private static final String INSERT_QUERY = "INSERT INTO user (userId, userName, email, phoneNumber, city, version)"
+			+ " VALUES(?,?,?,?,?," + ChangeTracking.CURRENT_VERSION + ");";
+	private static final String UPDATE_QUERY = "UPDATE user SET phoneNumber=?, version=" + ChangeTracking.CURRENT_VERSION
+			+ " WHERE userId=?;";
 	private static final String DELETE_QUERY = "DELETE FROM user WHERE userId=?;";
+	private static final String DELETE_TOMBSTONE_QUERY = "DELETE FROM user_tombstone WHERE userId=?;";
+	private static final String INSERT_TOMBSTONE_QUERY = "INSERT INTO user_tombstone (userId, version) VALUES(?,"
+			+ ChangeTracking.CURRENT_VERSION + ");";
 	private static final String SELECT_QUERY = "SELECT * FROM user ;";
+	private static final String SELECT_CHANGED_QUERY = "SELECT * FROM user WHERE version > ? AND version <= ?;";
+	private static final String SELECT_TOMBSTONES_QUERY = "SELECT userId FROM user_tombstone"
+			+ " WHERE version > ? AND version <= ?;";
 
 	/**
 	 * Gets the records from the database.
 	 * 
-	 * @return the list of products into the database.
+	 * @return the list of users from the database.
 	 * @throws DataBaseAccessException        when unable to access the database.
 	 * @throws DBOperationFailureException    when database operation fails.
-	 * @throws InvalidDBRecordFormatException when the format of the database record
-	 *                                        is invalid.
 	 */
 	@Override
 	public List<User> getUsers() throws DataBaseAccessException, DBOperationFailureException {
 		LOGGER_OBJ.debug("execution of getDBRecords() started");
 		List<User> usersList = new ArrayList<User>();
+		queryUsers(SELECT_QUERY, usersList::add);
+		LOGGER_OBJ.debug("execution of getDBRecords() completed");
+		return usersList;
+	}
+
+	/**
+	 * Passes every record of the user database to the consumer as it arrives. The
+	 * rows are read through a forward only, read only result set with the fetch
+	 * size configured in database.properties, so the table is never held in
+	 * memory. The cursor returned is at the version read just before the rows;
+	 * a row written meanwhile may be read again as a change.
+	 * 
+	 * @param consumer consumer of the users.
+	 * @return the cursor of the version read, null when the database does not
+	 *         track its changes.
+	 * @throws DataBaseAccessException     when unable to access the database.
+	 * @throws DBOperationFailureException when database operation fails.
+	 */
+	@Override
+	public ChangeCursor streamUsers(Consumer<User> consumer) throws DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of streamUsers() started");
+		long version = ChangeTracking.getCurrentVersion();
+		queryUsers(SELECT_QUERY, consumer);
+		LOGGER_OBJ.debug("execution of streamUsers() completed");
+		return version == ChangeTracking.UNTRACKED ? null : ChangeCursor.at(version);
+	}
+
+	/**
+	 * Passes the users inserted or updated after the version of the cursor to
+	 * the first consumer and the ids of the users deleted since then to the
+	 * second, up to the current version.
+	 * 
+	 * @param from       cursor of the users already read.
+	 * @param changed    consumer of the inserted and updated users.
+	 * @param deletedIds consumer of the ids of the deleted users.
+	 * @return the cursor of the current version, null when the cursor is null
+	 *         or the database does not track its changes.
+	 * @throws DataBaseAccessException     when unable to access the database.
+	 * @throws DBOperationFailureException when database operation fails.
+	 */
+	@Override
+	public ChangeCursor streamUserChanges(ChangeCursor from, Consumer<User> changed,
+			Consumer<String> deletedIds)
+			throws DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of streamUserChanges() started");
+		long to = from == null ? ChangeTracking.UNTRACKED : ChangeTracking.getCurrentVersion();
+		if (to == ChangeTracking.UNTRACKED) {
+			LOGGER_OBJ.debug("execution of streamUserChanges() completed");
+			return null;
+		}
+		if (to > from.getPosition()) {
+			queryUsers(SELECT_CHANGED_QUERY, changed, from.getPosition(), to);
+			ChangeTracking.streamKeys(SELECT_TOMBSTONES_QUERY, from.getPosition(), to, deletedIds);
+		}
+		LOGGER_OBJ.debug("execution of streamUserChanges() completed");
+		return ChangeCursor.at(to);
+	}
+
+	/**
+	 * Runs the select query with the given parameters and passes every user to
+	 * the consumer as it arrives.
+	 */
+	private static void queryUsers(String query, Consumer<User> consumer, Object... parameters)
+			throws DataBaseAccessException, DBOperationFailureException {
 		ResultSet res = null;
-		User userObj = null;
+		String userId = null;
 		Connection connection = null;
 		PreparedStatement statement = null;
 		try {
 
 			connection = DBUtil.getdbconnection();
-			statement = connection.prepareStatement(SELECT_QUERY);
-			res = statement.executeQuery(SELECT_QUERY);
+			statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+					ResultSet.CONCUR_READ_ONLY);
+			DBUtil.watchStatement(statement);
+			statement.setFetchSize(DBUtil.getFetchSize());
+			for (int i = 0; i < parameters.length; i++) {
+				statement.setObject(i + 1, parameters[i]);
+			}
+			res = statement.executeQuery();
 			while (res.next()) {
-				userObj = new User();
-				userObj.setUserId(res.getString(1));
+				userId = res.getString(1);
+				User userObj = new User();
+				userObj.setUserId(userId);
 				userObj.setUserName(res.getString(2));
 				userObj.setEmail(res.getString(3));
 				userObj.setPhoneNumber(res.getString(4));
 				userObj.setCity(res.getString(5));
-				usersList.add(userObj);
+				consumer.accept(userObj);
 			}
 
 		} catch (SQLException exp) {
 			LOGGER_OBJ.error("unable to access  database");
-			throw new DataBaseAccessException("unable to access user with id " + userObj.getUserId(), exp);
+			throw new DataBaseAccessException("unable to access user with id " + userId, exp);
 		} finally {
 
 			DBUtil.cleanupdbresources(res, statement, connection);
 
 		}
-		LOGGER_OBJ.debug("execution of getDBRecords() completed");
-		return usersList;
 	}
 
 	/**
@@ -90,12 +175,13 @@ public class UserDaoMysqlImpl implements IUserDao {
 		try {
 			connection = DBUtil.getdbconnection();
 			statement = connection.prepareStatement(INSERT_QUERY);
-			statement.setString(1, user.getUserId());
-			statement.setString(2, user.getUserName());
-			statement.setString(3, user.getEmail());
-			statement.setString(4, user.getPhoneNumber());
-			statement.setString(5, user.getCity());
-			statement.executeUpdate();
+			DBUtil.watchStatement(statement);
+			bindInsert(statement, user);
+			PreparedStatement insertStatement = statement;
+			ChangeTracking.runVersioned(connection, versioned -> {
+				deleteTombstone(versioned, user.getUserId());
+				insertStatement.executeUpdate();
+			});
 		} catch (SQLException exp) {
 			LOGGER_OBJ.error("unable to access database");
 			throw new DataBaseAccessException("unable to insert user with id "+ user.getUserId()+" into the database" ,exp);
@@ -124,8 +210,15 @@ public class UserDaoMysqlImpl implements IUserDao {
 		try {
 			connection = DBUtil.getdbconnection();
 			statement = connection.prepareStatement(DELETE_QUERY);
+			DBUtil.watchStatement(statement);
 			statement.setString(1, user.getUserId());
-			statement.executeUpdate();
+			PreparedStatement deleteStatement = statement;
+			ChangeTracking.runVersioned(connection, versioned -> {
+				if (deleteStatement.executeUpdate() > 0) {
+					deleteTombstone(versioned, user.getUserId());
+					addTombstone(versioned, user.getUserId());
+				}
+			});
 		} catch (SQLException exp) {
 			LOGGER_OBJ.error("unable to access stocktrade database");
 			throw new DataBaseAccessException("unable to delete user with id " +user.getUserId(), exp);
@@ -156,9 +249,11 @@ public class UserDaoMysqlImpl implements IUserDao {
 		try {
 			connection = DBUtil.getdbconnection();
 			statement = connection.prepareStatement(UPDATE_QUERY);
+			DBUtil.watchStatement(statement);
 			statement.setString(1, phoneNumber);
 			statement.setString(2, user.getUserId());
-			statement.executeUpdate();
+			PreparedStatement updateStatement = statement;
+			ChangeTracking.runVersioned(connection, versioned -> updateStatement.executeUpdate());
 		} catch (SQLException exp) {
 			LOGGER_OBJ.error("unable to access  database");
 			throw new DataBaseAccessException("unable to update user with id "+user.getUserId() , exp);
@@ -171,20 +266,65 @@ public class UserDaoMysqlImpl implements IUserDao {
 	}
 
 	/**
-	 * inserts records into the database.
+	 * inserts records into the database with JDBC batches over one connection,
+	 * committing every batchsize records as one version. A failed batch is
+	 * retried row by row and the rows which still fail are reported.
 	 * 
-	 * @param products list of products.
+	 * @param users list of users.
+	 * @return the report of inserted and failed records.
+	 * @throws DBOperationFailureException when operation on the database fails.
+	 * @throws DataBaseAccessException     when unable to access the database.
 	 */
-	public void insertRecords(List<User> users) {
-		LOGGER_OBJ.debug("execution of getDBRecords() started");
-		users.stream().forEach(user -> {
-			try {
-				insertUser(user);
-			} catch (DataBaseAccessException | DBOperationFailureException e) {
-				LOGGER_OBJ.error(e.getMessage());
-				e.printStackTrace();
-			}
-		});
-		LOGGER_OBJ.debug("execution of getDBRecords() completed");
+	@Override
+	public BatchInsertReport insertRecords(List<User> users)
+			throws DataBaseAccessException, DBOperationFailureException {
+		LOGGER_OBJ.debug("execution of insertRecords() started");
+		BatchInsertReport report = new BatchInserter<User>(ChangeTracking.NEXT_VERSION_QUERY,
+				new String[] { DELETE_TOMBSTONE_QUERY, INSERT_QUERY }, UserDaoMysqlImpl::addInsertBatch,
+				User::getUserId).insert(users);
+		LOGGER_OBJ.debug("execution of insertRecords() completed");
+		return report;
+	}
+
+	/**
+	 * Removes the tombstone of a user inserted again and adds the user row to the
+	 * insert batches.
+	 */
+	private static void addInsertBatch(PreparedStatement[] statements, User user) throws SQLException {
+		statements[0].setString(1, user.getUserId());
+		statements[0].addBatch();
+		bindInsert(statements[1], user);
+		statements[1].addBatch();
+	}
+
+	private static void deleteTombstone(Connection connection, String userId) throws SQLException {
+		runKeyStatement(connection, DELETE_TOMBSTONE_QUERY, userId);
 	}
+
+	private static void addTombstone(Connection connection, String userId) throws SQLException {
+		runKeyStatement(connection, INSERT_TOMBSTONE_QUERY, userId);
+	}
+
+	private static void runKeyStatement(Connection connection, String query, String userId) throws SQLException {
+		PreparedStatement statement = connection.prepareStatement(query);
+		try {
+			DBUtil.watchStatement(statement);
+			statement.setString(1, userId);
+			statement.executeUpdate();
+		} finally {
+			DBUtil.cleanupdbresources(null, statement, null);
+		}
+	}
+
+	/**
+	 * Sets the parameters of the insert statement from the user.
+	 */
+	private static void bindInsert(PreparedStatement statement, User user) throws SQLException {
+		statement.setString(1, user.getUserId());
+		statement.setString(2, user.getUserName());
+		statement.setString(3, user.getEmail());
+		statement.setString(4, user.getPhoneNumber());
+		statement.setString(5, user.getCity());
+	}
+
 }
\ No newline at end of file
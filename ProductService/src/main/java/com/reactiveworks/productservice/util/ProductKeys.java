@@ -0,0 +1,80 @@
+package com.reactiveworks.productservice.util;
+
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Keys under which the cities and categories of the products are matched.
+ *
+ * A city or category is matched ignoring case and surrounding spaces, by the
+ * daos which filter the products as by the indexes of the catalog, so both
+ * layers derive their keys here.
+ */
+public final class ProductKeys {
+
+	private static final char CITY_SEPARATOR = '/';
+
+	private ProductKeys() {
+
+	}
+
+	/**
+	 * Converts the city name to the form used as key.
+	 *
+	 * @param city name of the city.
+	 * @return the trimmed, lower cased city name.
+	 */
+	public static String normalizeCity(String city) {
+		return city.trim().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Converts the category name to the form used as key.
+	 *
+	 * @param category name of the category.
+	 * @return the trimmed, lower cased category name.
+	 */
+	public static String normalizeCategory(String category) {
+		return category.trim().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Splits the '/' separated availableCity field and passes every non empty,
+	 * normalized city to the given action.
+	 *
+	 * @param availableCity availableCity field of the product.
+	 * @param action        action to perform for each city.
+	 */
+	public static void forEachCity(String availableCity, Consumer<String> action) {
+		if (availableCity == null) {
+			return;
+		}
+		int start = 0;
+		int length = availableCity.length();
+		while (start <= length) {
+			int end = availableCity.indexOf(CITY_SEPARATOR, start);
+			if (end < 0) {
+				end = length;
+			}
+			String city = normalizeCity(availableCity.substring(start, end));
+			if (!city.isEmpty()) {
+				action.accept(city);
+			}
+			start = end + 1;
+		}
+	}
+
+	/**
+	 * Checks whether the '/' separated availableCity field lists the given city.
+	 *
+	 * @param availableCity availableCity field of the product.
+	 * @param cityKey       normalized name of the city.
+	 * @return true when the city is listed.
+	 */
+	public static boolean containsCity(String availableCity, String cityKey) {
+		boolean[] listed = new boolean[1];
+		forEachCity(availableCity, city -> listed[0] |= city.equals(cityKey));
+		return listed[0];
+	}
+
+}
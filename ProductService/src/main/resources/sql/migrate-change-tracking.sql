@@ -0,0 +1,34 @@
+-- Adds the change tracking of schema.sql to an existing MySQL 8 productuser
+-- database. Run once, after a backup; the rows already present keep version 0
+-- and are read by the first full load of the catalog.
+
+CREATE TABLE IF NOT EXISTS catalog_version (
+	id INT NOT NULL,
+	version BIGINT NOT NULL,
+	PRIMARY KEY (id)
+);
+
+INSERT INTO catalog_version (id, version)
+	SELECT 1, 0 FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM catalog_version WHERE id = 1);
+
+ALTER TABLE product
+	ADD COLUMN version BIGINT NOT NULL DEFAULT 0,
+	ADD INDEX idx_product_version (version);
+
+CREATE TABLE IF NOT EXISTS product_tombstone (
+	productId VARCHAR(20) NOT NULL,
+	version BIGINT NOT NULL,
+	PRIMARY KEY (productId),
+	INDEX idx_product_tombstone_version (version)
+);
+
+ALTER TABLE user
+	ADD COLUMN version BIGINT NOT NULL DEFAULT 0,
+	ADD INDEX idx_user_version (version);
+
+CREATE TABLE IF NOT EXISTS user_tombstone (
+	userId VARCHAR(20) NOT NULL,
+	version BIGINT NOT NULL,
+	PRIMARY KEY (userId),
+	INDEX idx_user_tombstone_version (version)
+);
@@ -0,0 +1,30 @@
+-- Moves an existing MySQL 8 productuser database from the '/' separated
+-- availableCity column of product to the product_city table of schema.sql.
+-- Run once, after a backup; the last statement drops the old column.
+
+CREATE TABLE IF NOT EXISTS product_city (
+	productId VARCHAR(20) NOT NULL,
+	position INT NOT NULL,
+	city VARCHAR(50) NOT NULL,
+	PRIMARY KEY (productId, position),
+	INDEX idx_product_city_city (city, productId),
+	CONSTRAINT fk_product_city_product FOREIGN KEY (productId) REFERENCES product (productId) ON DELETE CASCADE
+);
+
+INSERT INTO product_city (productId, position, city)
+WITH RECURSIVE split (productId, position, city, rest) AS (
+	SELECT productId, 0, SUBSTRING_INDEX(availableCity, '/', 1),
+		IF(LOCATE('/', availableCity) > 0, SUBSTRING(availableCity, LOCATE('/', availableCity) + 1), NULL)
+	FROM product
+	UNION ALL
+	SELECT productId, position + 1, SUBSTRING_INDEX(rest, '/', 1),
+		IF(LOCATE('/', rest) > 0, SUBSTRING(rest, LOCATE('/', rest) + 1), NULL)
+	FROM split
+	WHERE rest IS NOT NULL
+)
+SELECT productId, position, TRIM(city) FROM split WHERE TRIM(city) <> '';
+
+ALTER TABLE product
+	ADD INDEX idx_product_category_price (productCategory, price),
+	ADD INDEX idx_product_price (price),
+	DROP COLUMN availableCity;
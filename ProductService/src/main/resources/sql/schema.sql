@@ -0,0 +1,70 @@
+-- Schema of the productuser database.
+--
+-- The cities a product is available in are kept one per row in product_city
+-- instead of the '/' separated availableCity column, so that the city and
+-- category queries of ProductDaoMysqlImpl are served by the indexes below.
+-- Names are compared with the case insensitive default collation of MySQL.
+--
+-- Changes are tracked for the delta refresh of the catalog: every write takes
+-- the next version of catalog_version in its transaction and stamps it on the
+-- rows it inserts or updates, and on a tombstone row for each key it deletes.
+-- The update of catalog_version locks its row until the commit, so writes
+-- commit in version order and a reader which saw a version has seen every
+-- write below it. Tombstones below the watermark of every reader can be
+-- purged.
+
+CREATE TABLE IF NOT EXISTS catalog_version (
+	id INT NOT NULL,
+	version BIGINT NOT NULL,
+	PRIMARY KEY (id)
+);
+
+INSERT INTO catalog_version (id, version)
+	SELECT 1, 0 FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM catalog_version WHERE id = 1);
+
+CREATE TABLE IF NOT EXISTS product (
+	productId VARCHAR(20) NOT NULL,
+	productName VARCHAR(100) NOT NULL,
+	productCategory VARCHAR(50) NOT NULL,
+	price INT NOT NULL,
+	version BIGINT NOT NULL DEFAULT 0,
+	PRIMARY KEY (productId),
+	INDEX idx_product_category_price (productCategory, price),
+	INDEX idx_product_price (price),
+	INDEX idx_product_version (version)
+);
+
+CREATE TABLE IF NOT EXISTS product_tombstone (
+	productId VARCHAR(20) NOT NULL,
+	version BIGINT NOT NULL,
+	PRIMARY KEY (productId),
+	INDEX idx_product_tombstone_version (version)
+);
+
+-- position keeps the order of the cities in the availableCity field
+CREATE TABLE IF NOT EXISTS product_city (
+	productId VARCHAR(20) NOT NULL,
+	position INT NOT NULL,
+	city VARCHAR(50) NOT NULL,
+	PRIMARY KEY (productId, position),
+	INDEX idx_product_city_city (city, productId),
+	CONSTRAINT fk_product_city_product FOREIGN KEY (productId) REFERENCES product (productId) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS user (
+	userId VARCHAR(20) NOT NULL,
+	userName VARCHAR(100) NOT NULL,
+	email VARCHAR(100),
+	phoneNumber VARCHAR(20),
+	city VARCHAR(50),
+	version BIGINT NOT NULL DEFAULT 0,
+	PRIMARY KEY (userId),
+	INDEX idx_user_version (version)
+);
+
+CREATE TABLE IF NOT EXISTS user_tombstone (
+	userId VARCHAR(20) NOT NULL,
+	version BIGINT NOT NULL,
+	PRIMARY KEY (userId),
+	INDEX idx_user_tombstone_version (version)
+);
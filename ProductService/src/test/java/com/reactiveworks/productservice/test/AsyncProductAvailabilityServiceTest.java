@@ -0,0 +1,116 @@
+package com.reactiveworks.productservice.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import com.reactiveworks.productservice.db.CancellationScope;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoMysqlImpl;
+import com.reactiveworks.productservice.service.exceptions.UserNotFoundException;
+import com.reactiveworks.productservice.service.implementation.AsyncProductAvailabilityService;
+import com.reactiveworks.productservice.service.implementation.ProductAvailabilityService;
+
+/**
+ * Tests the AsyncProductAvailabilityService class and the cancellation of the
+ * database calls it runs.
+ */
+public class AsyncProductAvailabilityServiceTest {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("AsyncProductAvailabilityServiceTest.class");
+
+	/**
+	 * Checks that the futures complete with the results and the exceptions of the
+	 * synchronous service.
+	 *
+	 * @throws Exception when the service fails.
+	 */
+	@Test
+	public void futureResultsTest() throws Exception {
+		LOGGER_OBJ.debug("execution of futureResultsTest() started");
+		ProductAvailabilityService service = new ProductAvailabilityService();
+		try (AsyncProductAvailabilityService asyncService = new AsyncProductAvailabilityService(service)) {
+			CompletableFuture<List<Product>> products = asyncService.getAllProductForUser("U1001");
+			assertEquals(service.getAllProductForUser("U1001"), products.get(10, TimeUnit.SECONDS));
+			try {
+				asyncService.getAllProductForUserForCategory("U9999", "Mobile").get(10, TimeUnit.SECONDS);
+				fail("unknown user was found");
+			} catch (ExecutionException exp) {
+				assertTrue(exp.getCause() instanceof UserNotFoundException);
+			}
+		}
+		LOGGER_OBJ.debug("execution of futureResultsTest() completed");
+	}
+
+	/**
+	 * Checks that a call which does not complete in time fails with a timeout and
+	 * that the timeout cancels the scope the call runs in.
+	 *
+	 * @throws Exception when the service fails.
+	 */
+	@Test
+	public void timeoutCancelsCallTest() throws Exception {
+		LOGGER_OBJ.debug("execution of timeoutCancelsCallTest() started");
+		CountDownLatch cancelled = new CountDownLatch(1);
+		ProductAvailabilityService service = new ProductAvailabilityService() {
+			@Override
+			public void reloadCatalog() {
+				CancellationScope scope = CancellationScope.current();
+				while (!scope.isCancelled()) {
+					Thread.yield();
+				}
+				cancelled.countDown();
+			}
+		};
+		ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+		try (AsyncProductAvailabilityService asyncService = new AsyncProductAvailabilityService(service,
+				ioExecutor, Runnable::run, 50, TimeUnit.MILLISECONDS)) {
+			CompletableFuture<Void> reload = asyncService.reloadCatalog();
+			try {
+				reload.get(10, TimeUnit.SECONDS);
+				fail("reload did not time out");
+			} catch (ExecutionException exp) {
+				assertTrue(exp.getCause() instanceof TimeoutException);
+			}
+			assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+		} finally {
+			ioExecutor.shutdownNow();
+		}
+		LOGGER_OBJ.debug("execution of timeoutCancelsCallTest() completed");
+	}
+
+	/**
+	 * Checks that a cancelled scope stops the statements of the mysql dao.
+	 *
+	 * @throws Exception when the dao fails in another way.
+	 */
+	@Test
+	public void cancelledScopeStopsStatementTest() throws Exception {
+		LOGGER_OBJ.debug("execution of cancelledScopeStopsStatementTest() started");
+		CancellationScope scope = new CancellationScope(0, TimeUnit.SECONDS);
+		scope.cancel();
+		CancellationScope previous = CancellationScope.bind(scope);
+		try {
+			new ProductDaoMysqlImpl().getProducts();
+			fail("statement ran in a cancelled scope");
+		} catch (DataBaseAccessException exp) {
+			LOGGER_OBJ.debug("statement refused as expected " + exp);
+		} finally {
+			CancellationScope.bind(previous);
+		}
+		LOGGER_OBJ.debug("execution of cancelledScopeStopsStatementTest() completed");
+	}
+}
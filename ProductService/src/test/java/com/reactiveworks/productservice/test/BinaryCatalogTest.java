@@ -0,0 +1,117 @@
+package com.reactiveworks.productservice.test;
+
+import static com.reactiveworks.productservice.test.Fixtures.sortedIds;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.reactiveworks.productservice.binary.BinaryCatalogWriter;
+import com.reactiveworks.productservice.catalog.CatalogLayout;
+import com.reactiveworks.productservice.catalog.CatalogReloader;
+import com.reactiveworks.productservice.catalog.IProductCatalog;
+import com.reactiveworks.productservice.catalog.ObjectProductCatalog;
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoBinaryImpl;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoCSVImpl;
+import com.reactiveworks.productservice.user.dao.implementation.UserDaoCSVImpl;
+
+/**
+ * Tests the binary catalog file through ProductDaoBinaryImpl.
+ */
+public class BinaryCatalogTest {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("BinaryCatalogTest.class");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Checks that the products read back from the binary catalog match the CSV
+	 * products they were compiled from.
+	 * 
+	 * @throws IOException                    when unable to write the file.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws InvalidDBRecordFormatException when the record format is invalid.
+	 */
+	@Test
+	public void binaryCatalogRoundTripTest()
+			throws IOException, DataBaseAccessException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of binaryCatalogRoundTripTest() started");
+		List<Product> csvProducts = new ProductDaoCSVImpl().getProducts();
+		File binaryFile = new File(folder.getRoot(), "Product.bin");
+		BinaryCatalogWriter.write(csvProducts, binaryFile.toPath());
+
+		List<Product> binaryProducts = new ProductDaoBinaryImpl(binaryFile.toPath()).getProducts();
+
+		assertEquals(csvProducts.size(), binaryProducts.size());
+		for (int i = 0; i < csvProducts.size(); i++) {
+			assertEquals(csvProducts.get(i).toString(), binaryProducts.get(i).toString());
+		}
+		LOGGER_OBJ.debug("execution of binaryCatalogRoundTripTest() completed");
+	}
+
+	/**
+	 * Checks that the catalogs of every layout built from the columns of the
+	 * binary catalog answer the queries as the catalog of the CSV products.
+	 * 
+	 * @throws IOException                    when unable to write the file.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on database fails.
+	 * @throws InvalidDBRecordFormatException when the record format is invalid.
+	 */
+	@Test
+	public void catalogBuiltFromBinaryColumnsTest() throws IOException, DataBaseAccessException,
+			DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of catalogBuiltFromBinaryColumnsTest() started");
+		List<Product> csvProducts = new ProductDaoCSVImpl().getProducts();
+		File binaryFile = new File(folder.getRoot(), "Product.bin");
+		BinaryCatalogWriter.write(csvProducts, binaryFile.toPath());
+		IProductCatalog expected = new ObjectProductCatalog(csvProducts);
+
+		for (CatalogLayout layout : CatalogLayout.values()) {
+			CatalogReloader reloader = new CatalogReloader(new ProductDaoBinaryImpl(binaryFile.toPath()),
+					new UserDaoCSVImpl(), layout);
+			IProductCatalog catalog = reloader.reload().getCatalog();
+			assertEquals(layout.name(), expected.size(), catalog.size());
+			for (Product product : csvProducts) {
+				assertEquals(layout.name(), product.toString(),
+						catalog.findProduct(product.getProductId()).toString());
+				String city = product.getAvailableCity().split("/")[0];
+				assertEquals(layout.name(), sortedIds(expected.getProducts(city, product.getProductCategory())),
+						sortedIds(catalog.getProducts(city, product.getProductCategory())));
+			}
+		}
+		LOGGER_OBJ.debug("execution of catalogBuiltFromBinaryColumnsTest() completed");
+	}
+
+	/**
+	 * Checks that a file which is not a binary catalog is rejected.
+	 * 
+	 * @throws IOException                    when unable to write the file.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws InvalidDBRecordFormatException when the file is not a catalog.
+	 */
+	@Test(expected = InvalidDBRecordFormatException.class)
+	public void invalidBinaryCatalogTest()
+			throws IOException, DataBaseAccessException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of invalidBinaryCatalogTest() started");
+		File file = folder.newFile("Product.bin");
+		byte[] content = new byte[512];
+		System.arraycopy("not a catalog".getBytes(StandardCharsets.UTF_8), 0, content, 0, 13);
+		Files.write(file.toPath(), content);
+		new ProductDaoBinaryImpl(file.toPath()).getProducts();
+	}
+
+}
@@ -0,0 +1,161 @@
+package com.reactiveworks.productservice.test;
+
+import static com.reactiveworks.productservice.test.Fixtures.ids;
+import static com.reactiveworks.productservice.test.Fixtures.product;
+import static com.reactiveworks.productservice.test.Fixtures.productDao;
+import static com.reactiveworks.productservice.test.Fixtures.user;
+import static com.reactiveworks.productservice.test.Fixtures.userDao;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import com.reactiveworks.productservice.catalog.CatalogReloader;
+import com.reactiveworks.productservice.catalog.IProductCatalog;
+import com.reactiveworks.productservice.dao.ChangeCursor;
+import com.reactiveworks.productservice.dao.caching.CachingProductDao;
+import com.reactiveworks.productservice.dao.caching.CachingUserDao;
+import com.reactiveworks.productservice.db.exceptions.OperationNotSupportedException;
+import com.reactiveworks.productservice.model.User;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoInMemoryImpl;
+import com.reactiveworks.productservice.user.dao.implementation.UserDaoCSVImpl;
+import com.reactiveworks.productservice.user.dao.implementation.UserDaoInMemoryImpl;
+
+/**
+ * Tests the CachingProductDao and CachingUserDao classes.
+ */
+public class CachingDaoTest {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CachingDaoTest.class");
+
+	/**
+	 * Checks that the reads and queries load the table once and that the writes
+	 * reach both the backing dao and the cached table.
+	 *
+	 * @throws Exception when the dao fails.
+	 */
+	@Test
+	public void writeThroughTest() throws Exception {
+		LOGGER_OBJ.debug("execution of writeThroughTest() started");
+		ProductDaoInMemoryImpl backingDao = productDao(product("P1", "Mobile", 100, "Pune"),
+				product("P2", "Mobile", 200, "Delhi"));
+		try (CachingProductDao productDao = new CachingProductDao(backingDao, 0, TimeUnit.SECONDS)) {
+			assertEquals(2, productDao.getProducts().size());
+			assertEquals(1, productDao.getProductsByCity("pune").size());
+			assertEquals(1, productDao.getProductsByPriceRange(150, 250).size());
+			assertEquals(1, productDao.getLoadCount());
+
+			productDao.insertProduct(product("P3", "Mobile", 300, "Pune"));
+			productDao.updateProduct(product("P1", "Mobile", 100, "Pune"), 150);
+			productDao.deleteProduct(product("P2", "Mobile", 200, "Delhi"));
+
+			assertEquals(1, productDao.getLoadCount());
+			assertEquals(Arrays.asList("P1", "P3"), ids(productDao.getProducts()));
+			assertEquals(150, productDao.getProductsByCity("Pune").get(0).getPrice());
+			assertEquals(ids(backingDao.getProducts()), ids(productDao.getProducts()));
+		}
+		LOGGER_OBJ.debug("execution of writeThroughTest() completed");
+	}
+
+	/**
+	 * Checks that a write refused by the backing dao leaves the cached table
+	 * unchanged.
+	 *
+	 * @throws Exception when the dao fails.
+	 */
+	@Test
+	public void refusedWriteTest() throws Exception {
+		LOGGER_OBJ.debug("execution of refusedWriteTest() started");
+		try (CachingUserDao userDao = new CachingUserDao(new UserDaoCSVImpl(), 0, TimeUnit.SECONDS)) {
+			List<User> users = userDao.getUsers();
+			try {
+				userDao.updateUser(users.get(0), "0000000000");
+				fail("CSV dao accepted an update");
+			} catch (OperationNotSupportedException exp) {
+				LOGGER_OBJ.debug("update refused as expected " + exp);
+			}
+			assertEquals(users.get(0).getPhoneNumber(), userDao.getUsers().get(0).getPhoneNumber());
+			assertEquals(1, userDao.getLoadCount());
+		}
+		LOGGER_OBJ.debug("execution of refusedWriteTest() completed");
+	}
+
+	/**
+	 * Checks that the periodic refresh picks up records written to the backing dao
+	 * directly.
+	 *
+	 * @throws Exception when the dao fails.
+	 */
+	@Test
+	public void periodicRefreshTest() throws Exception {
+		LOGGER_OBJ.debug("execution of periodicRefreshTest() started");
+		ProductDaoInMemoryImpl backingDao = productDao(product("P1", "Mobile", 100, "Pune"));
+		try (CachingProductDao productDao = new CachingProductDao(backingDao, 20, TimeUnit.MILLISECONDS)) {
+			assertEquals(1, productDao.getProducts().size());
+			backingDao.insertProduct(product("P2", "Mobile", 200, "Pune"));
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (productDao.getProducts().size() == 1 && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(2, productDao.getProducts().size());
+			assertTrue(productDao.getLoadCount() > 1);
+		}
+		LOGGER_OBJ.debug("execution of periodicRefreshTest() completed");
+	}
+
+	/**
+	 * Checks that the changes tracked by the backing daos are passed through the
+	 * caching daos, so that a refresh of the catalog reads only them, that they
+	 * are applied to the cached table, and that the catalog keeps following them
+	 * across a reload of the cached table.
+	 *
+	 * @throws Exception when the dao fails.
+	 */
+	@Test
+	public void changesForwardedTest() throws Exception {
+		LOGGER_OBJ.debug("execution of changesForwardedTest() started");
+		ProductDaoInMemoryImpl backingDao = productDao(product("P1", "Mobile", 100, "Pune"),
+				product("P2", "Mobile", 200, "Delhi"));
+		UserDaoInMemoryImpl backingUserDao = userDao();
+		try (CachingProductDao productDao = new CachingProductDao(backingDao, 0, TimeUnit.SECONDS);
+				CachingUserDao userDao = new CachingUserDao(backingUserDao, 0, TimeUnit.SECONDS)) {
+			CatalogReloader reloader = new CatalogReloader(productDao, userDao);
+			reloader.reload();
+
+			backingDao.updateProduct(product("P1", "Mobile", 100, "Pune"), 150);
+			backingDao.deleteProduct(product("P2", "Mobile", 200, "Delhi"));
+			productDao.insertProduct(product("P3", "Mobile", 300, "Pune"));
+			backingUserDao.insertUser(user("U1", "Pune"));
+			IProductCatalog catalog = reloader.refresh().getCatalog();
+
+			ChangeCursor cursor = productDao.streamProducts(product -> {
+			});
+			assertNotNull(productDao.streamProductChanges(cursor, product -> fail("change read twice"), id -> fail()));
+			assertEquals(1, productDao.getLoadCount());
+			assertEquals(150, catalog.findProduct("P1").getPrice());
+			assertNull(catalog.findProduct("P2"));
+			assertEquals(300, catalog.findProduct("P3").getPrice());
+			assertEquals("Pune", reloader.getSnapshot().getUserIndex().getUser("U1").getCity());
+			assertEquals(Arrays.asList("P1", "P3"), ids(productDao.getProducts()));
+			assertEquals(150, productDao.getProducts().get(0).getPrice());
+
+			productDao.refresh();
+			backingDao.deleteProduct(product("P3", "Mobile", 300, "Pune"));
+			productDao.refresh();
+			catalog = reloader.refresh().getCatalog();
+			assertNull(catalog.findProduct("P3"));
+			assertEquals(150, catalog.findProduct("P1").getPrice());
+			assertEquals(3, productDao.getLoadCount());
+		}
+		LOGGER_OBJ.debug("execution of changesForwardedTest() completed");
+	}
+
+}
@@ -0,0 +1,218 @@
+package com.reactiveworks.productservice.test;
+
+import static com.reactiveworks.productservice.test.Fixtures.assertMatches;
+import static com.reactiveworks.productservice.test.Fixtures.ids;
+import static com.reactiveworks.productservice.test.Fixtures.product;
+import static com.reactiveworks.productservice.test.Fixtures.products;
+import static com.reactiveworks.productservice.test.Fixtures.user;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.reactiveworks.productservice.catalog.CatalogLayout;
+import com.reactiveworks.productservice.catalog.CatalogReloader;
+import com.reactiveworks.productservice.catalog.CatalogSnapshot;
+import com.reactiveworks.productservice.catalog.IProductCatalog;
+import com.reactiveworks.productservice.catalog.ObjectProductCatalog;
+import com.reactiveworks.productservice.db.DBUtil;
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+import com.reactiveworks.productservice.model.PriceOrder;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.ProductPageRequest;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoMysqlImpl;
+import com.reactiveworks.productservice.user.dao.implementation.UserDaoMysqlImpl;
+
+/**
+ * Tests the refresh of the catalog with the changes tracked by the embedded H2
+ * database of the test database.properties, running in MySQL mode.
+ */
+public class CatalogChangeTrackingTest {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CatalogChangeTrackingTest.class");
+
+	private final ProductDaoMysqlImpl productDao = new ProductDaoMysqlImpl();
+	private final UserDaoMysqlImpl userDao = new UserDaoMysqlImpl();
+
+	/**
+	 * Empties the product and user tables and their tombstones.
+	 *
+	 * @throws Exception when the database cannot be prepared.
+	 */
+	@Before
+	public void clearTables() throws Exception {
+		for (String table : new String[] { "product", "product_tombstone", "user", "user_tombstone" }) {
+			Connection connection = DBUtil.getdbconnection();
+			PreparedStatement statement = connection.prepareStatement("DELETE FROM " + table + ";");
+			try {
+				statement.executeUpdate();
+			} finally {
+				DBUtil.cleanupdbresources(null, statement, connection);
+			}
+		}
+	}
+
+	/**
+	 * Checks that a refresh applies the inserts, updates and deletes made through
+	 * the daos since the previous read, and nothing when there are none.
+	 *
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on database fails.
+	 * @throws InvalidDBRecordFormatException when the record format is invalid.
+	 */
+	@Test
+	public void refreshAppliesTrackedChangesTest()
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of refreshAppliesTrackedChangesTest() started");
+		productDao.insertRecords(Arrays.asList(product("P1", "Laptop", 500, "Pune"),
+				product("P2", "Mobile", 200, "Pune/Delhi"), product("P3", "Laptop", 300, "Delhi")));
+		userDao.insertUser(user("U1", "Pune"));
+		userDao.insertUser(user("U2", "Delhi"));
+		CatalogReloader reloader = new CatalogReloader(productDao, userDao);
+		CatalogSnapshot loaded = reloader.reload();
+		assertSame(loaded, reloader.refresh());
+
+		productDao.updateProduct(product("P1", "Laptop", 500, "Pune"), 100);
+		productDao.deleteProduct(product("P2", "Mobile", 200, "Pune/Delhi"));
+		productDao.insertProduct(product("P4", "Laptop", 400, "Pune"));
+		userDao.deleteUser(user("U1", "Pune"));
+		userDao.updateUser(user("U2", "Delhi"), "9111111111");
+		userDao.insertUser(user("U3", "Chennai"));
+		CatalogSnapshot refreshed = reloader.refresh();
+
+		assertEquals(loaded.getVersion() + 1, refreshed.getVersion());
+		IProductCatalog catalog = refreshed.getCatalog();
+		assertEquals(3, catalog.size());
+		assertEquals(100, catalog.findProduct("P1").getPrice());
+		assertNull(catalog.findProduct("P2"));
+		assertEquals(ids("P1", "P4"), ids(catalog.getProductsInPriceRange("Pune", "Laptop", 0, 1000)));
+		assertEquals(ids("P3"), ids(catalog.getProducts("Delhi")));
+		assertEquals(0, catalog.getProducts("Delhi", "Mobile").size());
+		assertEquals(2, refreshed.getUsers().size());
+		assertNull(refreshed.getUserIndex().getUser("U1"));
+		assertEquals("9111111111", refreshed.getUserIndex().getUser("U2").getPhoneNumber());
+		assertEquals(3, loaded.getCatalog().size());
+
+		productDao.insertProduct(product("P2", "Mobile", 250, "Delhi"));
+		assertEquals(ids("P2", "P3"), ids(reloader.refresh().getCatalog().getProducts("Delhi",
+				ProductPageRequest.page(PriceOrder.ASCENDING, 0, 10)).getProducts()));
+		LOGGER_OBJ.debug("execution of refreshAppliesTrackedChangesTest() completed");
+	}
+
+	/**
+	 * Checks that every reader follows the changes from its own cursor: full
+	 * reads and queries of other readers between two refreshes neither hide a
+	 * change from a reader nor give it twice.
+	 *
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on database fails.
+	 * @throws InvalidDBRecordFormatException when the record format is invalid.
+	 */
+	@Test
+	public void readersFollowOwnCursorsTest()
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of readersFollowOwnCursorsTest() started");
+		productDao.insertRecords(Arrays.asList(product("P1", "Laptop", 500, "Pune"),
+				product("P2", "Mobile", 200, "Delhi")));
+		userDao.insertUser(user("U1", "Pune"));
+		CatalogReloader first = new CatalogReloader(productDao, userDao);
+		CatalogReloader second = new CatalogReloader(productDao, userDao);
+		first.reload();
+
+		productDao.updateProduct(product("P1", "Laptop", 500, "Pune"), 150);
+		CatalogSnapshot loaded = second.reload();
+		assertEquals(2, productDao.getProducts().size());
+		assertEquals(1, productDao.getProductsByCity("Pune").size());
+		assertEquals(150, first.refresh().getCatalog().findProduct("P1").getPrice());
+		assertSame(loaded, second.refresh());
+
+		productDao.deleteProduct(product("P2", "Mobile", 200, "Delhi"));
+		assertNull(second.refresh().getCatalog().findProduct("P2"));
+		assertNull(first.refresh().getCatalog().findProduct("P2"));
+		assertEquals(150, first.getSnapshot().getCatalog().findProduct("P1").getPrice());
+		LOGGER_OBJ.debug("execution of readersFollowOwnCursorsTest() completed");
+	}
+
+	/**
+	 * Checks that merging changes into a catalog of every layout, until most of
+	 * its products are replaced, answers the queries as a catalog built over the
+	 * resulting products at once.
+	 */
+	@Test
+	public void mergedCatalogMatchesRebuiltTest() {
+		LOGGER_OBJ.debug("execution of mergedCatalogMatchesRebuiltTest() started");
+		for (CatalogLayout layout : CatalogLayout.values()) {
+			List<Product> expected = products(0, 60, 0);
+			IProductCatalog.Builder builder = layout.newBuilder();
+			expected.forEach(builder::add);
+			IProductCatalog catalog = builder.build();
+			for (int round = 1; round <= 4; round++) {
+				Set<String> removedIds = new HashSet<>();
+				List<Product> added = products(60 + 10 * round, 5, round);
+				for (Product product : expected) {
+					if (Integer.parseInt(product.getProductId().substring(1)) % 4 == round % 4) {
+						removedIds.add(product.getProductId());
+					}
+				}
+				// an update replaces a product which is kept in its place otherwise
+				added.addAll(products(3 * round, 1, round));
+				removedIds.add(String.format("P%03d", 3 * round));
+				catalog = catalog.merge(added, removedIds);
+				expected.removeIf(product -> removedIds.contains(product.getProductId()));
+				expected.addAll(added);
+				assertMatches(layout.name(), new ObjectProductCatalog(new ArrayList<>(expected)), catalog);
+			}
+		}
+		LOGGER_OBJ.debug("execution of mergedCatalogMatchesRebuiltTest() completed");
+	}
+
+	/**
+	 * Checks that a catalog of every layout keeps a few merged changes aside of
+	 * its products rather than being built again, and is built again in its
+	 * layout once the changes grow large, answering the queries as a catalog
+	 * built over the resulting products at once either way.
+	 */
+	@Test
+	public void mergeKeepsChangesAsideTest() {
+		LOGGER_OBJ.debug("execution of mergeKeepsChangesAsideTest() started");
+		for (CatalogLayout layout : CatalogLayout.values()) {
+			List<Product> expected = products(0, 1000, 0);
+			IProductCatalog.Builder builder = layout.newBuilder();
+			expected.forEach(builder::add);
+			IProductCatalog built = builder.build();
+
+			List<Product> changed = products(5, 3, 1);
+			changed.addAll(products(1000, 2, 0));
+			Set<String> removedIds = new HashSet<>(Arrays.asList("P005", "P006", "P007", "P010"));
+			IProductCatalog merged = built.merge(changed, removedIds);
+			expected.removeIf(product -> removedIds.contains(product.getProductId()));
+			expected.addAll(changed);
+			assertNotSame(layout.name(), built.getClass(), merged.getClass());
+			assertMatches(layout.name(), new ObjectProductCatalog(new ArrayList<>(expected)), merged);
+			assertEquals(layout.name(), 1000, built.size());
+
+			List<Product> added = products(2000, 400, 2);
+			IProductCatalog folded = merged.merge(added, Collections.<String>emptySet());
+			expected.addAll(added);
+			assertSame(layout.name(), built.getClass(), folded.getClass());
+			assertMatches(layout.name(), new ObjectProductCatalog(new ArrayList<>(expected)), folded);
+		}
+		LOGGER_OBJ.debug("execution of mergeKeepsChangesAsideTest() completed");
+	}
+
+}
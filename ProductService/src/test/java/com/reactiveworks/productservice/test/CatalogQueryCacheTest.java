@@ -0,0 +1,138 @@
+package com.reactiveworks.productservice.test;
+
+import static com.reactiveworks.productservice.test.Fixtures.product;
+import static com.reactiveworks.productservice.test.Fixtures.productDao;
+import static com.reactiveworks.productservice.test.Fixtures.user;
+import static com.reactiveworks.productservice.test.Fixtures.userDao;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import com.reactiveworks.productservice.catalog.CatalogLayout;
+import com.reactiveworks.productservice.catalog.CatalogQueryCache;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.service.implementation.ProductAvailabilityService;
+
+/**
+ * Tests the CatalogQueryCache class and its use by ProductAvailabilityService.
+ */
+public class CatalogQueryCacheTest {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CatalogQueryCacheTest.class");
+
+	/**
+	 * Checks that a result is only served for its snapshot version and that
+	 * advancing the cache drops the changed cities and keeps the others.
+	 */
+	@Test
+	public void versionAndAdvanceTest() {
+		LOGGER_OBJ.debug("execution of versionAndAdvanceTest() started");
+		CatalogQueryCache cache = new CatalogQueryCache(1000, 0, TimeUnit.SECONDS);
+		List<Product> puneMobiles = Collections.singletonList(product("P1", "Mobile", 100, "Pune"));
+		List<Product> delhiMobiles = Collections.singletonList(product("P2", "Mobile", 100, "Delhi"));
+		cache.put(1, "Pune", "Mobile", puneMobiles);
+		cache.put(1, "Delhi", "Mobile", delhiMobiles);
+
+		assertSame(puneMobiles, cache.get(1, "PUNE", "mobile"));
+		assertNull(cache.get(0, "Pune", "Mobile"));
+
+		cache.advance(1, 2, Arrays.asList("pune"), Arrays.asList("mobile"));
+		assertNull(cache.get(2, "Pune", "Mobile"));
+		assertSame(delhiMobiles, cache.get(2, "Delhi", "Mobile"));
+		assertNull(cache.get(3, "Delhi", "Mobile"));
+		assertEquals(2, cache.getStatistics().getHitCount());
+		LOGGER_OBJ.debug("execution of versionAndAdvanceTest() completed");
+	}
+
+	/**
+	 * Checks that the least recently used results are evicted once the weight
+	 * bound is reached, and that a cache without weight keeps nothing.
+	 */
+	@Test
+	public void weightEvictionTest() {
+		LOGGER_OBJ.debug("execution of weightEvictionTest() started");
+		CatalogQueryCache cache = new CatalogQueryCache(16 * 4, 0, TimeUnit.SECONDS);
+		List<Product> result = Collections.singletonList(product("P1", "Mobile", 100, "Pune"));
+		for (int i = 0; i < 200; i++) {
+			cache.put(1, "City" + i, "Mobile", result);
+		}
+		assertEquals(200 - cache.getStatistics().getEntryCount(), cache.getStatistics().getEvictionCount());
+		assertTrue(cache.getStatistics().getWeight() <= 16 * 4);
+
+		CatalogQueryCache disabled = new CatalogQueryCache(0, 0, TimeUnit.SECONDS);
+		disabled.put(1, "Pune", "Mobile", Collections.<Product>emptyList());
+		assertNull(disabled.get(1, "Pune", "Mobile"));
+		assertEquals(0, disabled.getStatistics().getEntryCount());
+		LOGGER_OBJ.debug("execution of weightEvictionTest() completed");
+	}
+
+	/**
+	 * Checks that a price update through the service is visible to the next
+	 * category query instead of a cached result.
+	 *
+	 * @throws Exception when the service fails.
+	 */
+	@Test
+	public void serviceWriteInvalidatesTest() throws Exception {
+		LOGGER_OBJ.debug("execution of serviceWriteInvalidatesTest() started");
+		ProductAvailabilityService service = new ProductAvailabilityService(
+				productDao(product("P1", "Mobile", 100, "Pune"), product("P2", "Mobile", 200, "Delhi")),
+				userDao(user("U1", "Pune"), user("U2", "Delhi")), new CatalogQueryCache(1000, 0, TimeUnit.SECONDS));
+
+		List<Product> first = service.getAllProductForUserForCategory("U1", "Mobile");
+		assertSame(first, service.getAllProductForUserForCategory("U1", "mobile"));
+		service.getAllProductForUserForCategory("U2", "Mobile");
+
+		service.updateProduct(first.get(0), 150);
+		assertEquals(150, service.getAllProductForUserForCategory("U1", "Mobile").get(0).getPrice());
+		assertEquals(100, first.get(0).getPrice());
+		assertEquals(3, service.getQueryCache().getStatistics().getMissCount());
+
+		service.insertProduct(product("P3", "Mobile", 300, "Pune"));
+		assertEquals(2, service.getAllProductForUserForCategory("U1", "Mobile").size());
+		LOGGER_OBJ.debug("execution of serviceWriteInvalidatesTest() completed");
+	}
+
+	/**
+	 * Checks that the city queries of the service, for one user or a batch, are
+	 * answered by the cache once computed, as lists holding the products of the
+	 * columnar catalog, and that a write in the city is seen by the next query.
+	 *
+	 * @throws Exception when the service fails.
+	 */
+	@Test
+	public void serviceCityQueryCachedTest() throws Exception {
+		LOGGER_OBJ.debug("execution of serviceCityQueryCachedTest() started");
+		ProductAvailabilityService service = new ProductAvailabilityService(
+				productDao(product("P1", "Mobile", 100, "Pune"), product("P2", "Laptop", 200, "Pune"),
+						product("P3", "Mobile", 300, "Delhi")),
+				userDao(user("U1", "Pune"), user("U2", "Delhi"), user("U3", "pune")),
+				new CatalogQueryCache(1000, 0, TimeUnit.SECONDS), CatalogLayout.COLUMNAR);
+
+		List<Product> pune = service.getAllProductForUser("U1");
+		assertEquals(2, pune.size());
+		assertSame(pune, service.getAllProductForUser("U3"));
+		assertSame(pune.get(0), pune.get(0));
+		Map<String, List<Product>> batch = service.getAllProductForUsers(Arrays.asList("U1", "U2"));
+		assertSame(pune, batch.get("U1"));
+		assertEquals(2, service.getQueryCache().getStatistics().getHitCount());
+		assertEquals(2, service.getQueryCache().getStatistics().getMissCount());
+
+		service.updateProduct(pune.get(1), 250);
+		assertEquals(250, service.getAllProductForUser("U1").get(1).getPrice());
+		assertSame(batch.get("U2"), service.getAllProductForUser("U2"));
+		assertEquals(3, service.getQueryCache().getStatistics().getHitCount());
+		LOGGER_OBJ.debug("execution of serviceCityQueryCachedTest() completed");
+	}
+
+}
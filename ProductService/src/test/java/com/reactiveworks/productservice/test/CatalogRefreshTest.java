@@ -0,0 +1,219 @@
+package com.reactiveworks.productservice.test;
+
+import static com.reactiveworks.productservice.test.Fixtures.ids;
+import static com.reactiveworks.productservice.test.Fixtures.sortedIds;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.reactiveworks.productservice.catalog.CatalogLayout;
+import com.reactiveworks.productservice.catalog.CatalogReloader;
+import com.reactiveworks.productservice.catalog.CatalogSnapshot;
+import com.reactiveworks.productservice.catalog.IProductCatalog;
+import com.reactiveworks.productservice.catalog.ObjectProductCatalog;
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+import com.reactiveworks.productservice.model.PriceOrder;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.ProductPageRequest;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoCSVImpl;
+import com.reactiveworks.productservice.user.dao.implementation.UserDaoCSVImpl;
+
+/**
+ * Tests the refresh of the catalog with the rows appended to followed CSV
+ * files.
+ */
+public class CatalogRefreshTest {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CatalogRefreshTest.class");
+	private static final String PRODUCT_HEADER = "ProductId,ProductName,ProductCategory,Price,AvailableCity\n";
+	private static final String USER_HEADER = "UserId,UserName,Email,PhoneNumber,City\n";
+	private static final String[] CITIES = { "Pune", "Delhi", "Mumbai/Pune", "Chennai" };
+	private static final String[] CATEGORIES = { "Laptop", "Mobile", "Tablet" };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Checks that a refresh applies only the complete rows appended to the files
+	 * and leaves a row without line end for the next refresh.
+	 *
+	 * @throws IOException                    when unable to write the files.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on database fails.
+	 * @throws InvalidDBRecordFormatException when the record format is invalid.
+	 */
+	@Test
+	public void refreshAppliesAppendedRowsTest() throws IOException, DataBaseAccessException,
+			DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of refreshAppliesAppendedRowsTest() started");
+		Path products = write("Product.csv", PRODUCT_HEADER + "P1,Dell,Laptop,500,Pune\nP2,Moto,Mobile,200,Delhi\n");
+		Path users = write("User.csv", USER_HEADER + "U1,Asha,asha@mail.com,9000000001,Pune\n");
+		CatalogReloader reloader = new CatalogReloader(new ProductDaoCSVImpl(products, 1, true),
+				new UserDaoCSVImpl(users, 1, true));
+		CatalogSnapshot loaded = reloader.reload();
+		assertSame(loaded, reloader.refresh());
+
+		append(products, "P3,HP,Laptop,300,Pune/Delhi\nP4,Len");
+		append(users, "U2,Ravi,ravi@mail.com,9000000002,Delhi\n");
+		CatalogSnapshot refreshed = reloader.refresh();
+
+		assertEquals(loaded.getVersion() + 1, refreshed.getVersion());
+		assertEquals(3, refreshed.getCatalog().size());
+		assertEquals(2, refreshed.getUsers().size());
+		assertEquals("Delhi", refreshed.getUserIndex().getUser("U2").getCity());
+		assertEquals(2, loaded.getCatalog().size());
+		assertEquals(ids("P3", "P1"), ids(refreshed.getCatalog().getProductsInPriceRange("Pune", "Laptop", 0, 1000)));
+		assertEquals(ids("P2", "P3"), ids(refreshed.getCatalog().getProducts("Delhi")));
+
+		append(products, "ovo,Laptop,100,Delhi\n");
+		CatalogSnapshot completed = reloader.refresh();
+
+		assertEquals(4, completed.getCatalog().size());
+		assertEquals("Lenovo", completed.getCatalog().findProduct("P4").getProductName());
+		assertEquals(ids("P4", "P2", "P3"), ids(completed.getCatalog()
+				.getProducts("Delhi", ProductPageRequest.page(PriceOrder.ASCENDING, 0, 10)).getProducts()));
+		LOGGER_OBJ.debug("execution of refreshAppliesAppendedRowsTest() completed");
+	}
+
+	/**
+	 * Checks that a refresh reloads the whole catalog when a file was truncated or
+	 * rewritten.
+	 *
+	 * @throws IOException                    when unable to write the files.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on database fails.
+	 * @throws InvalidDBRecordFormatException when the record format is invalid.
+	 */
+	@Test
+	public void refreshReloadsRewrittenFileTest() throws IOException, DataBaseAccessException,
+			DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of refreshReloadsRewrittenFileTest() started");
+		Path products = write("Product.csv", PRODUCT_HEADER + "P1,Dell,Laptop,500,Pune\nP2,Moto,Mobile,200,Delhi\n");
+		Path users = write("User.csv", USER_HEADER + "U1,Asha,asha@mail.com,9000000001,Pune\n");
+		CatalogReloader reloader = new CatalogReloader(new ProductDaoCSVImpl(products, 1, true),
+				new UserDaoCSVImpl(users, 1, true));
+		reloader.reload();
+
+		write("Product.csv", PRODUCT_HEADER + "P9,Acer,Laptop,900,Pune\n");
+		assertEquals(ids("P9"), ids(reloader.refresh().getCatalog().getProducts()));
+
+		write("Product.csv", PRODUCT_HEADER + "P8,Asus,Laptop,800,Pune\nP7,Nokia,Mobile,50,Pune\n");
+		assertEquals(ids("P8", "P7"), ids(reloader.refresh().getCatalog().getProducts()));
+		LOGGER_OBJ.debug("execution of refreshReloadsRewrittenFileTest() completed");
+	}
+
+	/**
+	 * Checks that daos reading their files in parallel chunks load the catalog
+	 * with the products in file order, as sequential daos do, and that a refresh
+	 * continues after the last complete row read in parallel.
+	 *
+	 * @throws IOException                    when unable to write the files.
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on database fails.
+	 * @throws InvalidDBRecordFormatException when the record format is invalid.
+	 */
+	@Test
+	public void parallelReloadMatchesSequentialTest() throws IOException, DataBaseAccessException,
+			DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of parallelReloadMatchesSequentialTest() started");
+		StringBuilder content = new StringBuilder(PRODUCT_HEADER);
+		for (Product product : products(0, 40000)) {
+			content.append(product.getProductId()).append(',').append(product.getProductName()).append(',')
+					.append(product.getProductCategory()).append(',').append(product.getPrice()).append(',')
+					.append(product.getAvailableCity()).append('\n');
+		}
+		Path products = write("Product.csv", content.append("P40000,Len").toString());
+		Path users = write("User.csv", USER_HEADER + "U1,Asha,asha@mail.com,9000000001,Pune\n");
+		CatalogReloader parallel = new CatalogReloader(new ProductDaoCSVImpl(products, 4, true),
+				new UserDaoCSVImpl(users, 4, true));
+		CatalogReloader sequential = new CatalogReloader(new ProductDaoCSVImpl(products, 1, true),
+				new UserDaoCSVImpl(users, 1, true));
+		List<Product> loaded = parallel.reload().getCatalog().getProducts();
+		assertEquals(40000, loaded.size());
+		assertEquals(ids(sequential.reload().getCatalog().getProducts()), ids(loaded));
+
+		List<Product> streamed = new ArrayList<>();
+		new ProductDaoCSVImpl(products, 4).streamProducts(streamed::add);
+		assertEquals(ids(loaded), ids(streamed));
+
+		append(products, "ovo,Laptop,100,Delhi\nP40001,Acer,Laptop,900,Pune\n");
+		IProductCatalog refreshed = parallel.refresh().getCatalog();
+		assertEquals(40002, refreshed.size());
+		assertEquals("Lenovo", refreshed.findProduct("P40000").getProductName());
+		assertEquals(900, refreshed.findProduct("P40001").getPrice());
+		LOGGER_OBJ.debug("execution of parallelReloadMatchesSequentialTest() completed");
+	}
+
+	/**
+	 * Checks that appending products to a catalog of every layout answers the
+	 * queries as a catalog built over all the products at once.
+	 */
+	@Test
+	public void appendedCatalogMatchesRebuiltTest() {
+		LOGGER_OBJ.debug("execution of appendedCatalogMatchesRebuiltTest() started");
+		List<Product> loaded = products(0, 60);
+		List<Product> appended = products(60, 25);
+		List<Product> all = new ArrayList<>(loaded);
+		all.addAll(appended);
+		IProductCatalog rebuilt = new ObjectProductCatalog(all);
+		for (CatalogLayout layout : CatalogLayout.values()) {
+			IProductCatalog.Builder builder = layout.newBuilder();
+			loaded.forEach(builder::add);
+			IProductCatalog catalog = builder.build().append(appended);
+			assertEquals(layout.name(), all.size(), catalog.size());
+			for (String city : new String[] { "Pune", "Delhi", "Mumbai", "Chennai" }) {
+				assertEquals(layout.name(), sortedIds(rebuilt.getProducts(city)), sortedIds(catalog.getProducts(city)));
+				ProductPageRequest page = ProductPageRequest.page(PriceOrder.DESCENDING, 0, 7);
+				assertEquals(layout.name(), ids(rebuilt.getProducts(city, page).getProducts()),
+						ids(catalog.getProducts(city, page).getProducts()));
+				for (String category : CATEGORIES) {
+					assertEquals(layout.name(), sortedIds(rebuilt.getProducts(city, category)),
+							sortedIds(catalog.getProducts(city, category)));
+					assertEquals(layout.name(), ids(rebuilt.getProductsInPriceRange(city, category, 150, 650)),
+							ids(catalog.getProductsInPriceRange(city, category, 150, 650)));
+				}
+			}
+		}
+		LOGGER_OBJ.debug("execution of appendedCatalogMatchesRebuiltTest() completed");
+	}
+
+	private Path write(String name, String content) throws IOException {
+		Path path = new File(folder.getRoot(), name).toPath();
+		Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+		return path;
+	}
+
+	private static void append(Path path, String content) throws IOException {
+		Files.write(path, content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+	}
+
+	private static List<Product> products(int first, int count) {
+		List<Product> products = new ArrayList<>();
+		for (int i = first; i < first + count; i++) {
+			Product product = new Product();
+			product.setProductId(String.format("P%03d", i));
+			product.setProductName("Product" + i);
+			product.setProductCategory(CATEGORIES[i % CATEGORIES.length]);
+			product.setPrice(100 + (i * 37) % 700);
+			product.setAvailableCity(CITIES[i % CITIES.length]);
+			products.add(product);
+		}
+		return products;
+	}
+
+}
@@ -0,0 +1,178 @@
+package com.reactiveworks.productservice.test;
+
+import static com.reactiveworks.productservice.test.Fixtures.product;
+import static com.reactiveworks.productservice.test.Fixtures.productDao;
+import static com.reactiveworks.productservice.test.Fixtures.user;
+import static com.reactiveworks.productservice.test.Fixtures.userDao;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import com.reactiveworks.productservice.catalog.CatalogLayout;
+import com.reactiveworks.productservice.catalog.CatalogPartitioning;
+import com.reactiveworks.productservice.catalog.CatalogReloader;
+import com.reactiveworks.productservice.catalog.CatalogSnapshot;
+import com.reactiveworks.productservice.catalog.PartitionedProductCatalog;
+import com.reactiveworks.productservice.dao.ChangeCursor;
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.User;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoInMemoryImpl;
+import com.reactiveworks.productservice.user.dao.implementation.UserDaoInMemoryImpl;
+
+/**
+ * Tests the CatalogReloader class.
+ */
+public class CatalogReloaderTest {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CatalogReloaderTest.class");
+
+	/**
+	 * Checks that a reload publishes a new snapshot with the current records while
+	 * the previous snapshot stays unchanged.
+	 * 
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on database fails.
+	 * @throws InvalidDBRecordFormatException when the record format is invalid.
+	 */
+	@Test
+	public void reloadPublishesNewSnapshotTest()
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of reloadPublishesNewSnapshotTest() started");
+		ProductDaoInMemoryImpl productDao = productDao(product("P1", "Mobile", 100, "Pune"));
+		CatalogReloader reloader = new CatalogReloader(productDao, userDao(user("U1", "Pune")));
+
+		CatalogSnapshot first = reloader.reload();
+		productDao.insertProduct(product("P2", "Mobile", 100, "Pune/Delhi"));
+		CatalogSnapshot second = reloader.reload();
+
+		assertNotSame(first, second);
+		assertTrue(second.getVersion() > first.getVersion());
+		assertEquals(1, first.getCatalog().getProducts("Pune").size());
+		assertEquals(2, second.getCatalog().getProducts("Pune").size());
+		assertEquals(second, reloader.getSnapshot());
+		LOGGER_OBJ.debug("execution of reloadPublishesNewSnapshotTest() completed");
+	}
+
+	/**
+	 * Checks that a failed reload keeps the previous snapshot published.
+	 * 
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on database fails.
+	 * @throws InvalidDBRecordFormatException when the record format is invalid.
+	 */
+	@Test
+	public void failedReloadKeepsSnapshotTest()
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of failedReloadKeepsSnapshotTest() started");
+		AtomicBoolean down = new AtomicBoolean();
+		ProductDaoInMemoryImpl productDao = new ProductDaoInMemoryImpl() {
+			@Override
+			public synchronized ChangeCursor streamProducts(Consumer<Product> consumer)
+					throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+				if (down.get()) {
+					throw new DataBaseAccessException("database down");
+				}
+				return super.streamProducts(consumer);
+			}
+		};
+		productDao.insertProduct(product("P1", "Mobile", 100, "Pune"));
+		CatalogReloader reloader = new CatalogReloader(productDao, userDao(user("U1", "Pune")));
+		CatalogSnapshot first = reloader.reload();
+		down.set(true);
+		try {
+			reloader.reload();
+			fail("reload should have failed");
+		} catch (DataBaseAccessException exp) {
+			LOGGER_OBJ.debug("reload failed as expected " + exp);
+		}
+		assertEquals(first, reloader.getSnapshot());
+		LOGGER_OBJ.debug("execution of failedReloadKeepsSnapshotTest() completed");
+	}
+
+	/**
+	 * Checks that the product changes read by a refresh whose user read fails
+	 * are in the catalog after the next refresh.
+	 * 
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on database fails.
+	 * @throws InvalidDBRecordFormatException when the record format is invalid.
+	 */
+	@Test
+	public void failedRefreshKeepsProductChangesTest()
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of failedRefreshKeepsProductChangesTest() started");
+		AtomicBoolean down = new AtomicBoolean();
+		UserDaoInMemoryImpl userDao = new UserDaoInMemoryImpl() {
+			@Override
+			public synchronized ChangeCursor streamUserChanges(ChangeCursor from, Consumer<User> changed,
+					Consumer<String> deletedIds) {
+				if (down.get()) {
+					throw new CancellationException("user read cancelled");
+				}
+				return super.streamUserChanges(from, changed, deletedIds);
+			}
+		};
+		ProductDaoInMemoryImpl productDao = productDao(product("P1", "Mobile", 100, "Pune"));
+		CatalogReloader reloader = new CatalogReloader(productDao, userDao);
+		reloader.reload();
+		productDao.insertProduct(product("P2", "Mobile", 200, "Pune"));
+		down.set(true);
+		try {
+			reloader.refresh();
+			fail("refresh should have failed");
+		} catch (CancellationException exp) {
+			LOGGER_OBJ.debug("refresh failed as expected " + exp);
+		}
+		assertNull(reloader.getSnapshot().getCatalog().findProduct("P2"));
+
+		down.set(false);
+		assertEquals(200, reloader.refresh().getCatalog().findProduct("P2").getPrice());
+		LOGGER_OBJ.debug("execution of failedRefreshKeepsProductChangesTest() completed");
+	}
+
+	/**
+	 * Checks that an update merges the written products into the current
+	 * snapshot, keeping its users and the partitions of the other cities.
+	 * 
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on database fails.
+	 * @throws InvalidDBRecordFormatException when the record format is invalid.
+	 */
+	@Test
+	public void updateMergesSnapshotTest()
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of updateMergesSnapshotTest() started");
+		CatalogReloader reloader = new CatalogReloader(
+				productDao(product("P1", "Mobile", 100, "Pune"), product("P3", "Mobile", 100, "Chennai")),
+				userDao(user("U1", "Pune")), CatalogLayout.OBJECTS, CatalogPartitioning.byCity());
+		CatalogSnapshot first = reloader.reload();
+
+		CatalogSnapshot second = reloader.update(Collections.singletonList(product("P2", "Mobile", 100, "Delhi")),
+				Collections.singleton("P1"));
+
+		assertEquals(first.getVersion() + 1, second.getVersion());
+		assertEquals(2, second.getCatalog().size());
+		assertEquals(0, second.getCatalog().getProducts("Pune").size());
+		assertEquals(1, second.getCatalog().getProducts("Delhi").size());
+		assertSame(first.getUserIndex(), second.getUserIndex());
+		assertSame(((PartitionedProductCatalog) first.getCatalog()).getPartition("Chennai"),
+				((PartitionedProductCatalog) second.getCatalog()).getPartition("Chennai"));
+		assertEquals(second, reloader.getSnapshot());
+		LOGGER_OBJ.debug("execution of updateMergesSnapshotTest() completed");
+	}
+
+}
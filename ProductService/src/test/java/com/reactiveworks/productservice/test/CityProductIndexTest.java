@@ -0,0 +1,59 @@
+package com.reactiveworks.productservice.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import com.reactiveworks.productservice.catalog.CityProductIndex;
+import com.reactiveworks.productservice.model.Product;
+
+/**
+ * Tests the CityProductIndex class.
+ */
+public class CityProductIndexTest {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CityProductIndexTest.class");
+
+	/**
+	 * Checks that a city does not match another city which contains its name.
+	 */
+	@Test
+	public void getProductsExactCityTest() {
+		LOGGER_OBJ.debug("execution of getProductsExactCityTest() started");
+		CityProductIndex index = new CityProductIndex(
+				Arrays.asList(product("P1", "Navi Mumbai/Pune"), product("P2", "Mumbai"), product("P3", "Delhi")));
+		List<Product> mumbaiProducts = index.getProducts("Mumbai");
+		assertEquals(1, mumbaiProducts.size());
+		assertEquals("P2", mumbaiProducts.get(0).getProductId());
+		LOGGER_OBJ.debug("execution of getProductsExactCityTest() completed");
+	}
+
+	/**
+	 * Checks that a city is matched ignoring case and that a repeated city lists
+	 * the product once.
+	 */
+	@Test
+	public void getProductsIgnoreCaseTest() {
+		LOGGER_OBJ.debug("execution of getProductsIgnoreCaseTest() started");
+		CityProductIndex index = new CityProductIndex(
+				Arrays.asList(product("P1", "Pune/Delhi/pune"), product("P2", "Delhi")));
+		assertEquals(1, index.getProducts("PUNE").size());
+		assertEquals(2, index.getProducts("delhi").size());
+		assertTrue(index.getProducts("Chennai").isEmpty());
+		LOGGER_OBJ.debug("execution of getProductsIgnoreCaseTest() completed");
+	}
+
+	private static Product product(String productId, String availableCity) {
+		Product product = new Product();
+		product.setProductId(productId);
+		product.setProductName(productId);
+		product.setProductCategory("Mobile");
+		product.setAvailableCity(availableCity);
+		return product;
+	}
+}
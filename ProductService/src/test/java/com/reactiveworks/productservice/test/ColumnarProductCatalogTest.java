@@ -0,0 +1,190 @@
+package com.reactiveworks.productservice.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import com.reactiveworks.productservice.catalog.ColumnarProductCatalog;
+import com.reactiveworks.productservice.catalog.IProductCatalog;
+import com.reactiveworks.productservice.catalog.ObjectProductCatalog;
+import com.reactiveworks.productservice.catalog.OffHeapProductCatalog;
+import com.reactiveworks.productservice.catalog.PriceIndex;
+import com.reactiveworks.productservice.model.PriceOrder;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.ProductPage;
+import com.reactiveworks.productservice.model.ProductPageRequest;
+
+/**
+ * Tests the ColumnarProductCatalog and OffHeapProductCatalog classes against
+ * the object catalog.
+ */
+public class ColumnarProductCatalogTest {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("ColumnarProductCatalogTest.class");
+
+	/**
+	 * Checks that the city and category queries give the same products as the
+	 * object catalog, in price order, with every field restored.
+	 */
+	@Test
+	public void cityAndCategoryQueriesTest() {
+		LOGGER_OBJ.debug("execution of cityAndCategoryQueriesTest() started");
+		List<Product> products = catalog();
+		IProductCatalog objects = new ObjectProductCatalog(products);
+		for (IProductCatalog columns : columnarCatalogs(products)) {
+			assertEquals(products.size(), columns.size());
+			for (String city : new String[] { "pune", " DELHI", "Agra", "Mumbai" }) {
+				assertEquals(fields(sorted(objects.getProducts(city))), fields(columns.getProducts(city)));
+				for (String category : new String[] { "mobile", "Laptop ", "TV" }) {
+					assertEquals(fields(sorted(objects.getProducts(city, category))),
+							fields(columns.getProducts(city, category)));
+				}
+			}
+			assertEquals(fields(sorted(products)), fields(columns.getProducts()));
+			assertEquals("Product11 [Mobile, 210, Delhi]", fields(columns.findProduct("P007")));
+			assertNull(columns.findProduct("P999"));
+		}
+		LOGGER_OBJ.debug("execution of cityAndCategoryQueriesTest() completed");
+	}
+
+	/**
+	 * Checks that the offset and keyset pages and the price ranges match the
+	 * price index of the object catalog in either order.
+	 */
+	@Test
+	public void pagesAndPriceRangesTest() {
+		LOGGER_OBJ.debug("execution of pagesAndPriceRangesTest() started");
+		List<Product> products = catalog();
+		IProductCatalog objects = new ObjectProductCatalog(products);
+		int[][] ranges = { { 250, 480 }, { 0, 99 }, { 1000, Integer.MAX_VALUE }, { Integer.MIN_VALUE, 150 },
+				{ 600, 590 } };
+		for (IProductCatalog columns : columnarCatalogs(products)) {
+			for (PriceOrder order : PriceOrder.values()) {
+				assertEquals(walk(objects, order), walk(columns, order));
+				ProductPageRequest request = ProductPageRequest.page(order, 40, 9);
+				ProductPage expected = objects.getProducts("Delhi", request);
+				ProductPage page = columns.getProducts("Delhi", request);
+				assertEquals(fields(expected.getProducts()), fields(page.getProducts()));
+				assertEquals(expected.getTotalCount(), page.getTotalCount());
+				assertEquals(expected.hasMore(), page.hasMore());
+			}
+			for (int[] range : ranges) {
+				assertEquals(fields(objects.getProductsInPriceRange("Delhi", "LAPTOP", range[0], range[1])),
+						fields(columns.getProductsInPriceRange("Delhi", "LAPTOP", range[0], range[1])));
+			}
+		}
+		LOGGER_OBJ.debug("execution of pagesAndPriceRangesTest() completed");
+	}
+
+	/**
+	 * Checks that every product is found by its id, that of equal ids the first
+	 * in price order is found, and that a product without an id is not indexed.
+	 */
+	@Test
+	public void findProductTest() {
+		LOGGER_OBJ.debug("execution of findProductTest() started");
+		List<Product> products = catalog();
+		for (IProductCatalog columns : columnarCatalogs(products)) {
+			for (Product product : products) {
+				assertEquals(fields(product), fields(columns.findProduct(product.getProductId())));
+			}
+			assertNull(columns.findProduct("P20"));
+			assertNull(columns.findProduct(null));
+		}
+		List<Product> duplicates = new ArrayList<>(products);
+		for (int price : new int[] { 95, 60, 80 }) {
+			Product product = new Product();
+			product.setProductId(price == 80 ? null : "P007");
+			product.setProductName("Duplicate" + price);
+			product.setProductCategory("Mobile");
+			product.setPrice(price);
+			product.setAvailableCity("Pune");
+			duplicates.add(product);
+		}
+		for (IProductCatalog columns : columnarCatalogs(duplicates)) {
+			assertEquals("Duplicate60 [Mobile, 60, Pune]", fields(columns.findProduct("P007")));
+		}
+		for (IProductCatalog columns : columnarCatalogs(new ArrayList<>())) {
+			assertNull(columns.findProduct("P007"));
+		}
+		LOGGER_OBJ.debug("execution of findProductTest() completed");
+	}
+
+	/**
+	 * Checks that the flyweight of the off-heap catalog reads the products in
+	 * price order without creating them.
+	 */
+	@Test
+	public void offHeapFlyweightTest() {
+		LOGGER_OBJ.debug("execution of offHeapFlyweightTest() started");
+		List<Product> products = catalog();
+		OffHeapProductCatalog catalog = OffHeapProductCatalog.of(products);
+		OffHeapProductCatalog.Flyweight flyweight = catalog.flyweight();
+		List<String> read = new ArrayList<>();
+		for (int ordinal = 0; ordinal < catalog.size(); ordinal++) {
+			flyweight.moveTo(ordinal);
+			read.add(flyweight.getProductId() + " " + flyweight.getProductName() + " ["
+					+ flyweight.getProductCategory() + ", " + flyweight.getPrice() + ", " + flyweight.getAvailableCity()
+					+ "]");
+		}
+		assertEquals(fields(sorted(products)), read);
+		assertTrue(catalog.getOffHeapBytes() > 0);
+		LOGGER_OBJ.debug("execution of offHeapFlyweightTest() completed");
+	}
+
+	private static List<IProductCatalog> columnarCatalogs(List<Product> products) {
+		return Arrays.asList(ColumnarProductCatalog.of(products), OffHeapProductCatalog.of(products));
+	}
+
+	private static List<String> walk(IProductCatalog catalog, PriceOrder order) {
+		List<Product> walked = new ArrayList<>();
+		ProductPageRequest request = ProductPageRequest.page(order, 0, 7);
+		while (request != null) {
+			ProductPage page = catalog.getProducts("pune", "mobile", request);
+			walked.addAll(page.getProducts());
+			request = page.nextPageRequest();
+		}
+		return fields(walked);
+	}
+
+	/**
+	 * Products priced 100 to 1000 in steps of 10, where several products share a
+	 * price, with categories and cities spelled in different cases.
+	 */
+	private static List<Product> catalog() {
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			Product product = new Product();
+			product.setProductId(String.format("P%03d", (i * 37) % 200));
+			product.setProductName("Product" + i);
+			product.setProductCategory(i % 3 == 0 ? (i % 2 == 0 ? "Laptop" : "LAPTOP") : "Mobile");
+			product.setPrice(100 + (i % 91) * 10);
+			product.setAvailableCity(i % 2 == 0 ? "Pune/Delhi" : (i % 5 == 0 ? "delhi/Mumbai" : "Delhi"));
+			products.add(product);
+		}
+		return products;
+	}
+
+	private static List<Product> sorted(List<Product> products) {
+		return products.stream().sorted(PriceIndex.PRICE_ORDER).collect(Collectors.toList());
+	}
+
+	private static List<String> fields(List<Product> products) {
+		return products.stream().map(product -> product.getProductId() + " " + fields(product))
+				.collect(Collectors.toList());
+	}
+
+	private static String fields(Product product) {
+		return product.getProductName() + " [" + product.getProductCategory() + ", " + product.getPrice() + ", "
+				+ product.getAvailableCity() + "]";
+	}
+
+}
@@ -0,0 +1,129 @@
+package com.reactiveworks.productservice.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.reactiveworks.productservice.csv.CsvReader;
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+
+/**
+ * Tests the CsvReader class.
+ */
+public class CsvReaderTest {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("CsvReaderTest.class");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Checks the parsing of quoted fields, line ends, blank lines and numbers with
+	 * a window smaller than the records so that records cross window boundaries.
+	 * 
+	 * @throws IOException                    when unable to write the file.
+	 * @throws InvalidDBRecordFormatException when the CSV structure is invalid.
+	 */
+	@Test
+	public void readQuotedFieldsAcrossWindowsTest() throws IOException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of readQuotedFieldsAcrossWindowsTest() started");
+		String content = "\uFEFFId,Name,Price\r\n" + "P1,\"Dell, Latitude\",-42\r\n" + "\n"
+				+ "P2,\"say \"\"hi\"\"\",2147483647\n" + "P3,Caf\u00e9,0";
+		File file = folder.newFile("records.csv");
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+		List<String> names = new ArrayList<>();
+		List<Integer> prices = new ArrayList<>();
+		long records = new CsvReader(file.toPath(), 8).read(true, record -> {
+			names.add(record.getString(1));
+			prices.add(record.getInt(2));
+		});
+
+		assertEquals(3, records);
+		assertEquals("Dell, Latitude", names.get(0));
+		assertEquals("say \"hi\"", names.get(1));
+		assertEquals("Caf\u00e9", names.get(2));
+		assertEquals(Integer.valueOf(-42), prices.get(0));
+		assertEquals(Integer.valueOf(Integer.MAX_VALUE), prices.get(1));
+		assertEquals(Integer.valueOf(0), prices.get(2));
+		LOGGER_OBJ.debug("execution of readQuotedFieldsAcrossWindowsTest() completed");
+	}
+
+	/**
+	 * Checks that an unterminated quoted field is reported.
+	 * 
+	 * @throws IOException                    when unable to write the file.
+	 * @throws InvalidDBRecordFormatException when the CSV structure is invalid.
+	 */
+	@Test(expected = InvalidDBRecordFormatException.class)
+	public void readUnterminatedQuoteTest() throws IOException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of readUnterminatedQuoteTest() started");
+		File file = folder.newFile("broken.csv");
+		Files.write(file.toPath(), "Id,Name\nP1,\"Dell".getBytes(StandardCharsets.UTF_8));
+		new CsvReader(file.toPath()).read(true, record -> {
+		});
+	}
+
+	/**
+	 * Checks that an invalid number is rejected.
+	 * 
+	 * @throws IOException                    when unable to write the file.
+	 * @throws InvalidDBRecordFormatException when the CSV structure is invalid.
+	 */
+	@Test(expected = NumberFormatException.class)
+	public void readInvalidNumberTest() throws IOException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of readInvalidNumberTest() started");
+		File file = folder.newFile("numbers.csv");
+		Files.write(file.toPath(), "P1,2147483648\n".getBytes(StandardCharsets.UTF_8));
+		new CsvReader(file.toPath()).read(false, record -> record.getInt(1));
+	}
+
+	/**
+	 * Checks that a parallel read, into a list or handed off to a consumer, gives
+	 * the same records in the same order as a sequential read.
+	 * 
+	 * @throws IOException                    when unable to write the file.
+	 * @throws InvalidDBRecordFormatException when the CSV structure is invalid.
+	 */
+	@Test
+	public void readAllParallelMatchesSequentialTest() throws IOException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of readAllParallelMatchesSequentialTest() started");
+		StringBuilder content = new StringBuilder("ProductId,ProductName,Price\n");
+		for (int i = 0; i < 60000; i++) {
+			content.append("Pro").append(i).append(",\"Product, number ").append(i).append("\",").append(i % 997)
+					.append(i % 3 == 0 ? "\r\n" : "\n");
+		}
+		File file = folder.newFile("large.csv");
+		Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+		CsvReader reader = new CsvReader(file.toPath());
+
+		List<String> sequential = reader.readAll(true, 1, record -> record.getString(0) + record.getInt(2));
+		List<String> parallel = reader.readAll(true, 4, record -> record.getString(0) + record.getInt(2));
+
+		assertEquals(60000, sequential.size());
+		assertEquals(sequential, parallel);
+
+		List<String> streamed = new ArrayList<>();
+		reader.readAll(true, 4, record -> record.getString(0) + record.getInt(2), streamed::add);
+		assertEquals(sequential, streamed);
+
+		// a record without line end is left out of the complete records
+		Files.write(file.toPath(), "Pro60000,\"Product".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		List<String> complete = new ArrayList<>();
+		long end = reader.readComplete(true, 4, record -> record.getString(0) + record.getInt(2), complete::add);
+		assertEquals(sequential, complete);
+		assertEquals(content.toString().getBytes(StandardCharsets.UTF_8).length, end);
+		LOGGER_OBJ.debug("execution of readAllParallelMatchesSequentialTest() completed");
+	}
+}
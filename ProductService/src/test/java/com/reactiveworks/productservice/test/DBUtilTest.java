@@ -0,0 +1,110 @@
+package com.reactiveworks.productservice.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import com.reactiveworks.productservice.db.CancellationScope;
+import com.reactiveworks.productservice.db.DBUtil;
+import com.reactiveworks.productservice.db.PoolStatistics;
+
+/**
+ * Tests the connection pool of the DBUtil class against the embedded H2
+ * database of the test database.properties.
+ */
+public class DBUtilTest {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("DBUtilTest.class");
+	private static final int THREADS = 32;
+	private static final int CHECKOUTS_PER_THREAD = 20;
+	private static final String TIMEOUT_QUERY = "SELECT COUNT(*) FROM product;";
+
+	/**
+	 * Checks that many threads can check connections out of a pool smaller than
+	 * the number of threads and that the statistics count every checkout.
+	 *
+	 * @throws Exception when a checkout fails.
+	 */
+	@Test
+	public void concurrentCheckoutTest() throws Exception {
+		LOGGER_OBJ.debug("execution of concurrentCheckoutTest() started");
+		DBUtil.getdbconnection().close();
+		long borrowsBefore = DBUtil.getPoolStatistics().getBorrowCount();
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<Void>> results = new ArrayList<>();
+			Callable<Void> checkouts = () -> {
+				for (int i = 0; i < CHECKOUTS_PER_THREAD; i++) {
+					try (Connection connection = DBUtil.getdbconnection()) {
+						assertTrue(connection.isValid(1));
+					}
+				}
+				return null;
+			};
+			for (int i = 0; i < THREADS; i++) {
+				results.add(executor.submit(checkouts));
+			}
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		PoolStatistics statistics = DBUtil.getPoolStatistics();
+		assertTrue(statistics.getBorrowCount() - borrowsBefore >= THREADS * CHECKOUTS_PER_THREAD);
+		assertEquals(8, statistics.getMaxTotal());
+		assertTrue(statistics.getIdleConnections() <= statistics.getMaxTotal());
+		assertTrue(statistics.getMaxWaitNanos() > 0);
+		LOGGER_OBJ.debug("execution of concurrentCheckoutTest() completed");
+	}
+
+	/**
+	 * Checks that a pooled statement used by a call with a deadline runs without
+	 * timeout when it is reused by a call without deadline.
+	 *
+	 * @throws Exception when the statements cannot be run.
+	 */
+	@Test
+	public void unscopedStatementClearsTimeoutTest() throws Exception {
+		LOGGER_OBJ.debug("execution of unscopedStatementClearsTimeoutTest() started");
+		Connection connection = DBUtil.getdbconnection();
+		try {
+			CancellationScope previous = CancellationScope.bind(new CancellationScope(30, TimeUnit.SECONDS));
+			PreparedStatement scoped = connection.prepareStatement(TIMEOUT_QUERY);
+			try {
+				DBUtil.watchStatement(scoped);
+				scoped.executeQuery().close();
+				assertTrue(scoped.getQueryTimeout() > 0);
+			} finally {
+				DBUtil.cleanupdbresources(null, scoped, null);
+				CancellationScope.bind(previous);
+			}
+			PreparedStatement unscoped = connection.prepareStatement(TIMEOUT_QUERY);
+			try {
+				DBUtil.watchStatement(unscoped);
+				unscoped.executeQuery().close();
+				assertEquals(0, unscoped.getQueryTimeout());
+			} finally {
+				DBUtil.cleanupdbresources(null, unscoped, null);
+			}
+		} finally {
+			DBUtil.cleanupdbresources(null, null, connection);
+		}
+		LOGGER_OBJ.debug("execution of unscopedStatementClearsTimeoutTest() completed");
+	}
+
+}
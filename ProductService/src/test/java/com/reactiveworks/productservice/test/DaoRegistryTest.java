@@ -0,0 +1,125 @@
+package com.reactiveworks.productservice.test;
+
+import static com.reactiveworks.productservice.test.Fixtures.product;
+import static com.reactiveworks.productservice.test.Fixtures.user;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import com.reactiveworks.productservice.catalog.CatalogReloader;
+import com.reactiveworks.productservice.catalog.IProductCatalog;
+import com.reactiveworks.productservice.dao.IProductDao;
+import com.reactiveworks.productservice.dao.IUserDao;
+import com.reactiveworks.productservice.dao.caching.CachingProductDao;
+import com.reactiveworks.productservice.dao.registry.DaoRegistry;
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+import com.reactiveworks.productservice.db.exceptions.OperationNotSupportedException;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoCSVImpl;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoInMemoryImpl;
+import com.reactiveworks.productservice.service.implementation.ProductAvailabilityService;
+
+/**
+ * Tests the registry of the dao backends and the start of the service over it.
+ */
+public class DaoRegistryTest {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("DaoRegistryTest.class");
+
+	/**
+	 * Checks that the backends are discovered, that the dao of a backend is
+	 * created once and shared, and that an unknown dbtype gives the CSV daos.
+	 */
+	@Test
+	public void registrySharesDaosOfDiscoveredBackendsTest() {
+		LOGGER_OBJ.debug("execution of registrySharesDaosOfDiscoveredBackendsTest() started");
+		try (DaoRegistry registry = new DaoRegistry(properties("csv"))) {
+			assertEquals(Arrays.asList("binary", "csv", "inmemory", "mysql"), new ArrayList<>(registry.getTypes()));
+			IProductDao productDao = registry.getProductDao();
+			assertTrue(productDao instanceof ProductDaoCSVImpl);
+			assertSame(productDao, registry.getProductDao(" CSV "));
+			assertSame(productDao, registry.getProductDao("unknown"));
+			assertSame(registry.getUserDao(), registry.getUserDao("csv"));
+			assertTrue(registry.getProductDao("inmemory") instanceof ProductDaoInMemoryImpl);
+		}
+		Properties cached = properties("inmemory");
+		cached.setProperty("daocache", "true");
+		try (DaoRegistry registry = new DaoRegistry(cached)) {
+			assertTrue(registry.getProductDao() instanceof CachingProductDao);
+			assertSame(registry.getProductDao(), registry.getProductDao("inmemory"));
+		}
+		LOGGER_OBJ.debug("execution of registrySharesDaosOfDiscoveredBackendsTest() completed");
+	}
+
+	/**
+	 * Checks that the in memory daos, seeded from the CSV files, take writes and
+	 * that a refresh of the catalog applies only the changes since its last read.
+	 *
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on database fails.
+	 * @throws InvalidDBRecordFormatException when the record format is invalid.
+	 * @throws OperationNotSupportedException when the dao does not take writes.
+	 */
+	@Test
+	public void inMemoryDaosTrackChangesTest() throws DataBaseAccessException, DBOperationFailureException,
+			InvalidDBRecordFormatException, OperationNotSupportedException {
+		LOGGER_OBJ.debug("execution of inMemoryDaosTrackChangesTest() started");
+		Properties seeded = properties("inmemory");
+		seeded.setProperty("inmemoryseed", "true");
+		try (DaoRegistry registry = new DaoRegistry(seeded)) {
+			IProductDao productDao = registry.getProductDao();
+			IUserDao userDao = registry.getUserDao();
+			int csvProducts = new ProductDaoCSVImpl().getProducts().size();
+			CatalogReloader reloader = new CatalogReloader(productDao, userDao);
+			reloader.reload();
+			assertEquals(csvProducts, reloader.getSnapshot().getCatalog().size());
+			assertFalse(productDao.getProducts().isEmpty());
+
+			Product first = productDao.getProducts().get(0);
+			productDao.insertProduct(product("MEM1", "Laptop", 100, "Pune"));
+			productDao.updateProduct(product("MEM1", "Laptop", 100, "Pune"), 150);
+			productDao.deleteProduct(first);
+			userDao.insertUser(user("MEMU1", "Pune"));
+			IProductCatalog catalog = reloader.refresh().getCatalog();
+
+			assertEquals(csvProducts, catalog.size());
+			assertEquals(150, catalog.findProduct("MEM1").getPrice());
+			assertNull(catalog.findProduct(first.getProductId()));
+			assertEquals("Pune", reloader.getSnapshot().getUserIndex().getUser("MEMU1").getCity());
+		}
+		LOGGER_OBJ.debug("execution of inMemoryDaosTrackChangesTest() completed");
+	}
+
+	/**
+	 * Checks that the service configured by dbtype.properties is ready once
+	 * started, and that a warm-up leaves the query cache untouched.
+	 */
+	@Test
+	public void serviceIsReadyAfterStartupTest() {
+		LOGGER_OBJ.debug("execution of serviceIsReadyAfterStartupTest() started");
+		ProductAvailabilityService service = new ProductAvailabilityService();
+		assertTrue(service.isReady());
+		long missCount = service.getQueryCache().getStatistics().getMissCount();
+		service.warmUp(100);
+		assertEquals(missCount, service.getQueryCache().getStatistics().getMissCount());
+		LOGGER_OBJ.debug("execution of serviceIsReadyAfterStartupTest() completed");
+	}
+
+	private static Properties properties(String dbType) {
+		Properties properties = new Properties();
+		properties.setProperty("dbtype", dbType);
+		return properties;
+	}
+
+}
@@ -0,0 +1,168 @@
+package com.reactiveworks.productservice.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import com.reactiveworks.productservice.catalog.IProductCatalog;
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.model.PriceOrder;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.ProductPage;
+import com.reactiveworks.productservice.model.ProductPageRequest;
+import com.reactiveworks.productservice.model.User;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoInMemoryImpl;
+import com.reactiveworks.productservice.user.dao.implementation.UserDaoInMemoryImpl;
+
+/**
+ * Products, users and daos shared by the tests, and the checks of a catalog
+ * against the catalog expected.
+ */
+final class Fixtures {
+
+	static final String[] CITIES = { "Pune", "Delhi", "Mumbai/Pune", "Chennai", "Delhi/Chennai/Pune", "" };
+	static final String[] CATEGORIES = { "Laptop", "Mobile", "Tablet" };
+
+	private Fixtures() {
+	}
+
+	/**
+	 * Gives a product named after its id.
+	 */
+	static Product product(String productId, String category, int price, String availableCity) {
+		Product product = new Product();
+		product.setProductId(productId);
+		product.setProductName("Name" + productId);
+		product.setProductCategory(category);
+		product.setPrice(price);
+		product.setAvailableCity(availableCity);
+		return product;
+	}
+
+	/**
+	 * Gives a user named after its id, with every field set.
+	 */
+	static User user(String userId, String city) {
+		User user = new User();
+		user.setUserId(userId);
+		user.setUserName("Name" + userId);
+		user.setEmail(userId + "@mail.com");
+		user.setPhoneNumber("9000000000");
+		user.setCity(city);
+		return user;
+	}
+
+	/**
+	 * Gives the products of ids P{first} onwards, spread over the cities and
+	 * categories; a shift gives the same ids other prices, cities and
+	 * categories.
+	 */
+	static List<Product> products(int first, int count, int shift) {
+		List<Product> products = new ArrayList<>();
+		for (int i = first; i < first + count; i++) {
+			products.add(product(String.format("P%03d", i), CATEGORIES[(i + shift) % CATEGORIES.length],
+					100 + (i * 37 + shift * 11) % 700, CITIES[(i + shift) % CITIES.length]));
+		}
+		return products;
+	}
+
+	/**
+	 * Gives an in memory product dao holding the given products.
+	 */
+	static ProductDaoInMemoryImpl productDao(Product... products)
+			throws DataBaseAccessException, DBOperationFailureException {
+		ProductDaoInMemoryImpl productDao = new ProductDaoInMemoryImpl();
+		for (Product product : products) {
+			productDao.insertProduct(product);
+		}
+		return productDao;
+	}
+
+	/**
+	 * Gives an in memory user dao holding the given users.
+	 */
+	static UserDaoInMemoryImpl userDao(User... users) throws DataBaseAccessException, DBOperationFailureException {
+		UserDaoInMemoryImpl userDao = new UserDaoInMemoryImpl();
+		for (User user : users) {
+			userDao.insertUser(user);
+		}
+		return userDao;
+	}
+
+	static List<String> ids(String... ids) {
+		return new ArrayList<>(Arrays.asList(ids));
+	}
+
+	static List<String> ids(List<Product> products) {
+		List<String> ids = new ArrayList<>();
+		for (Product product : products) {
+			ids.add(product.getProductId());
+		}
+		return ids;
+	}
+
+	static List<String> sortedIds(List<Product> products) {
+		List<String> ids = ids(products);
+		ids.sort(null);
+		return ids;
+	}
+
+	/**
+	 * Checks that the catalog answers the city, category, page, price range and
+	 * id queries as the expected catalog.
+	 */
+	static void assertMatches(String name, IProductCatalog expected, IProductCatalog catalog) {
+		assertEquals(name, expected.size(), catalog.size());
+		assertEquals(name, sortedIds(expected.getProducts()), sortedIds(catalog.getProducts()));
+		for (Product product : expected.getProducts()) {
+			assertEquals(name, product.toString(), catalog.findProduct(product.getProductId()).toString());
+		}
+		assertNull(name, catalog.findProduct("missing"));
+		for (String city : new String[] { "Pune", " DELHI ", "Mumbai", "Chennai", "Nagpur" }) {
+			assertEquals(name, sortedIds(expected.getProducts(city)), sortedIds(catalog.getProducts(city)));
+			assertPagesMatch(name, request -> expected.getProducts(city, request),
+					request -> catalog.getProducts(city, request));
+			for (String category : CATEGORIES) {
+				assertEquals(name, sortedIds(expected.getProducts(city, category)),
+						sortedIds(catalog.getProducts(city, category)));
+				assertPagesMatch(name, request -> expected.getProducts(city, category, request),
+						request -> catalog.getProducts(city, category, request));
+				assertEquals(name, ids(expected.getProductsInPriceRange(city, category, 150, 650)),
+						ids(catalog.getProductsInPriceRange(city, category, 150, 650)));
+			}
+		}
+	}
+
+	/**
+	 * Checks offset pages and a keyset page of a listing in both orders.
+	 */
+	private static void assertPagesMatch(String name, Function<ProductPageRequest, ProductPage> expected,
+			Function<ProductPageRequest, ProductPage> listing) {
+		for (PriceOrder order : PriceOrder.values()) {
+			for (int offset : new int[] { 0, 3, 9 }) {
+				assertPageMatches(name, expected, listing, ProductPageRequest.page(order, offset, 7));
+			}
+			List<Product> first = expected.apply(ProductPageRequest.page(order, 0, 3)).getProducts();
+			if (!first.isEmpty()) {
+				Product last = first.get(first.size() - 1);
+				assertPageMatches(name, expected, listing,
+						ProductPageRequest.after(order, last.getPrice(), last.getProductId(), 5));
+			}
+		}
+	}
+
+	private static void assertPageMatches(String name, Function<ProductPageRequest, ProductPage> expected,
+			Function<ProductPageRequest, ProductPage> listing, ProductPageRequest request) {
+		ProductPage expectedPage = expected.apply(request);
+		ProductPage page = listing.apply(request);
+		assertEquals(name + " " + request, ids(expectedPage.getProducts()), ids(page.getProducts()));
+		assertEquals(name + " " + request, expectedPage.getTotalCount(), page.getTotalCount());
+		assertEquals(name + " " + request, expectedPage.hasMore(), page.hasMore());
+	}
+
+}
@@ -0,0 +1,111 @@
+package com.reactiveworks.productservice.test;
+
+import static com.reactiveworks.productservice.test.Fixtures.assertMatches;
+import static com.reactiveworks.productservice.test.Fixtures.product;
+import static com.reactiveworks.productservice.test.Fixtures.products;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import com.reactiveworks.productservice.catalog.CatalogLayout;
+import com.reactiveworks.productservice.catalog.CatalogPartitioning;
+import com.reactiveworks.productservice.catalog.IProductCatalog;
+import com.reactiveworks.productservice.catalog.ObjectProductCatalog;
+import com.reactiveworks.productservice.catalog.PartitionStatistics;
+import com.reactiveworks.productservice.catalog.PartitionedProductCatalog;
+import com.reactiveworks.productservice.model.Product;
+
+/**
+ * Tests the catalog partitioned by city against the whole catalog.
+ */
+public class PartitionedProductCatalogTest {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("PartitionedProductCatalogTest.class");
+
+	/**
+	 * Checks that a catalog of every layout, partitioned per city or by hash,
+	 * answers the queries as the whole catalog, before and after a merge.
+	 */
+	@Test
+	public void partitionedCatalogMatchesWholeTest() {
+		LOGGER_OBJ.debug("execution of partitionedCatalogMatchesWholeTest() started");
+		for (CatalogLayout layout : CatalogLayout.values()) {
+			for (CatalogPartitioning partitioning : new CatalogPartitioning[] { CatalogPartitioning.byCity(),
+					CatalogPartitioning.hashed(3) }) {
+				String name = layout + " " + partitioning;
+				List<Product> expected = products(0, 90, 0);
+				IProductCatalog catalog = build(partitioning, layout, expected);
+				assertTrue(name, catalog instanceof PartitionedProductCatalog);
+				assertMatches(name, new ObjectProductCatalog(new ArrayList<>(expected)), catalog);
+
+				List<Product> added = products(100, 10, 1);
+				List<String> removedIds = Arrays.asList("P004", "P010", "P011", "P012", "P089");
+				catalog = catalog.merge(added, new HashSet<>(removedIds));
+				expected.removeIf(product -> removedIds.contains(product.getProductId()));
+				expected.addAll(added);
+				assertMatches(name, new ObjectProductCatalog(new ArrayList<>(expected)), catalog);
+				assertNull(name, catalog.findProduct("P010"));
+				assertEquals(name, "P100", catalog.findProduct("P100").getProductId());
+			}
+		}
+		LOGGER_OBJ.debug("execution of partitionedCatalogMatchesWholeTest() completed");
+	}
+
+	/**
+	 * Checks that a merge changes only the partitions of the cities it touches
+	 * and that the statistics count the products and cities of each partition.
+	 */
+	@Test
+	public void mergeKeepsUntouchedPartitionsTest() {
+		LOGGER_OBJ.debug("execution of mergeKeepsUntouchedPartitionsTest() started");
+		PartitionedProductCatalog catalog = (PartitionedProductCatalog) build(CatalogPartitioning.byCity(),
+				CatalogLayout.OBJECTS, Arrays.asList(product("P1", "Laptop", 500, "Pune"),
+						product("P2", "Mobile", 200, "Pune/Delhi"), product("P3", "Laptop", 300, "Chennai")));
+		assertEquals(3, catalog.size());
+		assertEquals(3, catalog.getPartitionCount());
+
+		PartitionedProductCatalog merged = (PartitionedProductCatalog) catalog
+				.merge(Collections.singletonList(product("P4", "Tablet", 100, "Delhi")), Collections.singleton("P1"));
+		assertEquals(3, merged.size());
+		assertSame(catalog.getPartition("Chennai"), merged.getPartition("Chennai"));
+		assertNotSame(catalog.getPartition("Pune"), merged.getPartition("Pune"));
+		assertEquals(1, catalog.getPartition("Delhi").size());
+		assertEquals(2, merged.getPartition("Delhi").size());
+
+		List<PartitionStatistics> statistics = merged.getStatistics();
+		assertEquals(3, statistics.size());
+		assertEquals("chennai", statistics.get(0).getPartition());
+		assertEquals("delhi", statistics.get(1).getPartition());
+		assertEquals(2, statistics.get(1).getProductCount());
+		assertEquals(1, statistics.get(1).getCityCount());
+		assertEquals("pune", statistics.get(2).getPartition());
+		assertEquals(1, statistics.get(2).getProductCount());
+		assertTrue(statistics.get(2).getMemoryBytes() > 0);
+
+		PartitionedProductCatalog emptied = (PartitionedProductCatalog) merged
+				.merge(Collections.<Product>emptyList(), Collections.singleton("P3"));
+		assertEquals(2, emptied.size());
+		assertEquals(2, emptied.getPartitionCount());
+		assertEquals(0, emptied.getProducts("Chennai").size());
+		LOGGER_OBJ.debug("execution of mergeKeepsUntouchedPartitionsTest() completed");
+	}
+
+	private static IProductCatalog build(CatalogPartitioning partitioning, CatalogLayout layout,
+			List<Product> products) {
+		IProductCatalog.Builder builder = partitioning.newBuilder(layout);
+		products.forEach(builder::add);
+		return builder.build();
+	}
+
+}
@@ -0,0 +1,168 @@
+package com.reactiveworks.productservice.test;
+
+import static com.reactiveworks.productservice.test.Fixtures.ids;
+import static com.reactiveworks.productservice.test.Fixtures.product;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import com.reactiveworks.productservice.catalog.CatalogLayout;
+import com.reactiveworks.productservice.catalog.IProductCatalog;
+import com.reactiveworks.productservice.catalog.PriceIndex;
+import com.reactiveworks.productservice.model.PriceOrder;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.ProductPage;
+import com.reactiveworks.productservice.model.ProductPageRequest;
+
+/**
+ * Tests the PriceIndex class and the price listings of the catalog layouts.
+ */
+public class PriceIndexTest {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("PriceIndexTest.class");
+
+	/**
+	 * Checks that walking the keyset pages of a listing in either order gives the
+	 * listing sorted by price and product id.
+	 */
+	@Test
+	public void keysetPagesTest() {
+		LOGGER_OBJ.debug("execution of keysetPagesTest() started");
+		List<Product> products = catalog();
+		PriceIndex index = new PriceIndex(products);
+		List<Product> puneMobiles = products.stream()
+				.filter(product -> product.getAvailableCity().contains("Pune")
+						&& product.getProductCategory().equals("Mobile"))
+				.sorted(PriceIndex.PRICE_ORDER).collect(Collectors.toList());
+
+		assertEquals(ids(puneMobiles), ids(walk(index, PriceOrder.ASCENDING)));
+		Collections.reverse(puneMobiles);
+		assertEquals(ids(puneMobiles), ids(walk(index, PriceOrder.DESCENDING)));
+		LOGGER_OBJ.debug("execution of keysetPagesTest() completed");
+	}
+
+	/**
+	 * Checks that a product whose availableCity field repeats a city, in any
+	 * case, is listed once in the pages and price ranges of the city for every
+	 * layout, also once merged into the catalog.
+	 */
+	@Test
+	public void repeatedCityListedOnceTest() {
+		LOGGER_OBJ.debug("execution of repeatedCityListedOnceTest() started");
+		for (CatalogLayout layout : CatalogLayout.values()) {
+			IProductCatalog.Builder builder = layout.newBuilder();
+			builder.add(product("P1", "Laptop", 300, "Pune/Delhi/pune"));
+			builder.add(product("P2", "Laptop", 200, " PUNE "));
+			builder.add(product("P3", "Mobile", 100, "Delhi/delhi"));
+			IProductCatalog catalog = builder.build();
+			assertListedOnce(layout.name(), catalog, ids("P2", "P1"));
+			ProductPage delhi = catalog.getProducts("Delhi", ProductPageRequest.page(PriceOrder.ASCENDING, 0, 10));
+			assertEquals(layout.name(), ids("P3", "P1"), ids(delhi.getProducts()));
+
+			IProductCatalog merged = catalog.merge(
+					Collections.singletonList(product("P4", "Laptop", 150, "Delhi/Pune/DELHI/pune")),
+					Collections.<String>emptySet());
+			assertListedOnce(layout.name(), merged, ids("P4", "P2", "P1"));
+		}
+		LOGGER_OBJ.debug("execution of repeatedCityListedOnceTest() completed");
+	}
+
+	private static void assertListedOnce(String name, IProductCatalog catalog, List<String> puneLaptops) {
+		ProductPage page = catalog.getProducts("Pune", ProductPageRequest.page(PriceOrder.ASCENDING, 0, 10));
+		assertEquals(name, puneLaptops, ids(page.getProducts()));
+		assertEquals(name, puneLaptops.size(), page.getTotalCount());
+		assertFalse(name, page.hasMore());
+		List<String> descending = new ArrayList<>(puneLaptops);
+		Collections.reverse(descending);
+		assertEquals(name, descending, ids(catalog
+				.getProducts("pune", "Laptop", ProductPageRequest.page(PriceOrder.DESCENDING, 0, 10)).getProducts()));
+		assertEquals(name, puneLaptops, ids(catalog.getProductsInPriceRange("Pune", "laptop", 0, 1000)));
+		assertEquals(name, puneLaptops.size(), catalog.getProducts("Pune").size());
+	}
+
+	/**
+	 * Checks the offset pages and the top products of a city.
+	 */
+	@Test
+	public void offsetAndTopTest() {
+		LOGGER_OBJ.debug("execution of offsetAndTopTest() started");
+		PriceIndex index = new PriceIndex(catalog());
+
+		ProductPage cheapest = index.getProducts("DELHI", ProductPageRequest.top(PriceOrder.ASCENDING, 3));
+		assertEquals(3, cheapest.getProducts().size());
+		assertEquals(100, cheapest.getProducts().get(0).getPrice());
+		assertTrue(cheapest.hasMore());
+
+		ProductPage dearest = index.getProducts("delhi", ProductPageRequest.top(PriceOrder.DESCENDING, 1));
+		assertEquals(1000, dearest.getProducts().get(0).getPrice());
+
+		ProductPage last = index.getProducts("Delhi", ProductPageRequest.page(PriceOrder.ASCENDING,
+				cheapest.getTotalCount() - 2, 5));
+		assertEquals(2, last.getProducts().size());
+		assertFalse(last.hasMore());
+		assertNull(last.nextPageRequest());
+		assertTrue(index.getProducts("Agra", "Mobile", ProductPageRequest.top(PriceOrder.ASCENDING, 5)).getProducts()
+				.isEmpty());
+		LOGGER_OBJ.debug("execution of offsetAndTopTest() completed");
+	}
+
+	/**
+	 * Checks that the price range queries match filtering the catalog, bounds
+	 * included.
+	 */
+	@Test
+	public void priceRangeTest() {
+		LOGGER_OBJ.debug("execution of priceRangeTest() started");
+		List<Product> products = catalog();
+		PriceIndex index = new PriceIndex(products);
+		int[][] ranges = { { 250, 480 }, { 0, 99 }, { 1000, Integer.MAX_VALUE }, { Integer.MIN_VALUE, 150 },
+				{ 600, 590 } };
+		for (int[] range : ranges) {
+			List<Product> expected = products.stream()
+					.filter(product -> !product.getProductCategory().equals("Mobile") && product.getPrice() >= range[0]
+							&& product.getPrice() <= range[1])
+					.sorted(PriceIndex.PRICE_ORDER).collect(Collectors.toList());
+			assertEquals(ids(expected), ids(index.getProductsInPriceRange("Delhi", "LAPTOP", range[0], range[1])));
+		}
+		LOGGER_OBJ.debug("execution of priceRangeTest() completed");
+	}
+
+	private static List<Product> walk(PriceIndex index, PriceOrder order) {
+		List<Product> walked = new ArrayList<>();
+		ProductPageRequest request = ProductPageRequest.page(order, 0, 7);
+		while (request != null) {
+			ProductPage page = index.getProducts("pune", "mobile", request);
+			walked.addAll(page.getProducts());
+			request = page.nextPageRequest();
+		}
+		return walked;
+	}
+
+	/**
+	 * Products priced 100 to 1000 in steps of 10, where several products share a
+	 * price so that ties are ordered by product id.
+	 */
+	private static List<Product> catalog() {
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			Product product = new Product();
+			product.setProductId(String.format("P%03d", (i * 37) % 200));
+			product.setProductName("Product" + i);
+			product.setProductCategory(i % 3 == 0 ? "Laptop" : "Mobile");
+			product.setPrice(100 + (i % 91) * 10);
+			product.setAvailableCity(i % 2 == 0 ? "Pune/Delhi" : "Delhi");
+			products.add(product);
+		}
+		return products;
+	}
+
+}
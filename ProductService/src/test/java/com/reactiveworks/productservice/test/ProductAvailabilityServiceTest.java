@@ -1,12 +1,20 @@
 package com.reactiveworks.productservice.test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 import org.apache.log4j.Logger;
 import org.junit.Test;
 
 import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
 import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.service.exceptions.UserNotFoundException;
 import com.reactiveworks.productservice.service.implementation.ProductAvailabilityService;
 
 /**
@@ -22,9 +30,10 @@ public class ProductAvailabilityServiceTest {
 	 * 
 	 * @throws DBOperationFailureException when operation on database fails.
 	 * @throws DataBaseAccessException     when unable to access the database.
+	 * @throws UserNotFoundException       when the user does not exist.
 	 */
 	@Test
-	public void getAllProductForUserServiceTest() throws DBOperationFailureException, DataBaseAccessException {
+	public void getAllProductForUserServiceTest() throws DBOperationFailureException, DataBaseAccessException, UserNotFoundException {
 		LOGGER_OBJ.debug("execution of getAllProductForUserServiceTest() started");
 		ProductAvailabilityService productService = new ProductAvailabilityService();
 		int actualProductsForUserCount = productService.getAllProductForUser("U1001").size();
@@ -38,9 +47,10 @@ public class ProductAvailabilityServiceTest {
 	 * 
 	 * @throws DBOperationFailureException when operation on database fails.
 	 * @throws DataBaseAccessException     when unable to access the database.
+	 * @throws UserNotFoundException       when the user does not exist.
 	 */
 	@Test
-	public void getAllProductForUserServiceFailTest() throws DBOperationFailureException, DataBaseAccessException {
+	public void getAllProductForUserServiceFailTest() throws DBOperationFailureException, DataBaseAccessException, UserNotFoundException {
 		LOGGER_OBJ.debug("execution of getAllProductForUserServiceFailTest() started");
 		ProductAvailabilityService productService = new ProductAvailabilityService();
 		int actualProductsForUserCount = productService.getAllProductForUser("U1001").size();
@@ -55,10 +65,11 @@ public class ProductAvailabilityServiceTest {
 	 * 
 	 * @throws DBOperationFailureException when operation on database fails.
 	 * @throws DataBaseAccessException     when unable to access the database.
+	 * @throws UserNotFoundException       when the user does not exist.
 	 */
 	@Test
 	public void getAllProductForUserForCategoryServiceTest()
-			throws DBOperationFailureException, DataBaseAccessException {
+			throws DBOperationFailureException, DataBaseAccessException, UserNotFoundException {
 		LOGGER_OBJ.debug("execution of getAllProductForUserForCategoryServiceTest() started");
 		ProductAvailabilityService productService = new ProductAvailabilityService();
 		int actualProductsOfCategoryCount = productService.getAllProductForUserForCategory("U1001", "Mobile").size();
@@ -73,10 +84,11 @@ public class ProductAvailabilityServiceTest {
 	 * 
 	 * @throws DBOperationFailureException when operation on database fails.
 	 * @throws DataBaseAccessException     when unable to access the database.
+	 * @throws UserNotFoundException       when the user does not exist.
 	 */
 	@Test
 	public void getAllProductForUserForCategoryServiceFailTest()
-			throws DBOperationFailureException, DataBaseAccessException {
+			throws DBOperationFailureException, DataBaseAccessException, UserNotFoundException {
 		LOGGER_OBJ.debug("execution of getAllProductForUserForCategoryServiceFailTest() started");
 		ProductAvailabilityService productService = new ProductAvailabilityService();
 		int actualProductsOfCategoryCount = productService.getAllProductForUserForCategory("U1001", "Mobile").size();
@@ -86,4 +98,61 @@ public class ProductAvailabilityServiceTest {
 
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Checks that getAllProductForUser() reports a user which does not exist.
+	 * 
+	 * @throws DBOperationFailureException when operation on database fails.
+	 * @throws DataBaseAccessException     when unable to access the database.
+	 * @throws UserNotFoundException       when the user does not exist.
+	 */
+	@Test(expected = UserNotFoundException.class)
+	public void getAllProductForUnknownUserServiceTest()
+			throws DBOperationFailureException, DataBaseAccessException, UserNotFoundException {
+		LOGGER_OBJ.debug("execution of getAllProductForUnknownUserServiceTest() started");
+		ProductAvailabilityService productService = new ProductAvailabilityService();
+		productService.getAllProductForUser("U9999");
+	}
+
+	/**
+	 * Checks that getAllProductForUser() matches the user id ignoring case.
+	 * 
+	 * @throws DBOperationFailureException when operation on database fails.
+	 * @throws DataBaseAccessException     when unable to access the database.
+	 * @throws UserNotFoundException       when the user does not exist.
+	 */
+	@Test
+	public void getAllProductForUserIgnoreCaseServiceTest()
+			throws DBOperationFailureException, DataBaseAccessException, UserNotFoundException {
+		LOGGER_OBJ.debug("execution of getAllProductForUserIgnoreCaseServiceTest() started");
+		ProductAvailabilityService productService = new ProductAvailabilityService();
+		int actualProductsForUserCount = productService.getAllProductForUser("u1001").size();
+		int expectedProductsForUserCount = 7;
+		assertTrue(expectedProductsForUserCount == actualProductsForUserCount);
+		LOGGER_OBJ.debug("execution of getAllProductForUserIgnoreCaseServiceTest() completed");
+	}
+
+	/**
+	 * Checks that getAllProductForUsersForCategory() gives every known user the
+	 * result of getAllProductForUserForCategory() and shares it between the users
+	 * of a city.
+	 * 
+	 * @throws DBOperationFailureException when operation on database fails.
+	 * @throws DataBaseAccessException     when unable to access the database.
+	 * @throws UserNotFoundException       when the user does not exist.
+	 */
+	@Test
+	public void getAllProductForUsersForCategoryServiceTest()
+			throws DBOperationFailureException, DataBaseAccessException, UserNotFoundException {
+		LOGGER_OBJ.debug("execution of getAllProductForUsersForCategoryServiceTest() started");
+		ProductAvailabilityService productService = new ProductAvailabilityService();
+		Map<String, List<Product>> productsByUser = productService
+				.getAllProductForUsersForCategory(Arrays.asList("U1001", "U1002", "U1006", "U9999"), "Mobile");
+		assertEquals(3, productsByUser.size());
+		assertEquals(productService.getAllProductForUserForCategory("U1002", "Mobile"), productsByUser.get("U1002"));
+		assertSame(productsByUser.get("U1001"), productsByUser.get("U1006"));
+		assertEquals(4, productsByUser.get("U1001").size());
+		assertEquals(7, productService.getAllProductForUsers(Arrays.asList("U1001")).get("U1001").size());
+		LOGGER_OBJ.debug("execution of getAllProductForUsersForCategoryServiceTest() completed");
+	}
+
+}
@@ -0,0 +1,189 @@
+package com.reactiveworks.productservice.test;
+
+import static com.reactiveworks.productservice.test.Fixtures.sortedIds;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.reactiveworks.productservice.dao.BatchInsertReport;
+import com.reactiveworks.productservice.db.BatchInserter;
+import com.reactiveworks.productservice.db.ChangeTracking;
+import com.reactiveworks.productservice.db.DBUtil;
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoCSVImpl;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoMysqlImpl;
+
+/**
+ * Tests the ProductDaoMysqlImpl class against the embedded H2 database of the
+ * test database.properties, running in MySQL mode.
+ */
+public class ProductDaoMysqlImplTest {
+
+	private static final Logger LOGGER_OBJ = Logger.getLogger("ProductDaoMysqlImplTest.class");
+
+	private final ProductDaoMysqlImpl productDao = new ProductDaoMysqlImpl();
+	private final ProductDaoCSVImpl csvDao = new ProductDaoCSVImpl();
+
+	/**
+	 * Loads the products of Product.csv into an empty product database.
+	 *
+	 * @throws Exception when the database cannot be prepared.
+	 */
+	@Before
+	public void loadProducts() throws Exception {
+		Connection connection = DBUtil.getdbconnection();
+		PreparedStatement statement = connection.prepareStatement("DELETE FROM product;");
+		try {
+			statement.executeUpdate();
+		} finally {
+			DBUtil.cleanupdbresources(null, statement, connection);
+		}
+		BatchInsertReport report = productDao.insertRecords(csvDao.getProducts());
+		assertFalse(report.hasFailures());
+	}
+
+	/**
+	 * Checks that the SQL city and category queries return the same products as
+	 * the in memory filtering of the CSV dao.
+	 *
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on database fails.
+	 * @throws InvalidDBRecordFormatException when the record format is invalid.
+	 */
+	@Test
+	public void queriesMatchInMemoryFilteringTest()
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of queriesMatchInMemoryFilteringTest() started");
+		assertEquals(sortedIds(csvDao.getProducts()), sortedIds(productDao.getProducts()));
+		for (String city : Arrays.asList("Pune", "bangalore", "DELHI", "Chennai")) {
+			assertEquals(sortedIds(csvDao.getProductsByCity(city)), sortedIds(productDao.getProductsByCity(city)));
+			assertEquals(sortedIds(csvDao.getProductsByCityAndCategory(city, "mobile")),
+					sortedIds(productDao.getProductsByCityAndCategory(city, "mobile")));
+		}
+		assertEquals(sortedIds(csvDao.getProductsByPriceRange(10000, 30000)),
+				sortedIds(productDao.getProductsByPriceRange(10000, 30000)));
+		assertFalse(productDao.getProductsByCity("Pune").isEmpty());
+		LOGGER_OBJ.debug("execution of queriesMatchInMemoryFilteringTest() completed");
+	}
+
+	/**
+	 * Checks that the availableCity field is rebuilt from product_city in its
+	 * original order and that deleting a product removes its cities.
+	 *
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on database fails.
+	 * @throws InvalidDBRecordFormatException when the record format is invalid.
+	 */
+	@Test
+	public void availableCityRoundTripTest()
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of availableCityRoundTripTest() started");
+		Product product = new Product();
+		product.setProductId("PT01");
+		product.setProductName("Tablet");
+		product.setProductCategory("Tab");
+		product.setPrice(7000);
+		product.setAvailableCity("Mysore/Agra/ Goa");
+		productDao.insertProduct(product);
+
+		List<Product> mysoreProducts = productDao.getProductsByCity("mysore");
+		assertEquals(1, mysoreProducts.size());
+		assertEquals("Mysore/Agra/Goa", mysoreProducts.get(0).getAvailableCity());
+
+		productDao.deleteProduct(product);
+		assertTrue(productDao.getProductsByCity("Agra").isEmpty());
+		LOGGER_OBJ.debug("execution of availableCityRoundTripTest() completed");
+	}
+
+	/**
+	 * Checks that a batch with a duplicate product keeps the other rows and
+	 * reports the duplicate.
+	 *
+	 * @throws DataBaseAccessException        when unable to access the database.
+	 * @throws DBOperationFailureException    when operation on database fails.
+	 * @throws InvalidDBRecordFormatException when the record format is invalid.
+	 */
+	@Test
+	public void insertRecordsReportsFailedRowsTest()
+			throws DataBaseAccessException, DBOperationFailureException, InvalidDBRecordFormatException {
+		LOGGER_OBJ.debug("execution of insertRecordsReportsFailedRowsTest() started");
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			Product product = new Product();
+			product.setProductId(i == 3 ? "Pro001" : "PB0" + i);
+			product.setProductName("Batch" + i);
+			product.setProductCategory("Mobile");
+			product.setPrice(1000 + i);
+			product.setAvailableCity("Nagpur");
+			products.add(product);
+		}
+		BatchInsertReport report = productDao.insertRecords(products);
+
+		assertEquals(5, report.getInsertedCount());
+		assertEquals(1, report.getFailures().size());
+		assertEquals(3, report.getFailures().get(0).getIndex());
+		assertEquals("Pro001", report.getFailures().get(0).getRecordId());
+		assertEquals(5, productDao.getProductsByCity("Nagpur").size());
+		LOGGER_OBJ.debug("execution of insertRecordsReportsFailedRowsTest() completed");
+	}
+
+	/**
+	 * Checks that a transaction failing for another reason than its batch is
+	 * rolled back and ends the insert, with the committed chunks reported as
+	 * inserted and the other records as failed.
+	 *
+	 * @throws Exception when the database cannot be read.
+	 */
+	@Test
+	public void failedTransactionKeepsCommittedChunksTest() throws Exception {
+		LOGGER_OBJ.debug("execution of failedTransactionKeepsCommittedChunksTest() started");
+		List<String> keys = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			keys.add("TX0" + i);
+		}
+		// divides by zero in the transaction of the second chunk
+		String failingVersionQuery = "UPDATE catalog_version SET version=version+1 WHERE id=1 AND "
+				+ "1/(CASE WHEN version=" + (ChangeTracking.getCurrentVersion() + 1) + " THEN 0 ELSE 1 END)=1;";
+		BatchInsertReport report = new BatchInserter<String>(failingVersionQuery,
+				new String[] { "INSERT INTO product_tombstone (productId, version) VALUES (?, 0);" },
+				(statements, key) -> {
+					statements[0].setString(1, key);
+					statements[0].addBatch();
+				}, key -> key, 4).insert(keys);
+
+		assertEquals(4, report.getInsertedCount());
+		assertEquals(6, report.getFailures().size());
+		assertEquals(4, report.getFailures().get(0).getIndex());
+		assertEquals("TX09", report.getFailures().get(5).getRecordId());
+		Connection connection = DBUtil.getdbconnection();
+		PreparedStatement statement = connection
+				.prepareStatement("SELECT COUNT(*) FROM product_tombstone WHERE productId LIKE 'TX0%';");
+		ResultSet res = null;
+		try {
+			res = statement.executeQuery();
+			res.next();
+			assertEquals(4, res.getInt(1));
+			statement.close();
+			statement = connection.prepareStatement("DELETE FROM product_tombstone WHERE productId LIKE 'TX0%';");
+			statement.executeUpdate();
+		} finally {
+			DBUtil.cleanupdbresources(res, statement, connection);
+		}
+		LOGGER_OBJ.debug("execution of failedTransactionKeepsCommittedChunksTest() completed");
+	}
+
+}
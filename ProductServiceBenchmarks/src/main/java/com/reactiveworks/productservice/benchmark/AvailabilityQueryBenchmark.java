@@ -0,0 +1,146 @@
+package com.reactiveworks.productservice.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.reactiveworks.productservice.catalog.CatalogLayout;
+import com.reactiveworks.productservice.catalog.CatalogQueryCache;
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.model.PriceOrder;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.ProductPage;
+import com.reactiveworks.productservice.model.ProductPageRequest;
+import com.reactiveworks.productservice.service.exceptions.UserNotFoundException;
+import com.reactiveworks.productservice.service.implementation.ProductAvailabilityService;
+
+/**
+ * Measures the availability queries of ProductAvailabilityService over a
+ * synthetic catalog held in memory, in each layout of the catalog. Every
+ * invocation asks for another user and category so that the queries spread
+ * over the whole catalog. The query cache of the service is disabled, so every
+ * query reads the catalog; {@link AvailabilityQueryCacheBenchmark} measures
+ * the same queries with the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx8g" })
+public class AvailabilityQueryBenchmark {
+
+	private static final int QUERY_KEYS = 1024;
+	private static final ProductPageRequest FIRST_PAGE = ProductPageRequest.top(PriceOrder.ASCENDING, 20);
+
+	@Param({ "1000", "100000", "10000000" })
+	public int productCount;
+
+	@Param({ "10", "1000" })
+	public int cityCount;
+
+	@Param({ "10", "500" })
+	public int categoryCount;
+
+	@Param({ "10000" })
+	public int userCount;
+
+	@Param({ "OBJECTS", "COLUMNAR", "OFF_HEAP" })
+	public CatalogLayout layout;
+
+	private ProductAvailabilityService service;
+	private String[] userIds;
+	private String[] categories;
+	private List<String> allUserIds;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws DataBaseAccessException, DBOperationFailureException {
+		service = new ProductAvailabilityService(SyntheticCatalog.productDao(productCount, cityCount, categoryCount),
+				SyntheticCatalog.userDao(userCount, cityCount),
+				new CatalogQueryCache(getQueryCacheWeight(), 0, TimeUnit.SECONDS), layout);
+		userIds = new String[QUERY_KEYS];
+		categories = new String[QUERY_KEYS];
+		for (int i = 0; i < QUERY_KEYS; i++) {
+			userIds[i] = SyntheticCatalog.userId((i * 7919) % userCount);
+			categories[i] = SyntheticCatalog.category((i * 31) % categoryCount);
+		}
+		allUserIds = new ArrayList<>(userCount);
+		for (int i = 0; i < userCount; i++) {
+			allUserIds.add(SyntheticCatalog.userId(i));
+		}
+	}
+
+	@Benchmark
+	public List<Product> getAllProductForUser()
+			throws DBOperationFailureException, DataBaseAccessException, UserNotFoundException {
+		return service.getAllProductForUser(userIds[nextKey()]);
+	}
+
+	@Benchmark
+	public List<Product> getAllProductForUserForCategory()
+			throws DBOperationFailureException, DataBaseAccessException, UserNotFoundException {
+		int key = nextKey();
+		return service.getAllProductForUserForCategory(userIds[key], categories[key]);
+	}
+
+	/**
+	 * Reads the 20 cheapest products of a city and category out of the price
+	 * ordered listings.
+	 */
+	@Benchmark
+	public ProductPage getProductPageForUserForCategory()
+			throws DBOperationFailureException, DataBaseAccessException, UserNotFoundException {
+		int key = nextKey();
+		return service.getProductPageForUserForCategory(userIds[key], categories[key], FIRST_PAGE);
+	}
+
+	/**
+	 * Finds the products of a city and category in a tenth of the synthetic price
+	 * range, 1000 to 201000.
+	 */
+	@Benchmark
+	public List<Product> getProductsInPriceRange()
+			throws DBOperationFailureException, DataBaseAccessException, UserNotFoundException {
+		int key = nextKey();
+		int minPrice = 1000 + key * 150;
+		return service.getProductsInPriceRange(userIds[key], categories[key], minPrice, minPrice + 20000);
+	}
+
+	/**
+	 * Resolves every user of the catalog at once, as a campaign or feed build
+	 * does; its cost follows the number of cities rather than users.
+	 */
+	@Benchmark
+	public Map<String, List<Product>> getAllProductForUsersForCategory() {
+		return service.getAllProductForUsersForCategory(allUserIds, categories[nextKey()]);
+	}
+
+	/**
+	 * Gives the bound of the query cache of the service, 0 to disable it.
+	 */
+	protected long getQueryCacheWeight() {
+		return 0;
+	}
+
+	private int nextKey() {
+		next = (next + 1) & (QUERY_KEYS - 1);
+		return next;
+	}
+
+}
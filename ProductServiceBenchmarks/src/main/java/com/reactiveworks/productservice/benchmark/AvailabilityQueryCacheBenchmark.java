@@ -0,0 +1,17 @@
+package com.reactiveworks.productservice.benchmark;
+
+/**
+ * Measures the availability queries of {@link AvailabilityQueryBenchmark}
+ * with the query cache of the service enabled: after the warm-up the results
+ * which fit in the bound of the cache are served from it.
+ */
+public class AvailabilityQueryCacheBenchmark extends AvailabilityQueryBenchmark {
+
+	private static final long QUERY_CACHE_WEIGHT = 1000000;
+
+	@Override
+	protected long getQueryCacheWeight() {
+		return QUERY_CACHE_WEIGHT;
+	}
+
+}
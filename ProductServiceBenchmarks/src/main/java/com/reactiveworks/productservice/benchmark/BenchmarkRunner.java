@@ -0,0 +1,39 @@
+package com.reactiveworks.productservice.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Main class of the benchmarks jar. It takes the usual JMH command line
+ * options and always adds the GC profiler, so every result carries the
+ * allocation rate next to the throughput and average time, and writes the
+ * results to benchmark-results.json for comparison between builds.
+ *
+ * For example, to run the query benchmarks at 100K products only:
+ *
+ * <pre>
+ * java -jar ProductServiceBenchmarks/target/benchmarks.jar AvailabilityQueryBenchmark -p productCount=100000
+ * </pre>
+ */
+public final class BenchmarkRunner {
+
+	private static final String RESULT_FILE = "benchmark-results.json";
+	private static final String LOG_CONFIGURATION = "-Dlog4j.configuration=benchmark-log4j.properties";
+
+	private BenchmarkRunner() {
+
+	}
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		Options options = new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class)
+				.jvmArgsPrepend(LOG_CONFIGURATION).resultFormat(ResultFormatType.JSON).result(RESULT_FILE).build();
+		new Runner(options).run();
+	}
+
+}
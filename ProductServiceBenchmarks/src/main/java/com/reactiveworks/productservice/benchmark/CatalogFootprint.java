@@ -0,0 +1,118 @@
+package com.reactiveworks.productservice.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import com.reactiveworks.productservice.catalog.CatalogLayout;
+import com.reactiveworks.productservice.catalog.IProductCatalog;
+
+/**
+ * Measures the heap and the direct memory retained by a synthetic catalog in
+ * each layout, together with the time taken to build it, the garbage
+ * collections run meanwhile, and the pause of a full collection while the
+ * catalog is live, which is the pause the catalog imposes on the service.
+ * Each layout is built from products streamed out of the generator, so the
+ * retained memory is the one of the catalog alone. Neither is a rate, so this
+ * is a plain main class rather than a JMH benchmark; it should run in its own
+ * JVM with a heap large enough for the object layout, for example:
+ *
+ * <pre>
+ * java -Xmx4g -cp ProductServiceBenchmarks/target/benchmarks.jar com.reactiveworks.productservice.benchmark.CatalogFootprint 10000000
+ * </pre>
+ *
+ * The arguments are the number of products, the number of cities, the number
+ * of categories and the layouts to measure, all optional.
+ */
+public final class CatalogFootprint {
+
+	private static final int DEFAULT_PRODUCT_COUNT = 10000000;
+	private static final int DEFAULT_CITY_COUNT = 1000;
+	private static final int DEFAULT_CATEGORY_COUNT = 500;
+	private static final int GC_ROUNDS = 5;
+	private static final String DIRECT_POOL = "direct";
+	private static final double MEGABYTE = 1024.0 * 1024.0;
+
+	private CatalogFootprint() {
+
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int productCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PRODUCT_COUNT;
+		int cityCount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CITY_COUNT;
+		int categoryCount = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_CATEGORY_COUNT;
+		CatalogLayout[] layouts = CatalogLayout.values();
+		if (args.length > 3) {
+			layouts = new CatalogLayout[args.length - 3];
+			for (int i = 3; i < args.length; i++) {
+				layouts[i - 3] = CatalogLayout.of(args[i]);
+			}
+		}
+		System.out.printf("%-10s %12s %12s %12s %14s %10s %10s %10s %12s%n", "layout", "products", "heap MB",
+				"direct MB", "bytes/product", "build ms", "gc count", "gc ms", "full gc ms");
+		for (CatalogLayout layout : layouts) {
+			measure(layout, productCount, cityCount, categoryCount);
+		}
+	}
+
+	private static void measure(CatalogLayout layout, int productCount, int cityCount, int categoryCount)
+			throws InterruptedException {
+		long heapBefore = usedHeapAfterGc();
+		long directBefore = usedDirectMemory();
+		long gcCountBefore = gcCount();
+		long gcMillisBefore = gcMillis();
+		long buildStart = System.nanoTime();
+		IProductCatalog.Builder builder = layout.newBuilder();
+		SyntheticCatalog.forEachProduct(productCount, cityCount, categoryCount, builder::add);
+		IProductCatalog catalog = builder.build();
+		long buildMillis = (System.nanoTime() - buildStart) / 1000000;
+		long gcCount = gcCount() - gcCountBefore;
+		long gcMillis = gcMillis() - gcMillisBefore;
+		// the columns collected by a builder are garbage once its catalog is built
+		builder = null;
+		long heap = usedHeapAfterGc() - heapBefore;
+		long direct = usedDirectMemory() - directBefore;
+		long fullGcStart = System.nanoTime();
+		System.gc();
+		long fullGcMillis = (System.nanoTime() - fullGcStart) / 1000000;
+		System.out.printf("%-10s %12d %12.1f %12.1f %14.1f %10d %10d %10d %12d%n", layout, catalog.size(),
+				heap / MEGABYTE, direct / MEGABYTE, (double) (heap + direct) / catalog.size(), buildMillis, gcCount,
+				gcMillis, fullGcMillis);
+	}
+
+	private static long usedDirectMemory() {
+		for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			if (DIRECT_POOL.equals(pool.getName())) {
+				return pool.getMemoryUsed();
+			}
+		}
+		return 0;
+	}
+
+	private static long usedHeapAfterGc() throws InterruptedException {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < GC_ROUNDS; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, collector.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long gcMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			millis += Math.max(0, collector.getCollectionTime());
+		}
+		return millis;
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.reactiveworks.productservice.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.reactiveworks.productservice.catalog.CatalogBitmapIndex;
+import com.reactiveworks.productservice.model.Product;
+
+/**
+ * Compares the city and category query through the bitmap index with the
+ * former scan which filtered the catalog by city and then by category.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CategoryQueryBenchmark {
+
+	@Param({ "100000", "1000000" })
+	public int productCount;
+
+	@Param({ "20" })
+	public int cityCount;
+
+	@Param({ "40" })
+	public int categoryCount;
+
+	private List<Product> products;
+	private CatalogBitmapIndex bitmapIndex;
+	private String city;
+	private String category;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		products = SyntheticCatalog.products(productCount, cityCount, categoryCount);
+		bitmapIndex = new CatalogBitmapIndex(products);
+		city = SyntheticCatalog.city(cityCount / 2);
+		category = SyntheticCatalog.category(categoryCount / 2);
+	}
+
+	@Benchmark
+	public List<Product> doubleStream() {
+		List<Product> productsInCity = products.stream()
+				.filter(product -> product.getAvailableCity().contains(city)).collect(Collectors.toList());
+		return productsInCity.stream().filter(product -> product.getProductCategory().equalsIgnoreCase(category))
+				.collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<Product> bitmapAnd() {
+		return bitmapIndex.getProducts(city, category);
+	}
+
+}
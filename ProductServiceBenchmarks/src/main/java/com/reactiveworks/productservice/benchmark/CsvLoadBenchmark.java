@@ -0,0 +1,87 @@
+package com.reactiveworks.productservice.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.db.exceptions.InvalidDBRecordFormatException;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.User;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoCSVImpl;
+import com.reactiveworks.productservice.user.dao.implementation.UserDaoCSVImpl;
+
+/**
+ * Measures loading the product and user CSV files through the CSV daos. The
+ * files are generated once per trial in a temporary directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx8g" })
+public class CsvLoadBenchmark {
+
+	@Param({ "1000", "100000", "10000000" })
+	public int recordCount;
+
+	@Param({ "20", "2000" })
+	public int cityCount;
+
+	@Param({ "40" })
+	public int categoryCount;
+
+	@Param({ "1", "0" })
+	public int parallelism;
+
+	private Path directory;
+	private ProductDaoCSVImpl productDao;
+	private UserDaoCSVImpl userDao;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("csv-load-benchmark");
+		Path productFile = directory.resolve("Product.csv");
+		Path userFile = directory.resolve("User.csv");
+		SyntheticCatalog.writeProductCsv(productFile, recordCount, cityCount, categoryCount);
+		SyntheticCatalog.writeUserCsv(userFile, recordCount, cityCount);
+		int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+		productDao = new ProductDaoCSVImpl(productFile, threads);
+		userDao = new UserDaoCSVImpl(userFile, threads);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(directory.resolve("Product.csv"));
+		Files.deleteIfExists(directory.resolve("User.csv"));
+		Files.deleteIfExists(directory);
+	}
+
+	@Benchmark
+	public List<Product> getProducts() throws DataBaseAccessException, InvalidDBRecordFormatException {
+		return productDao.getProducts();
+	}
+
+	@Benchmark
+	public List<User> getUsers() throws DataBaseAccessException, InvalidDBRecordFormatException {
+		return userDao.getUsers();
+	}
+
+}
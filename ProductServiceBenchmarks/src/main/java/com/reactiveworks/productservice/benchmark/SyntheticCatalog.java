@@ -0,0 +1,226 @@
+package com.reactiveworks.productservice.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import com.reactiveworks.productservice.db.exceptions.DBOperationFailureException;
+import com.reactiveworks.productservice.db.exceptions.DataBaseAccessException;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.User;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoInMemoryImpl;
+import com.reactiveworks.productservice.user.dao.implementation.UserDaoInMemoryImpl;
+
+/**
+ * Builds in-memory catalogs of the requested size for the benchmarks.
+ */
+public final class SyntheticCatalog {
+
+	private static final long SEED = 42L;
+	private static final int MAX_CITIES_PER_PRODUCT = 4;
+
+	private SyntheticCatalog() {
+
+	}
+
+	/**
+	 * Creates the products of a synthetic catalog.
+	 * 
+	 * @param productCount  number of products.
+	 * @param cityCount     number of distinct cities.
+	 * @param categoryCount number of distinct categories.
+	 * @return the list of products.
+	 */
+	public static List<Product> products(int productCount, int cityCount, int categoryCount) {
+		List<Product> products = new ArrayList<>(productCount);
+		forEachProduct(productCount, cityCount, categoryCount, products::add);
+		return products;
+	}
+
+	/**
+	 * Creates the products of a synthetic catalog one at a time and passes each
+	 * to the given action, so that a catalog can be built without holding the
+	 * list of its products. The products are the ones of
+	 * {@link #products(int, int, int)}.
+	 * 
+	 * @param productCount  number of products.
+	 * @param cityCount     number of distinct cities.
+	 * @param categoryCount number of distinct categories.
+	 * @param action        action to perform for each product.
+	 */
+	public static void forEachProduct(int productCount, int cityCount, int categoryCount,
+			Consumer<Product> action) {
+		Random random = new Random(SEED);
+		StringBuilder cities = new StringBuilder();
+		for (int i = 0; i < productCount; i++) {
+			action.accept(product(random, i, cityCount, categoryCount, cities));
+		}
+	}
+
+	/**
+	 * Creates the users of a synthetic user database, spread evenly over the
+	 * cities.
+	 * 
+	 * @param userCount number of users.
+	 * @param cityCount number of distinct cities.
+	 * @return the list of users.
+	 */
+	public static List<User> users(int userCount, int cityCount) {
+		List<User> users = new ArrayList<>(userCount);
+		for (int i = 0; i < userCount; i++) {
+			users.add(user(i, cityCount));
+		}
+		return users;
+	}
+
+	/**
+	 * Creates an in memory product dao holding the products of a synthetic
+	 * catalog, inserted one at a time. The products are the ones of
+	 * {@link #products(int, int, int)}.
+	 * 
+	 * @param productCount  number of products.
+	 * @param cityCount     number of distinct cities.
+	 * @param categoryCount number of distinct categories.
+	 * @return the product dao.
+	 * @throws DataBaseAccessException     when a product cannot be inserted.
+	 * @throws DBOperationFailureException when a product cannot be inserted.
+	 */
+	public static ProductDaoInMemoryImpl productDao(int productCount, int cityCount, int categoryCount)
+			throws DataBaseAccessException, DBOperationFailureException {
+		ProductDaoInMemoryImpl productDao = new ProductDaoInMemoryImpl();
+		Random random = new Random(SEED);
+		StringBuilder cities = new StringBuilder();
+		for (int i = 0; i < productCount; i++) {
+			productDao.insertProduct(product(random, i, cityCount, categoryCount, cities));
+		}
+		return productDao;
+	}
+
+	/**
+	 * Creates an in memory user dao holding the users of
+	 * {@link #users(int, int)}.
+	 * 
+	 * @param userCount number of users.
+	 * @param cityCount number of distinct cities.
+	 * @return the user dao.
+	 * @throws DataBaseAccessException     when a user cannot be inserted.
+	 * @throws DBOperationFailureException when a user cannot be inserted.
+	 */
+	public static UserDaoInMemoryImpl userDao(int userCount, int cityCount)
+			throws DataBaseAccessException, DBOperationFailureException {
+		UserDaoInMemoryImpl userDao = new UserDaoInMemoryImpl();
+		for (int i = 0; i < userCount; i++) {
+			userDao.insertUser(user(i, cityCount));
+		}
+		return userDao;
+	}
+
+	/**
+	 * Writes the products of a synthetic catalog as a product CSV file, one
+	 * product at a time so that catalogs larger than the heap can be written.
+	 * 
+	 * @param file          file to write.
+	 * @param productCount  number of products.
+	 * @param cityCount     number of distinct cities.
+	 * @param categoryCount number of distinct categories.
+	 * @throws IOException when the file cannot be written.
+	 */
+	public static void writeProductCsv(Path file, int productCount, int cityCount, int categoryCount)
+			throws IOException {
+		Random random = new Random(SEED);
+		StringBuilder cities = new StringBuilder();
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("ProductId,ProductName,ProductCategory,Price,availableCity\n");
+			for (int i = 0; i < productCount; i++) {
+				Product product = product(random, i, cityCount, categoryCount, cities);
+				writer.write(product.getProductId() + "," + product.getProductName() + ","
+						+ product.getProductCategory() + "," + product.getPrice() + "," + product.getAvailableCity()
+						+ "\n");
+			}
+		}
+	}
+
+	/**
+	 * Writes the users of a synthetic user database as a user CSV file.
+	 * 
+	 * @param file      file to write.
+	 * @param userCount number of users.
+	 * @param cityCount number of distinct cities.
+	 * @throws IOException when the file cannot be written.
+	 */
+	public static void writeUserCsv(Path file, int userCount, int cityCount) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("UserId,UserName,email,phoneNumber,City\n");
+			for (int i = 0; i < userCount; i++) {
+				User user = user(i, cityCount);
+				writer.write(user.getUserId() + "," + user.getUserName() + "," + user.getEmail() + ","
+						+ user.getPhoneNumber() + "," + user.getCity() + "\n");
+			}
+		}
+	}
+
+	/**
+	 * Gives the id of the user with the given number.
+	 * 
+	 * @param user number of the user.
+	 * @return the id of the user.
+	 */
+	public static String userId(int user) {
+		return "U" + user;
+	}
+
+	/**
+	 * Gives the name of the city with the given number.
+	 * 
+	 * @param city number of the city.
+	 * @return the name of the city.
+	 */
+	public static String city(int city) {
+		return "City" + city;
+	}
+
+	/**
+	 * Gives the name of the category with the given number.
+	 * 
+	 * @param category number of the category.
+	 * @return the name of the category.
+	 */
+	public static String category(int category) {
+		return "Category" + category;
+	}
+
+	private static Product product(Random random, int i, int cityCount, int categoryCount, StringBuilder cities) {
+		Product product = new Product();
+		product.setProductId("Pro" + i);
+		product.setProductName("Product" + i);
+		product.setProductCategory(category(random.nextInt(categoryCount)));
+		product.setPrice(1000 + random.nextInt(200000));
+		cities.setLength(0);
+		int firstCity = random.nextInt(cityCount);
+		int productCities = 1 + random.nextInt(Math.min(MAX_CITIES_PER_PRODUCT, cityCount));
+		for (int c = 0; c < productCities; c++) {
+			if (c > 0) {
+				cities.append('/');
+			}
+			cities.append(city((firstCity + c) % cityCount));
+		}
+		product.setAvailableCity(cities.toString());
+		return product;
+	}
+
+	private static User user(int i, int cityCount) {
+		User user = new User();
+		user.setUserId(userId(i));
+		user.setUserName("User" + i);
+		user.setEmail("user" + i + "@example.com");
+		user.setPhoneNumber(String.valueOf(9000000000L + i));
+		user.setCity(city(i % cityCount));
+		return user;
+	}
+}
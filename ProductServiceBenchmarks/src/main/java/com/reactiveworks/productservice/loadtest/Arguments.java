@@ -0,0 +1,51 @@
+package com.reactiveworks.productservice.loadtest;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Command line arguments of the form key=value, as taken by CatalogGenerator
+ * and LoadDriver.
+ */
+public class Arguments {
+
+	private final Map<String, String> values = new HashMap<>();
+
+	/**
+	 * Parses the arguments.
+	 * 
+	 * @param args arguments of the form key=value.
+	 * @throws IllegalArgumentException when an argument has no '='.
+	 */
+	public Arguments(String[] args) {
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			if (separator <= 0) {
+				throw new IllegalArgumentException("argument " + arg + " is not of the form key=value");
+			}
+			values.put(arg.substring(0, separator).trim().toLowerCase(Locale.ROOT), arg.substring(separator + 1).trim());
+		}
+	}
+
+	public String getString(String key, String defaultValue) {
+		String value = values.get(key);
+		return value == null || value.isEmpty() ? defaultValue : value;
+	}
+
+	public int getInt(String key, int defaultValue) {
+		String value = values.get(key);
+		return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+	}
+
+	public long getLong(String key, long defaultValue) {
+		String value = values.get(key);
+		return value == null || value.isEmpty() ? defaultValue : Long.parseLong(value);
+	}
+
+	public double getDouble(String key, double defaultValue) {
+		String value = values.get(key);
+		return value == null || value.isEmpty() ? defaultValue : Double.parseDouble(value);
+	}
+
+}
@@ -0,0 +1,356 @@
+package com.reactiveworks.productservice.loadtest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.reactiveworks.productservice.benchmark.SyntheticCatalog;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.User;
+
+/**
+ * Generates product and user databases of any size as CSV files in the format
+ * of Product.csv and User.csv, or as a MySQL seed script for sql/schema.sql.
+ *
+ * The popularity of the cities and categories follows a Zipf distribution of
+ * configurable skew, and the prices follow a configurable distribution. The
+ * same seed always gives the same records, and records are produced one at a
+ * time, so catalogs larger than the heap can be written.
+ *
+ * <pre>
+ * java -cp benchmarks.jar com.reactiveworks.productservice.loadtest.CatalogGenerator dir=/data/catalog products=10000000 users=1000000 cities=500 categories=200 cityskew=1.1 pricedistribution=lognormal format=all
+ * </pre>
+ */
+public class CatalogGenerator {
+
+	private static final int SQL_ROWS_PER_INSERT = 1000;
+
+	private final int productCount;
+	private final int userCount;
+	private final int cityCount;
+	private final int categoryCount;
+	private double citySkew = 0;
+	private double categorySkew = 0;
+	private int maxCitiesPerProduct = 4;
+	private PriceDistribution priceDistribution = PriceDistribution.UNIFORM;
+	private int minPrice = 100;
+	private int maxPrice = 200000;
+	private long seed = 42L;
+
+	/**
+	 * Creates the generator with uniform cities, categories and prices.
+	 * 
+	 * @param productCount  number of products.
+	 * @param userCount     number of users.
+	 * @param cityCount     number of distinct cities.
+	 * @param categoryCount number of distinct categories.
+	 */
+	public CatalogGenerator(int productCount, int userCount, int cityCount, int categoryCount) {
+		this.productCount = productCount;
+		this.userCount = userCount;
+		this.cityCount = cityCount;
+		this.categoryCount = categoryCount;
+	}
+
+	/**
+	 * Creates the generator from the arguments products, users, cities,
+	 * categories, cityskew, categoryskew, maxcitiesperproduct,
+	 * pricedistribution, minprice, maxprice and seed.
+	 * 
+	 * @param arguments command line arguments.
+	 * @return the generator.
+	 */
+	public static CatalogGenerator fromArguments(Arguments arguments) {
+		CatalogGenerator generator = new CatalogGenerator(arguments.getInt("products", 100000),
+				arguments.getInt("users", 10000), arguments.getInt("cities", 100),
+				arguments.getInt("categories", 50));
+		generator.setCitySkew(arguments.getDouble("cityskew", 0));
+		generator.setCategorySkew(arguments.getDouble("categoryskew", 0));
+		generator.setMaxCitiesPerProduct(arguments.getInt("maxcitiesperproduct", 4));
+		generator.setPriceDistribution(PriceDistribution
+				.valueOf(arguments.getString("pricedistribution", "uniform").toUpperCase(Locale.ROOT)));
+		generator.setPriceRange(arguments.getInt("minprice", 100), arguments.getInt("maxprice", 200000));
+		generator.setSeed(arguments.getLong("seed", 42L));
+		return generator;
+	}
+
+	public int getProductCount() {
+		return productCount;
+	}
+
+	public int getUserCount() {
+		return userCount;
+	}
+
+	public int getCategoryCount() {
+		return categoryCount;
+	}
+
+	public void setCitySkew(double citySkew) {
+		this.citySkew = citySkew;
+	}
+
+	public void setCategorySkew(double categorySkew) {
+		this.categorySkew = categorySkew;
+	}
+
+	public void setMaxCitiesPerProduct(int maxCitiesPerProduct) {
+		this.maxCitiesPerProduct = Math.max(1, maxCitiesPerProduct);
+	}
+
+	public void setPriceDistribution(PriceDistribution priceDistribution) {
+		this.priceDistribution = priceDistribution;
+	}
+
+	public void setPriceRange(int minPrice, int maxPrice) {
+		if (minPrice < 0 || maxPrice < minPrice) {
+			throw new IllegalArgumentException("invalid price range " + minPrice + " to " + maxPrice);
+		}
+		this.minPrice = minPrice;
+		this.maxPrice = maxPrice;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Creates a sampler of the category names with the skew of the catalog, for
+	 * drawing query parameters alike the catalog.
+	 * 
+	 * @return the sampler of category ranks.
+	 */
+	public ZipfSampler newCategorySampler() {
+		return new ZipfSampler(categoryCount, categorySkew);
+	}
+
+	/**
+	 * Passes the generated products to the consumer one at a time.
+	 * 
+	 * @param consumer consumer of the products.
+	 */
+	public void forEachProduct(Consumer<Product> consumer) {
+		Random random = new Random(seed);
+		ZipfSampler cities = new ZipfSampler(cityCount, citySkew);
+		ZipfSampler categories = new ZipfSampler(categoryCount, categorySkew);
+		int citiesPerProduct = Math.min(maxCitiesPerProduct, cityCount);
+		int[] productCities = new int[citiesPerProduct];
+		StringBuilder availableCity = new StringBuilder();
+		for (int i = 0; i < productCount; i++) {
+			Product product = new Product();
+			product.setProductId("Pro" + i);
+			product.setProductName("Product" + i);
+			product.setProductCategory(SyntheticCatalog.category(categories.sample(random)));
+			product.setPrice(priceDistribution.sample(random, minPrice, maxPrice));
+			int count = 1 + random.nextInt(citiesPerProduct);
+			availableCity.setLength(0);
+			for (int c = 0; c < count; c++) {
+				productCities[c] = distinctCity(random, cities, productCities, c);
+				if (c > 0) {
+					availableCity.append('/');
+				}
+				availableCity.append(SyntheticCatalog.city(productCities[c]));
+			}
+			product.setAvailableCity(availableCity.toString());
+			consumer.accept(product);
+		}
+	}
+
+	/**
+	 * Passes the generated users to the consumer one at a time. Users live in
+	 * the cities with the same skew as the products.
+	 * 
+	 * @param consumer consumer of the users.
+	 */
+	public void forEachUser(Consumer<User> consumer) {
+		Random random = new Random(seed + 1);
+		ZipfSampler cities = new ZipfSampler(cityCount, citySkew);
+		for (int i = 0; i < userCount; i++) {
+			User user = new User();
+			user.setUserId(SyntheticCatalog.userId(i));
+			user.setUserName("User" + i);
+			user.setEmail("user" + i + "@example.com");
+			user.setPhoneNumber(String.valueOf(9000000000L + i));
+			user.setCity(SyntheticCatalog.city(cities.sample(random)));
+			consumer.accept(user);
+		}
+	}
+
+	/**
+	 * Writes the products as a product CSV file.
+	 * 
+	 * @param file file to write.
+	 * @throws IOException when the file cannot be written.
+	 */
+	public void writeProductCsv(Path file) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("ProductId,ProductName,ProductCategory,Price,availableCity\n");
+			forEachRecord(writer, this::forEachProduct, product -> product.getProductId() + ","
+					+ product.getProductName() + "," + product.getProductCategory() + "," + product.getPrice() + ","
+					+ product.getAvailableCity() + "\n");
+		}
+	}
+
+	/**
+	 * Writes the users as a user CSV file.
+	 * 
+	 * @param file file to write.
+	 * @throws IOException when the file cannot be written.
+	 */
+	public void writeUserCsv(Path file) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("UserId,UserName,email,phoneNumber,City\n");
+			forEachRecord(writer, this::forEachUser, user -> user.getUserId() + "," + user.getUserName() + ","
+					+ user.getEmail() + "," + user.getPhoneNumber() + "," + user.getCity() + "\n");
+		}
+	}
+
+	/**
+	 * Writes the products and users as a MySQL seed script of multi row inserts
+	 * into the tables of sql/schema.sql.
+	 * 
+	 * @param file file to write.
+	 * @throws IOException when the file cannot be written.
+	 */
+	public void writeMysqlSeed(Path file) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("-- generated by CatalogGenerator, load after sql/schema.sql\n");
+			// product_city rows may be written before the insert of their product
+			writer.write("SET autocommit=0;\nSET FOREIGN_KEY_CHECKS=0;\n");
+			SqlInsertWriter products = new SqlInsertWriter("product (productId, productName, productCategory, price)");
+			SqlInsertWriter productCities = new SqlInsertWriter("product_city");
+			forEachRecord(writer, this::forEachProduct, product -> {
+				products.addRow(sqlString(product.getProductId()), sqlString(product.getProductName()),
+						sqlString(product.getProductCategory()), String.valueOf(product.getPrice()));
+				String[] cities = product.getAvailableCity().split("/");
+				for (int position = 0; position < cities.length; position++) {
+					productCities.addRow(sqlString(product.getProductId()), String.valueOf(position),
+							sqlString(cities[position]));
+				}
+				return products.drain() + productCities.drain();
+			});
+			writer.write(products.finish());
+			writer.write(productCities.finish());
+			SqlInsertWriter users = new SqlInsertWriter("user (userId, userName, email, phoneNumber, city)");
+			forEachRecord(writer, this::forEachUser, user -> {
+				users.addRow(sqlString(user.getUserId()), sqlString(user.getUserName()), sqlString(user.getEmail()),
+						sqlString(user.getPhoneNumber()), sqlString(user.getCity()));
+				return users.drain();
+			});
+			writer.write(users.finish());
+			writer.write("COMMIT;\nSET FOREIGN_KEY_CHECKS=1;\n");
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		Arguments arguments = new Arguments(args);
+		CatalogGenerator generator = fromArguments(arguments);
+		Path directory = Paths.get(arguments.getString("dir", "."));
+		String format = arguments.getString("format", "csv").toLowerCase(Locale.ROOT);
+		Files.createDirectories(directory);
+		if (format.equals("csv") || format.equals("all")) {
+			generator.writeProductCsv(directory.resolve("Product.csv"));
+			generator.writeUserCsv(directory.resolve("User.csv"));
+		}
+		if (format.equals("sql") || format.equals("all")) {
+			generator.writeMysqlSeed(directory.resolve("seed.sql"));
+		}
+		System.out.println("generated " + generator.productCount + " products and " + generator.userCount
+				+ " users in " + directory.toAbsolutePath());
+	}
+
+	/**
+	 * Draws a city which is not yet among the first cities of the product.
+	 */
+	private static int distinctCity(Random random, ZipfSampler cities, int[] productCities, int count) {
+		while (true) {
+			int city = cities.sample(random);
+			boolean repeated = false;
+			for (int c = 0; c < count && !repeated; c++) {
+				repeated = productCities[c] == city;
+			}
+			if (!repeated) {
+				return city;
+			}
+		}
+	}
+
+	private static String sqlString(String value) {
+		return value == null ? "NULL" : "'" + value.replace("\\", "\\\\").replace("'", "''") + "'";
+	}
+
+	/**
+	 * Writes the text of every record produced by the generator method.
+	 */
+	private static <T> void forEachRecord(Writer writer, Consumer<Consumer<T>> records,
+			Function<T, String> format) throws IOException {
+		IOException[] failure = new IOException[1];
+		records.accept(record -> {
+			if (failure[0] == null) {
+				try {
+					writer.write(format.apply(record));
+				} catch (IOException exp) {
+					failure[0] = exp;
+				}
+			}
+		});
+		if (failure[0] != null) {
+			throw failure[0];
+		}
+	}
+
+	/**
+	 * Collects rows into multi row INSERT statements of a table and its listed
+	 * columns.
+	 */
+	private static final class SqlInsertWriter {
+
+		private final String prefix;
+		private final StringBuilder statement = new StringBuilder();
+		private final StringBuilder completed = new StringBuilder();
+		private int rows;
+
+		private SqlInsertWriter(String table) {
+			prefix = "INSERT INTO " + table + " VALUES ";
+		}
+
+		private void addRow(String... values) {
+			statement.append(rows == 0 ? prefix : ",\n\t").append('(').append(String.join(",", values)).append(')');
+			if (++rows == SQL_ROWS_PER_INSERT) {
+				completed.append(statement).append(";\n");
+				statement.setLength(0);
+				rows = 0;
+			}
+		}
+
+		/**
+		 * Gives the statements completed since the last call.
+		 */
+		private String drain() {
+			String text = completed.toString();
+			completed.setLength(0);
+			return text;
+		}
+
+		/**
+		 * Gives the remaining statements, including the last partial one.
+		 */
+		private String finish() {
+			if (rows > 0) {
+				completed.append(statement).append(";\n");
+				statement.setLength(0);
+				rows = 0;
+			}
+			return drain();
+		}
+	}
+
+}
@@ -0,0 +1,95 @@
+package com.reactiveworks.productservice.loadtest;
+
+/**
+ * Log-linear histogram of latencies in nanoseconds with a relative error below
+ * 2%. Recording is a few arithmetic operations and never allocates, so every
+ * client thread keeps its own histogram and they are merged at the end.
+ */
+public class LatencyHistogram {
+
+	private static final int LINEAR_BUCKETS = 128;
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int FIRST_LOG_MAGNITUDE = 7;
+
+	private final long[] counts = new long[LINEAR_BUCKETS + (63 - FIRST_LOG_MAGNITUDE) * SUB_BUCKETS];
+	private long totalCount;
+	private long maxValue;
+
+	/**
+	 * Records one latency.
+	 * 
+	 * @param nanos latency in nanoseconds.
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts[bucketOf(value)]++;
+		totalCount++;
+		maxValue = Math.max(maxValue, value);
+	}
+
+	/**
+	 * Adds the latencies recorded by another histogram.
+	 * 
+	 * @param other histogram to add.
+	 */
+	public void add(LatencyHistogram other) {
+		for (int bucket = 0; bucket < counts.length; bucket++) {
+			counts[bucket] += other.counts[bucket];
+		}
+		totalCount += other.totalCount;
+		maxValue = Math.max(maxValue, other.maxValue);
+	}
+
+	public long getCount() {
+		return totalCount;
+	}
+
+	public long getMaxValue() {
+		return maxValue;
+	}
+
+	/**
+	 * Gives the latency below which the given percentage of the recorded
+	 * latencies fall.
+	 * 
+	 * @param percentile percentage, from 0 to 100.
+	 * @return the highest latency of the bucket of the percentile in
+	 *         nanoseconds, 0 when nothing was recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (totalCount == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+		long seen = 0;
+		for (int bucket = 0; bucket < counts.length; bucket++) {
+			seen += counts[bucket];
+			if (seen >= rank) {
+				return Math.min(highestValueOf(bucket), maxValue);
+			}
+		}
+		return maxValue;
+	}
+
+	private static int bucketOf(long value) {
+		if (value < LINEAR_BUCKETS) {
+			return (int) value;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		int shift = magnitude - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+		return LINEAR_BUCKETS + (magnitude - FIRST_LOG_MAGNITUDE) * SUB_BUCKETS + subBucket;
+	}
+
+	private static long highestValueOf(int bucket) {
+		if (bucket < LINEAR_BUCKETS) {
+			return bucket;
+		}
+		int magnitude = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + FIRST_LOG_MAGNITUDE;
+		int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+		int shift = magnitude - SUB_BUCKET_BITS;
+		return ((long) (subBucket + 1) << shift) - 1;
+	}
+
+}
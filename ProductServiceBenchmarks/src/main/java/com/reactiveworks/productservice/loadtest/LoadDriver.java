@@ -0,0 +1,246 @@
+package com.reactiveworks.productservice.loadtest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import com.reactiveworks.productservice.benchmark.SyntheticCatalog;
+import com.reactiveworks.productservice.dao.IProductDao;
+import com.reactiveworks.productservice.dao.IUserDao;
+import com.reactiveworks.productservice.model.Product;
+import com.reactiveworks.productservice.model.User;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoCSVImpl;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoInMemoryImpl;
+import com.reactiveworks.productservice.product.dao.implementation.ProductDaoMysqlImpl;
+import com.reactiveworks.productservice.service.IProductAvailabilityService;
+import com.reactiveworks.productservice.service.implementation.ProductAvailabilityService;
+import com.reactiveworks.productservice.user.dao.implementation.UserDaoCSVImpl;
+import com.reactiveworks.productservice.user.dao.implementation.UserDaoInMemoryImpl;
+import com.reactiveworks.productservice.user.dao.implementation.UserDaoMysqlImpl;
+
+/**
+ * Runs the queries of IProductAvailabilityService from concurrent clients for
+ * a fixed duration and reports the throughput and the latency percentiles.
+ *
+ * The catalog is generated by CatalogGenerator, from the same arguments, and
+ * served from CSV files (backend=csv), from the in memory daos seeded from
+ * those files (backend=inmemory) or from an embedded H2 database in MySQL mode
+ * through the MySQL daos (backend=h2), so no server is needed.
+ * Besides the generator arguments it takes clients, duration and warmup in
+ * seconds, and categoryratio, the share of the queries which also filter by
+ * category.
+ *
+ * <pre>
+ * java -cp benchmarks.jar com.reactiveworks.productservice.loadtest.LoadDriver backend=csv clients=64 duration=30 products=1000000 cities=200 cityskew=1
+ * </pre>
+ */
+public class LoadDriver {
+
+	private static final String H2_URL = "jdbc:h2:mem:loadtest;MODE=MySQL;IGNORECASE=TRUE;NON_KEYWORDS=USER;"
+			+ "DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:sql/schema.sql'";
+	private static final int SEED_BATCH = 10000;
+
+	private final IProductAvailabilityService service;
+	private final CatalogGenerator generator;
+	private final double categoryRatio;
+
+	/**
+	 * Creates the driver.
+	 * 
+	 * @param service       service to query.
+	 * @param generator     generator of the catalog served by the service.
+	 * @param categoryRatio share of the queries which also filter by category.
+	 */
+	public LoadDriver(IProductAvailabilityService service, CatalogGenerator generator, double categoryRatio) {
+		this.service = service;
+		this.generator = generator;
+		this.categoryRatio = categoryRatio;
+	}
+
+	/**
+	 * Runs the clients and gives the latencies recorded after the warmup.
+	 * 
+	 * @param clients  number of concurrent clients.
+	 * @param warmup   time during which latencies are not recorded.
+	 * @param duration time during which latencies are recorded.
+	 * @param unit     unit of warmup and duration.
+	 * @return the result of the run.
+	 * @throws InterruptedException when interrupted while waiting for the clients.
+	 * @throws ExecutionException   when a client fails.
+	 */
+	public LoadResult run(int clients, long warmup, long duration, TimeUnit unit)
+			throws InterruptedException, ExecutionException {
+		ExecutorService executor = Executors.newFixedThreadPool(clients);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<LoadResult>> results = new ArrayList<>();
+		try {
+			for (int client = 0; client < clients; client++) {
+				long clientSeed = client;
+				results.add(executor.submit(() -> {
+					start.await();
+					long measureStart = System.nanoTime() + unit.toNanos(warmup);
+					return runClient(new Random(clientSeed), measureStart, measureStart + unit.toNanos(duration));
+				}));
+			}
+			start.countDown();
+			LoadResult total = new LoadResult(unit.toNanos(duration));
+			for (Future<LoadResult> result : results) {
+				total.add(result.get());
+			}
+			return total;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private LoadResult runClient(Random random, long measureStart, long measureEnd) {
+		LoadResult result = new LoadResult(measureEnd - measureStart);
+		ZipfSampler categories = generator.newCategorySampler();
+		int userCount = generator.getUserCount();
+		long now = System.nanoTime();
+		while (now < measureEnd) {
+			String userId = SyntheticCatalog.userId(random.nextInt(userCount));
+			boolean categoryQuery = random.nextDouble() < categoryRatio;
+			String category = categoryQuery ? SyntheticCatalog.category(categories.sample(random)) : null;
+			boolean failed = false;
+			try {
+				if (categoryQuery) {
+					service.getAllProductForUserForCategory(userId, category);
+				} else {
+					service.getAllProductForUser(userId);
+				}
+			} catch (Exception exp) {
+				failed = true;
+			}
+			long end = System.nanoTime();
+			if (now >= measureStart) {
+				result.record(categoryQuery, end - now, failed);
+			}
+			now = end;
+		}
+		return result;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (System.getProperty("log4j.configuration") == null) {
+			Logger.getRootLogger().setLevel(Level.WARN);
+		}
+		Arguments arguments = new Arguments(args);
+		CatalogGenerator generator = CatalogGenerator.fromArguments(arguments);
+		String backend = arguments.getString("backend", "csv").toLowerCase(Locale.ROOT);
+		int clients = arguments.getInt("clients", Runtime.getRuntime().availableProcessors());
+		int warmup = arguments.getInt("warmup", 5);
+		int duration = arguments.getInt("duration", 30);
+
+		Path directory = Files.createTempDirectory("load-driver");
+		long setupStart = System.nanoTime();
+		IProductDao productDao;
+		IUserDao userDao;
+		if (backend.equals("csv") || backend.equals("inmemory")) {
+			Path productFile = directory.resolve("Product.csv");
+			Path userFile = directory.resolve("User.csv");
+			generator.writeProductCsv(productFile);
+			generator.writeUserCsv(userFile);
+			int parallelism = Runtime.getRuntime().availableProcessors();
+			productDao = new ProductDaoCSVImpl(productFile, parallelism);
+			userDao = new UserDaoCSVImpl(userFile, parallelism);
+			if (backend.equals("inmemory")) {
+				productDao = new ProductDaoInMemoryImpl(productDao);
+				userDao = new UserDaoInMemoryImpl(userDao);
+			}
+		} else if (backend.equals("h2")) {
+			productDao = new ProductDaoMysqlImpl();
+			userDao = new UserDaoMysqlImpl();
+			seedEmbeddedDatabase(directory, generator, productDao, userDao);
+		} else {
+			throw new IllegalArgumentException("unknown backend " + backend + ", expected csv, inmemory or h2");
+		}
+		ProductAvailabilityService service = new ProductAvailabilityService(productDao, userDao);
+		System.out.println("catalog of " + generator.getProductCount() + " products and " + generator.getUserCount()
+				+ " users ready on " + backend + " in "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - setupStart) + " ms");
+
+		LoadResult result = new LoadDriver(service, generator, arguments.getDouble("categoryratio", 0.5))
+				.run(clients, warmup, duration, TimeUnit.SECONDS);
+		System.out.println(clients + " clients, " + duration + " s after " + warmup + " s of warmup");
+		System.out.print(result.report());
+		deleteDirectory(directory);
+	}
+
+	/**
+	 * Points DBUtil at an in-memory H2 database and inserts the generated
+	 * records with the batch inserts of the daos.
+	 */
+	private static void seedEmbeddedDatabase(Path directory, CatalogGenerator generator, IProductDao productDao,
+			IUserDao userDao) throws Exception {
+		Path properties = directory.resolve("database.properties");
+		try (Writer writer = Files.newBufferedWriter(properties, StandardCharsets.UTF_8)) {
+			writer.write("driver.class.name=org.h2.Driver\n");
+			writer.write("url=" + H2_URL.replace("\\", "\\\\") + "\n");
+			writer.write("username=sa\npassword=\nminidleindex=1\nmaxidleindex=64\nmaxtotal=64\n");
+		}
+		System.setProperty("productservice.database.properties", properties.toString());
+		List<Product> products = new ArrayList<>(SEED_BATCH);
+		List<Exception> failures = new ArrayList<>();
+		generator.forEachProduct(product -> {
+			products.add(product);
+			if (products.size() == SEED_BATCH) {
+				insertBatch(productDao::insertRecords, products, failures);
+			}
+		});
+		insertBatch(productDao::insertRecords, products, failures);
+		List<User> users = new ArrayList<>(SEED_BATCH);
+		generator.forEachUser(user -> {
+			users.add(user);
+			if (users.size() == SEED_BATCH) {
+				insertBatch(userDao::insertRecords, users, failures);
+			}
+		});
+		insertBatch(userDao::insertRecords, users, failures);
+		if (!failures.isEmpty()) {
+			throw failures.get(0);
+		}
+	}
+
+	private static <T> void insertBatch(RecordInserter<T> inserter, List<T> records, List<Exception> failures) {
+		if (!records.isEmpty() && failures.isEmpty()) {
+			try {
+				inserter.insert(records);
+			} catch (Exception exp) {
+				failures.add(exp);
+			}
+		}
+		records.clear();
+	}
+
+	private static void deleteDirectory(Path directory) throws IOException {
+		for (String file : new String[] { "Product.csv", "User.csv", "database.properties" }) {
+			Files.deleteIfExists(directory.resolve(file));
+		}
+		Files.deleteIfExists(directory);
+	}
+
+	/**
+	 * Bulk insert of a dao.
+	 */
+	@FunctionalInterface
+	private interface RecordInserter<T> {
+		void insert(List<T> records) throws Exception;
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.reactiveworks.productservice.loadtest;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencies and errors recorded by the clients of LoadDriver.
+ */
+public class LoadResult {
+
+	private final long durationNanos;
+	private final LatencyHistogram userQueries = new LatencyHistogram();
+	private final LatencyHistogram categoryQueries = new LatencyHistogram();
+	private long errors;
+
+	/**
+	 * Creates an empty result.
+	 * 
+	 * @param durationNanos time over which the latencies are recorded.
+	 */
+	public LoadResult(long durationNanos) {
+		this.durationNanos = durationNanos;
+	}
+
+	/**
+	 * Records one query.
+	 * 
+	 * @param categoryQuery whether the query filtered by category.
+	 * @param nanos         latency of the query.
+	 * @param failed        whether the query threw an exception.
+	 */
+	public void record(boolean categoryQuery, long nanos, boolean failed) {
+		(categoryQuery ? categoryQueries : userQueries).record(nanos);
+		if (failed) {
+			errors++;
+		}
+	}
+
+	/**
+	 * Adds the queries recorded by another client over the same duration.
+	 * 
+	 * @param other result of the other client.
+	 */
+	public void add(LoadResult other) {
+		userQueries.add(other.userQueries);
+		categoryQueries.add(other.categoryQueries);
+		errors += other.errors;
+	}
+
+	public long getErrors() {
+		return errors;
+	}
+
+	/**
+	 * Gives the latencies of all queries.
+	 * 
+	 * @return the merged histogram.
+	 */
+	public LatencyHistogram getAllQueries() {
+		LatencyHistogram all = new LatencyHistogram();
+		all.add(userQueries);
+		all.add(categoryQueries);
+		return all;
+	}
+
+	/**
+	 * Gives the number of queries per second over the duration.
+	 * 
+	 * @return the throughput.
+	 */
+	public double getThroughput() {
+		return getAllQueries().getCount() / (durationNanos / 1e9);
+	}
+
+	/**
+	 * Formats the throughput and latency percentiles, one line per kind of
+	 * query.
+	 * 
+	 * @return the report.
+	 */
+	public String report() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format(Locale.ROOT, "throughput %.0f queries/s, %d errors%n", getThroughput(), errors));
+		report.append(String.format(Locale.ROOT, "%-10s %12s %10s %10s %10s %10s%n", "query", "count", "p50 us",
+				"p99 us", "p999 us", "max us"));
+		appendLine(report, "user", userQueries);
+		appendLine(report, "category", categoryQueries);
+		appendLine(report, "all", getAllQueries());
+		return report.toString();
+	}
+
+	private static void appendLine(StringBuilder report, String name, LatencyHistogram histogram) {
+		report.append(String.format(Locale.ROOT, "%-10s %12d %10.1f %10.1f %10.1f %10.1f%n", name,
+				histogram.getCount(), micros(histogram.getValueAtPercentile(50)),
+				micros(histogram.getValueAtPercentile(99)), micros(histogram.getValueAtPercentile(99.9)),
+				micros(histogram.getMaxValue())));
+	}
+
+	private static double micros(long nanos) {
+		return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.reactiveworks.productservice.loadtest;
+
+import java.util.Random;
+
+/**
+ * Distribution of the product prices generated by CatalogGenerator.
+ */
+public enum PriceDistribution {
+
+	/**
+	 * Every price of the range is equally likely.
+	 */
+	UNIFORM {
+		@Override
+		public int sample(Random random, int minPrice, int maxPrice) {
+			return minPrice + random.nextInt(maxPrice - minPrice + 1);
+		}
+	},
+
+	/**
+	 * Log-normal prices around the geometric mean of the range: many cheap
+	 * products and a long tail of expensive ones, clipped to the range.
+	 */
+	LOGNORMAL {
+		@Override
+		public int sample(Random random, int minPrice, int maxPrice) {
+			double median = Math.sqrt((double) Math.max(1, minPrice) * maxPrice);
+			double price = median * Math.exp(LOGNORMAL_SIGMA * random.nextGaussian());
+			return (int) Math.max(minPrice, Math.min(maxPrice, Math.round(price)));
+		}
+	};
+
+	private static final double LOGNORMAL_SIGMA = 0.9;
+
+	/**
+	 * Draws a price.
+	 * 
+	 * @param random   source of randomness.
+	 * @param minPrice lowest price.
+	 * @param maxPrice highest price.
+	 * @return the price, within the range.
+	 */
+	public abstract int sample(Random random, int minPrice, int maxPrice);
+
+}
@@ -0,0 +1,50 @@
+package com.reactiveworks.productservice.loadtest;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Samples ranks 0 to n-1 where rank k is drawn with a probability proportional
+ * to 1/(k+1)^exponent. An exponent of 0 gives the uniform distribution, around
+ * 1 a few big cities or categories own most of the catalog.
+ */
+public class ZipfSampler {
+
+	private final double[] cumulative;
+
+	/**
+	 * Creates the sampler.
+	 * 
+	 * @param n        number of ranks.
+	 * @param exponent skew of the distribution, 0 or more.
+	 */
+	public ZipfSampler(int n, double exponent) {
+		if (n <= 0 || exponent < 0) {
+			throw new IllegalArgumentException("invalid zipf distribution of " + n + " ranks and exponent " + exponent);
+		}
+		cumulative = new double[n];
+		double sum = 0;
+		for (int rank = 0; rank < n; rank++) {
+			sum += 1 / Math.pow(rank + 1, exponent);
+			cumulative[rank] = sum;
+		}
+		for (int rank = 0; rank < n; rank++) {
+			cumulative[rank] /= sum;
+		}
+	}
+
+	/**
+	 * Draws a rank.
+	 * 
+	 * @param random source of randomness.
+	 * @return the rank, from 0 to n-1.
+	 */
+	public int sample(Random random) {
+		int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+		if (rank < 0) {
+			rank = -rank - 1;
+		}
+		return Math.min(rank, cumulative.length - 1);
+	}
+
+}